@@ -44,6 +44,28 @@ public enum STExceptionID {
      */
     XMLSTORAGE_STORE_WEIGHT_LIST,
 
+    /**
+     * failed to read the change journal of a list
+     */
+    JOURNALSTORAGE_READ_JOURNAL,
+    /**
+     * failed to write the change journal of a list
+     */
+    JOURNALSTORAGE_WRITE_JOURNAL,
+    /**
+     * failed to compact the change journal of a list into the XML file
+     */
+    JOURNALSTORAGE_COMPACTION,
+
+    /**
+     * failed to read application data from the SQLite database
+     */
+    SQLITESTORAGE_READ,
+    /**
+     * failed to store application data in the SQLite database
+     */
+    SQLITESTORAGE_STORE,
+
     /**
      * failed to create application directory
      */
@@ -53,6 +75,27 @@ public enum STExceptionID {
      * failed to export application data to SQLite
      */
     SQLITE_EXPORT,
+    /**
+     * failed to export application data to CSV or JSON Lines files
+     */
+    BULK_EXPORT,
+
+    /**
+     * failed to read the data directory to synchronize with
+     */
+    DATASYNC_READ,
+    /**
+     * failed to store the synchronized data or the synchronization index
+     */
+    DATASYNC_STORE,
+    /**
+     * the sport types of the synchronized data directories are different
+     */
+    DATASYNC_SPORT_TYPES_DIFFERENT,
+    /**
+     * the data directory to synchronize with contains pending journal files
+     */
+    DATASYNC_JOURNAL_PENDING,
 
     /**
      * failed to parse the distance entry in the exercise dialog
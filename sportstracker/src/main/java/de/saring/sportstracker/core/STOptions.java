@@ -8,8 +8,8 @@ import java.io.Serializable;
 
 /**
  * This class contains all options of the SportsTracker application, it also implements the
- * ExerciseViewer options interface. These options will be persisted by using XmlBeanStorage
- * (which uses the Java Beans Persistence classes XMLEncoder and XMLDecoder).
+ * ExerciseViewer options interface. These options will be persisted by using the STOptionsSerializer,
+ * options files of previous versions were written by XmlBeanStorage (Java Beans Persistence).
  *
  * @author Stefan Saring
  */
@@ -27,6 +27,14 @@ public class STOptions implements EVOptions, Serializable {
         Distance, AvgSpeed, Duration
     }
 
+    /**
+     * This is the list of possible storage types of the application data (XMLPartitioned stores
+     * the exercises in one XML file per year).
+     */
+    public enum StorageType {
+        XML, XMLPartitioned, SQLite
+    }
+
     /** This is the initial view of the GUI (at startup). */
     private View initialView;
 
@@ -43,6 +51,15 @@ public class STOptions implements EVOptions, Serializable {
      */
     private boolean saveOnExit;
 
+    /** If this flag is true, then all data changes will be saved automatically in background. */
+    private boolean autoSave;
+
+    /** This is the storage type of the application data, changes will be used after the next start. */
+    private StorageType storageType;
+
+    /** If this flag is true, then the XML data files will be written GZIP compressed. */
+    private boolean compressDataFiles;
+
     /**
      * If this flag is true, then the second chart will always be displayed in the ExerciseViewer diagram panel (data
      * must be available).
@@ -91,6 +108,9 @@ public class STOptions implements EVOptions, Serializable {
         this.speedView = SpeedView.DistancePerHour;
         this.defaultAutoCalcuation = AutoCalculation.Duration;
         this.saveOnExit = false;
+        this.autoSave = false;
+        this.storageType = StorageType.XML;
+        this.compressDataFiles = false;
         this.displaySecondChart = false;
         this.displaySmoothedCharts = true;
         this.weekStartSunday = false;
@@ -147,6 +167,34 @@ public class STOptions implements EVOptions, Serializable {
         this.saveOnExit = saveOnExit;
     }
 
+    public boolean isAutoSave() {
+        return autoSave;
+    }
+
+    public void setAutoSave(boolean autoSave) {
+        this.autoSave = autoSave;
+    }
+
+    public StorageType getStorageType() {
+        // set to 'XML' when not set yet (can happen when updating from previous version)
+        if (storageType == null) {
+            storageType = StorageType.XML;
+        }
+        return storageType;
+    }
+
+    public void setStorageType(StorageType storageType) {
+        this.storageType = storageType;
+    }
+
+    public boolean isCompressDataFiles() {
+        return compressDataFiles;
+    }
+
+    public void setCompressDataFiles(boolean compressDataFiles) {
+        this.compressDataFiles = compressDataFiles;
+    }
+
     public boolean isDisplaySecondChart() {
         return displaySecondChart;
     }
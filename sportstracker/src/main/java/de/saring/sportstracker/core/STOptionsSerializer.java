@@ -0,0 +1,128 @@
+package de.saring.sportstracker.core;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import de.saring.util.OptionsFile;
+import de.saring.util.unitcalc.FormatUtils.SpeedView;
+import de.saring.util.unitcalc.FormatUtils.UnitSystem;
+
+/**
+ * This class reads and writes the STOptions (including the ExerciseViewer options) from and to an
+ * {@link OptionsFile}. All options are mapped explicitly, so there is no reflection on the startup path.
+ * Missing values (e.g. options added in later schema versions) get the default values of STOptions.
+ * <br/>
+ * The schema version needs to be incremented when the meaning of stored values changes, the migration
+ * of older versions must be done in {@link #read(Path)}.
+ *
+ * @author Stefan Saring
+ */
+public final class STOptionsSerializer {
+
+    /** The current schema version of the stored options. */
+    static final int SCHEMA_VERSION = 1;
+
+    private static final String KEY_INITIAL_VIEW = "initialView";
+    private static final String KEY_UNIT_SYSTEM = "unitSystem";
+    private static final String KEY_SPEED_VIEW = "speedView";
+    private static final String KEY_DEFAULT_AUTO_CALCULATION = "defaultAutoCalculation";
+    private static final String KEY_SAVE_ON_EXIT = "saveOnExit";
+    private static final String KEY_AUTO_SAVE = "autoSave";
+    private static final String KEY_STORAGE_TYPE = "storageType";
+    private static final String KEY_COMPRESS_DATA_FILES = "compressDataFiles";
+    private static final String KEY_DISPLAY_SECOND_CHART = "ev.displaySecondChart";
+    private static final String KEY_DISPLAY_SMOOTHED_CHARTS = "ev.displaySmoothedCharts";
+    private static final String KEY_WEEK_START_SUNDAY = "weekStartSunday";
+    private static final String KEY_LIST_VIEW_SHOW_AVG_HEARTRATE = "listView.showAvgHeartrate";
+    private static final String KEY_LIST_VIEW_SHOW_ASCENT = "listView.showAscent";
+    private static final String KEY_LIST_VIEW_SHOW_DESCENT = "listView.showDescent";
+    private static final String KEY_LIST_VIEW_SHOW_ENERGY = "listView.showEnergy";
+    private static final String KEY_LIST_VIEW_SHOW_EQUIPMENT = "listView.showEquipment";
+    private static final String KEY_LIST_VIEW_SHOW_COMMENT = "listView.showComment";
+    private static final String KEY_PREVIOUS_EXERCISE_DIRECTORY = "previousExerciseDirectory";
+
+    private STOptionsSerializer() {
+    }
+
+    /**
+     * Reads the options from the specified file.
+     *
+     * @param file the options file
+     * @return the read options
+     * @throws IOException when the file does not exists, can't be read or has an unsupported schema version
+     */
+    public static STOptions read(final Path file) throws IOException {
+        final OptionsFile optionsFile = OptionsFile.read(file);
+        if (optionsFile.getSchemaVersion() < 1 || optionsFile.getSchemaVersion() > SCHEMA_VERSION) {
+            throw new IOException("The options file '" + file + "' has the unsupported schema version "
+                    + optionsFile.getSchemaVersion() + "!");
+        }
+
+        final STOptions defaults = new STOptions();
+        final STOptions options = new STOptions();
+        options.setInitialView(optionsFile.getEnum(KEY_INITIAL_VIEW,
+                STOptions.View.values(), defaults.getInitialView()));
+        options.setUnitSystem(optionsFile.getEnum(KEY_UNIT_SYSTEM,
+                UnitSystem.values(), defaults.getUnitSystem()));
+        options.setSpeedView(optionsFile.getEnum(KEY_SPEED_VIEW,
+                SpeedView.values(), defaults.getSpeedView()));
+        options.setDefaultAutoCalcuation(optionsFile.getEnum(KEY_DEFAULT_AUTO_CALCULATION,
+                STOptions.AutoCalculation.values(), defaults.getDefaultAutoCalcuation()));
+        options.setSaveOnExit(optionsFile.getBoolean(KEY_SAVE_ON_EXIT, defaults.isSaveOnExit()));
+        options.setAutoSave(optionsFile.getBoolean(KEY_AUTO_SAVE, defaults.isAutoSave()));
+        options.setStorageType(optionsFile.getEnum(KEY_STORAGE_TYPE,
+                STOptions.StorageType.values(), defaults.getStorageType()));
+        options.setCompressDataFiles(optionsFile.getBoolean(KEY_COMPRESS_DATA_FILES,
+                defaults.isCompressDataFiles()));
+        options.setDisplaySecondChart(optionsFile.getBoolean(KEY_DISPLAY_SECOND_CHART,
+                defaults.isDisplaySecondChart()));
+        options.setDisplaySmoothedCharts(optionsFile.getBoolean(KEY_DISPLAY_SMOOTHED_CHARTS,
+                defaults.isDisplaySmoothedCharts()));
+        options.setWeekStartSunday(optionsFile.getBoolean(KEY_WEEK_START_SUNDAY, defaults.isWeekStartSunday()));
+        options.setListViewShowAvgHeartrate(optionsFile.getBoolean(KEY_LIST_VIEW_SHOW_AVG_HEARTRATE,
+                defaults.isListViewShowAvgHeartrate()));
+        options.setListViewShowAscent(optionsFile.getBoolean(KEY_LIST_VIEW_SHOW_ASCENT,
+                defaults.isListViewShowAscent()));
+        options.setListViewShowDescent(optionsFile.getBoolean(KEY_LIST_VIEW_SHOW_DESCENT,
+                defaults.isListViewShowDescent()));
+        options.setListViewShowEnergy(optionsFile.getBoolean(KEY_LIST_VIEW_SHOW_ENERGY,
+                defaults.isListViewShowEnergy()));
+        options.setListViewShowEquipment(optionsFile.getBoolean(KEY_LIST_VIEW_SHOW_EQUIPMENT,
+                defaults.isListViewShowEquipment()));
+        options.setListViewShowComment(optionsFile.getBoolean(KEY_LIST_VIEW_SHOW_COMMENT,
+                defaults.isListViewShowComment()));
+        options.setPreviousExerciseDirectory(optionsFile.getString(KEY_PREVIOUS_EXERCISE_DIRECTORY,
+                defaults.getPreviousExerciseDirectory()));
+        return options;
+    }
+
+    /**
+     * Writes the options to the specified file.
+     *
+     * @param options the options to write
+     * @param file the options file
+     * @throws IOException when the file can't be created or written
+     */
+    public static void write(final STOptions options, final Path file) throws IOException {
+        final OptionsFile optionsFile = new OptionsFile(SCHEMA_VERSION);
+        optionsFile.putEnum(KEY_INITIAL_VIEW, options.getInitialView());
+        optionsFile.putEnum(KEY_UNIT_SYSTEM, options.getUnitSystem());
+        optionsFile.putEnum(KEY_SPEED_VIEW, options.getSpeedView());
+        optionsFile.putEnum(KEY_DEFAULT_AUTO_CALCULATION, options.getDefaultAutoCalcuation());
+        optionsFile.putBoolean(KEY_SAVE_ON_EXIT, options.isSaveOnExit());
+        optionsFile.putBoolean(KEY_AUTO_SAVE, options.isAutoSave());
+        optionsFile.putEnum(KEY_STORAGE_TYPE, options.getStorageType());
+        optionsFile.putBoolean(KEY_COMPRESS_DATA_FILES, options.isCompressDataFiles());
+        optionsFile.putBoolean(KEY_DISPLAY_SECOND_CHART, options.isDisplaySecondChart());
+        optionsFile.putBoolean(KEY_DISPLAY_SMOOTHED_CHARTS, options.isDisplaySmoothedCharts());
+        optionsFile.putBoolean(KEY_WEEK_START_SUNDAY, options.isWeekStartSunday());
+        optionsFile.putBoolean(KEY_LIST_VIEW_SHOW_AVG_HEARTRATE, options.isListViewShowAvgHeartrate());
+        optionsFile.putBoolean(KEY_LIST_VIEW_SHOW_ASCENT, options.isListViewShowAscent());
+        optionsFile.putBoolean(KEY_LIST_VIEW_SHOW_DESCENT, options.isListViewShowDescent());
+        optionsFile.putBoolean(KEY_LIST_VIEW_SHOW_ENERGY, options.isListViewShowEnergy());
+        optionsFile.putBoolean(KEY_LIST_VIEW_SHOW_EQUIPMENT, options.isListViewShowEquipment());
+        optionsFile.putBoolean(KEY_LIST_VIEW_SHOW_COMMENT, options.isListViewShowComment());
+        optionsFile.putString(KEY_PREVIOUS_EXERCISE_DIRECTORY, options.getPreviousExerciseDirectory());
+        optionsFile.write(file);
+    }
+}
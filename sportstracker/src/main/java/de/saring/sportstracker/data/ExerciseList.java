@@ -1,6 +1,11 @@
 package de.saring.sportstracker.data;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
 
 /**
  * This class contains a list of all exercises of the user and provides access
@@ -11,6 +16,87 @@ import java.util.regex.PatternSyntaxException;
  */
 public final class ExerciseList extends EntryList<Exercise> {
 
+    /** The years of the stored exercises which have not been loaded into this list yet. */
+    private final SortedSet<Integer> unloadedYears = new TreeSet<>();
+
+    /** The highest ID of the stored exercises, including the exercises of the unloaded years. */
+    private int storedMaxId;
+
+    /** The loader of the exercises of the unloaded years. */
+    private YearLoader yearLoader;
+
+    /**
+     * Sets the years of the stored exercises, which have not been loaded into this list yet (e.g. when
+     * using the partitioned storage). They will be loaded by the specified loader, when they get accessed
+     * by a filter, a date range or a stored exercise. New IDs will be higher than the specified highest ID
+     * of the stored exercises, also when loading some years has failed.
+     *
+     * @param years the years of the unloaded exercises
+     * @param maxId the highest ID of the stored exercises
+     * @param loader the loader of the exercises of the unloaded years
+     */
+    public void setUnloadedYears(List<Integer> years, int maxId, YearLoader loader) {
+        unloadedYears.clear();
+        unloadedYears.addAll(years);
+        storedMaxId = maxId;
+        yearLoader = loader;
+    }
+
+    /**
+     * Returns true when the exercises of all years have been loaded into this list.
+     *
+     * @return true when all exercises are loaded
+     */
+    public boolean isLoadedCompletely() {
+        return unloadedYears.isEmpty();
+    }
+
+    /**
+     * Loads the exercises of all unloaded years into this list. This is needed before
+     * processing all exercises, e.g. when checking the references of a sport type.
+     */
+    public void loadAllYears() {
+        loadYears(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Override
+    public void set(Exercise exercise) {
+        // the exercises of the target year must be loaded, otherwise its storage can't be updated
+        if (exercise != null && exercise.getDateTime() != null) {
+            final LocalDate date = exercise.getDateTime().toLocalDate();
+            loadYears(date, date);
+        }
+        super.set(exercise);
+    }
+
+    /**
+     * Returns a new ID, it's higher than the IDs of all stored exercises when the list has unloaded years
+     * (the IDs of the unloaded exercises are unknown).
+     *
+     * @return a new unused ID
+     */
+    @Override
+    public int getNewID() {
+        if (yearLoader != null) {
+            return Math.max(storedMaxId, stream().mapToInt(Exercise::getId).max().orElse(0)) + 1;
+        }
+        return super.getNewID();
+    }
+
+    @Override
+    public List<Exercise> getEntriesInDateRange(LocalDate dStart, LocalDate dEnd) {
+        if (dStart != null && dEnd != null) {
+            loadYears(dStart, dEnd);
+        }
+        return super.getEntriesInDateRange(dStart, dEnd);
+    }
+
+    @Override
+    public EntryList<Exercise> getEntriesForFilter(EntryFilter filter) throws PatternSyntaxException {
+        loadYears(filter.getDateStart(), filter.getDateEnd());
+        return super.getEntriesForFilter(filter);
+    }
+
     /**
      * This method updates the sport type, the subtype and the equipment objects
      * for all exercises. This is necessary when the sport type objects have
@@ -81,4 +167,36 @@ public final class ExerciseList extends EntryList<Exercise> {
         // all filter criteria are fulfilled
         return true;
     }
+
+    /**
+     * Loads the exercises of the unloaded years of the specified date range, the years are removed
+     * before, so they are not loaded again when loading fails.
+     */
+    private void loadYears(LocalDate dStart, LocalDate dEnd) {
+        if (unloadedYears.isEmpty() || dStart.isAfter(dEnd)) {
+            return;
+        }
+
+        final List<Integer> years = unloadedYears.stream()
+                .filter(year -> year >= dStart.getYear() && year <= dEnd.getYear())
+                .collect(Collectors.toList());
+        if (!years.isEmpty()) {
+            unloadedYears.removeAll(years);
+            yearLoader.loadYears(years);
+        }
+    }
+
+    /**
+     * Loader for the exercises of the years, which have not been loaded into the list yet.
+     */
+    @FunctionalInterface
+    public interface YearLoader {
+
+        /**
+         * Loads the exercises of the specified years and adds them to the exercise list.
+         *
+         * @param years the years to load
+         */
+        void loadYears(List<Integer> years);
+    }
 }
@@ -0,0 +1,213 @@
+package de.saring.sportstracker.gui;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import de.saring.sportstracker.core.STException;
+import javafx.application.Platform;
+
+/**
+ * This class saves the modified application data automatically in background. Bursts of data changes
+ * are coalesced, the save starts when no changes were made for a quiet period. The snapshot of the
+ * modified lists is created on the UI thread, storing is done by a background thread without blocking
+ * the UI. When a save is still running, the next save will be started after its completion (backpressure),
+ * so there is never more than one running save.
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class AutoSaveScheduler {
+    private static final Logger LOGGER = Logger.getLogger(AutoSaveScheduler.class.getName());
+
+    /** The period without data changes before the save starts. */
+    private static final long QUIET_PERIOD_MILLIS = 3000;
+
+    /** Maximum time to wait for a running save on shutdown. */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final STDocument document;
+    private final Executor uiExecutor;
+    private final long quietPeriodMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "ST-AutoSave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // all state flags are guarded by this scheduler instance
+    private ScheduledFuture<?> scheduledSave;
+    private boolean saveRunning;
+    private boolean saveRequested;
+    private boolean shutdown;
+
+    private volatile Duration lastSaveLatency;
+    private volatile Runnable saveListener;
+
+    /**
+     * Standard c'tor, the snapshots are created on the JavaFX application thread.
+     *
+     * @param document the document with the application data
+     */
+    @Inject
+    public AutoSaveScheduler(final STDocument document) {
+        this(document, Platform::runLater, QUIET_PERIOD_MILLIS);
+    }
+
+    /**
+     * C'tor for specifying the UI thread executor and the quiet period (e.g. for testing).
+     *
+     * @param document the document with the application data
+     * @param uiExecutor executor of the thread modifying the application data
+     * @param quietPeriodMillis the period without data changes before the save starts
+     */
+    AutoSaveScheduler(final STDocument document, final Executor uiExecutor, final long quietPeriodMillis) {
+        this.document = document;
+        this.uiExecutor = uiExecutor;
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+    /**
+     * Sets the listener which will be executed on the UI thread after each automatic save (successful
+     * or not), e.g. for updating the actions and the status bar.
+     *
+     * @param saveListener the listener (or null for none)
+     */
+    public void setSaveListener(final Runnable saveListener) {
+        this.saveListener = saveListener;
+    }
+
+    /**
+     * Must be called after each data change, the save will be started after the quiet period when
+     * no further changes are reported.
+     */
+    public synchronized void onDataChanged() {
+        if (shutdown) {
+            return;
+        }
+        if (scheduledSave != null) {
+            scheduledSave.cancel(false);
+        }
+        scheduledSave = executor.schedule(this::startSave, quietPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the number of data changes which have not been saved yet.
+     *
+     * @return number of pending changes
+     */
+    public long getPendingChangeCount() {
+        return document.getUnsavedChangeCount();
+    }
+
+    /**
+     * Returns the duration of storing the data lists in the last successful automatic save.
+     *
+     * @return the duration or null when no save has been done yet
+     */
+    public Duration getLastSaveLatency() {
+        return lastSaveLatency;
+    }
+
+    /**
+     * Returns true when an automatic save is in progress.
+     *
+     * @return true when a save is running
+     */
+    public synchronized boolean isSaveRunning() {
+        return saveRunning;
+    }
+
+    /**
+     * Stops the scheduler, no further saves will be started. A running save will be completed,
+     * this method waits for its completion.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            if (scheduledSave != null) {
+                scheduledSave.cancel(false);
+            }
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warning("Automatic save has not been completed on shutdown!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void startSave() {
+        if (shutdown) {
+            return;
+        }
+        if (saveRunning) {
+            // a save is still in progress, start the next one after its completion
+            saveRequested = true;
+            return;
+        }
+
+        saveRunning = true;
+        uiExecutor.execute(this::createSnapshotAndStore);
+    }
+
+    /**
+     * Creates the snapshot of the modified lists, must be executed by the UI thread.
+     */
+    private void createSnapshotAndStore() {
+        final DataListSnapshot snapshot = document.createDataListSnapshot();
+        if (snapshot.isEmpty()) {
+            finishSave();
+            return;
+        }
+
+        try {
+            executor.execute(() -> storeSnapshot(snapshot));
+        } catch (RejectedExecutionException e) {
+            // scheduler has been shut down, the changes will be saved on exit
+            finishSave();
+        }
+    }
+
+    private void storeSnapshot(final DataListSnapshot snapshot) {
+        final long startTime = System.nanoTime();
+        try {
+            document.storeDataListSnapshot(snapshot);
+            lastSaveLatency = Duration.ofNanos(System.nanoTime() - startTime);
+            LOGGER.info("Saved data lists " + snapshot.getDataLists() + " automatically in " +
+                    lastSaveLatency.toMillis() + " ms, pending changes: " + getPendingChangeCount());
+        } catch (STException e) {
+            LOGGER.log(Level.SEVERE, "Failed to save application data automatically!", e);
+        } finally {
+            finishSave();
+        }
+    }
+
+    private void finishSave() {
+        synchronized (this) {
+            saveRunning = false;
+            if (saveRequested && !shutdown) {
+                saveRequested = false;
+                scheduledSave = executor.schedule(this::startSave, quietPeriodMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        final Runnable listener = saveListener;
+        if (listener != null) {
+            uiExecutor.execute(listener);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.saring.sportstracker.gui;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import de.saring.sportstracker.gui.STDocument.DataList;
+import de.saring.util.data.IdObjectList;
+
+/**
+ * Immutable snapshot of the modified application data lists, it's created by the document for storing
+ * the lists in background while the user continues editing the data. Each snapshot list is a copy of the
+ * document list, it contains the same entries. The modification count of each list at creation time is
+ * used for detecting outdated snapshots.
+ *
+ * @author Stefan Saring
+ */
+public final class DataListSnapshot {
+
+    private final Map<DataList, IdObjectList<?>> lists = new EnumMap<>(DataList.class);
+    private final Map<DataList, Long> modificationCounts = new EnumMap<>(DataList.class);
+
+    /**
+     * Adds the copy of a modified data list to the snapshot, only used by the document.
+     *
+     * @param dataList type of the data list
+     * @param listCopy copy of the data list
+     * @param modificationCount modification count of the data list when creating the copy
+     */
+    void addList(final DataList dataList, final IdObjectList<?> listCopy, final long modificationCount) {
+        lists.put(dataList, listCopy);
+        modificationCounts.put(dataList, modificationCount);
+    }
+
+    /**
+     * Returns the types of all data lists contained in this snapshot.
+     *
+     * @return set of data list types
+     */
+    public Set<DataList> getDataLists() {
+        return Collections.unmodifiableSet(lists.keySet());
+    }
+
+    /**
+     * Returns true when the snapshot contains no data lists (nothing has been modified).
+     *
+     * @return true when empty
+     */
+    public boolean isEmpty() {
+        return lists.isEmpty();
+    }
+
+    /**
+     * Returns the copy of the specified data list.
+     *
+     * @param dataList type of the data list
+     * @return the list copy or null when not contained
+     */
+    IdObjectList<?> getList(final DataList dataList) {
+        return lists.get(dataList);
+    }
+
+    /**
+     * Returns the modification count of the specified data list at snapshot creation.
+     *
+     * @param dataList type of the data list
+     * @return the modification count
+     */
+    long getModificationCount(final DataList dataList) {
+        return modificationCounts.getOrDefault(dataList, 0L);
+    }
+}
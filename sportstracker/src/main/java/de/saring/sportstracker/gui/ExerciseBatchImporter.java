@@ -0,0 +1,362 @@
+package de.saring.sportstracker.gui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.inject.Singleton;
+
+import de.saring.exerciseviewer.data.EVExercise;
+import de.saring.exerciseviewer.parser.ExerciseParserFactory;
+import de.saring.exerciseviewer.parser.ExerciseParserInfo;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.SportSubType;
+import de.saring.sportstracker.data.SportType;
+
+/**
+ * Imports many exercise files at once (e.g. all device files of a season), a new exercise is created for each
+ * file. The files are parsed concurrently by a bounded thread pool, the estimated memory needed by all files
+ * parsed at the same time is limited by a memory budget. Files which are already attached to an exercise and
+ * files with the same start time as an existing exercise (or as another imported file) are skipped.<br/>
+ * The import is done in three steps: {@link #getExistingExercises()} collects the existing exercises (must be
+ * called by the UI thread), {@link #importFiles} parses the files (should be called by a background thread) and
+ * {@link ImportResult#applyToExerciseList()} adds all new exercises to the exercise list in one batch (must be
+ * called by the UI thread).
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class ExerciseBatchImporter {
+
+    private static final Logger LOGGER = Logger.getLogger(ExerciseBatchImporter.class.getName());
+
+    /** Maximum number of threads used for parsing the exercise files concurrently. */
+    private static final int MAX_PARSE_THREAD_COUNT = 8;
+
+    /** Estimated factor of the memory needed for parsing an exercise file in relation to its file size. */
+    private static final long PARSE_MEMORY_FACTOR = 10;
+
+    /** The memory budget for parsing files concurrently is this part of the maximum heap size. */
+    private static final long MEMORY_BUDGET_DIVISOR = 4;
+
+    /** Interval for checking the cancellation while waiting for parsed files (in milliseconds). */
+    private static final long CANCEL_CHECK_INTERVAL = 100;
+
+    private final STDocument document;
+
+    /**
+     * Listener for the progress of the import.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called each time an exercise file has been processed, it's called by the importing thread.
+         *
+         * @param processedFiles number of processed files
+         * @param totalFiles number of all files to import
+         */
+        void progressChanged(int processedFiles, int totalFiles);
+    }
+
+    /**
+     * C'tor for dependency injection
+     *
+     * @param document SportsTracker document (model) instance
+     */
+    public ExerciseBatchImporter(final STDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Returns all exercise files in the specified directory and its subdirectories which are supported by the
+     * exercise parsers, sorted by their paths.
+     *
+     * @param directory the directory to search
+     * @return list of the exercise files
+     * @throws IOException on directory read errors
+     */
+    public static List<Path> findExerciseFiles(final Path directory) throws IOException {
+        final List<String> suffixes = ExerciseParserFactory.INSTANCE.getExerciseParserInfos().stream()
+                .map(ExerciseParserInfo::getSuffixes)
+                .flatMap(List::stream)
+                .map(suffix -> "." + suffix)
+                .collect(Collectors.toList());
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> suffixes.stream().anyMatch(suffix -> path.toString().endsWith(suffix)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Collects the files and start times of all existing exercises, they are needed by {@link #importFiles} for
+     * skipping duplicates. This method must be called by the UI thread, the exercise list is not thread-safe.
+     *
+     * @return the files and start times of the existing exercises
+     */
+    public ExistingExercises getExistingExercises() {
+        final ExistingExercises existingExercises = new ExistingExercises();
+        document.getExerciseList().loadAllYears();
+        for (Exercise exercise : document.getExerciseList()) {
+            if (exercise.getHrmFile() != null) {
+                final Path existingFile = ExerciseFileChecker.getAbsolutePath(exercise.getHrmFile());
+                if (existingFile != null) {
+                    existingExercises.files.add(existingFile);
+                }
+            }
+            existingExercises.dateTimes.add(exercise.getDateTime().truncatedTo(ChronoUnit.MINUTES));
+        }
+        return existingExercises;
+    }
+
+    /**
+     * Parses the specified exercise files concurrently and creates the exercises for all files, which are not
+     * imported already. The exercise list will not be accessed or modified, see
+     * {@link ImportResult#applyToExerciseList()}.
+     *
+     * @param files the exercise files to import
+     * @param existingExercises the files and start times of the existing exercises (see
+     * {@link #getExistingExercises()})
+     * @param sportType the sport type of the new exercises
+     * @param sportSubType the sport subtype of the new exercises
+     * @param progressListener the listener for the import progress
+     * @param cancelRequested returns true when the import needs to be cancelled
+     * @return the result of the import
+     * @throws CancellationException when the import has been cancelled
+     * @throws InterruptedException when the importing thread has been interrupted
+     */
+    public ImportResult importFiles(final List<Path> files, final ExistingExercises existingExercises,
+            final SportType sportType, final SportSubType sportSubType, final ProgressListener progressListener,
+            final BooleanSupplier cancelRequested) throws InterruptedException {
+
+        final ImportResult result = new ImportResult();
+
+        // copy the files and start times of the existing exercises, the imported ones get added for skipping them
+        final Set<Path> existingFiles = new HashSet<>(existingExercises.files);
+        final Set<LocalDateTime> existingDateTimes = new HashSet<>(existingExercises.dateTimes);
+
+        final List<Path> filesToParse = new ArrayList<>();
+        for (Path file : files) {
+            if (existingFiles.add(file.toAbsolutePath().normalize())) {
+                filesToParse.add(file);
+            } else {
+                result.duplicateFiles.add(file);
+            }
+        }
+
+        final List<Future<Exercise>> fParsedExercises = new ArrayList<>();
+        final ExecutorService executor = createExecutor(filesToParse.size());
+        try {
+            final CompletionService<Exercise> completionService = new ExecutorCompletionService<>(executor);
+            final Semaphore memoryBudget = new Semaphore(getMemoryBudgetKiloBytes());
+            for (Path file : filesToParse) {
+                fParsedExercises.add(completionService.submit(() ->
+                        parseFile(file, sportType, sportSubType, memoryBudget)));
+            }
+
+            // wait for all parsed files and report the progress
+            int processedFiles = files.size() - filesToParse.size();
+            progressListener.progressChanged(processedFiles, files.size());
+            while (processedFiles < files.size()) {
+                if (cancelRequested.getAsBoolean()) {
+                    throw new CancellationException("The import of the exercise files has been cancelled!");
+                }
+                if (completionService.poll(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS) != null) {
+                    processedFiles++;
+                    progressListener.progressChanged(processedFiles, files.size());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // create the exercises in the order of the files, skip the ones with existing start times
+        for (int i = 0; i < filesToParse.size(); i++) {
+            final Path file = filesToParse.get(i);
+            try {
+                final Exercise exercise = fParsedExercises.get(i).get();
+                if (existingDateTimes.add(exercise.getDateTime().truncatedTo(ChronoUnit.MINUTES))) {
+                    result.exercises.add(exercise);
+                } else {
+                    result.duplicateFiles.add(file);
+                }
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Failed to import exercise file '" + file + "'!", e.getCause());
+                result.failedFiles.add(file);
+            }
+        }
+        return result;
+    }
+
+    private ExecutorService createExecutor(final int fileCount) {
+        final int threadCount = Math.max(1, Math.min(fileCount,
+                Math.min(MAX_PARSE_THREAD_COUNT, Runtime.getRuntime().availableProcessors())));
+
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "ST-ImportFile");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static int getMemoryBudgetKiloBytes() {
+        return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / MEMORY_BUDGET_DIVISOR / 1024);
+    }
+
+    /**
+     * Parses the summary of the exercise file (the samples are not needed) and creates the exercise for it. The
+     * returned exercise is a template without an ID, the parsed exercise data is not referenced anymore. The
+     * estimated memory for parsing the file is acquired from the memory budget before and released afterwards.
+     */
+    private Exercise parseFile(final Path file, final SportType sportType, final SportSubType sportSubType,
+            final Semaphore memoryBudget) throws Exception {
+
+        final long estimatedMemory = Files.size(file) * PARSE_MEMORY_FACTOR / 1024;
+        final int memoryPermits = (int) Math.max(1, Math.min(estimatedMemory, getMemoryBudgetKiloBytes()));
+
+        memoryBudget.acquire(memoryPermits);
+        try {
+            final String filename = file.toString();
+            final EVExercise evExercise = ExerciseParserFactory.INSTANCE.getParser(filename).parseSummary(filename);
+            if (evExercise.getDateTime() == null) {
+                throw new IllegalArgumentException("The exercise file '" + file + "' contains no date and time!");
+            }
+            return createExercise(evExercise, filename, sportType, sportSubType);
+        } finally {
+            memoryBudget.release(memoryPermits);
+        }
+    }
+
+    private static Exercise createExercise(final EVExercise evExercise, final String filename,
+            final SportType sportType, final SportSubType sportSubType) {
+
+        final Exercise exercise = new Exercise(0);
+        exercise.setDateTime(evExercise.getDateTime());
+        exercise.setSportType(sportType);
+        exercise.setSportSubType(sportSubType);
+        exercise.setIntensity(Exercise.IntensityType.NORMAL);
+        exercise.setHrmFile(filename);
+
+        if (evExercise.getHeartRateAVG() != null) {
+            exercise.setAvgHeartRate(evExercise.getHeartRateAVG());
+        }
+        if (evExercise.getEnergy() != null) {
+            exercise.setCalories(evExercise.getEnergy());
+        }
+        if (evExercise.getDuration() != null) {
+            exercise.setDuration(evExercise.getDuration() / 10);
+        }
+
+        // import the speed-related values only when recorded for the sport type
+        if (sportType.isRecordDistance() && evExercise.getSpeed() != null) {
+            exercise.setDistance(evExercise.getSpeed().getDistance() / 1000f);
+            exercise.setAvgSpeed(evExercise.getSpeed().getSpeedAvg());
+        }
+
+        if (evExercise.getAltitude() != null) {
+            exercise.setAscent(evExercise.getAltitude().getAscent());
+            exercise.setDescent(evExercise.getAltitude().getDescent());
+        }
+        return exercise;
+    }
+
+    /**
+     * The files and start times of the existing exercises, collected by the UI thread before the import.
+     */
+    public static final class ExistingExercises {
+
+        private final Set<Path> files = new HashSet<>();
+        private final Set<LocalDateTime> dateTimes = new HashSet<>();
+
+        private ExistingExercises() {
+        }
+    }
+
+    /**
+     * The result of an exercise file import.
+     */
+    public final class ImportResult {
+
+        private final List<Exercise> exercises = new ArrayList<>();
+        private final List<Path> duplicateFiles = new ArrayList<>();
+        private final List<Path> failedFiles = new ArrayList<>();
+
+        private ImportResult() {
+        }
+
+        /**
+         * Returns the number of new exercises to be added.
+         *
+         * @return number of exercises
+         */
+        public int getExerciseCount() {
+            return exercises.size();
+        }
+
+        /**
+         * Returns the files which were skipped, because they are already imported.
+         *
+         * @return list of files
+         */
+        public List<Path> getDuplicateFiles() {
+            return Collections.unmodifiableList(duplicateFiles);
+        }
+
+        /**
+         * Returns the files which could not be imported (e.g. invalid content).
+         *
+         * @return list of files
+         */
+        public List<Path> getFailedFiles() {
+            return Collections.unmodifiableList(failedFiles);
+        }
+
+        /**
+         * Adds all new exercises to the exercise list of the document in one batch, so the list listeners are
+         * notified only once. This method must be called by the UI thread.
+         */
+        public void applyToExerciseList() {
+            if (exercises.isEmpty()) {
+                return;
+            }
+
+            final ExerciseList exerciseList = document.getExerciseList();
+            final List<Exercise> allExercises = new ArrayList<>(exerciseList.size() + exercises.size());
+            exerciseList.forEach(allExercises::add);
+
+            // the new IDs must also be higher than the IDs of exercises which could not be loaded
+            int nextId = Math.max(exerciseList.getNewID(),
+                    allExercises.stream().mapToInt(Exercise::getId).max().orElse(0) + 1);
+            for (Exercise exercise : exercises) {
+                allExercises.add(exercise.clone(nextId++));
+            }
+            exerciseList.clearAndAddAll(allExercises);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package de.saring.sportstracker.gui;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import de.saring.sportstracker.data.Exercise;
+
+/**
+ * This class checks the existence of the exercise files attached to the exercises. The files are checked
+ * concurrently by a bounded thread pool, because they are often located on slow network shares.<br/>
+ * The results are cached, the directories of the checked files are watched by a WatchService for keeping
+ * the cache up to date. The registered listener gets notified when watched files have been deleted or
+ * moved, so missing files can be reported while the application is running.
+ *
+ * @author Stefan Saring
+ */
+public class ExerciseFileChecker {
+    private static final Logger LOGGER = Logger.getLogger(ExerciseFileChecker.class.getName());
+
+    /** Maximum number of threads used for checking the exercise files concurrently. */
+    private static final int CHECK_THREAD_COUNT = 8;
+
+    /** The cached existence state of all checked files in watched directories (key is the absolute path). */
+    private final Map<Path, Boolean> fileExistence = new ConcurrentHashMap<>();
+
+    /** The watched directories, the value is the watch key of the directory. */
+    private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CHECK_THREAD_COUNT, runnable -> {
+        final Thread thread = new Thread(runnable, "ST-CheckFile");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WatchService watchService;
+    private Consumer<Set<Path>> missingFilesListener;
+    private boolean closed;
+
+    /**
+     * Sets the listener which gets notified when watched exercise files have been deleted or moved. The
+     * listener will be called by the watcher thread, not by the UI thread.
+     *
+     * @param missingFilesListener the listener, gets the set of the absolute paths of the missing files
+     */
+    public void setMissingFilesListener(final Consumer<Set<Path>> missingFilesListener) {
+        this.missingFilesListener = missingFilesListener;
+    }
+
+    /**
+     * Checks all specified exercises for the existence of the attached exercise file (if there is one).
+     * Files not checked before are checked concurrently, all other files are taken from the cache.
+     *
+     * @param exercises the exercises to check
+     * @return list of all exercises, where the attached file is missing (in the order of the specified exercises)
+     */
+    public List<Exercise> findExercisesWithMissingFiles(final Iterable<Exercise> exercises) {
+
+        // check each file only once, multiple exercises can use the same file
+        final Map<String, Future<Boolean>> fFileChecks = new LinkedHashMap<>();
+        exercises.forEach(exercise -> {
+            final String filename = exercise.getHrmFile();
+            if (filename != null && !fFileChecks.containsKey(filename)) {
+                fFileChecks.put(filename, executor.submit(() -> exists(filename)));
+            }
+        });
+
+        final Set<String> missingFilenames = new HashSet<>();
+        for (Map.Entry<String, Future<Boolean>> fFileCheck : fFileChecks.entrySet()) {
+            if (!getCheckResult(fFileCheck.getKey(), fFileCheck.getValue())) {
+                missingFilenames.add(fFileCheck.getKey());
+            }
+        }
+
+        final List<Exercise> missingFileExercises = new ArrayList<>();
+        exercises.forEach(exercise -> {
+            if (exercise.getHrmFile() != null && missingFilenames.contains(exercise.getHrmFile())) {
+                missingFileExercises.add(exercise);
+            }
+        });
+        return missingFileExercises;
+    }
+
+    /**
+     * Returns the absolute path of the specified exercise file, as it's used in the notifications
+     * of the missing files listener.
+     *
+     * @param filename the exercise file name
+     * @return the absolute path or null when the name is not a valid path
+     */
+    public static Path getAbsolutePath(final String filename) {
+        try {
+            return Paths.get(filename).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops the directory watcher and the file check threads, the cache will not be updated anymore.
+     */
+    public synchronized void close() {
+        closed = true;
+        executor.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close the watcher of the exercise file directories!", e);
+            }
+        }
+    }
+
+    private boolean getCheckResult(final String filename, final Future<Boolean> fFileCheck) {
+        try {
+            return fFileCheck.get();
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Failed to check exercise file '" + filename + "'!", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return exists(filename);
+    }
+
+    /**
+     * Checks the existence of the specified file. The result is taken from the cache when possible,
+     * otherwise the file is checked and the result is cached when the file directory can be watched.
+     */
+    private boolean exists(final String filename) {
+        final Path path = getAbsolutePath(filename);
+        if (path == null) {
+            return false;
+        }
+
+        final Boolean cachedExistence = fileExistence.get(path);
+        if (cachedExistence != null) {
+            return cachedExistence;
+        }
+
+        // the directory needs to be watched before the check, otherwise changes could get lost
+        final boolean watched = path.getParent() != null && watchDirectory(path.getParent());
+        final boolean existence = Files.exists(path);
+        if (watched) {
+            fileExistence.putIfAbsent(path, existence);
+        }
+        return existence;
+    }
+
+    /**
+     * Registers the specified directory at the watch service, if not done yet. The watcher thread is
+     * started on the first registration.
+     *
+     * @return true when the directory is being watched
+     */
+    private synchronized boolean watchDirectory(final Path directory) {
+        if (watchedDirectories.containsKey(directory)) {
+            return true;
+        }
+        if (closed || !Files.isDirectory(directory)) {
+            return false;
+        }
+
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                final Thread watcherThread = new Thread(this::processWatchEvents, "ST-WatchFiles");
+                watcherThread.setDaemon(true);
+                watcherThread.start();
+            }
+
+            watchedDirectories.put(directory, directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // e.g. not supported for some network shares, the files will be checked each time then
+            LOGGER.log(Level.FINE, "Failed to watch exercise file directory '" + directory + "'!", e);
+            return false;
+        }
+    }
+
+    /**
+     * Processes the events of the watched directories and updates the cache until the watch service
+     * has been closed.
+     */
+    private void processWatchEvents() {
+        try {
+            while (true) {
+                final WatchKey watchKey = watchService.take();
+                final Path directory = (Path) watchKey.watchable();
+                final Set<Path> missingFiles = new HashSet<>();
+
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        missingFiles.addAll(recheckDirectory(directory));
+                    } else {
+                        final Path path = directory.resolve((Path) event.context());
+                        final boolean created = event.kind() == StandardWatchEventKinds.ENTRY_CREATE;
+                        final Boolean previousExistence = fileExistence.replace(path, created);
+                        if (!created && Boolean.TRUE.equals(previousExistence)) {
+                            missingFiles.add(path);
+                        }
+                    }
+                }
+
+                if (!watchKey.reset()) {
+                    // directory has been deleted, the files need to be checked again next time
+                    watchedDirectories.remove(directory);
+                    missingFiles.addAll(removeCachedFiles(directory));
+                }
+                notifyMissingFiles(missingFiles);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // watcher has been closed, nothing to do
+        }
+    }
+
+    private Set<Path> recheckDirectory(final Path directory) {
+        return fileExistence.keySet().stream()
+                .filter(path -> directory.equals(path.getParent()))
+                .filter(path -> !Files.exists(path) && Boolean.TRUE.equals(fileExistence.put(path, false)))
+                .collect(Collectors.toSet());
+    }
+
+    private Set<Path> removeCachedFiles(final Path directory) {
+        final Set<Path> missingFiles = new HashSet<>();
+        fileExistence.keySet().removeIf(path -> {
+            if (directory.equals(path.getParent())) {
+                if (Boolean.TRUE.equals(fileExistence.get(path))) {
+                    missingFiles.add(path);
+                }
+                return true;
+            }
+            return false;
+        });
+        return missingFiles;
+    }
+
+    private void notifyMissingFiles(final Set<Path> missingFiles) {
+        final Consumer<Set<Path>> listener = missingFilesListener;
+        if (!missingFiles.isEmpty() && listener != null) {
+            listener.accept(missingFiles);
+        }
+    }
+}
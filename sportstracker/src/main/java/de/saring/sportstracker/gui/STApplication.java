@@ -1,14 +1,16 @@
 package de.saring.sportstracker.gui;
 
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import de.saring.exerciseviewer.core.EVOptions;
 import de.saring.exerciseviewer.gui.EVContext;
+import de.saring.exerciseviewer.parser.ExerciseFileCache;
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.storage.DelegatingStorage;
 import de.saring.sportstracker.storage.IStorage;
-import de.saring.sportstracker.storage.XMLStorage;
 import de.saring.util.gui.javafx.WindowBoundsPersistence;
 import de.saring.util.unitcalc.FormatUtils;
 import eu.lestard.easydi.EasyDI;
@@ -26,6 +28,15 @@ public class STApplication extends Application {
 
     private static final Logger LOGGER = Logger.getLogger(STApplication.class.getName());
 
+    /** Name of the directory for caching the parsed exercise files (inside the data directory). */
+    private static final String DIRECTORY_EXERCISE_CACHE = "exercise-cache";
+
+    /** Maximum size of all cached exercise files in bytes. */
+    private static final long EXERCISE_CACHE_SIZE = 200L * 1024 * 1024;
+
+    /** Maximum number of samples of all parsed exercises kept in memory. */
+    private static final long EXERCISE_MEMORY_CACHE_WEIGHT = 1_000_000;
+
     private STDocument document;
     private STContext context;
     private STController controller;
@@ -38,7 +49,7 @@ public class STApplication extends Application {
         // setup EasyDI for dependency injection
         var easyDI = new EasyDI();
         easyDI.bindInstance(STApplication.class, this);
-        easyDI.bindInterface(IStorage.class, XMLStorage.class);
+        easyDI.bindInterface(IStorage.class, DelegatingStorage.class);
         easyDI.bindInterface(STContext.class, STContextImpl.class);
         easyDI.bindInterface(EVContext.class, STContextImpl.class);
         easyDI.bindInterface(STDocument.class, STDocumentImpl.class);
@@ -52,6 +63,12 @@ public class STApplication extends Application {
         var options = document.getOptions();
         easyDI.bindInstance(EVOptions.class, options);
 
+        // the parsed exercise files are cached in memory and in the data directory, they are shared by
+        // SportsTracker and ExerciseViewer, so they can be displayed faster next time
+        easyDI.bindInstance(ExerciseFileCache.class, new ExerciseFileCache(
+                Paths.get(document.getDataDirectory(), DIRECTORY_EXERCISE_CACHE), EXERCISE_CACHE_SIZE,
+                EXERCISE_MEMORY_CACHE_WEIGHT));
+
         // initialize the context (set format utils for current configuration)
         context = easyDI.getInstance(STContext.class);
         context.setFormatUtils(new FormatUtils(options.getUnitSystem(), options.getSpeedView()));
@@ -74,6 +91,7 @@ public class STApplication extends Application {
     @Override
     public void stop() throws Exception {
         document.storeOptions();
+        document.closeStorage();
         LOGGER.info("Exiting application...");
         super.stop();
     }
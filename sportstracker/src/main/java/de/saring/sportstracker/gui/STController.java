@@ -41,6 +41,16 @@ public interface STController extends EntryViewEventHandler {
      */
     void onExportSqlite(ActionEvent event);
 
+    /**
+     * Event handler for action "Synchronize with Data Directory".
+     */
+    void onSyncDataDirectory(ActionEvent event);
+
+    /**
+     * Event handler for action "Import Exercise Files".
+     */
+    void onImportExerciseFiles(ActionEvent event);
+
     /**
      * Event handler for action "Print current view".
      */
@@ -2,18 +2,25 @@ package de.saring.sportstracker.gui;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import de.saring.sportstracker.data.Entry;
 import de.saring.sportstracker.data.EntryList;
+import de.saring.sportstracker.storage.DataDirectorySync;
 import de.saring.sportstracker.storage.SQLiteExporter;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.concurrent.Task;
@@ -24,11 +31,14 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.image.Image;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
 
 import javax.inject.Inject;
@@ -51,6 +61,7 @@ import de.saring.sportstracker.gui.views.listviews.ExerciseListViewController;
 import de.saring.sportstracker.gui.views.listviews.NoteListViewController;
 import de.saring.sportstracker.gui.views.listviews.WeightListViewController;
 import de.saring.util.Date310Utils;
+import de.saring.util.SafeFileUtils;
 import de.saring.util.StringUtils;
 import de.saring.util.SystemUtils;
 import de.saring.util.gui.javafx.FxmlLoader;
@@ -72,6 +83,9 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
     private final STContext context;
     private final STDocument document;
     private final SQLiteExporter exporter;
+    private final DataDirectorySync dataDirectorySync;
+    private final AutoSaveScheduler autoSaveScheduler;
+    private final ExerciseBatchImporter exerciseBatchImporter;
 
     private CalendarViewController calendarViewController;
     private ExerciseListViewController exerciseListViewController;
@@ -162,6 +176,12 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
     /** Property for the disabled status of the 'Disable Exercise Filter' action. */
     private final BooleanProperty actionFilterDisableDisabled = new SimpleBooleanProperty(true);
 
+    /**
+     * The exercises with files deleted while the missing exercise files warning is displayed, they will be
+     * displayed in one warning afterwards. It's null when no warning is displayed.
+     */
+    private List<Exercise> pendingMissingFileExercises;
+
     /** The date to be set initially when the next entry will be added. */
     private LocalDate dateForNewEntries;
 
@@ -171,6 +191,9 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
      * @param context the SportsTracker context
      * @param document the document component
      * @param exporter the SQLite exporter
+     * @param dataDirectorySync the synchronizer of data directories
+     * @param autoSaveScheduler the scheduler for saving changes automatically
+     * @param exerciseBatchImporter the importer of many exercise files at once
      * @param calendarViewController controller of the calendar view
      * @param exerciseListViewController controller of the exercise list view
      * @param noteListViewController controller of the note list view
@@ -180,6 +203,8 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
      */
     @Inject
     public STControllerImpl(final STContext context, final STDocument document, final SQLiteExporter exporter,
+                            final DataDirectorySync dataDirectorySync, final AutoSaveScheduler autoSaveScheduler,
+                            final ExerciseBatchImporter exerciseBatchImporter,
                             final CalendarViewController calendarViewController,
                             final ExerciseListViewController exerciseListViewController,
                             final NoteListViewController noteListViewController,
@@ -189,6 +214,9 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
         this.context = context;
         this.document = document;
         this.exporter = exporter;
+        this.dataDirectorySync = dataDirectorySync;
+        this.autoSaveScheduler = autoSaveScheduler;
+        this.exerciseBatchImporter = exerciseBatchImporter;
         this.calendarViewController = calendarViewController;
         this.exerciseListViewController = exerciseListViewController;
         this.noteListViewController = noteListViewController;
@@ -271,10 +299,59 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
 
     @Override
     public void onExportSqlite(final ActionEvent event) {
+        // the export and the synchronization need the exercises of all years
+        document.getExerciseList().loadAllYears();
         context.blockMainWindow(true);
         new Thread(new ExportSqliteTask()).start();
     }
 
+    @Override
+    public void onSyncDataDirectory(final ActionEvent event) {
+        final DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle(context.getResources().getString("st.main.sync_data_directory.title"));
+        final File selectedDirectory = directoryChooser.showDialog(context.getPrimaryStage());
+
+        if (selectedDirectory != null) {
+            document.getExerciseList().loadAllYears();
+            context.blockMainWindow(true);
+            new Thread(new SyncDataDirectoryTask(selectedDirectory)).start();
+        }
+    }
+
+    @Override
+    public void onImportExerciseFiles(final ActionEvent event) {
+        if (!checkForExistingSportTypes()) {
+            return;
+        }
+
+        final DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle(context.getResources().getString("st.main.import_exercise_files.title"));
+        final File selectedDirectory = directoryChooser.showDialog(context.getPrimaryStage());
+        if (selectedDirectory == null) {
+            return;
+        }
+
+        // the sport type of all imported exercises needs to be selected by the user
+        final List<String> sportTypeNames = new ArrayList<>();
+        document.getSportTypeList().forEach(sportType -> sportTypeNames.add(sportType.getName()));
+
+        final ChoiceDialog<String> sportTypeDialog = new ChoiceDialog<>(sportTypeNames.get(0), sportTypeNames);
+        sportTypeDialog.initOwner(context.getPrimaryStage());
+        sportTypeDialog.setTitle(context.getResources().getString("st.view.import_exercise_files.Action.text")
+                .replace("_", ""));
+        sportTypeDialog.setHeaderText(null);
+        sportTypeDialog.setContentText(context.getResources().getString("st.main.import_exercise_files.sporttype"));
+
+        sportTypeDialog.showAndWait().ifPresent(sportTypeName -> {
+            final SportType sportType = document.getSportTypeList().getAt(sportTypeNames.indexOf(sportTypeName));
+            final ImportExerciseFilesTask importTask = new ImportExerciseFilesTask(selectedDirectory, sportType);
+
+            context.blockMainWindow(true);
+            importTask.showProgressDialog();
+            new Thread(importTask).start();
+        });
+    }
+
     @Override
     public void onPrint(final ActionEvent event) {
         currentViewController.print();
@@ -513,7 +590,7 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
 
     @Override
     public boolean checkForExistingExercises() {
-        if (document.getExerciseList().size() == 0) {
+        if (document.getExerciseList().size() == 0 && document.getExerciseList().isLoadedCompletely()) {
             context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.ERROR, //
                     "common.error", "st.main.error.no_exercise");
             return false;
@@ -688,10 +765,15 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
     }
 
     /**
-     * Exits the SportsTracker application and releases the resources before.
+     * Exits the SportsTracker application and releases the resources before. A running background
+     * save will be completed before, the main window is blocked meanwhile.
      */
     private void exitApplication() {
-        context.getPrimaryStage().close();
+        if (autoSaveScheduler.isSaveRunning()) {
+            context.blockMainWindow(true);
+            statusBarController.showFinishingSave();
+        }
+        new Thread(new ExitTask()).start();
     }
 
     /**
@@ -704,7 +786,11 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
             if (changedObject != null) {
                 currentViewController.selectEntry(changedObject);
             }
+            if (document.getOptions().isAutoSave()) {
+                autoSaveScheduler.onDataChanged();
+            }
         });
+        autoSaveScheduler.setSaveListener(this::updateActionsAndStatusBar);
     }
 
     /**
@@ -843,19 +929,95 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
         dialogProvider.prWeightDialogController.get().show(context.getPrimaryStage(), copiedWeight);
     }
 
+    /**
+     * Displays a warning with all data files, which were invalid or missing and have been read from their
+     * backup files instead. The changes stored after the backup file was created are lost.
+     */
+    private void displayFilesReadFromBackup() {
+        final Set<Path> filesReadFromBackup = SafeFileUtils.getFilesReadFromBackup();
+        if (!filesReadFromBackup.isEmpty()) {
+
+            final StringBuilder sb = new StringBuilder();
+            filesReadFromBackup.forEach(file -> sb.append(file).append("\n"));
+
+            context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.WARNING, //
+                    "common.warning", "st.main.error.files_read_from_backup", sb.toString());
+        }
+    }
+
+    /**
+     * Displays the exercises with exercise files deleted while the application is running. Further deletions
+     * while the warning is displayed are collected and displayed in one warning afterwards.
+     *
+     * @param missingFileExercises the exercises with deleted files
+     */
+    private void onExerciseFilesDeleted(final List<Exercise> missingFileExercises) {
+        if (pendingMissingFileExercises != null) {
+            missingFileExercises.stream()
+                    .filter(exercise -> !pendingMissingFileExercises.contains(exercise))
+                    .forEach(pendingMissingFileExercises::add);
+            return;
+        }
+
+        pendingMissingFileExercises = new ArrayList<>();
+        displayMissingExerciseFiles(missingFileExercises);
+        final List<Exercise> furtherMissingFileExercises = pendingMissingFileExercises;
+        pendingMissingFileExercises = null;
+
+        if (!furtherMissingFileExercises.isEmpty()) {
+            onExerciseFilesDeleted(furtherMissingFileExercises);
+        }
+    }
+
+    /**
+     * Displays the years of the exercises which could not be read on their first access. The error
+     * is displayed afterwards, the exercises are read while updating the view.
+     *
+     * @param years the years of the unreadable exercises
+     */
+    private void onExerciseYearsLoadFailed(final List<Integer> years) {
+        final String strYears = years.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        Platform.runLater(() -> context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.ERROR, //
+                "common.error", "st.main.error.load_exercise_years", strYears));
+    }
+
+    /**
+     * Displays a warning with the dates of all exercises where the attached exercise file is missing.
+     *
+     * @param missingFileExercises the exercises with missing files
+     */
+    private void displayMissingExerciseFiles(final List<Exercise> missingFileExercises) {
+        if (missingFileExercises != null && !missingFileExercises.isEmpty()) {
+
+            final StringBuilder sb = new StringBuilder();
+            final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM);
+
+            for (int i = 0; i < missingFileExercises.size(); i++) {
+                if (i > 15) {
+                    sb.append("...\n");
+                    break;
+                }
+
+                sb.append(missingFileExercises.get(i).getDateTime().format(dateTimeFormatter));
+                sb.append("\n");
+            }
+
+            context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.WARNING, //
+                    "common.warning", "st.main.error.missing_exercise_files", sb.toString());
+        }
+    }
+
     /**
      * This class executes the loading action inside a background task without blocking the UI thread.
-     * It also checks the existence of all attached exercise files.
+     * The existence of all attached exercise files is checked afterwards, so the check doesn't delay
+     * the display of the loaded data.
      */
     private class LoadTask extends Task<Void> {
 
-        private List<Exercise> corruptExercises;
-
         @Override
         protected Void call() throws Exception {
             LOGGER.info("Loading application data...");
             document.readApplicationData();
-            corruptExercises = document.checkExerciseFiles();
             return null;
         }
 
@@ -865,8 +1027,12 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
             context.blockMainWindow(false);
 
             updateFinally();
-            displayCorruptExercises();
             addInitialSportTypesIfMissing();
+
+            new Thread(new CheckExerciseFilesTask()).start();
+            // report exercise files deleted while the application is running
+            document.setMissingExerciseFilesListener(STControllerImpl.this::onExerciseFilesDeleted);
+            document.setExerciseLoadErrorListener(STControllerImpl.this::onExerciseYearsLoadFailed);
         }
 
         @Override
@@ -884,27 +1050,31 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
             updateView();
             // listener must be registered after loading data, because new lists are created
             registerListenerForDataChanges();
+            displayFilesReadFromBackup();
         }
+    }
 
-        private void displayCorruptExercises() {
-            if (corruptExercises != null && !corruptExercises.isEmpty()) {
-
-                final StringBuilder sb = new StringBuilder();
-                final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM);
+    /**
+     * This class checks the existence of all attached exercise files inside a background task without
+     * blocking the UI thread, the exercises with missing files will be displayed afterwards.
+     */
+    private class CheckExerciseFilesTask extends Task<List<Exercise>> {
 
-                for (int i = 0; i < corruptExercises.size(); i++) {
-                    if (i > 15) {
-                        sb.append("...\n");
-                        break;
-                    }
+        @Override
+        protected List<Exercise> call() throws Exception {
+            return document.checkExerciseFiles();
+        }
 
-                    sb.append(corruptExercises.get(i).getDateTime().format(dateTimeFormatter));
-                    sb.append("\n");
-                }
+        @Override
+        protected void succeeded() {
+            super.succeeded();
+            displayMissingExerciseFiles(getValue());
+        }
 
-                context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.WARNING, //
-                        "common.warning", "st.main.error.missing_exercise_files", sb.toString());
-            }
+        @Override
+        protected void failed() {
+            super.failed();
+            LOGGER.log(Level.WARNING, "Failed to check the exercise files!", getException());
         }
     }
 
@@ -953,6 +1123,32 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
         }
     }
 
+    /**
+     * This class stops the automatic save inside a background task without blocking the UI thread (a running
+     * save needs to be completed), the main window will be closed afterwards.
+     */
+    private class ExitTask extends Task<Void> {
+
+        @Override
+        protected Void call() throws Exception {
+            autoSaveScheduler.shutdown();
+            return null;
+        }
+
+        @Override
+        protected void succeeded() {
+            super.succeeded();
+            context.getPrimaryStage().close();
+        }
+
+        @Override
+        protected void failed() {
+            super.failed();
+            LOGGER.log(Level.SEVERE, "Failed to stop the automatic save!", getException());
+            context.getPrimaryStage().close();
+        }
+    }
+
     /**
      * This class executes the Export to SQLite action inside a background task without blocking the UI thread.
      */
@@ -984,4 +1180,133 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
                     "common.error", "st.main.error.export_sqlite");
         }
     }
+
+    /**
+     * This class executes the synchronization with another data directory inside a background task without
+     * blocking the UI thread. The changes of the application data are applied by the UI thread.
+     */
+    private class SyncDataDirectoryTask extends Task<DataDirectorySync.SyncResult> {
+
+        private final File directory;
+
+        SyncDataDirectoryTask(final File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected DataDirectorySync.SyncResult call() throws Exception {
+            LOGGER.info("Synchronizing application data with directory '" + directory + "'...");
+            final DataDirectorySync.SyncResult result = dataDirectorySync.synchronize(directory.toPath());
+            CompletableFuture.runAsync(result::applyLocalChanges, Platform::runLater).get();
+            dataDirectorySync.commit(result);
+            return result;
+        }
+
+        @Override
+        protected void succeeded() {
+            super.succeeded();
+            context.blockMainWindow(false);
+            updateView();
+
+            final DataDirectorySync.SyncResult result = getValue();
+            context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.INFORMATION, //
+                    "common.info", "st.main.info.sync_data_directory_success", directory.toString(),
+                    result.getLocalChangeCount(), result.getRemoteChangeCount(), result.getConflictCount());
+        }
+
+        @Override
+        protected void failed() {
+            super.failed();
+            context.blockMainWindow(false);
+            updateView();
+
+            LOGGER.log(Level.SEVERE, "Failed to synchronize application data!", getException());
+            context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.ERROR, //
+                    "common.error", "st.main.error.sync_data_directory");
+        }
+    }
+
+    /**
+     * This class imports all exercise files of a directory inside a background task without blocking the UI
+     * thread, the progress is displayed in a dialog which allows the cancellation of the import. The new
+     * exercises are added by the UI thread.
+     */
+    private class ImportExerciseFilesTask extends Task<ExerciseBatchImporter.ImportResult> {
+
+        private final File directory;
+        private final SportType sportType;
+        private final ExerciseBatchImporter.ExistingExercises existingExercises;
+        private Alert progressDialog;
+
+        ImportExerciseFilesTask(final File directory, final SportType sportType) {
+            this.directory = directory;
+            this.sportType = sportType;
+            // the task is created by the UI thread, so the existing exercises can be collected here
+            this.existingExercises = exerciseBatchImporter.getExistingExercises();
+        }
+
+        /**
+         * Displays the non-modal progress dialog, the import gets cancelled when the dialog is closed.
+         */
+        void showProgressDialog() {
+            final ProgressBar progressBar = new ProgressBar();
+            progressBar.setPrefWidth(350);
+            progressBar.progressProperty().bind(progressProperty());
+
+            progressDialog = new Alert(Alert.AlertType.NONE, null, ButtonType.CANCEL);
+            progressDialog.initOwner(context.getPrimaryStage());
+            progressDialog.setTitle(context.getResources().getString("st.main.import_exercise_files.progress"));
+            progressDialog.setHeaderText(null);
+            progressDialog.getDialogPane().setContent(progressBar);
+            progressDialog.setOnHidden(event -> cancel());
+            progressDialog.show();
+        }
+
+        @Override
+        protected ExerciseBatchImporter.ImportResult call() throws Exception {
+            LOGGER.info("Importing exercise files of directory '" + directory + "'...");
+            final List<Path> files = ExerciseBatchImporter.findExerciseFiles(directory.toPath());
+            final SportSubType sportSubType = sportType.getSportSubTypeList().getAt(0);
+
+            final ExerciseBatchImporter.ImportResult result = exerciseBatchImporter.importFiles(files,
+                    existingExercises, sportType, sportSubType, this::updateProgress, this::isCancelled);
+            CompletableFuture.runAsync(result::applyToExerciseList, Platform::runLater).get();
+            return result;
+        }
+
+        @Override
+        protected void succeeded() {
+            super.succeeded();
+            finishImport();
+
+            final ExerciseBatchImporter.ImportResult result = getValue();
+            context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.INFORMATION, //
+                    "common.info", "st.main.info.import_exercise_files_success", directory.toString(),
+                    result.getExerciseCount(), result.getDuplicateFiles().size(), result.getFailedFiles().size());
+        }
+
+        @Override
+        protected void cancelled() {
+            super.cancelled();
+            finishImport();
+            LOGGER.info("The import of exercise files has been cancelled.");
+        }
+
+        @Override
+        protected void failed() {
+            super.failed();
+            finishImport();
+
+            LOGGER.log(Level.SEVERE, "Failed to import exercise files!", getException());
+            context.showMessageDialog(context.getPrimaryStage(), Alert.AlertType.ERROR, //
+                    "common.error", "st.main.error.import_exercise_files");
+        }
+
+        private void finishImport() {
+            progressDialog.setOnHidden(null);
+            progressDialog.close();
+            context.blockMainWindow(false);
+            updateView();
+        }
+    }
 }
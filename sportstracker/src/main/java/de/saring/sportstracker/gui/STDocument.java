@@ -1,6 +1,9 @@
 package de.saring.sportstracker.gui;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STOptions;
@@ -13,6 +16,8 @@ import de.saring.sportstracker.data.NoteList;
 import de.saring.sportstracker.data.SportTypeList;
 import de.saring.sportstracker.data.Weight;
 import de.saring.sportstracker.data.WeightList;
+import de.saring.sportstracker.storage.PartitionedExerciseStorage;
+import de.saring.sportstracker.storage.SQLiteStorage;
 import de.saring.util.data.IdObjectListChangeListener;
 
 /**
@@ -21,11 +26,69 @@ import de.saring.util.data.IdObjectListChangeListener;
  *
  * @author Stefan Saring
  */
-public interface STDocument extends IdObjectListChangeListener {
+public interface STDocument {
 
     /** Command line parameter for a specific data directory (optional). */
     String PARAMETER_DATA_DIR = "--datadir=";
 
+    /** Names of the files in the data directory. */
+    String FILENAME_SPORT_TYPE_LIST = "sport-types.xml";
+    String FILENAME_EXERCISE_LIST = "exercises.xml";
+    String FILENAME_NOTE_LIST = "notes.xml";
+    String FILENAME_WEIGHT_LIST = "weights.xml";
+    String FILENAME_OPTIONS = "st-options.properties";
+    String FILENAME_DATABASE = "st-data" + SQLiteStorage.DATABASE_SUFFIX;
+    String FILENAME_EXERCISE_PARTITIONS = "exercises" + PartitionedExerciseStorage.MANIFEST_SUFFIX;
+
+    /**
+     * The lists of the application data, each of them is stored separately.
+     */
+    enum DataList {
+        SPORT_TYPES, EXERCISES, NOTES, WEIGHTS
+    }
+
+    /**
+     * Returns the name of the data source / destination of the specified list for the storage type.
+     * All lists are stored in the same database when using the SQLite storage. The exercises are stored in
+     * yearly partitions when using the partitioned XML storage, the name is the partition manifest.
+     *
+     * @param dataDirectory the data directory of the application
+     * @param storageType the storage type of the application data
+     * @param dataList the application data list
+     * @return the name of the data file
+     */
+    static String getDataFilename(final Path dataDirectory, final STOptions.StorageType storageType,
+            final DataList dataList) {
+        if (storageType == STOptions.StorageType.SQLite) {
+            return dataDirectory.resolve(FILENAME_DATABASE).toString();
+        } else if (storageType == STOptions.StorageType.XMLPartitioned && dataList == DataList.EXERCISES) {
+            return dataDirectory.resolve(FILENAME_EXERCISE_PARTITIONS).toString();
+        }
+        return getXmlDataFilename(dataDirectory, dataList);
+    }
+
+    /**
+     * Returns the name of the XML file of the specified list, it's independent of the storage type.
+     *
+     * @param dataDirectory the data directory of the application
+     * @param dataList the application data list
+     * @return the name of the XML file
+     */
+    static String getXmlDataFilename(final Path dataDirectory, final DataList dataList) {
+        switch (dataList) {
+            case SPORT_TYPES:
+                return dataDirectory.resolve(FILENAME_SPORT_TYPE_LIST).toString();
+            case EXERCISES:
+                return dataDirectory.resolve(FILENAME_EXERCISE_LIST).toString();
+            case NOTES:
+                return dataDirectory.resolve(FILENAME_NOTE_LIST).toString();
+            case WEIGHTS:
+                return dataDirectory.resolve(FILENAME_WEIGHT_LIST).toString();
+            default:
+                throw new IllegalArgumentException("Invalid DataList " + dataList + "!");
+        }
+    }
+
     // //// BEGIN: Getters and Setters for application data
 
     SportTypeList getSportTypeList();
@@ -40,6 +103,8 @@ public interface STDocument extends IdObjectListChangeListener {
 
     boolean isDirtyData();
 
+    Set<DataList> getDirtyDataLists();
+
     boolean isFilterEnabled();
 
     void setFilterEnabled(boolean filterEnabled);
@@ -106,27 +171,88 @@ public interface STDocument extends IdObjectListChangeListener {
     /**
      * This method reads both the exercise and the sport-type list from the
      * storage (e.g. XML files). On read problems empty lists will be created.
+     * The exercise, note and weight lists are read concurrently after the sport
+     * type list, the check of the exercise files gets started in background.
+     * The exercises of the earlier years are read on the first access, when the
+     * storage supports it (partitioned XML storage, see ExerciseList.setUnloadedYears()).
+     * When the snapshot written on the last application exit is up to date,
+     * all lists will be read from the snapshot instead (not for the partitioned
+     * XML storage).
      *
      * @throws STException thrown on read problems
      */
     void readApplicationData() throws STException;
 
     /**
-     * This method stores both the exercise and the sport-type list in the storage
-     * (e.g. XML files). On success the dirty data flag will be set to false.
+     * This method stores all modified application data lists in the storage
+     * (e.g. XML files), unmodified lists will not be written. On success the
+     * dirty data flag will be set to false.
      *
      * @throws STException thrown on store problems
      */
     void storeApplicationData() throws STException;
 
+    /**
+     * Creates a snapshot with copies of all modified application data lists, so they
+     * can be stored in background while the data is still being edited. Must be called
+     * by the thread modifying the data (the UI thread).
+     *
+     * @return the snapshot (empty when there are no modified lists)
+     */
+    DataListSnapshot createDataListSnapshot();
+
+    /**
+     * Stores the data lists of the specified snapshot in the storage. Lists which have
+     * been stored in a newer state already will be skipped. The lists stay dirty when
+     * they have been modified after snapshot creation or when storing has failed.
+     *
+     * @param snapshot the snapshot to store
+     * @throws STException thrown on store problems
+     */
+    void storeDataListSnapshot(DataListSnapshot snapshot) throws STException;
+
+    /**
+     * Returns the number of data list changes which have not been stored yet.
+     *
+     * @return number of unsaved changes
+     */
+    long getUnsavedChangeCount();
+
+    /**
+     * Closes the storage of the application data, pending changes will be
+     * written to the data files. Afterwards a snapshot of the application data
+     * will be written, which speeds up the next application start. Must be
+     * called before the application exits.
+     */
+    void closeStorage();
+
     /**
      * Checks all exercises for the existence of the attached exercise files
-     * (if there is one).
+     * (if there is one). Returns the result of the check started by
+     * readApplicationData(), if there is one pending.
      *
      * @return List of Exercise objects, where the specified file is missing
      */
     List<Exercise> checkExerciseFiles();
 
+    /**
+     * Sets the listener which gets notified when attached exercise files have been deleted or
+     * moved while the application is running. The listener will be called by the UI thread, files
+     * deleted at about the same time (e.g. a directory) are reported together.
+     *
+     * @param listener the listener, gets the list of exercises with missing files (or null for none)
+     */
+    void setMissingExerciseFilesListener(Consumer<List<Exercise>> listener);
+
+    /**
+     * Sets the listener which gets notified when the exercises of earlier years could not be read
+     * on their first access (partitioned XML storage). The listener will be called by the thread
+     * accessing the exercise list, usually the UI thread.
+     *
+     * @param listener the listener, gets the years of the unreadable exercises (or null for none)
+     */
+    void setExerciseLoadErrorListener(Consumer<List<Integer>> listener);
+
     /**
      * Register the specified IdObjectListChangeListener on all stored data lists
      * (for sport types, exercises, notes and weights).
@@ -1,12 +1,29 @@
 package de.saring.sportstracker.gui;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -14,6 +31,7 @@ import javax.inject.Singleton;
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STExceptionID;
 import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.core.STOptionsSerializer;
 import de.saring.sportstracker.data.EntryFilter;
 import de.saring.sportstracker.data.EntryList;
 import de.saring.sportstracker.data.Exercise;
@@ -23,10 +41,15 @@ import de.saring.sportstracker.data.NoteList;
 import de.saring.sportstracker.data.SportTypeList;
 import de.saring.sportstracker.data.Weight;
 import de.saring.sportstracker.data.WeightList;
+import de.saring.sportstracker.storage.BinarySnapshot;
 import de.saring.sportstracker.storage.IStorage;
+import de.saring.sportstracker.storage.PartitionedExerciseStorage;
+import de.saring.util.SafeFileUtils;
 import de.saring.util.XmlBeanStorage;
 import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
 import de.saring.util.data.IdObjectListChangeListener;
+import javafx.application.Platform;
 
 /**
  * This class contains all document (MVC) related data and functionality of the
@@ -38,11 +61,11 @@ import de.saring.util.data.IdObjectListChangeListener;
 public class STDocumentImpl implements STDocument {
     private static final Logger LOGGER = Logger.getLogger(STDocumentImpl.class.getName());
 
-    private static final String FILENAME_SPORT_TYPE_LIST = "sport-types.xml";
-    private static final String FILENAME_EXERCISE_LIST = "exercises.xml";
-    private static final String FILENAME_NOTE_LIST = "notes.xml";
-    private static final String FILENAME_WEIGHT_LIST = "weights.xml";
-    private static final String FILENAME_OPTIONS = "st-options.xml";
+    private static final String FILENAME_OPTIONS_XML_BEAN = "st-options.xml";
+    private static final String FILENAME_SNAPSHOT = "st-data.snapshot";
+
+    /** Number of threads used for reading the exercise, note and weight lists concurrently. */
+    private static final int LOAD_THREAD_COUNT = 3;
 
     private final STContext context;
 
@@ -77,8 +100,57 @@ public class STDocumentImpl implements STDocument {
      */
     private String dataDirectory;
 
-    /** This flag is true when data has been modified but not saved yet. */
-    private boolean dirtyData;
+    /** The set of data lists which have been modified but not saved yet. */
+    private final Set<DataList> dirtyDataLists = Collections.synchronizedSet(EnumSet.noneOf(DataList.class));
+
+    /**
+     * The number of changes of each data list since reading and the number of changes at the last store,
+     * both are guarded by the dirtyDataLists lock.
+     */
+    private final Map<DataList, Long> modificationCounts = new EnumMap<>(DataList.class);
+    private final Map<DataList, Long> storedModificationCounts = new EnumMap<>(DataList.class);
+
+    /** Lock for storing data lists, the lists can be stored by different threads (e.g. on autosave). */
+    private final Object storeLock = new Object();
+
+    /**
+     * The check for missing exercise files, started while reading the application data.
+     * It's null when no check is pending.
+     */
+    private Future<List<Exercise>> pendingExerciseFileCheck;
+
+    /** The checker of the attached exercise files, it caches and watches the checked files. */
+    private final ExerciseFileChecker exerciseFileChecker = new ExerciseFileChecker();
+
+    /** The listener for exercises with exercise files deleted while the application is running. */
+    private Consumer<List<Exercise>> missingExerciseFilesListener;
+
+    /** The listener for the years of exercises which could not be loaded on demand. */
+    private Consumer<List<Integer>> exerciseLoadErrorListener;
+
+    /**
+     * The deleted exercise files not reported to the listener yet, the files deleted until the UI thread
+     * processes the notification are reported together. Guarded by the set instance.
+     */
+    private final Set<Path> pendingMissingFiles = new HashSet<>();
+
+    /**
+     * This flag is true when the application data has been read completely, only then
+     * a snapshot of the data can be written.
+     */
+    private volatile boolean applicationDataRead;
+
+    /**
+     * This flag is true when the snapshot file contains the current state of the data files.
+     * It's reset by the background autosave thread.
+     */
+    private volatile boolean snapshotUpToDate;
+
+    /**
+     * The storage type of the application data, it's taken from the options when reading the data,
+     * so changes in the options will be used after the next start.
+     */
+    private STOptions.StorageType storageType = STOptions.StorageType.XML;
 
     /**
      * The application settings.
@@ -113,7 +185,6 @@ public class STDocumentImpl implements STDocument {
         exerciseList = new ExerciseList();
         noteList = new NoteList();
         weightList = new WeightList();
-        dirtyData = false;
 
         // create default filter for current month, but it is disabled
         filterEnabled = false;
@@ -147,7 +218,14 @@ public class STDocumentImpl implements STDocument {
 
     @Override
     public boolean isDirtyData() {
-        return dirtyData;
+        return !dirtyDataLists.isEmpty();
+    }
+
+    @Override
+    public Set<DataList> getDirtyDataLists() {
+        synchronized (dirtyDataLists) {
+            return dirtyDataLists.isEmpty() ? EnumSet.noneOf(DataList.class) : EnumSet.copyOf(dirtyDataLists);
+        }
     }
 
     @Override
@@ -192,15 +270,25 @@ public class STDocumentImpl implements STDocument {
     @Override
     public void loadOptions() {
         final String optionsPath = dataDirectory + File.separator + FILENAME_OPTIONS;
-        if (Files.exists(Paths.get(optionsPath))) {
+        final String xmlBeanOptionsPath = dataDirectory + File.separator + FILENAME_OPTIONS_XML_BEAN;
 
+        if (SafeFileUtils.exists(optionsPath)) {
             LOGGER.info("Loading application options...");
             try {
-                options = (STOptions) XmlBeanStorage.loadBean(optionsPath);
+                options = STOptionsSerializer.read(Paths.get(optionsPath));
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Failed to load application options from '" + optionsPath
                         + "', using default values ...", e);
             }
+        } else if (SafeFileUtils.exists(xmlBeanOptionsPath)) {
+            // migrate the options file of previous versions, the new file is written on exit
+            LOGGER.info("Loading application options of previous version...");
+            try {
+                options = (STOptions) XmlBeanStorage.loadBean(xmlBeanOptionsPath);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to load application options from '" + xmlBeanOptionsPath
+                        + "', using default values ...", e);
+            }
         }
 
         // use default options at first start or on load errors
@@ -216,7 +304,7 @@ public class STDocumentImpl implements STDocument {
         final String optionsPath = dataDirectory + File.separator + FILENAME_OPTIONS;
 
         try {
-            XmlBeanStorage.saveBean(options, optionsPath);
+            STOptionsSerializer.write(options, Paths.get(optionsPath));
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to store application options to '" + optionsPath + "' ...", e);
         }
@@ -271,41 +359,188 @@ public class STDocumentImpl implements STDocument {
 
     @Override
     public void readApplicationData() throws STException {
+        final ExecutorService executor = Executors.newFixedThreadPool(LOAD_THREAD_COUNT, runnable -> {
+            final Thread thread = new Thread(runnable, "ST-LoadData");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final List<STException> loadErrors = new ArrayList<>();
+        applicationDataRead = false;
+        snapshotUpToDate = false;
+        storageType = options == null ? STOptions.StorageType.XML : options.getStorageType();
+        applyCompressionOption();
+
         try {
-            // read application data from XML files
-            sportTypeList = storage.readSportTypeList(dataDirectory + "/" + FILENAME_SPORT_TYPE_LIST);
-            exerciseList = storage.readExerciseList(dataDirectory + "/" + FILENAME_EXERCISE_LIST, sportTypeList);
-            noteList = storage.readNoteList(dataDirectory + "/" + FILENAME_NOTE_LIST);
-            weightList = storage.readWeightList(dataDirectory + "/" + FILENAME_WEIGHT_LIST);
+            if (storageType != STOptions.StorageType.XML) {
+                migrateXmlDataIfMissing();
+            }
+
+            // use the snapshot of the previous application exit when the data files are unchanged
+            // (not for the partitioned storage, its exercises of the earlier years are read on demand)
+            if (storageType != STOptions.StorageType.XMLPartitioned && readApplicationDataFromSnapshot()) {
+                final ExerciseList loadedExerciseList = exerciseList;
+                pendingExerciseFileCheck = executor.submit(() ->
+                        exerciseFileChecker.findExercisesWithMissingFiles(loadedExerciseList));
+                applicationDataRead = true;
+                snapshotUpToDate = true;
+                return;
+            }
+
+            // the sport types are needed for reading the exercises, all other lists are independent
+            sportTypeList = storage.readSportTypeList(getDataFilename(DataList.SPORT_TYPES));
+            final SportTypeList loadedSportTypeList = sportTypeList;
+
+            // the exercises of the earlier years are read on demand when using the partitioned XML storage
+            final int firstYear = storageType == STOptions.StorageType.XMLPartitioned ?
+                    LocalDate.now().getYear() - 1 : Integer.MIN_VALUE;
+            final Future<ExerciseList> fExerciseList = executor.submit(() -> storage.readRecentExerciseList(
+                    getDataFilename(DataList.EXERCISES), loadedSportTypeList, firstYear));
+            final Future<NoteList> fNoteList = executor.submit(() -> storage.readNoteList(
+                    getDataFilename(DataList.NOTES)));
+            final Future<WeightList> fWeightList = executor.submit(() -> storage.readWeightList(
+                    getDataFilename(DataList.WEIGHTS)));
+
+            final ExerciseList loadedExerciseList = awaitLoadResult(fExerciseList,
+                    STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST, loadErrors);
+            if (loadedExerciseList != null) {
+                exerciseList = loadedExerciseList;
+                final String exerciseFilename = getDataFilename(DataList.EXERCISES);
+                final List<Integer> unreadYears = storage.getUnreadExerciseYears(exerciseFilename);
+                if (!unreadYears.isEmpty()) {
+                    exerciseList.setUnloadedYears(unreadYears, storage.getMaxExerciseId(exerciseFilename),
+                            this::loadExerciseYears);
+                }
+
+                // check the attached exercise files while the notes and weights are still being read
+                // (of a copy, the exercises of the earlier years can be added meanwhile)
+                final List<Exercise> checkedExercises = loadedExerciseList.stream().collect(Collectors.toList());
+                pendingExerciseFileCheck = executor.submit(() ->
+                        exerciseFileChecker.findExercisesWithMissingFiles(checkedExercises));
+            }
+
+            final NoteList loadedNoteList = awaitLoadResult(fNoteList,
+                    STExceptionID.XMLSTORAGE_READ_NOTE_LIST, loadErrors);
+            if (loadedNoteList != null) {
+                noteList = loadedNoteList;
+            }
+
+            final WeightList loadedWeightList = awaitLoadResult(fWeightList,
+                    STExceptionID.XMLSTORAGE_READ_WEIGHT_LIST, loadErrors);
+            if (loadedWeightList != null) {
+                weightList = loadedWeightList;
+            }
         } finally {
-            // register this document as a listener for list content changes
+            // pending tasks (e.g. the exercise file check) will still be completed
+            executor.shutdown();
+
+            // register the dirty data listeners for list content changes
             // (also when reading data has failed)
-            registerListChangeListener(this);
-            dirtyData = false;
+            registerDirtyDataListeners();
+            synchronized (dirtyDataLists) {
+                dirtyDataLists.clear();
+                modificationCounts.clear();
+                storedModificationCounts.clear();
+            }
+        }
+
+        applicationDataRead = loadErrors.isEmpty();
+
+        // report the first read problem, all others are attached as suppressed exceptions
+        if (!loadErrors.isEmpty()) {
+            final STException firstLoadError = loadErrors.get(0);
+            loadErrors.stream().skip(1).forEach(firstLoadError::addSuppressed);
+            throw firstLoadError;
         }
     }
 
     @Override
     public void storeApplicationData() throws STException {
-        // store application data in XML files
-        storage.storeSportTypeList(sportTypeList, dataDirectory + "/" + FILENAME_SPORT_TYPE_LIST);
-        storage.storeExerciseList(exerciseList, dataDirectory + "/" + FILENAME_EXERCISE_LIST);
-        storage.storeNoteList(noteList, dataDirectory + "/" + FILENAME_NOTE_LIST);
-        storage.storeWeightList(weightList, dataDirectory + "/" + FILENAME_WEIGHT_LIST);
-        dirtyData = false;
+        // store only the modified application data lists in the XML files or the database
+        // (a list stays dirty when storing has failed)
+        synchronized (storeLock) {
+            for (DataList dataList : getDirtyDataLists()) {
+                storeDataList(dataList, getDataList(dataList), getModificationCount(dataList));
+            }
+        }
+    }
+
+    @Override
+    public DataListSnapshot createDataListSnapshot() {
+        final DataListSnapshot snapshot = new DataListSnapshot();
+        synchronized (dirtyDataLists) {
+            for (DataList dataList : dirtyDataLists) {
+                snapshot.addList(dataList, copyDataList(dataList), getModificationCount(dataList));
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void storeDataListSnapshot(final DataListSnapshot snapshot) throws STException {
+        synchronized (storeLock) {
+            for (DataList dataList : snapshot.getDataLists()) {
+                final long modificationCount = snapshot.getModificationCount(dataList);
+                // skip outdated snapshot lists, a newer state has been stored already (e.g. by a manual save)
+                final long storedModificationCount;
+                synchronized (dirtyDataLists) {
+                    storedModificationCount = storedModificationCounts.getOrDefault(dataList, 0L);
+                }
+                if (modificationCount > storedModificationCount) {
+                    storeDataList(dataList, snapshot.getList(dataList), modificationCount);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getUnsavedChangeCount() {
+        synchronized (dirtyDataLists) {
+            return Stream.of(DataList.values())
+                    .mapToLong(dataList -> getModificationCount(dataList) -
+                            storedModificationCounts.getOrDefault(dataList, 0L))
+                    .sum();
+        }
+    }
+
+    @Override
+    public void closeStorage() {
+        exerciseFileChecker.close();
+        applyCompressionOption();
+        try {
+            storage.close();
+        } catch (STException se) {
+            LOGGER.log(Level.SEVERE, "Failed to close the storage of the application data!", se);
+            return;
+        }
+        writeSnapshot();
     }
 
     @Override
     public List<Exercise> checkExerciseFiles() {
-        return exerciseList.stream()
-                .filter(exercise -> exercise.getHrmFile() != null && !new File(exercise.getHrmFile()).exists())
-                .collect(Collectors.toList());
+        final Future<List<Exercise>> exerciseFileCheck = pendingExerciseFileCheck;
+        pendingExerciseFileCheck = null;
+
+        if (exerciseFileCheck != null) {
+            try {
+                return exerciseFileCheck.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Failed to check exercise files in background, checking again...", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return exerciseFileChecker.findExercisesWithMissingFiles(exerciseList);
+    }
+
+    @Override
+    public void setMissingExerciseFilesListener(final Consumer<List<Exercise>> listener) {
+        this.missingExerciseFilesListener = listener;
+        exerciseFileChecker.setMissingFilesListener(listener == null ? null : this::onExerciseFilesMissing);
     }
 
     @Override
-    public void listChanged(IdObject changedObject) {
-        // one of the data lists has been changed => set dirty data flag
-        dirtyData = true;
+    public void setExerciseLoadErrorListener(final Consumer<List<Integer>> listener) {
+        this.exerciseLoadErrorListener = listener;
     }
 
     @Override
@@ -315,4 +550,357 @@ public class STDocumentImpl implements STDocument {
         noteList.addListChangeListener(listener);
         weightList.addListChangeListener(listener);
     }
+
+    /**
+     * Loads the exercises of the specified years, which have not been read with the other application data,
+     * and adds them to the exercise list. The loaded exercises don't make the exercise list dirty, they
+     * replace the exercises with the same ID (only after a crash while storing the partitions). Is called
+     * by the exercise list on the first access to these years.
+     *
+     * @param years the years of the exercises to load
+     */
+    private void loadExerciseYears(final List<Integer> years) {
+        final List<Exercise> exercises;
+        try {
+            LOGGER.info("Reading the exercises of the years " + years + "...");
+            exercises = storage.readExercisesOfYears(getDataFilename(DataList.EXERCISES), sportTypeList, years);
+        } catch (STException se) {
+            LOGGER.log(Level.SEVERE, "Failed to read the exercises of the years " + years + "!", se);
+            final Consumer<List<Integer>> listener = exerciseLoadErrorListener;
+            if (listener != null) {
+                listener.accept(years);
+            }
+            return;
+        }
+        if (exercises.isEmpty()) {
+            return;
+        }
+
+        final Map<Integer, Exercise> mergedExercises = new HashMap<>();
+        exerciseList.forEach(exercise -> mergedExercises.put(exercise.getId(), exercise));
+        exercises.forEach(exercise -> {
+            if (mergedExercises.put(exercise.getId(), exercise) != null) {
+                LOGGER.warning("The exercise with ID " + exercise.getId() + " has been replaced by its stored " +
+                        "copy of year " + exercise.getDateTime().getYear() + "!");
+            }
+        });
+
+        synchronized (dirtyDataLists) {
+            final boolean wasDirty = dirtyDataLists.contains(DataList.EXERCISES);
+            final long modificationCount = getModificationCount(DataList.EXERCISES);
+            exerciseList.clearAndAddAll(new ArrayList<>(mergedExercises.values()));
+            if (!wasDirty) {
+                dirtyDataLists.remove(DataList.EXERCISES);
+                modificationCounts.put(DataList.EXERCISES, modificationCount);
+            }
+        }
+    }
+
+    /**
+     * Reads all application data lists from the snapshot file, if it exists and is up to date.
+     *
+     * @return true when the data has been read from the snapshot
+     */
+    private boolean readApplicationDataFromSnapshot() {
+        try {
+            final BinarySnapshot snapshot = BinarySnapshot.read(
+                    Paths.get(dataDirectory, FILENAME_SNAPSHOT).toString(), getDataFilenames());
+            if (snapshot == null) {
+                return false;
+            }
+
+            LOGGER.info("Reading application data from snapshot...");
+
+            // the snapshot lists are the persisted state of the data files, so the storage
+            // needs to write only the changes on the next store
+            storage.attachSportTypeList(snapshot.getSportTypeList(), getDataFilename(DataList.SPORT_TYPES));
+            storage.attachExerciseList(snapshot.getExerciseList(), getDataFilename(DataList.EXERCISES));
+            storage.attachNoteList(snapshot.getNoteList(), getDataFilename(DataList.NOTES));
+            storage.attachWeightList(snapshot.getWeightList(), getDataFilename(DataList.WEIGHTS));
+
+            sportTypeList = snapshot.getSportTypeList();
+            exerciseList = snapshot.getExerciseList();
+            noteList = snapshot.getNoteList();
+            weightList = snapshot.getWeightList();
+            return true;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to read the snapshot, reading the data files instead...", e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot of all application data lists for the next application start. It's only
+     * written when the data has been read completely and all changes have been stored, otherwise
+     * the lists don't contain the content of the data files.
+     */
+    private void writeSnapshot() {
+        if (!applicationDataRead || snapshotUpToDate || isDirtyData()
+                || storageType == STOptions.StorageType.XMLPartitioned) {
+            return;
+        }
+
+        LOGGER.info("Writing snapshot of application data...");
+        try {
+            new BinarySnapshot(sportTypeList, exerciseList, noteList, weightList)
+                    .write(Paths.get(dataDirectory, FILENAME_SNAPSHOT).toString(), getDataFilenames());
+            snapshotUpToDate = true;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to write the snapshot of the application data!", e);
+        }
+    }
+
+    /**
+     * Copies the application data from the XML files into the storage of the selected storage type, when
+     * its exercise data does not exist yet (e.g. first start after selecting another storage type). Only the
+     * lists with a different data source are copied, the XML files are not modified. The incomplete exercise
+     * data (e.g. the database) will be deleted when the migration fails.
+     *
+     * @throws STException on read or store problems
+     */
+    private void migrateXmlDataIfMissing() throws STException {
+        final String exerciseFilename = getDataFilename(DataList.EXERCISES);
+        final String sportTypeFilename = getXmlDataFilename(DataList.SPORT_TYPES);
+        if (SafeFileUtils.exists(exerciseFilename) || !SafeFileUtils.exists(sportTypeFilename)) {
+            return;
+        }
+
+        LOGGER.info("Migrating application data from XML files to storage type " + storageType + "...");
+        try {
+            final SportTypeList xmlSportTypeList = storage.readSportTypeList(sportTypeFilename);
+            for (DataList dataList : DataList.values()) {
+                final String destination = getDataFilename(dataList);
+                final String source = getXmlDataFilename(dataList);
+                if (destination.equals(source)) {
+                    continue;
+                }
+
+                switch (dataList) {
+                    case SPORT_TYPES:
+                        storage.storeSportTypeList(xmlSportTypeList, destination);
+                        break;
+                    case EXERCISES:
+                        storage.storeExerciseList(storage.readExerciseList(source, xmlSportTypeList), destination);
+                        break;
+                    case NOTES:
+                        storage.storeNoteList(storage.readNoteList(source), destination);
+                        break;
+                    case WEIGHTS:
+                        storage.storeWeightList(storage.readWeightList(source), destination);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid DataList " + dataList + "!");
+                }
+            }
+        } catch (STException se) {
+            try {
+                Files.deleteIfExists(Paths.get(exerciseFilename));
+            } catch (IOException ioe) {
+                se.addSuppressed(ioe);
+            }
+            throw se;
+        }
+    }
+
+    private String getDataFilename(final DataList dataList) {
+        return STDocument.getDataFilename(Paths.get(dataDirectory), storageType, dataList);
+    }
+
+    private String getXmlDataFilename(final DataList dataList) {
+        return STDocument.getXmlDataFilename(Paths.get(dataDirectory), dataList);
+    }
+
+    /**
+     * Returns the names of all data files, the exercise partition files are included when using the
+     * partitioned XML storage.
+     */
+    private List<String> getDataFilenames() throws STException {
+        final List<String> dataFilenames = Stream.of(DataList.values())
+                .map(this::getDataFilename)
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (storageType == STOptions.StorageType.XMLPartitioned) {
+            dataFilenames.addAll(PartitionedExerciseStorage.getPartitionFilenames(
+                    getDataFilename(DataList.EXERCISES)));
+        }
+        return dataFilenames;
+    }
+
+    /**
+     * Registers a listener on each data list, which marks only this list as dirty on content changes.
+     */
+    private void registerDirtyDataListeners() {
+        sportTypeList.addListChangeListener(changedObject -> markDirty(DataList.SPORT_TYPES));
+        exerciseList.addListChangeListener(changedObject -> markDirty(DataList.EXERCISES));
+        noteList.addListChangeListener(changedObject -> markDirty(DataList.NOTES));
+        weightList.addListChangeListener(changedObject -> markDirty(DataList.WEIGHTS));
+    }
+
+    /**
+     * Sets the file compression of the current options in the storage, changes in the options will
+     * be used on the next write.
+     */
+    private void applyCompressionOption() {
+        storage.setCompressedFiles(options != null && options.isCompressDataFiles());
+    }
+
+    private void markDirty(final DataList dataList) {
+        synchronized (dirtyDataLists) {
+            modificationCounts.merge(dataList, 1L, Long::sum);
+            dirtyDataLists.add(dataList);
+        }
+    }
+
+    private long getModificationCount(final DataList dataList) {
+        synchronized (dirtyDataLists) {
+            return modificationCounts.getOrDefault(dataList, 0L);
+        }
+    }
+
+    /**
+     * Stores the specified data list, it's not dirty anymore afterwards when it has not been modified
+     * since the specified modification count. Must be called with the store lock.
+     *
+     * @param dataList type of the data list
+     * @param list the data list or a copy of it
+     * @param modificationCount the modification count of the list content to store
+     * @throws STException on store problems
+     */
+    private void storeDataList(final DataList dataList, final IdObjectList<?> list, final long modificationCount)
+            throws STException {
+
+        applyCompressionOption();
+        final String destination = getDataFilename(dataList);
+        switch (dataList) {
+            case SPORT_TYPES:
+                storage.storeSportTypeList((SportTypeList) list, destination);
+                break;
+            case EXERCISES:
+                storage.storeExerciseList((ExerciseList) list, destination);
+                break;
+            case NOTES:
+                storage.storeNoteList((NoteList) list, destination);
+                break;
+            case WEIGHTS:
+                storage.storeWeightList((WeightList) list, destination);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid DataList " + dataList + "!");
+        }
+
+        synchronized (dirtyDataLists) {
+            storedModificationCounts.put(dataList, modificationCount);
+            if (getModificationCount(dataList) == modificationCount) {
+                dirtyDataLists.remove(dataList);
+            }
+        }
+        snapshotUpToDate = false;
+    }
+
+    private IdObjectList<?> getDataList(final DataList dataList) {
+        switch (dataList) {
+            case SPORT_TYPES:
+                return sportTypeList;
+            case EXERCISES:
+                return exerciseList;
+            case NOTES:
+                return noteList;
+            case WEIGHTS:
+                return weightList;
+            default:
+                throw new IllegalArgumentException("Invalid DataList " + dataList + "!");
+        }
+    }
+
+    /**
+     * Creates a copy of the specified data list containing the same entries, listeners are not copied.
+     */
+    private IdObjectList<?> copyDataList(final DataList dataList) {
+        switch (dataList) {
+            case SPORT_TYPES:
+                return copyEntries(sportTypeList, new SportTypeList());
+            case EXERCISES:
+                return copyEntries(exerciseList, new ExerciseList());
+            case NOTES:
+                return copyEntries(noteList, new NoteList());
+            case WEIGHTS:
+                return copyEntries(weightList, new WeightList());
+            default:
+                throw new IllegalArgumentException("Invalid DataList " + dataList + "!");
+        }
+    }
+
+    private static <T extends IdObject, L extends IdObjectList<T>> L copyEntries(final L source, final L target) {
+        target.clearAndAddAll(source.stream().collect(Collectors.toList()));
+        return target;
+    }
+
+    /**
+     * Waits for the result of the specified list read task. When the task failed, the problem will be
+     * added to the passed list of load errors and null will be returned.
+     *
+     * @param future the list read task
+     * @param exceptionID the exception ID to use for unexpected problems
+     * @param loadErrors list for collecting all load errors
+     * @return the read list or null on errors
+     */
+    private static <T> T awaitLoadResult(final Future<T> future, final STExceptionID exceptionID,
+            final List<STException> loadErrors) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof STException) {
+                loadErrors.add((STException) e.getCause());
+            } else {
+                loadErrors.add(new STException(exceptionID, "Failed to read application data ...", e));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            loadErrors.add(new STException(exceptionID, "Reading application data has been interrupted ...", e));
+        }
+        return null;
+    }
+
+    /**
+     * Collects the specified deleted or moved exercise files, the missing exercise files listener gets
+     * notified by the UI thread. Is called by the watcher thread of the exercise file checker.
+     *
+     * @param missingFiles the absolute paths of the missing exercise files
+     */
+    private void onExerciseFilesMissing(final Set<Path> missingFiles) {
+        synchronized (pendingMissingFiles) {
+            final boolean notificationPending = !pendingMissingFiles.isEmpty();
+            pendingMissingFiles.addAll(missingFiles);
+            if (notificationPending) {
+                return;
+            }
+        }
+        Platform.runLater(this::notifyMissingExerciseFiles);
+    }
+
+    /**
+     * Notifies the missing exercise files listener about all exercises using one of the collected
+     * missing exercise files. Must be called by the UI thread, which modifies the exercise list.
+     */
+    private void notifyMissingExerciseFiles() {
+        final Set<Path> missingFiles;
+        synchronized (pendingMissingFiles) {
+            missingFiles = new HashSet<>(pendingMissingFiles);
+            pendingMissingFiles.clear();
+        }
+
+        final Consumer<List<Exercise>> listener = missingExerciseFilesListener;
+        if (listener == null) {
+            return;
+        }
+
+        final List<Exercise> missingFileExercises = exerciseList.stream()
+                .filter(exercise -> exercise.getHrmFile() != null &&
+                        missingFiles.contains(ExerciseFileChecker.getAbsolutePath(exercise.getHrmFile())))
+                .collect(Collectors.toList());
+        if (!missingFileExercises.isEmpty()) {
+            listener.accept(missingFileExercises);
+        }
+    }
 }
@@ -14,8 +14,7 @@ import org.controlsfx.validation.ValidationResult;
 import org.controlsfx.validation.Validator;
 
 import de.saring.exerciseviewer.data.EVExercise;
-import de.saring.exerciseviewer.parser.ExerciseParser;
-import de.saring.exerciseviewer.parser.ExerciseParserFactory;
+import de.saring.exerciseviewer.parser.ExerciseFileCache;
 import de.saring.sportstracker.data.Equipment;
 import de.saring.sportstracker.data.Exercise;
 import de.saring.sportstracker.data.Exercise.IntensityType;
@@ -60,6 +59,7 @@ public class ExerciseDialogController extends AbstractDialogController {
 
     private final STDocument document;
     private final DialogProvider dialogProvider;
+    private final ExerciseFileCache exerciseFileCache;
 
     @FXML
     private DatePicker dpDate;
@@ -155,12 +155,15 @@ public class ExerciseDialogController extends AbstractDialogController {
      * @param context the SportsTracker UI context
      * @param document the SportsTracker model/document
      * @param dialogProvider provider for the dialogs
+     * @param exerciseFileCache the cache of the parsed exercise files
      */
     @Inject
-    public ExerciseDialogController(final STContext context, final STDocument document, final DialogProvider dialogProvider) {
+    public ExerciseDialogController(final STContext context, final STDocument document, final DialogProvider dialogProvider,
+                                    final ExerciseFileCache exerciseFileCache) {
         super(context);
         this.document = document;
         this.dialogProvider = dialogProvider;
+        this.exerciseFileCache = exerciseFileCache;
 
         equipmentNone = new Equipment(Integer.MAX_VALUE);
         equipmentNone.setName(context.getResources().getString("st.dlg.exercise.equipment.none.text"));
@@ -452,11 +455,10 @@ public class ExerciseDialogController extends AbstractDialogController {
             return;
         }
 
-        // parse exercise file
+        // parse exercise file summary, the samples are not needed for the import
         EVExercise evExercise = null;
         try {
-            ExerciseParser parser = ExerciseParserFactory.INSTANCE.getParser(hrmFile);
-            evExercise = parser.parseExercise(hrmFile);
+            evExercise = exerciseFileCache.parseSummary(hrmFile);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to parse exercise file!", e);
             context.showMessageDialog(getWindow(tfHrmFile), Alert.AlertType.ERROR, "common.error",
@@ -527,6 +529,7 @@ public class ExerciseDialogController extends AbstractDialogController {
         // find the start index for searching the previous exercise when not done yet
         // => get index of current exercise or use the last index when not found
         if (previousExerciseIndex == null) {
+            document.getExerciseList().loadAllYears();
             int indexCurrentExercise =
                     document.getExerciseList().indexOf(exerciseViewModel.getExercise());
             if (indexCurrentExercise == -1) {
@@ -39,6 +39,14 @@ public class PreferencesDialogController extends AbstractDialogController {
     @FXML
     private CheckBox cbSaveOnExit;
 
+    @FXML
+    private CheckBox cbAutoSave;
+
+    @FXML
+    private CheckBox cbCompressDataFiles;
+    @FXML
+    private ChoiceBox<STOptions.StorageType> cbStorageType;
+
     // tab pane "Units"
     @FXML
     private RadioButton rbUnitsMetric;
@@ -116,6 +124,9 @@ public class PreferencesDialogController extends AbstractDialogController {
         BindingUtils.bindToggleGroupToProperty(tgInitialView, preferencesViewModel.initialView);
         cbAutomaticCalculation.valueProperty().bindBidirectional(preferencesViewModel.defaultAutoCalculation);
         cbSaveOnExit.selectedProperty().bindBidirectional(preferencesViewModel.saveOnExit);
+        cbAutoSave.selectedProperty().bindBidirectional(preferencesViewModel.autoSave);
+        cbCompressDataFiles.selectedProperty().bindBidirectional(preferencesViewModel.compressDataFiles);
+        cbStorageType.valueProperty().bindBidirectional(preferencesViewModel.storageType);
 
         BindingUtils.bindToggleGroupToProperty(tgUnitSystem, preferencesViewModel.unitSystem);
         BindingUtils.bindToggleGroupToProperty(tgSpeedView, preferencesViewModel.speedView);
@@ -181,5 +192,31 @@ public class PreferencesDialogController extends AbstractDialogController {
                 return null;
             }
         });
+
+        // fill storage type choice box, display localized names the enum items
+        Stream.of(STOptions.StorageType.values()).forEach((storageType) ->
+                cbStorageType.getItems().add(storageType));
+
+        cbStorageType.setConverter(new StringConverter<STOptions.StorageType>() {
+
+            @Override
+            public String toString(final STOptions.StorageType storageType) {
+                switch (storageType) {
+                    case XML:
+                        return context.getResources().getString("st.dlg.options.storage_xml.text");
+                    case XMLPartitioned:
+                        return context.getResources().getString("st.dlg.options.storage_xml_partitioned.text");
+                    case SQLite:
+                        return context.getResources().getString("st.dlg.options.storage_sqlite.text");
+                    default:
+                        return "";
+                }
+            }
+
+            @Override
+            public STOptions.StorageType fromString(final String string) {
+                return null;
+            }
+        });
     }
 }
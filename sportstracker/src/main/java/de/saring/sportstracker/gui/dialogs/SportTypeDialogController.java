@@ -137,6 +137,7 @@ public class SportTypeDialogController extends AbstractDialogController {
 
         // the record distance mode can only be changed, when no exercises exists for
         // this sport type => disable checkbox, when such exercises were found
+        document.getExerciseList().loadAllYears();
         Optional<Exercise> oExercise = document.getExerciseList().stream()
                 .filter(exercise -> exercise.getSportType().getId() == sportTypeViewModel.id)
                 .findFirst();
@@ -246,6 +247,7 @@ public class SportTypeDialogController extends AbstractDialogController {
         // are there any existing exercises for this sport subtype?
         final SportSubType selectedSportSubtype = liSportSubtypes.getSelectionModel().getSelectedItem();
 
+        document.getExerciseList().loadAllYears();
         final List<Exercise> lRefExercises = document.getExerciseList().stream()
                 .filter(exercise -> exercise.getSportType().getId() == sportTypeViewModel.id
                         && exercise.getSportSubType().equals(selectedSportSubtype))
@@ -363,6 +365,7 @@ public class SportTypeDialogController extends AbstractDialogController {
         // are there any existing exercises for this equipment?
         final Equipment selectedEquipment = liEquipments.getSelectionModel().getSelectedItem();
 
+        document.getExerciseList().loadAllYears();
         List<Exercise> lRefExercises = document.getExerciseList().stream()
                 .filter(exercise -> exercise.getSportType().getId() == sportTypeViewModel.id
                         && exercise.getEquipment() != null && exercise.getEquipment().equals(selectedEquipment))
@@ -379,8 +382,11 @@ public class SportTypeDialogController extends AbstractDialogController {
                 return;
             }
 
-            // delete equipment in all exercises which use it
-            lRefExercises.forEach(exercise -> exercise.setEquipment(null));
+            // delete equipment in all exercises which use it (the changed exercises must be stored in the list again)
+            lRefExercises.forEach(exercise -> {
+                exercise.setEquipment(null);
+                document.getExerciseList().set(exercise);
+            });
         }
 
         // finally delete the equipment
@@ -137,6 +137,7 @@ public class SportTypeListDialogController extends AbstractDialogController {
 
         // are there any existing exercises for this sport type?
         final SportType sportType = liSportTypes.getSelectionModel().getSelectedItem();
+        document.getExerciseList().loadAllYears();
         final List<Exercise> lRefExercises = document.getExerciseList().stream()
                 .filter(exercise -> exercise.getSportType().equals(sportType))
                 .collect(Collectors.toList());
@@ -1,5 +1,9 @@
 package de.saring.sportstracker.gui.statusbar;
 
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import javafx.scene.control.Label;
 
 import javax.inject.Inject;
@@ -46,6 +50,7 @@ public class StatusBarController {
 
     /**
      * Updates the content of the status bar depending on the current exercise selection.
+     * The data lists with unsaved changes will be displayed too.
      *
      * @param selectedExerciseIds array of currently selected exercise IDs (can be empty, not null)
      */
@@ -80,6 +85,25 @@ public class StatusBarController {
                     strCount, strDistance, strAVGSpeed, strDuration);
         }
 
+        // append the names of the data lists with unsaved changes
+        final Set<STDocument.DataList> dirtyDataLists = document.getDirtyDataLists();
+        if (!dirtyDataLists.isEmpty()) {
+            final String strDirtyDataLists = dirtyDataLists.stream()
+                    .map(dataList -> context.getResources().getString(
+                            "st.view.statusbar.unsaved." + dataList.name().toLowerCase(Locale.ROOT)))
+                    .collect(Collectors.joining(", "));
+            final String unsavedText = context.getResources().getString("st.view.statusbar.unsaved",
+                    strDirtyDataLists);
+            statusText = statusText.isEmpty() ? unsavedText : statusText + "  |  " + unsavedText;
+        }
+
         laStatusBar.setText(statusText);
     }
+
+    /**
+     * Displays the info that the application waits for the completion of the background save on exit.
+     */
+    public void showFinishingSave() {
+        laStatusBar.setText(context.getResources().getString("st.view.statusbar.finishing_save"));
+    }
 }
@@ -182,6 +182,10 @@ public class ExerciseListViewController extends AbstractListViewController<Exerc
 
     @Override
     protected List<Exercise> getTableEntries() {
+        // the list displays all exercises without a filter, so the earlier years need to be loaded
+        if (!getDocument().isFilterEnabled()) {
+            getDocument().getExerciseList().loadAllYears();
+        }
         return getDocument().getFilterableExerciseList().stream().collect(Collectors.toList());
     }
 
@@ -0,0 +1,490 @@
+package de.saring.sportstracker.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import de.saring.sportstracker.data.Equipment;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportSubType;
+import de.saring.sportstracker.data.SportType;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.util.SafeFileUtils;
+import de.saring.util.gui.javafx.ColorUtils;
+
+/**
+ * This class contains a snapshot of all application data lists, which can be stored in a compact binary
+ * file. Reading the snapshot is much faster than parsing and validating the XML files, so it's used as
+ * cache for the application startup.<br/>
+ * The snapshot file contains the fingerprints (size, modification time and checksum) of the data files
+ * it was created from. It will only be used when all data files are unchanged, otherwise the data files
+ * needs to be read.<br/>
+ * All strings are stored once in a string table, the entries reference them by index. Exercises reference
+ * their sport type, subtype and equipment by the index in the sport type list.
+ *
+ * @author Stefan Saring
+ */
+public final class BinarySnapshot {
+
+    /** Magic number at the start of the snapshot file ("STSN"). */
+    private static final int MAGIC = 0x5354534E;
+
+    /** Version of the snapshot file format, needs to be increased on each format change. */
+    private static final int VERSION = 1;
+
+    /** Size of the read buffer for the checksum computation of the data files. */
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
+    /** String table index for null strings. */
+    private static final int NULL_INDEX = -1;
+
+    private final SportTypeList sportTypeList;
+    private final ExerciseList exerciseList;
+    private final NoteList noteList;
+    private final WeightList weightList;
+
+    /**
+     * Standard c'tor.
+     *
+     * @param sportTypeList the sport type list
+     * @param exerciseList the exercise list
+     * @param noteList the note list
+     * @param weightList the weight list
+     */
+    public BinarySnapshot(final SportTypeList sportTypeList, final ExerciseList exerciseList,
+            final NoteList noteList, final WeightList weightList) {
+        this.sportTypeList = sportTypeList;
+        this.exerciseList = exerciseList;
+        this.noteList = noteList;
+        this.weightList = weightList;
+    }
+
+    public SportTypeList getSportTypeList() {
+        return sportTypeList;
+    }
+
+    public ExerciseList getExerciseList() {
+        return exerciseList;
+    }
+
+    public NoteList getNoteList() {
+        return noteList;
+    }
+
+    public WeightList getWeightList() {
+        return weightList;
+    }
+
+    /**
+     * Writes this snapshot to the specified file. The fingerprints of the specified data files (and of
+     * their journal files, if there are any) will be stored too, so they must contain the same data
+     * as this snapshot.
+     *
+     * @param snapshotFilename name of the snapshot file
+     * @param dataFilenames names of the data files, the snapshot was created from
+     * @throws IOException on write problems
+     */
+    public void write(final String snapshotFilename, final List<String> dataFilenames) throws IOException {
+        final List<FileFingerprint> fingerprints = createFingerprints(dataFilenames);
+        final Map<String, Integer> stringTable = createStringTable();
+
+        // the snapshot is just a cache, so the previous one does not need to be kept as backup
+        final Path snapshotFile = Paths.get(snapshotFilename);
+        Files.deleteIfExists(snapshotFile);
+
+        SafeFileUtils.writeFile(snapshotFile, outputStream -> {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+
+                output.writeInt(fingerprints.size());
+                for (FileFingerprint fingerprint : fingerprints) {
+                    fingerprint.write(output);
+                }
+
+                output.writeInt(stringTable.size());
+                for (String string : stringTable.keySet()) {
+                    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+
+                writeSportTypes(output, stringTable);
+                writeExercises(output, stringTable);
+                writeNotes(output, stringTable);
+                writeWeights(output, stringTable);
+            }
+        });
+    }
+
+    /**
+     * Reads the snapshot from the specified file. It returns null when the snapshot file does not exist
+     * or when it's outdated (one of the data files or its journal has been modified after the snapshot
+     * was written).
+     *
+     * @param snapshotFilename name of the snapshot file
+     * @param dataFilenames names of the data files, the snapshot was created from
+     * @return the read snapshot or null
+     * @throws IOException on read problems or on invalid snapshot content
+     */
+    public static BinarySnapshot read(final String snapshotFilename, final List<String> dataFilenames)
+            throws IOException {
+
+        final Path snapshotFile = Paths.get(snapshotFilename);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+
+        try {
+            // the snapshot is read into a heap buffer, a mapped buffer would keep the file open until it
+            // gets garbage collected (e.g. the file can't be replaced on Windows)
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+
+            final List<FileFingerprint> expectedFingerprints = new ArrayList<>();
+            final int fingerprintCount = buffer.getInt();
+            for (int i = 0; i < fingerprintCount; i++) {
+                expectedFingerprints.add(FileFingerprint.read(buffer));
+            }
+            if (!isUpToDate(expectedFingerprints, dataFilenames)) {
+                return null;
+            }
+
+            final String[] stringTable = new String[buffer.getInt()];
+            for (int i = 0; i < stringTable.length; i++) {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                stringTable[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            final SportTypeList sportTypeList = readSportTypes(buffer, stringTable);
+            return new BinarySnapshot(sportTypeList,
+                    readExercises(buffer, stringTable, sportTypeList),
+                    readNotes(buffer, stringTable),
+                    readWeights(buffer, stringTable));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            throw new IOException("The snapshot file '" + snapshotFilename + "' is invalid!", e);
+        }
+    }
+
+    private Map<String, Integer> createStringTable() {
+        final Map<String, Integer> stringTable = new LinkedHashMap<>();
+
+        for (SportType sportType : sportTypeList) {
+            addString(stringTable, sportType.getName());
+            addString(stringTable, sportType.getIcon());
+            sportType.getSportSubTypeList().forEach(subType -> addString(stringTable, subType.getName()));
+            sportType.getEquipmentList().forEach(equipment -> addString(stringTable, equipment.getName()));
+        }
+        for (Exercise exercise : exerciseList) {
+            addString(stringTable, exercise.getHrmFile());
+            addString(stringTable, exercise.getComment());
+        }
+        noteList.forEach(note -> addString(stringTable, note.getComment()));
+        weightList.forEach(weight -> addString(stringTable, weight.getComment()));
+        return stringTable;
+    }
+
+    private static void addString(final Map<String, Integer> stringTable, final String string) {
+        if (string != null) {
+            stringTable.putIfAbsent(string, stringTable.size());
+        }
+    }
+
+    private static int getStringIndex(final Map<String, Integer> stringTable, final String string) {
+        return string == null ? NULL_INDEX : stringTable.get(string);
+    }
+
+    private static String getString(final String[] stringTable, final int index) {
+        return index == NULL_INDEX ? null : stringTable[index];
+    }
+
+    private void writeSportTypes(final DataOutputStream output, final Map<String, Integer> stringTable)
+            throws IOException {
+
+        output.writeInt(sportTypeList.size());
+        for (SportType sportType : sportTypeList) {
+            output.writeInt(sportType.getId());
+            output.writeInt(getStringIndex(stringTable, sportType.getName()));
+            output.writeBoolean(sportType.isRecordDistance());
+            output.writeInt(getStringIndex(stringTable, sportType.getIcon()));
+            output.writeInt(ColorUtils.toAwtColor(sportType.getColor()).getRGB());
+
+            output.writeInt(sportType.getSportSubTypeList().size());
+            for (SportSubType sportSubType : sportType.getSportSubTypeList()) {
+                output.writeInt(sportSubType.getId());
+                output.writeInt(getStringIndex(stringTable, sportSubType.getName()));
+            }
+
+            output.writeInt(sportType.getEquipmentList().size());
+            for (Equipment equipment : sportType.getEquipmentList()) {
+                output.writeInt(equipment.getId());
+                output.writeInt(getStringIndex(stringTable, equipment.getName()));
+            }
+        }
+    }
+
+    private static SportTypeList readSportTypes(final ByteBuffer buffer, final String[] stringTable) {
+        final List<SportType> sportTypes = new ArrayList<>();
+
+        final int sportTypeCount = buffer.getInt();
+        for (int i = 0; i < sportTypeCount; i++) {
+            final SportType sportType = new SportType(buffer.getInt());
+            sportType.setName(getString(stringTable, buffer.getInt()));
+            sportType.setRecordDistance(buffer.get() != 0);
+            sportType.setIcon(getString(stringTable, buffer.getInt()));
+            sportType.setColor(ColorUtils.toFxColor(new java.awt.Color(buffer.getInt())));
+
+            final int subTypeCount = buffer.getInt();
+            for (int j = 0; j < subTypeCount; j++) {
+                final SportSubType sportSubType = new SportSubType(buffer.getInt());
+                sportSubType.setName(getString(stringTable, buffer.getInt()));
+                sportType.getSportSubTypeList().set(sportSubType);
+            }
+
+            final int equipmentCount = buffer.getInt();
+            for (int j = 0; j < equipmentCount; j++) {
+                final Equipment equipment = new Equipment(buffer.getInt());
+                equipment.setName(getString(stringTable, buffer.getInt()));
+                sportType.getEquipmentList().set(equipment);
+            }
+            sportTypes.add(sportType);
+        }
+
+        final SportTypeList sportTypeList = new SportTypeList();
+        sportTypeList.clearAndAddAll(sportTypes);
+        return sportTypeList;
+    }
+
+    private void writeExercises(final DataOutputStream output, final Map<String, Integer> stringTable)
+            throws IOException {
+
+        output.writeInt(exerciseList.size());
+        for (Exercise exercise : exerciseList) {
+            final SportType sportType = exercise.getSportType();
+            output.writeInt(exercise.getId());
+            writeDateTime(output, exercise.getDateTime());
+            output.writeInt(sportTypeList.indexOf(sportType));
+            output.writeInt(sportType.getSportSubTypeList().indexOf(exercise.getSportSubType()));
+            output.writeInt(exercise.getEquipment() == null ? -1 :
+                    sportType.getEquipmentList().indexOf(exercise.getEquipment()));
+            output.writeByte(exercise.getIntensity().ordinal());
+            output.writeInt(exercise.getDuration());
+            output.writeFloat(exercise.getDistance());
+            output.writeFloat(exercise.getAvgSpeed());
+            output.writeInt(exercise.getAvgHeartRate());
+            output.writeInt(exercise.getAscent());
+            output.writeInt(exercise.getDescent());
+            output.writeInt(exercise.getCalories());
+            output.writeInt(getStringIndex(stringTable, exercise.getHrmFile()));
+            output.writeInt(getStringIndex(stringTable, exercise.getComment()));
+        }
+    }
+
+    private static ExerciseList readExercises(final ByteBuffer buffer, final String[] stringTable,
+            final SportTypeList sportTypeList) {
+
+        final Exercise.IntensityType[] intensityTypes = Exercise.IntensityType.values();
+        final List<Exercise> exercises = new ArrayList<>();
+
+        final int exerciseCount = buffer.getInt();
+        for (int i = 0; i < exerciseCount; i++) {
+            final Exercise exercise = new Exercise(buffer.getInt());
+            exercise.setDateTime(readDateTime(buffer));
+
+            final SportType sportType = sportTypeList.getAt(buffer.getInt());
+            exercise.setSportType(sportType);
+            exercise.setSportSubType(sportType.getSportSubTypeList().getAt(buffer.getInt()));
+            final int equipmentIndex = buffer.getInt();
+            if (equipmentIndex >= 0) {
+                exercise.setEquipment(sportType.getEquipmentList().getAt(equipmentIndex));
+            }
+
+            exercise.setIntensity(intensityTypes[buffer.get()]);
+            exercise.setDuration(buffer.getInt());
+            exercise.setDistance(buffer.getFloat());
+            exercise.setAvgSpeed(buffer.getFloat());
+            exercise.setAvgHeartRate(buffer.getInt());
+            exercise.setAscent(buffer.getInt());
+            exercise.setDescent(buffer.getInt());
+            exercise.setCalories(buffer.getInt());
+            exercise.setHrmFile(getString(stringTable, buffer.getInt()));
+            exercise.setComment(getString(stringTable, buffer.getInt()));
+            exercises.add(exercise);
+        }
+
+        final ExerciseList exerciseList = new ExerciseList();
+        exerciseList.clearAndAddAll(exercises);
+        return exerciseList;
+    }
+
+    private void writeNotes(final DataOutputStream output, final Map<String, Integer> stringTable)
+            throws IOException {
+
+        output.writeInt(noteList.size());
+        for (Note note : noteList) {
+            output.writeInt(note.getId());
+            writeDateTime(output, note.getDateTime());
+            output.writeInt(getStringIndex(stringTable, note.getComment()));
+        }
+    }
+
+    private static NoteList readNotes(final ByteBuffer buffer, final String[] stringTable) {
+        final List<Note> notes = new ArrayList<>();
+
+        final int noteCount = buffer.getInt();
+        for (int i = 0; i < noteCount; i++) {
+            final Note note = new Note(buffer.getInt());
+            note.setDateTime(readDateTime(buffer));
+            note.setComment(getString(stringTable, buffer.getInt()));
+            notes.add(note);
+        }
+
+        final NoteList noteList = new NoteList();
+        noteList.clearAndAddAll(notes);
+        return noteList;
+    }
+
+    private void writeWeights(final DataOutputStream output, final Map<String, Integer> stringTable)
+            throws IOException {
+
+        output.writeInt(weightList.size());
+        for (Weight weight : weightList) {
+            output.writeInt(weight.getId());
+            writeDateTime(output, weight.getDateTime());
+            output.writeFloat(weight.getValue());
+            output.writeInt(getStringIndex(stringTable, weight.getComment()));
+        }
+    }
+
+    private static WeightList readWeights(final ByteBuffer buffer, final String[] stringTable) {
+        final List<Weight> weights = new ArrayList<>();
+
+        final int weightCount = buffer.getInt();
+        for (int i = 0; i < weightCount; i++) {
+            final Weight weight = new Weight(buffer.getInt());
+            weight.setDateTime(readDateTime(buffer));
+            weight.setValue(buffer.getFloat());
+            weight.setComment(getString(stringTable, buffer.getInt()));
+            weights.add(weight);
+        }
+
+        final WeightList weightList = new WeightList();
+        weightList.clearAndAddAll(weights);
+        return weightList;
+    }
+
+    private static void writeDateTime(final DataOutputStream output, final LocalDateTime dateTime)
+            throws IOException {
+        output.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        output.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(final ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static List<FileFingerprint> createFingerprints(final List<String> dataFilenames) throws IOException {
+        final List<FileFingerprint> fingerprints = new ArrayList<>();
+        for (String dataFilename : dataFilenames) {
+            fingerprints.add(FileFingerprint.create(Paths.get(dataFilename), true));
+            fingerprints.add(FileFingerprint.create(Paths.get(dataFilename + ListJournal.JOURNAL_SUFFIX), true));
+        }
+        return fingerprints;
+    }
+
+    private static boolean isUpToDate(final List<FileFingerprint> expectedFingerprints,
+            final List<String> dataFilenames) throws IOException {
+
+        if (expectedFingerprints.size() != dataFilenames.size() * 2) {
+            return false;
+        }
+
+        for (int i = 0; i < dataFilenames.size(); i++) {
+            if (!expectedFingerprints.get(i * 2).matches(Paths.get(dataFilenames.get(i)))
+                    || !expectedFingerprints.get(i * 2 + 1).matches(
+                            Paths.get(dataFilenames.get(i) + ListJournal.JOURNAL_SUFFIX))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The fingerprint of a data file, the size is -1 when the file does not exist.
+     */
+    private static final class FileFingerprint {
+        private final long size;
+        private final long lastModified;
+        private final long checksum;
+
+        private FileFingerprint(final long size, final long lastModified, final long checksum) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+
+        private static FileFingerprint create(final Path file, final boolean withChecksum) throws IOException {
+            if (!Files.exists(file)) {
+                return new FileFingerprint(-1, 0, 0);
+            }
+            return new FileFingerprint(Files.size(file), Files.getLastModifiedTime(file).toMillis(),
+                    withChecksum ? computeChecksum(file) : 0);
+        }
+
+        private static FileFingerprint read(final ByteBuffer buffer) {
+            return new FileFingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        private void write(final DataOutputStream output) throws IOException {
+            output.writeLong(size);
+            output.writeLong(lastModified);
+            output.writeLong(checksum);
+        }
+
+        /**
+         * Checks whether the specified file matches this fingerprint. The checksum is only computed when
+         * the size and modification time are the same (the checksum computation reads the whole file).
+         */
+        private boolean matches(final Path file) throws IOException {
+            final FileFingerprint current = create(file, false);
+            return current.size == size && current.lastModified == lastModified
+                    && (size < 0 || computeChecksum(file) == checksum);
+        }
+
+        private static long computeChecksum(final Path file) throws IOException {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                final CRC32 crc = new CRC32();
+                final byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+                int length;
+                while ((length = inputStream.read(buffer)) > 0) {
+                    crc.update(buffer, 0, length);
+                }
+                return crc.getValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package de.saring.sportstracker.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.core.STOptionsSerializer;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.sportstracker.gui.STDocument;
+
+/**
+ * Headless command line tool for exporting the application data with the {@link BulkExporter}, it doesn't
+ * need the JavaFX runtime. The data is read from the data directory in the storage type of the stored options.
+ * <br/>
+ * Usage: {@code BulkExportTool [--datadir=<directory>] [--format=csv|jsonl] --output=<directory>}
+ *
+ * @author Stefan Saring
+ */
+public final class BulkExportTool {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkExportTool.class.getName());
+
+    private static final String PARAMETER_FORMAT = "--format=";
+    private static final String PARAMETER_OUTPUT = "--output=";
+
+    private BulkExportTool() {
+    }
+
+    /**
+     * Entry point of the export tool, the exit code is 0 on success, 1 on invalid parameters
+     * and 2 on export errors.
+     *
+     * @param args the command line parameters
+     */
+    public static void main(final String[] args) {
+        Path dataDirectory = Paths.get(System.getProperty("user.home"), ".sportstracker");
+        BulkExporter.Format format = BulkExporter.Format.CSV;
+        Path outputDirectory = null;
+        boolean validParameters = true;
+
+        for (String arg : args) {
+            if (arg.startsWith(STDocument.PARAMETER_DATA_DIR)) {
+                dataDirectory = Paths.get(arg.substring(STDocument.PARAMETER_DATA_DIR.length()));
+            } else if (arg.startsWith(PARAMETER_FORMAT)) {
+                format = parseFormat(arg.substring(PARAMETER_FORMAT.length()));
+            } else if (arg.startsWith(PARAMETER_OUTPUT)) {
+                outputDirectory = Paths.get(arg.substring(PARAMETER_OUTPUT.length()));
+            } else {
+                validParameters = false;
+            }
+        }
+
+        if (!validParameters || format == null || outputDirectory == null) {
+            System.err.println("Usage: BulkExportTool [" + STDocument.PARAMETER_DATA_DIR + "<directory>] [" +
+                    PARAMETER_FORMAT + "csv|jsonl] " + PARAMETER_OUTPUT + "<directory>");
+            System.exit(1);
+        }
+
+        try {
+            Files.createDirectories(outputDirectory);
+            export(dataDirectory, outputDirectory, format);
+        } catch (IOException | STException e) {
+            LOGGER.log(Level.SEVERE, "Failed to export the application data!", e);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Reads the application data from the specified data directory and exports it to the output directory.
+     *
+     * @param dataDirectory the data directory of the application
+     * @param outputDirectory the directory for the export files
+     * @param format the export format
+     * @throws STException on read or export errors
+     */
+    static void export(final Path dataDirectory, final Path outputDirectory, final BulkExporter.Format format)
+            throws STException {
+
+        final STOptions.StorageType storageType = readStorageType(dataDirectory);
+        final IStorage storage = new DelegatingStorage(
+                new JournalStorage(), new SQLiteStorage(), new PartitionedExerciseStorage());
+
+        final SportTypeList sportTypeList = storage.readSportTypeList(
+                STDocument.getDataFilename(dataDirectory, storageType, STDocument.DataList.SPORT_TYPES));
+        final ExerciseList exerciseList = storage.readExerciseList(
+                STDocument.getDataFilename(dataDirectory, storageType, STDocument.DataList.EXERCISES), sportTypeList);
+        final NoteList noteList = storage.readNoteList(
+                STDocument.getDataFilename(dataDirectory, storageType, STDocument.DataList.NOTES));
+        final WeightList weightList = storage.readWeightList(
+                STDocument.getDataFilename(dataDirectory, storageType, STDocument.DataList.WEIGHTS));
+
+        new BulkExporter().exportAll(exerciseList, noteList, weightList, outputDirectory, format);
+    }
+
+    private static STOptions.StorageType readStorageType(final Path dataDirectory) {
+        final Path optionsFile = dataDirectory.resolve(STDocument.FILENAME_OPTIONS);
+        if (Files.exists(optionsFile)) {
+            try {
+                return STOptionsSerializer.read(optionsFile).getStorageType();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the options, using the XML storage...", e);
+            }
+        }
+        return STOptions.StorageType.XML;
+    }
+
+    private static BulkExporter.Format parseFormat(final String formatName) {
+        for (BulkExporter.Format format : BulkExporter.Format.values()) {
+            if (format.getFileSuffix().equalsIgnoreCase(formatName)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
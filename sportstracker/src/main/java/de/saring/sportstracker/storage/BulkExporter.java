@@ -0,0 +1,332 @@
+package de.saring.sportstracker.storage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.util.data.IdDateObject;
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
+
+/**
+ * Exporter for the exercises, notes and weights to CSV or JSON Lines files, one file per list (e.g.
+ * "exercises.csv" or "exercises.jsonl"). It's independent of the GUI, so it can also be used by the
+ * headless {@link BulkExportTool}.<br/>
+ * The entries are serialized in chunks by a thread pool, the chunks are written to the file in the order
+ * of the list. Only a limited number of serialized chunks are pending at the same time, so the memory
+ * usage is constant and independent of the list size. The lists must not be modified during the export.
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class BulkExporter {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkExporter.class.getName());
+
+    /** Number of entries serialized in one chunk. */
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * The supported export formats.
+     */
+    public enum Format {
+        /** Comma separated values with a header line (RFC 4180). */
+        CSV("csv"),
+        /** One JSON object per line. */
+        JSON_LINES("jsonl");
+
+        private final String fileSuffix;
+
+        Format(final String fileSuffix) {
+            this.fileSuffix = fileSuffix;
+        }
+
+        /**
+         * Returns the suffix of the export files in this format.
+         *
+         * @return the file suffix (without dot)
+         */
+        public String getFileSuffix() {
+            return fileSuffix;
+        }
+    }
+
+    private static final List<Column<Exercise>> EXERCISE_COLUMNS = List.of(
+            new Column<>("id", Exercise::getId),
+            new Column<>("date", BulkExporter::formatDate),
+            new Column<>("sportType", exercise -> exercise.getSportType().getName()),
+            new Column<>("sportSubType", exercise -> exercise.getSportSubType().getName()),
+            new Column<>("duration", Exercise::getDuration),
+            new Column<>("intensity", exercise -> exercise.getIntensity().name()),
+            new Column<>("distance", Exercise::getDistance),
+            new Column<>("avgSpeed", Exercise::getAvgSpeed),
+            new Column<>("avgHeartRate", Exercise::getAvgHeartRate),
+            new Column<>("ascent", Exercise::getAscent),
+            new Column<>("descent", Exercise::getDescent),
+            new Column<>("calories", Exercise::getCalories),
+            new Column<>("equipment", exercise ->
+                    exercise.getEquipment() == null ? null : exercise.getEquipment().getName()),
+            new Column<>("hrmFile", Exercise::getHrmFile),
+            new Column<>("comment", Exercise::getComment));
+
+    private static final List<Column<Note>> NOTE_COLUMNS = List.of(
+            new Column<>("id", Note::getId),
+            new Column<>("date", BulkExporter::formatDate),
+            new Column<>("comment", Note::getComment));
+
+    private static final List<Column<Weight>> WEIGHT_COLUMNS = List.of(
+            new Column<>("id", Weight::getId),
+            new Column<>("date", BulkExporter::formatDate),
+            new Column<>("value", Weight::getValue),
+            new Column<>("comment", Weight::getComment));
+
+    /**
+     * Exports the exercises, notes and weights to the files in the specified directory, existing files
+     * will be replaced.
+     *
+     * @param exerciseList the exercises to export
+     * @param noteList the notes to export
+     * @param weightList the weights to export
+     * @param directory the directory for the export files
+     * @param format the export format
+     * @throws STException on export errors
+     */
+    public void exportAll(final ExerciseList exerciseList, final NoteList noteList, final WeightList weightList,
+            final Path directory, final Format format) throws STException {
+        exportList(exerciseList, EXERCISE_COLUMNS, directory.resolve("exercises." + format.getFileSuffix()), format);
+        exportList(noteList, NOTE_COLUMNS, directory.resolve("notes." + format.getFileSuffix()), format);
+        exportList(weightList, WEIGHT_COLUMNS, directory.resolve("weights." + format.getFileSuffix()), format);
+    }
+
+    /**
+     * Exports the exercises to the specified file.
+     *
+     * @param exerciseList the exercises to export
+     * @param file the export file
+     * @param format the export format
+     * @throws STException on export errors
+     */
+    public void exportExercises(final ExerciseList exerciseList, final Path file, final Format format)
+            throws STException {
+        exportList(exerciseList, EXERCISE_COLUMNS, file, format);
+    }
+
+    /**
+     * Exports the notes to the specified file.
+     *
+     * @param noteList the notes to export
+     * @param file the export file
+     * @param format the export format
+     * @throws STException on export errors
+     */
+    public void exportNotes(final NoteList noteList, final Path file, final Format format) throws STException {
+        exportList(noteList, NOTE_COLUMNS, file, format);
+    }
+
+    /**
+     * Exports the weights to the specified file.
+     *
+     * @param weightList the weights to export
+     * @param file the export file
+     * @param format the export format
+     * @throws STException on export errors
+     */
+    public void exportWeights(final WeightList weightList, final Path file, final Format format)
+            throws STException {
+        exportList(weightList, WEIGHT_COLUMNS, file, format);
+    }
+
+    private <T extends IdObject> void exportList(final IdObjectList<T> list, final List<Column<T>> columns,
+            final Path file, final Format format) throws STException {
+
+        final long startTime = System.currentTimeMillis();
+        final int threadCount = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "ST-Export");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // the export is no application data, so it's written directly without a backup file
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                if (format == Format.CSV) {
+                    writer.write(createCsvHeader(columns));
+                }
+
+                // the window of pending chunks limits the memory usage, the chunks are written in list order
+                final Deque<Future<String>> pendingChunks = new ArrayDeque<>();
+                for (int chunkStart = 0; chunkStart < list.size(); chunkStart += CHUNK_SIZE) {
+                    if (pendingChunks.size() >= threadCount * 2) {
+                        writer.write(awaitChunk(pendingChunks.removeFirst(), file));
+                    }
+                    final int start = chunkStart;
+                    final int end = Math.min(chunkStart + CHUNK_SIZE, list.size());
+                    pendingChunks.addLast(executor.submit(() -> serializeChunk(list, start, end, columns, format)));
+                }
+                while (!pendingChunks.isEmpty()) {
+                    writer.write(awaitChunk(pendingChunks.removeFirst(), file));
+                }
+            }
+        } catch (IOException e) {
+            throw new STException(STExceptionID.BULK_EXPORT, "Failed to write export file '" + file + "'!", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LOGGER.info("Exported " + list.size() + " entries to '" + file + "' in " +
+                (System.currentTimeMillis() - startTime) + " ms.");
+    }
+
+    private static String awaitChunk(final Future<String> chunk, final Path file) throws STException {
+        try {
+            return chunk.get();
+        } catch (ExecutionException e) {
+            throw new STException(STExceptionID.BULK_EXPORT,
+                    "Failed to serialize entries for export file '" + file + "'!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new STException(STExceptionID.BULK_EXPORT,
+                    "Interrupted while exporting to file '" + file + "'!", e);
+        }
+    }
+
+    private static <T extends IdObject> String serializeChunk(final IdObjectList<T> list, final int start,
+            final int end, final List<Column<T>> columns, final Format format) {
+
+        final StringBuilder sbChunk = new StringBuilder((end - start) * 32 * columns.size());
+        for (int i = start; i < end; i++) {
+            final T entry = list.getAt(i);
+            if (format == Format.CSV) {
+                appendCsvRow(sbChunk, entry, columns);
+            } else {
+                appendJsonLine(sbChunk, entry, columns);
+            }
+        }
+        return sbChunk.toString();
+    }
+
+    private static <T> String createCsvHeader(final List<Column<T>> columns) {
+        final StringBuilder sbHeader = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            sbHeader.append(i == 0 ? "" : ",").append(columns.get(i).name);
+        }
+        return sbHeader.append("\r\n").toString();
+    }
+
+    private static <T> void appendCsvRow(final StringBuilder sb, final T entry, final List<Column<T>> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            final Object value = columns.get(i).getter.apply(entry);
+            if (value instanceof String) {
+                appendCsvText(sb, (String) value);
+            } else if (value != null) {
+                sb.append(value);
+            }
+        }
+        sb.append("\r\n");
+    }
+
+    private static void appendCsvText(final StringBuilder sb, final String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            sb.append(text);
+            return;
+        }
+
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            sb.append(c == '"' ? "\"\"" : c);
+        }
+        sb.append('"');
+    }
+
+    private static <T> void appendJsonLine(final StringBuilder sb, final T entry, final List<Column<T>> columns) {
+        sb.append('{');
+        for (int i = 0; i < columns.size(); i++) {
+            final Column<T> column = columns.get(i);
+            sb.append(i == 0 ? "\"" : ",\"").append(column.name).append("\":");
+
+            final Object value = column.getter.apply(entry);
+            if (value instanceof String) {
+                appendJsonText(sb, (String) value);
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append("}\n");
+    }
+
+    private static void appendJsonText(final StringBuilder sb, final String text) {
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String formatDate(final IdDateObject entry) {
+        return entry.getDateTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Exported column of an entry, the getter returns a String, a number or null.
+     */
+    private static final class Column<T> {
+        private final String name;
+        private final Function<T, Object> getter;
+
+        private Column(final String name, final Function<T, Object> getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package de.saring.sportstracker.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.data.Entry;
+import de.saring.sportstracker.data.EntryList;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.sportstracker.gui.STDocument;
+import de.saring.util.SafeFileUtils;
+
+/**
+ * Synchronizes the exercises, notes and weights of the application data with the data directory of another
+ * SportsTracker installation (e.g. on a USB stick or on a mounted network share). The other directory must
+ * contain the data in the XML files of the XML storage type, an empty directory will be initialized.<br/>
+ * The entries of both directories are compared by using a Merkle tree of their content hashes per list
+ * ({@link EntryHashTree}), so only the differing entries need to be merged. The entry hashes are stored
+ * in the synchronization index of each directory ({@link SyncIndex}), the changes of the application data
+ * are tracked ({@link EntryHashTracker}), so only changed entries need to be hashed again. The merge is a
+ * three-way merge by entry ID with the hashes of the last synchronization as common base:
+ * <ul>
+ * <li>entries changed, added or deleted in only one directory are taken from this directory</li>
+ * <li>entries changed in both directories are taken from the directory with the more recent modification
+ * stamp of the entry (the time of the change in the application or the time of the list file change)</li>
+ * <li>different entries added with the same ID in both directories are both kept, the entry of the other
+ * directory gets a new ID (on the first synchronization without a common base this applies to all different
+ * entries with the same ID and different dates)</li>
+ * </ul>
+ * The sport types are referenced by the exercises, so they must be equal in both directories.<br/>
+ * The synchronization is done in three steps: {@link #synchronize(Path)} merges the lists and stores them
+ * in the other directory, {@link SyncResult#applyLocalChanges()} applies the changes to the application data
+ * (must be called by the UI thread) and {@link #commit(SyncResult)} stores the application data and the new
+ * synchronization base in both directories.
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class DataDirectorySync {
+
+    private static final Logger LOGGER = Logger.getLogger(DataDirectorySync.class.getName());
+
+    private final XMLSportTypeList xmlSportTypeList = new XMLSportTypeList();
+    private final XMLExerciseList xmlExerciseList = new XMLExerciseList();
+    private final XMLNoteList xmlNoteList = new XMLNoteList();
+    private final XMLWeightList xmlWeightList = new XMLWeightList();
+
+    private final STDocument document;
+
+    private final EntryHashTracker<Exercise> exerciseTracker =
+            new EntryHashTracker<>(xmlExerciseList::createExerciseElement);
+    private final EntryHashTracker<Note> noteTracker = new EntryHashTracker<>(xmlNoteList::createNoteElement);
+    private final EntryHashTracker<Weight> weightTracker = new EntryHashTracker<>(xmlWeightList::createWeightElement);
+
+    /**
+     * C'tor for dependency injection
+     *
+     * @param document SportsTracker document (model) instance
+     */
+    public DataDirectorySync(final STDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Merges the application data with the lists of the specified data directory and stores the merged lists
+     * in this directory. The changes for the application data are returned in the result, they are not applied
+     * yet. Must not be called while the application data gets modified, the exercises of all years must have
+     * been loaded before (see ExerciseList.loadAllYears()).
+     *
+     * @param remoteDirectory the data directory to synchronize with
+     * @return the synchronization result with the pending changes for the application data
+     * @throws STException on read or store problems or when the sport types are different
+     */
+    public SyncResult synchronize(final Path remoteDirectory) throws STException {
+        final long startTime = System.currentTimeMillis();
+        final Path localDirectory = Paths.get(document.getDataDirectory());
+        checkDirectories(localDirectory, remoteDirectory);
+        checkJournals(remoteDirectory);
+        if (!document.getExerciseList().isLoadedCompletely()) {
+            // the unloaded exercises would be taken as deleted
+            throw new STException(STExceptionID.DATASYNC_READ, "The exercises of all years must be loaded " +
+                    "before synchronizing, loading the exercises of some years has failed!");
+        }
+
+        final SyncResult result;
+        try {
+            result = new SyncResult(remoteDirectory, SyncIndex.read(localDirectory), SyncIndex.read(remoteDirectory));
+        } catch (IOException e) {
+            throw new STException(STExceptionID.DATASYNC_READ, "Failed to read the synchronization index!", e);
+        }
+
+        syncSportTypes(remoteDirectory);
+
+        syncList(result, STDocument.FILENAME_EXERCISE_LIST, exerciseTracker, document.getExerciseList(),
+                file -> SafeFileUtils.exists(file.toString()) ?
+                        xmlExerciseList.readExerciseList(file.toString(), document.getSportTypeList()) :
+                        new ExerciseList(),
+                (exercises, file) -> xmlExerciseList.storeExerciseList(exercises, file.toString()),
+                xmlExerciseList::createExerciseElement, (exercise, id) -> exercise.clone(id));
+
+        syncList(result, STDocument.FILENAME_NOTE_LIST, noteTracker, document.getNoteList(),
+                file -> SafeFileUtils.exists(file.toString()) ?
+                        xmlNoteList.readNoteList(file.toString()) : new NoteList(),
+                (notes, file) -> xmlNoteList.storeNoteList(notes, file.toString()),
+                xmlNoteList::createNoteElement, (note, id) -> note.clone(id));
+
+        syncList(result, STDocument.FILENAME_WEIGHT_LIST, weightTracker, document.getWeightList(),
+                file -> SafeFileUtils.exists(file.toString()) ?
+                        xmlWeightList.readWeightList(file.toString()) : new WeightList(),
+                (weights, file) -> xmlWeightList.storeWeightList(weights, file.toString()),
+                xmlWeightList::createWeightElement, (weight, id) -> weight.clone(id));
+
+        LOGGER.info("Synchronized with data directory '" + remoteDirectory + "' in " +
+                (System.currentTimeMillis() - startTime) + " ms: " + result.getLocalChangeCount() +
+                " local changes, " + result.getRemoteChangeCount() + " remote changes, " +
+                result.getConflictCount() + " conflicts.");
+        return result;
+    }
+
+    /**
+     * Stores the application data with the applied changes of the synchronization and afterwards the new
+     * synchronization base in both directories. When the application data can't be stored, the base stays
+     * unchanged and the next synchronization merges the entries again.
+     *
+     * @param result the result of the synchronization, the local changes must have been applied
+     * @throws STException on store problems
+     */
+    public void commit(final SyncResult result) throws STException {
+        document.storeApplicationData();
+        try {
+            result.localIndex.write(Paths.get(document.getDataDirectory()));
+            result.remoteIndex.write(result.remoteDirectory);
+        } catch (IOException e) {
+            throw new STException(STExceptionID.DATASYNC_STORE, "Failed to write the synchronization index!", e);
+        }
+    }
+
+    private static void checkDirectories(final Path localDirectory, final Path remoteDirectory) throws STException {
+        if (!Files.isDirectory(remoteDirectory)) {
+            throw new STException(STExceptionID.DATASYNC_READ,
+                    "The data directory '" + remoteDirectory + "' does not exists!");
+        }
+        try {
+            if (Files.isSameFile(localDirectory, remoteDirectory)) {
+                throw new STException(STExceptionID.DATASYNC_READ,
+                        "The data directory '" + remoteDirectory + "' is the directory of the application data!");
+            }
+        } catch (IOException e) {
+            throw new STException(STExceptionID.DATASYNC_READ,
+                    "Failed to access the data directory '" + remoteDirectory + "'!", e);
+        }
+    }
+
+    /**
+     * The lists of the remote directory must not have pending journal files. They contain changes which are
+     * not in the list files yet (the other installation is running or was not shut down properly), these
+     * changes would get lost or would be replayed on top of the synchronized lists.
+     */
+    private static void checkJournals(final Path remoteDirectory) throws STException {
+        for (String filename : List.of(STDocument.FILENAME_EXERCISE_LIST, STDocument.FILENAME_NOTE_LIST,
+                STDocument.FILENAME_WEIGHT_LIST)) {
+            if (Files.exists(remoteDirectory.resolve(filename + ListJournal.JOURNAL_SUFFIX))) {
+                throw new STException(STExceptionID.DATASYNC_JOURNAL_PENDING, "The list '" + filename +
+                        "' of the data directory '" + remoteDirectory + "' has a pending journal file, the " +
+                        "SportsTracker installation of this directory must be started and shut down before!");
+            }
+        }
+    }
+
+    /**
+     * Initializes the sport types of the remote directory when missing, otherwise they must be equal.
+     */
+    private void syncSportTypes(final Path remoteDirectory) throws STException {
+        final String remoteFilename = getFilename(remoteDirectory, STDocument.FILENAME_SPORT_TYPE_LIST);
+        if (!fileExists(remoteDirectory, STDocument.FILENAME_SPORT_TYPE_LIST)) {
+            if (fileExists(remoteDirectory, STDocument.FILENAME_EXERCISE_LIST)) {
+                throw new STException(STExceptionID.DATASYNC_READ,
+                        "The sport type list of the data directory '" + remoteDirectory + "' is missing!");
+            }
+            xmlSportTypeList.storeSportTypeList(document.getSportTypeList(), remoteFilename);
+            return;
+        }
+
+        final SportTypeList remoteSportTypes = xmlSportTypeList.readSportTypeList(remoteFilename);
+        if (!createSportTypesContent(document.getSportTypeList()).equals(createSportTypesContent(remoteSportTypes))) {
+            throw new STException(STExceptionID.DATASYNC_SPORT_TYPES_DIFFERENT,
+                    "The sport types of the data directory '" + remoteDirectory + "' are different!");
+        }
+    }
+
+    private String createSportTypesContent(final SportTypeList sportTypeList) {
+        final XMLOutputter outputter = new XMLOutputter(Format.getRawFormat().setExpandEmptyElements(true));
+        final StringBuilder sbContent = new StringBuilder();
+        sportTypeList.stream()
+                .sorted((sportType1, sportType2) -> Integer.compare(sportType1.getId(), sportType2.getId()))
+                .forEach(sportType -> sbContent.append(outputter.outputString(
+                        xmlSportTypeList.createSportTypeElement(sportType))));
+        return sbContent.toString();
+    }
+
+    /**
+     * Merges the local list and the remote list, the merged remote list gets stored, the changes of the
+     * local list are added to the result. The entry states of the local list are taken from the tracker,
+     * the entry states of the remote list from its index when the list file is unchanged since the last
+     * synchronization. So only the changed entries need to be hashed and the remote list file needs only
+     * to be read when there are differences.
+     */
+    private <T extends Entry, L extends EntryList<T>> void syncList(final SyncResult result, final String filename,
+            final EntryHashTracker<T> localTracker, final L localList, final ListReader<L> remoteReader,
+            final ListWriter<L> remoteWriter, final Function<T, Element> elementCreator,
+            final BiFunction<T, Integer, T> cloner) throws STException {
+
+        final Path remoteFile = result.remoteDirectory.resolve(filename);
+        final Long remoteFileHash = computeFileHash(remoteFile);
+        final SyncIndex.ListState localListState = result.localIndex.getListState(filename);
+        final SyncIndex.ListState remoteListState = result.remoteIndex.getListState(filename);
+
+        final Map<Integer, SyncIndex.EntryState> localStates = localTracker.getEntryStates(localList,
+                localListState == null ? Map.of() : localListState.getEntryStates(), result.syncTime);
+        L remoteList = null;
+        final Map<Integer, SyncIndex.EntryState> remoteStates;
+        if (remoteListState != null && remoteFileHash != null && remoteFileHash.equals(remoteListState.getFileHash())) {
+            remoteStates = remoteListState.getEntryStates();
+        } else {
+            remoteList = remoteReader.read(remoteFile);
+            remoteStates = computeEntryStates(remoteList, remoteListState, getModificationTime(remoteFile, result),
+                    elementCreator);
+        }
+
+        final EntryHashTree localTree = EntryHashTree.create(localStates);
+        final EntryHashTree remoteTree = EntryHashTree.create(remoteStates);
+        final Set<Integer> differentIds = localTree.getDifferentIds(remoteTree);
+        if (!differentIds.isEmpty() && remoteList == null) {
+            remoteList = remoteReader.read(remoteFile);
+        }
+
+        final Map<Integer, Long> base = getCommonBase(result, filename);
+        final Map<Integer, SyncIndex.EntryState> mergedStates = new TreeMap<>(remoteStates);
+        final int remoteChangeCount = result.remoteChangeCount;
+        int nextFreeId = Math.max(getMaxId(localStates), getMaxId(remoteStates)) + 1;
+
+        for (Integer id : differentIds) {
+            final SyncIndex.EntryState localState = localStates.get(id);
+            final SyncIndex.EntryState remoteState = remoteStates.get(id);
+            final Long baseHash = base == null ? null : base.get(id);
+            final T localEntry = localList.getByID(id);
+            final T remoteEntry = remoteList.getByID(id);
+
+            if (localState == null) {
+                if (baseHash != null && baseHash == remoteState.getHash()) {
+                    // deleted locally
+                    remoteList.removeByID(id);
+                    mergedStates.remove(id);
+                    result.remoteChangeCount++;
+                } else {
+                    result.addLocalChange(() -> localList.set(remoteEntry));
+                }
+            } else if (remoteState == null) {
+                if (baseHash != null && baseHash == localState.getHash()) {
+                    // deleted remotely
+                    result.addLocalChange(() -> localList.removeByID(id));
+                } else {
+                    remoteList.set(localEntry);
+                    mergedStates.put(id, localState);
+                    result.remoteChangeCount++;
+                }
+            } else if (baseHash != null && baseHash == localState.getHash()) {
+                result.addLocalChange(() -> localList.set(remoteEntry));
+            } else if (baseHash != null && baseHash == remoteState.getHash()) {
+                remoteList.set(localEntry);
+                mergedStates.put(id, localState);
+                result.remoteChangeCount++;
+            } else if (isAddedInBoth(base, baseHash, localEntry, remoteEntry)) {
+                // different entries added with the same ID in both directories, keep both
+                final T renumberedEntry = cloner.apply(remoteEntry, nextFreeId);
+                remoteList.removeByID(id);
+                remoteList.set(renumberedEntry);
+                remoteList.set(localEntry);
+                mergedStates.put(id, localState);
+                mergedStates.put(nextFreeId++, new SyncIndex.EntryState(
+                        EntryHashTree.computeEntryHash(renumberedEntry, elementCreator),
+                        renumberedEntry.getDateTime().getYear(), remoteState.getStamp()));
+                result.remoteChangeCount += 2;
+                result.addLocalChange(() -> localList.set(renumberedEntry));
+            } else {
+                // changed in both directories (or first synchronization), the more recently modified entry wins
+                result.conflictCount++;
+                if (localState.getStamp() >= remoteState.getStamp()) {
+                    remoteList.set(localEntry);
+                    mergedStates.put(id, localState);
+                    result.remoteChangeCount++;
+                } else {
+                    result.addLocalChange(() -> localList.set(remoteEntry));
+                }
+                LOGGER.warning("The entry with ID " + id + " of '" + filename + "' has been changed in both " +
+                        "directories, the " + (localState.getStamp() >= remoteState.getStamp() ? "remote" : "local") +
+                        " entry has been overwritten by the more recently modified one.");
+            }
+        }
+
+        Long mergedFileHash = remoteFileHash;
+        if (result.remoteChangeCount != remoteChangeCount || remoteFileHash == null) {
+            remoteWriter.write(remoteList, remoteFile);
+            mergedFileHash = computeFileHash(remoteFile);
+        }
+
+        // the remote list contains the merged entries, the local list will be equal after applying the changes
+        final Map<Integer, Long> mergedHashes = new TreeMap<>();
+        mergedStates.forEach((id, entryState) -> mergedHashes.put(id, entryState.getHash()));
+        result.localIndex.setBase(result.remoteIndex.getDirectoryId(), filename, mergedHashes);
+        result.remoteIndex.setBase(result.localIndex.getDirectoryId(), filename, mergedHashes);
+        result.localIndex.setListState(filename, new SyncIndex.ListState(mergedStates, null));
+        result.remoteIndex.setListState(filename, new SyncIndex.ListState(mergedStates, mergedFileHash));
+    }
+
+    /**
+     * Returns true when the different local and remote entries with the same ID have been added independently
+     * in both directories. This is the case when the ID is not in the base of the last synchronization. On the
+     * first synchronization (no base) the entries are only considered to be the same entry when they have the
+     * same date, otherwise the older one would be lost.
+     */
+    private static <T extends Entry> boolean isAddedInBoth(final Map<Integer, Long> base, final Long baseHash,
+            final T localEntry, final T remoteEntry) {
+        if (base != null) {
+            return baseHash == null;
+        }
+        return !Objects.equals(localEntry.getDateTime(), remoteEntry.getDateTime());
+    }
+
+    /**
+     * Computes the states of all entries of the read remote list. Entries with unchanged content keep the
+     * modification stamp of the last synchronization, the stamp of all other entries is the modification
+     * time of the list file.
+     */
+    private static <T extends Entry> Map<Integer, SyncIndex.EntryState> computeEntryStates(
+            final EntryList<T> list, final SyncIndex.ListState previousListState, final long modificationTime,
+            final Function<T, Element> elementCreator) {
+
+        final Map<Integer, SyncIndex.EntryState> entryStates = new TreeMap<>();
+        list.forEach(entry -> {
+            final SyncIndex.EntryState entryState = new SyncIndex.EntryState(
+                    EntryHashTree.computeEntryHash(entry, elementCreator), entry.getDateTime().getYear(),
+                    modificationTime);
+            final SyncIndex.EntryState previousState = previousListState == null ?
+                    null : previousListState.getEntryStates().get(entry.getId());
+            entryStates.put(entry.getId(), entryState.hasSameContent(previousState) ? previousState : entryState);
+        });
+        return entryStates;
+    }
+
+    /**
+     * Returns the hash of the content of the specified file or null when it doesn't exists.
+     */
+    private static Long computeFileHash(final Path file) throws STException {
+        try {
+            return Files.exists(file) ? EntryHashTree.computeHash(Files.readAllBytes(file)) : null;
+        } catch (IOException e) {
+            throw new STException(STExceptionID.DATASYNC_READ, "Failed to read the file '" + file + "'!", e);
+        }
+    }
+
+    private static long getModificationTime(final Path file, final SyncResult result) {
+        try {
+            return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : result.syncTime;
+        } catch (IOException e) {
+            return result.syncTime;
+        }
+    }
+
+    /**
+     * Returns the base of the last synchronization, it's only valid when both indexes contain the same base.
+     */
+    private static Map<Integer, Long> getCommonBase(final SyncResult result, final String listName) {
+        final Map<Integer, Long> localBase = result.localIndex.getBase(
+                result.remoteIndex.getDirectoryId(), listName);
+        final Map<Integer, Long> remoteBase = result.remoteIndex.getBase(
+                result.localIndex.getDirectoryId(), listName);
+        return Objects.equals(localBase, remoteBase) ? localBase : null;
+    }
+
+    private static int getMaxId(final Map<Integer, SyncIndex.EntryState> entryStates) {
+        return entryStates.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    private static boolean fileExists(final Path directory, final String filename) {
+        return SafeFileUtils.exists(getFilename(directory, filename));
+    }
+
+    private static String getFilename(final Path directory, final String filename) {
+        return directory.resolve(filename).toString();
+    }
+
+    /**
+     * Reader of a list file, it returns an empty list when the file doesn't exists.
+     */
+    @FunctionalInterface
+    private interface ListReader<L> {
+        L read(Path file) throws STException;
+    }
+
+    /**
+     * Writer of a list file.
+     */
+    @FunctionalInterface
+    private interface ListWriter<L> {
+        void write(L list, Path file) throws STException;
+    }
+
+    /**
+     * The result of a synchronization, it contains the pending changes of the application data.
+     */
+    public static final class SyncResult {
+
+        private final Path remoteDirectory;
+        private final SyncIndex localIndex;
+        private final SyncIndex remoteIndex;
+        private final long syncTime = System.currentTimeMillis();
+        private final List<Runnable> localChanges = new ArrayList<>();
+        private int remoteChangeCount;
+        private int conflictCount;
+
+        private SyncResult(final Path remoteDirectory, final SyncIndex localIndex, final SyncIndex remoteIndex) {
+            this.remoteDirectory = remoteDirectory;
+            this.localIndex = localIndex;
+            this.remoteIndex = remoteIndex;
+        }
+
+        private void addLocalChange(final Runnable localChange) {
+            localChanges.add(localChange);
+        }
+
+        /**
+         * Applies the changes of the synchronization to the application data lists. Must be called by
+         * the thread modifying the data (the UI thread), the data must not be modified since synchronization.
+         */
+        public void applyLocalChanges() {
+            localChanges.forEach(Runnable::run);
+        }
+
+        /**
+         * Returns the number of entries to be added, updated or deleted in the application data.
+         *
+         * @return number of local changes
+         */
+        public int getLocalChangeCount() {
+            return localChanges.size();
+        }
+
+        /**
+         * Returns the number of entries which have been added, updated or deleted in the other directory.
+         *
+         * @return number of remote changes
+         */
+        public int getRemoteChangeCount() {
+            return remoteChangeCount;
+        }
+
+        /**
+         * Returns the number of entries which have been changed in both directories.
+         *
+         * @return number of conflicts
+         */
+        public int getConflictCount() {
+            return conflictCount;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package de.saring.sportstracker.storage;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.WeightList;
+
+/**
+ * This storage implementation delegates all operations to the storage matching the data source or
+ * destination name: SQLite databases (names with suffix ".sqlite") are handled by the SQLiteStorage,
+ * exercise partition manifests (names with suffix "-partitions.xml") by the PartitionedExerciseStorage,
+ * all other names by the JournalStorage (XML files).
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class DelegatingStorage implements IStorage {
+
+    private final JournalStorage journalStorage;
+    private final SQLiteStorage sqliteStorage;
+    private final PartitionedExerciseStorage partitionedExerciseStorage;
+
+    /**
+     * Standard c'tor.
+     *
+     * @param journalStorage the storage for the XML files
+     * @param sqliteStorage the storage for the SQLite databases
+     * @param partitionedExerciseStorage the storage for the exercise partitions
+     */
+    @Inject
+    public DelegatingStorage(final JournalStorage journalStorage, final SQLiteStorage sqliteStorage,
+            final PartitionedExerciseStorage partitionedExerciseStorage) {
+        this.journalStorage = journalStorage;
+        this.sqliteStorage = sqliteStorage;
+        this.partitionedExerciseStorage = partitionedExerciseStorage;
+    }
+
+    @Override
+    public SportTypeList readSportTypeList(String source) throws STException {
+        return getStorage(source).readSportTypeList(source);
+    }
+
+    @Override
+    public void storeSportTypeList(SportTypeList sportTypeList, String destination) throws STException {
+        getStorage(destination).storeSportTypeList(sportTypeList, destination);
+    }
+
+    @Override
+    public ExerciseList readExerciseList(String source, SportTypeList sportTypeList) throws STException {
+        if (isPartitionManifest(source)) {
+            return partitionedExerciseStorage.readExerciseList(source, sportTypeList);
+        }
+        return getStorage(source).readExerciseList(source, sportTypeList);
+    }
+
+    @Override
+    public ExerciseList readRecentExerciseList(String source, SportTypeList sportTypeList, int firstYear)
+            throws STException {
+        if (isPartitionManifest(source)) {
+            return partitionedExerciseStorage.readRecentExerciseList(source, sportTypeList, firstYear);
+        }
+        return getStorage(source).readRecentExerciseList(source, sportTypeList, firstYear);
+    }
+
+    @Override
+    public List<Integer> getUnreadExerciseYears(String source) {
+        if (isPartitionManifest(source)) {
+            return partitionedExerciseStorage.getUnreadYears(source);
+        }
+        return getStorage(source).getUnreadExerciseYears(source);
+    }
+
+    @Override
+    public int getMaxExerciseId(String source) {
+        if (isPartitionManifest(source)) {
+            return partitionedExerciseStorage.getMaxExerciseId(source);
+        }
+        return getStorage(source).getMaxExerciseId(source);
+    }
+
+    @Override
+    public List<Exercise> readExercisesOfYears(String source, SportTypeList sportTypeList, List<Integer> years)
+            throws STException {
+        if (isPartitionManifest(source)) {
+            return partitionedExerciseStorage.readExercisesOfYears(source, sportTypeList, years);
+        }
+        return getStorage(source).readExercisesOfYears(source, sportTypeList, years);
+    }
+
+    @Override
+    public void storeExerciseList(ExerciseList exerciseList, String destination) throws STException {
+        if (isPartitionManifest(destination)) {
+            partitionedExerciseStorage.storeExerciseList(exerciseList, destination);
+        } else {
+            getStorage(destination).storeExerciseList(exerciseList, destination);
+        }
+    }
+
+    @Override
+    public NoteList readNoteList(String source) throws STException {
+        return getStorage(source).readNoteList(source);
+    }
+
+    @Override
+    public void storeNoteList(NoteList noteList, String destination) throws STException {
+        getStorage(destination).storeNoteList(noteList, destination);
+    }
+
+    @Override
+    public WeightList readWeightList(String source) throws STException {
+        return getStorage(source).readWeightList(source);
+    }
+
+    @Override
+    public void storeWeightList(WeightList weightList, String destination) throws STException {
+        getStorage(destination).storeWeightList(weightList, destination);
+    }
+
+    @Override
+    public void attachSportTypeList(SportTypeList sportTypeList, String source) throws STException {
+        getStorage(source).attachSportTypeList(sportTypeList, source);
+    }
+
+    @Override
+    public void attachExerciseList(ExerciseList exerciseList, String source) throws STException {
+        if (isPartitionManifest(source)) {
+            partitionedExerciseStorage.attachExerciseList(exerciseList, source);
+        } else {
+            getStorage(source).attachExerciseList(exerciseList, source);
+        }
+    }
+
+    @Override
+    public void attachNoteList(NoteList noteList, String source) throws STException {
+        getStorage(source).attachNoteList(noteList, source);
+    }
+
+    @Override
+    public void attachWeightList(WeightList weightList, String source) throws STException {
+        getStorage(source).attachWeightList(weightList, source);
+    }
+
+    @Override
+    public void setCompressedFiles(boolean compressed) {
+        journalStorage.setCompressedFiles(compressed);
+        sqliteStorage.setCompressedFiles(compressed);
+        partitionedExerciseStorage.setCompressedFiles(compressed);
+    }
+
+    @Override
+    public void close() throws STException {
+        try {
+            journalStorage.close();
+        } finally {
+            sqliteStorage.close();
+        }
+    }
+
+    private IStorage getStorage(final String name) {
+        return name.endsWith(SQLiteStorage.DATABASE_SUFFIX) ? sqliteStorage : journalStorage;
+    }
+
+    private static boolean isPartitionManifest(final String name) {
+        return name.endsWith(PartitionedExerciseStorage.MANIFEST_SUFFIX);
+    }
+}
@@ -0,0 +1,123 @@
+package de.saring.sportstracker.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jdom2.Element;
+
+import de.saring.sportstracker.data.Entry;
+import de.saring.sportstracker.data.EntryList;
+import de.saring.util.data.IdObject;
+
+/**
+ * Tracks the entry states (hash, year and modification stamp) of an application data list for the
+ * synchronization. The changes of the list are tracked by a list change listener, so only the changed
+ * entries need to be hashed again on the next synchronization. All entries are hashed on the first
+ * synchronization of a list instance.<br/>
+ * The modification stamp of an entry is the time of its change event. Entries changed before tracking
+ * keep the stamp of the last synchronization when their content is unchanged, otherwise the time of
+ * the synchronization is used.
+ *
+ * @param <T> the type of the entries
+ * @author Stefan Saring
+ */
+final class EntryHashTracker<T extends Entry> {
+
+    private final Function<T, Element> elementCreator;
+
+    // all fields are guarded by this tracker instance
+    private EntryList<T> trackedList;
+    private Map<Integer, T> trackedEntries = new HashMap<>();
+    private final Map<Integer, SyncIndex.EntryState> entryStates = new HashMap<>();
+
+    /** The times of the entries changed since the last synchronization (map key is the entry ID). */
+    private final Map<Integer, Long> changeTimes = new HashMap<>();
+
+    /** The time of the last change of multiple entries (e.g. removal), 0 when there was none. */
+    private long listChangeTime;
+
+    /**
+     * Creates the tracker.
+     *
+     * @param elementCreator the creator of the XML element of an entry, its content is hashed
+     */
+    EntryHashTracker(final Function<T, Element> elementCreator) {
+        this.elementCreator = elementCreator;
+    }
+
+    /**
+     * Returns the current states of all entries of the specified list, only the entries changed since
+     * the last call are hashed. The tracking starts with the first call for a list instance.
+     *
+     * @param list the application data list
+     * @param previousStates the entry states of the last synchronization (map key is the entry ID)
+     * @param syncTime the time of the synchronization, used for entries changed before the tracking
+     * @return the entry states (map key is the entry ID)
+     */
+    synchronized Map<Integer, SyncIndex.EntryState> getEntryStates(final EntryList<T> list,
+            final Map<Integer, SyncIndex.EntryState> previousStates, final long syncTime) {
+
+        if (list != trackedList) {
+            trackedList = list;
+            trackedEntries = new HashMap<>();
+            entryStates.clear();
+            changeTimes.clear();
+            listChangeTime = syncTime;
+            list.addListChangeListener(changedObject -> onListChanged(list, changedObject));
+        }
+
+        final Map<Integer, T> currentEntries = new HashMap<>();
+        list.forEach(entry -> currentEntries.put(entry.getId(), entry));
+
+        if (listChangeTime > 0) {
+            entryStates.keySet().removeIf(id -> !currentEntries.containsKey(id));
+            currentEntries.forEach((id, entry) -> {
+                if (trackedEntries.get(id) != entry) {
+                    changeTimes.putIfAbsent(id, listChangeTime);
+                }
+            });
+        }
+
+        changeTimes.forEach((id, changeTime) -> {
+            final T entry = currentEntries.get(id);
+            if (entry == null) {
+                entryStates.remove(id);
+                return;
+            }
+
+            final long hash = EntryHashTree.computeEntryHash(entry, elementCreator);
+            final int year = entry.getDateTime().getYear();
+            final SyncIndex.EntryState trackedState = entryStates.get(id);
+            final SyncIndex.EntryState previousState = previousStates.get(id);
+            final SyncIndex.EntryState changedState = new SyncIndex.EntryState(hash, year, changeTime);
+
+            if (changedState.hasSameContent(trackedState)) {
+                return;
+            } else if (changedState.hasSameContent(previousState)) {
+                // e.g. an entry taken from the other directory on the last synchronization
+                entryStates.put(id, previousState);
+            } else {
+                entryStates.put(id, changedState);
+            }
+        });
+
+        trackedEntries = currentEntries;
+        changeTimes.clear();
+        listChangeTime = 0;
+        return new HashMap<>(entryStates);
+    }
+
+    private synchronized void onListChanged(final EntryList<T> list, final IdObject changedObject) {
+        if (list != trackedList) {
+            return;
+        }
+
+        final long changeTime = System.currentTimeMillis();
+        if (changedObject != null) {
+            changeTimes.put(changedObject.getId(), changeTime);
+        } else {
+            listChangeTime = changeTime;
+        }
+    }
+}
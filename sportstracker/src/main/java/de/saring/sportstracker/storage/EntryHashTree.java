@@ -0,0 +1,215 @@
+package de.saring.sportstracker.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import de.saring.util.data.IdDateObject;
+
+/**
+ * Merkle tree of the content hashes of all entries of a data list. The leaves are the hashes of the
+ * XML elements of the entries, they are grouped by the year of the entry date and inside of each year
+ * by buckets of 64 consecutive entry IDs. The hash of each inner node is computed from the hashes of
+ * its children. The tree is created from the entry states (e.g. stored in the {@link SyncIndex}), so
+ * the unchanged entries don't need to be hashed again.<br/>
+ * Two trees can be compared top-down, only the subtrees with different hashes need to be visited.
+ * So finding the differing entries needs O(changes × log n) comparisons instead of comparing all entries.
+ *
+ * @author Stefan Saring
+ */
+final class EntryHashTree {
+
+    /** Number of lower ID bits which are grouped in one bucket. */
+    private static final int BUCKET_ID_BITS = 6;
+
+    /** Map of all entry hashes, the key is the entry ID. */
+    private final Map<Integer, Long> entryHashes;
+
+    /** The year nodes of the tree, the key is the year. */
+    private final SortedMap<Integer, Node> years = new TreeMap<>();
+
+    private final long rootHash;
+
+    private EntryHashTree(final Map<Integer, Long> entryHashes, final Map<Integer, Integer> entryYears) {
+        this.entryHashes = entryHashes;
+
+        entryHashes.forEach((id, hash) -> years
+                .computeIfAbsent(entryYears.get(id), year -> new Node())
+                .getOrCreateChild(id >>> BUCKET_ID_BITS)
+                .leaves.put(id, hash));
+
+        years.values().forEach(year -> {
+            year.children.values().forEach(bucket -> bucket.hash = computeHash(bucket.leaves));
+            year.hash = computeHash(toHashMap(year.children));
+        });
+        rootHash = computeHash(toHashMap(years));
+    }
+
+    /**
+     * Creates the hash tree for the specified entry states.
+     *
+     * @param entryStates the states of all entries of the data list (map key is the entry ID)
+     * @return the created tree
+     */
+    static EntryHashTree create(final Map<Integer, SyncIndex.EntryState> entryStates) {
+        final Map<Integer, Long> entryHashes = new TreeMap<>();
+        final Map<Integer, Integer> entryYears = new TreeMap<>();
+        entryStates.forEach((id, entryState) -> {
+            entryHashes.put(id, entryState.getHash());
+            entryYears.put(id, entryState.getYear());
+        });
+        return new EntryHashTree(entryHashes, entryYears);
+    }
+
+    /**
+     * Computes the hash of the XML content of the specified entry.
+     *
+     * @param entry the entry
+     * @param elementCreator the creator of the XML element of the entry
+     * @param <T> the type of the entry
+     * @return the entry hash
+     */
+    static <T extends IdDateObject> long computeEntryHash(final T entry, final Function<T, Element> elementCreator) {
+        // empty elements are expanded, a missing value must be equal to an empty value of the read entry
+        final XMLOutputter outputter = new XMLOutputter(Format.getRawFormat().setExpandEmptyElements(true));
+        return computeHash(outputter.outputString(elementCreator.apply(entry)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the hash of the specified content (e.g. of a list file).
+     *
+     * @param content the content
+     * @return the content hash
+     */
+    static long computeHash(final byte[] content) {
+        return ByteBuffer.wrap(createDigest().digest(content)).getLong();
+    }
+
+    /**
+     * Returns the hash of the entry with the specified ID.
+     *
+     * @param id the entry ID
+     * @return the hash or null when the tree contains no such entry
+     */
+    Long getEntryHash(final int id) {
+        return entryHashes.get(id);
+    }
+
+    /**
+     * Returns the hashes of all entries, the key is the entry ID.
+     *
+     * @return unmodifiable map of the entry hashes
+     */
+    Map<Integer, Long> getEntryHashes() {
+        return Collections.unmodifiableMap(entryHashes);
+    }
+
+    /**
+     * Returns the IDs of all entries which are different in the specified tree, i.e. the entries
+     * with different content and the entries which are contained in only one of the trees.
+     * An entry whose date has been moved to a different year is returned too, it's a missing
+     * entry in both years.
+     *
+     * @param other the tree to compare with
+     * @return the sorted IDs of the differing entries
+     */
+    Set<Integer> getDifferentIds(final EntryHashTree other) {
+        final Set<Integer> differentIds = new TreeSet<>();
+        if (rootHash != other.rootHash) {
+            for (Integer year : union(years.keySet(), other.years.keySet())) {
+                collectDifferentIds(years.get(year), other.years.get(year), differentIds);
+            }
+        }
+        return differentIds;
+    }
+
+    private static void collectDifferentIds(final Node year, final Node otherYear, final Set<Integer> differentIds) {
+        if (year == null || otherYear == null) {
+            differentIds.addAll((year == null ? otherYear : year).getLeafIds());
+            return;
+        }
+        if (year.hash == otherYear.hash) {
+            return;
+        }
+
+        for (Integer bucketKey : union(year.children.keySet(), otherYear.children.keySet())) {
+            final Node bucket = year.children.get(bucketKey);
+            final Node otherBucket = otherYear.children.get(bucketKey);
+            if (bucket == null || otherBucket == null) {
+                differentIds.addAll((bucket == null ? otherBucket : bucket).leaves.keySet());
+            } else if (bucket.hash != otherBucket.hash) {
+                for (Integer id : union(bucket.leaves.keySet(), otherBucket.leaves.keySet())) {
+                    if (!Objects.equals(bucket.leaves.get(id), otherBucket.leaves.get(id))) {
+                        differentIds.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<Integer> union(final Set<Integer> keys, final Set<Integer> otherKeys) {
+        final Set<Integer> union = new TreeSet<>(keys);
+        union.addAll(otherKeys);
+        return union;
+    }
+
+    private static Map<Integer, Long> toHashMap(final Map<Integer, Node> nodes) {
+        final Map<Integer, Long> hashes = new TreeMap<>();
+        nodes.forEach((key, node) -> hashes.put(key, node.hash));
+        return hashes;
+    }
+
+    /**
+     * Computes the node hash from the sorted keys and hashes of its children.
+     */
+    private static long computeHash(final Map<Integer, Long> childHashes) {
+        final MessageDigest digest = createDigest();
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        childHashes.forEach((key, hash) -> {
+            buffer.clear();
+            buffer.putInt(key).putLong(hash);
+            digest.update(buffer.array());
+        });
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported!", e);
+        }
+    }
+
+    /**
+     * Node of the tree, it contains either child nodes (year node) or entry hashes (bucket node).
+     */
+    private static final class Node {
+        private final SortedMap<Integer, Node> children = new TreeMap<>();
+        private final SortedMap<Integer, Long> leaves = new TreeMap<>();
+        private long hash;
+
+        private Node getOrCreateChild(final int key) {
+            return children.computeIfAbsent(key, k -> new Node());
+        }
+
+        private Set<Integer> getLeafIds() {
+            final Set<Integer> ids = new TreeSet<>();
+            children.values().forEach(child -> ids.addAll(child.leaves.keySet()));
+            return ids;
+        }
+    }
+}
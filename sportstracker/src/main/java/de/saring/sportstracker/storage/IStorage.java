@@ -1,6 +1,10 @@
 package de.saring.sportstracker.storage;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.data.Exercise;
 import de.saring.sportstracker.data.ExerciseList;
 import de.saring.sportstracker.data.NoteList;
 import de.saring.sportstracker.data.SportTypeList;
@@ -44,6 +48,63 @@ public interface IStorage {
      */
     ExerciseList readExerciseList(String source, SportTypeList sportTypeList) throws STException;
 
+    /**
+     * Reads the exercises of the specified and all later years from the data source. The exercises of
+     * the earlier years must be read by readExercisesOfYears() on demand, the data source can only be
+     * stored when the exercises of the changed years have been added to the returned list. The default
+     * implementation reads all exercises by readExerciseList().
+     *
+     * @param source name of data source
+     * @param sportTypeList the sport type list for assigning sport types to exercises.
+     * @param firstYear the first year to read
+     * @return the created ExerciseList
+     * @throws STException thrown on read problems
+     */
+    default ExerciseList readRecentExerciseList(String source, SportTypeList sportTypeList, int firstYear)
+            throws STException {
+        return readExerciseList(source, sportTypeList);
+    }
+
+    /**
+     * Returns the years of the exercises of the data source, which have not been read by
+     * readRecentExerciseList() or readExercisesOfYears() yet. The default implementation
+     * returns an empty list.
+     *
+     * @param source name of data source
+     * @return the years of the unread exercises in ascending order
+     */
+    default List<Integer> getUnreadExerciseYears(String source) {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the highest exercise ID of the data source including the unread exercises, new
+     * exercises need higher IDs while there are unread exercises. The default implementation
+     * returns 0 (all exercises are read at once).
+     *
+     * @param source name of data source
+     * @return the highest exercise ID
+     */
+    default int getMaxExerciseId(String source) {
+        return 0;
+    }
+
+    /**
+     * Reads the unread exercises of the specified years from the data source. The returned exercises
+     * replace the exercises with the same ID in the list read before. The default implementation
+     * returns an empty list.
+     *
+     * @param source name of data source
+     * @param sportTypeList the sport type list for assigning sport types to exercises.
+     * @param years the years of the exercises to read
+     * @return the list of read exercises
+     * @throws STException thrown on read problems
+     */
+    default List<Exercise> readExercisesOfYears(String source, SportTypeList sportTypeList, List<Integer> years)
+            throws STException {
+        return new ArrayList<>();
+    }
+
     /**
      * Writes the exercise list to the data destination.
      *
@@ -88,4 +149,68 @@ public interface IStorage {
      * @throws STException thrown on store problems
      */
     void storeWeightList(WeightList weightList, String destination) throws STException;
+
+    /**
+     * Attaches the sport type list, which has been read from another source with the same content as the
+     * data source (e.g. from a snapshot). The storage takes it as the persisted state of the data source,
+     * so the next store can write the changes only. The default implementation does nothing.
+     *
+     * @param sportTypeList the sport type list with the content of the data source
+     * @param source name of data source
+     * @throws STException thrown on read problems of the data source state
+     */
+    default void attachSportTypeList(SportTypeList sportTypeList, String source) throws STException {
+    }
+
+    /**
+     * Attaches the exercise list, which has been read from another source with the same content as the
+     * data source (see attachSportTypeList()). The default implementation does nothing.
+     *
+     * @param exerciseList the exercise list with the content of the data source
+     * @param source name of data source
+     * @throws STException thrown on read problems of the data source state
+     */
+    default void attachExerciseList(ExerciseList exerciseList, String source) throws STException {
+    }
+
+    /**
+     * Attaches the note list, which has been read from another source with the same content as the
+     * data source (see attachSportTypeList()). The default implementation does nothing.
+     *
+     * @param noteList the note list with the content of the data source
+     * @param source name of data source
+     * @throws STException thrown on read problems of the data source state
+     */
+    default void attachNoteList(NoteList noteList, String source) throws STException {
+    }
+
+    /**
+     * Attaches the weight list, which has been read from another source with the same content as the
+     * data source (see attachSportTypeList()). The default implementation does nothing.
+     *
+     * @param weightList the weight list with the content of the data source
+     * @param source name of data source
+     * @throws STException thrown on read problems of the data source state
+     */
+    default void attachWeightList(WeightList weightList, String source) throws STException {
+    }
+
+    /**
+     * Closes the storage, all pending changes must be written to the data destinations.
+     * The default implementation does nothing.
+     *
+     * @throws STException thrown on store problems
+     */
+    default void close() throws STException {
+    }
+
+    /**
+     * Sets whether the data files will be written compressed, the format of existing files
+     * changes on their next write. Compressed and uncompressed files must always be readable.
+     * The default implementation does nothing (e.g. for databases).
+     *
+     * @param compressed true for writing compressed files
+     */
+    default void setCompressedFiles(boolean compressed) {
+    }
 }
@@ -0,0 +1,282 @@
+package de.saring.sportstracker.storage;
+
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
+
+/**
+ * This storage implementation uses the XML files as the compacted base of the application data
+ * and appends all changes of exercises, notes and weights to a journal file next to the XML file
+ * (see ListJournal). So the costs of storing a list depend on the number of changed entries, not on
+ * the size of the list. On reading the journal changes will be applied to the content of the XML file.
+ * <br/>
+ * The journal of a list will be compacted into a new XML file in background after a specific number
+ * of records and when the storage gets closed. So the XML files are up to date after the application
+ * exit and can still be used by other tools.<br/>
+ * The sport type list is small and its order is relevant, so it's still stored as a whole XML file.
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class JournalStorage implements IStorage {
+
+    private static final Logger LOGGER = Logger.getLogger(JournalStorage.class.getName());
+
+    /** Default number of journal records of a list, after which the list will be compacted. */
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 500;
+
+    private final XMLSportTypeList xmlSportTypeList = new XMLSportTypeList();
+    private final XMLExerciseList xmlExerciseList = new XMLExerciseList();
+    private final XMLNoteList xmlNoteList = new XMLNoteList();
+    private final XMLWeightList xmlWeightList = new XMLWeightList();
+
+    private final int compactionThreshold;
+
+    /** Flag for writing GZIP compressed XML files (also on compaction). */
+    private volatile boolean compressedFiles;
+
+    /** The journals of all read or stored lists, the map key is the normalized XML file path. */
+    private final Map<String, ListJournal<?>> journals = new ConcurrentHashMap<>();
+
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "ST-JournalCompaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Standard c'tor.
+     */
+    public JournalStorage() {
+        this(DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * C'tor for a custom compaction threshold.
+     *
+     * @param compactionThreshold number of journal records of a list, after which the list will be compacted
+     */
+    JournalStorage(final int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void setCompressedFiles(boolean compressed) {
+        this.compressedFiles = compressed;
+        xmlSportTypeList.setCompressed(compressed);
+        xmlExerciseList.setCompressed(compressed);
+        xmlNoteList.setCompressed(compressed);
+        xmlWeightList.setCompressed(compressed);
+    }
+
+    @Override
+    public SportTypeList readSportTypeList(String source) throws STException {
+        return xmlSportTypeList.readSportTypeList(source);
+    }
+
+    @Override
+    public void storeSportTypeList(SportTypeList sportTypeList, String destination) throws STException {
+        xmlSportTypeList.storeSportTypeList(sportTypeList, destination);
+    }
+
+    @Override
+    public ExerciseList readExerciseList(String source, SportTypeList sportTypeList) throws STException {
+        final ExerciseList exerciseList = xmlExerciseList.readExerciseList(source, sportTypeList);
+        final ListJournal<Exercise> journal = new ListJournal<>(source, "exercise-list",
+                xmlExerciseList::createExerciseElement);
+
+        try {
+            journal.replay(exerciseList, eExercise -> xmlExerciseList.readExercise(eExercise, sportTypeList));
+        } catch (Exception e) {
+            throw new STException(STExceptionID.JOURNALSTORAGE_READ_JOURNAL,
+                    "Failed to read exercise list journal '" + journal.getJournalFile() + "' ...", e);
+        }
+        registerJournal(source, journal);
+        return exerciseList;
+    }
+
+    @Override
+    public void storeExerciseList(ExerciseList exerciseList, String destination) throws STException {
+        @SuppressWarnings("unchecked")
+        ListJournal<Exercise> journal = (ListJournal<Exercise>) journals.get(getJournalKey(destination));
+
+        if (journal == null) {
+            xmlExerciseList.storeExerciseList(exerciseList, destination);
+            journal = new ListJournal<>(destination, "exercise-list", xmlExerciseList::createExerciseElement);
+            resetJournal(journal, exerciseList, destination);
+        } else {
+            storeInJournal(journal, exerciseList, STExceptionID.XMLSTORAGE_STORE_EXERCISE_LIST);
+        }
+    }
+
+    @Override
+    public NoteList readNoteList(String source) throws STException {
+        final NoteList noteList = xmlNoteList.readNoteList(source);
+        final ListJournal<Note> journal = new ListJournal<>(source, "note-list", xmlNoteList::createNoteElement);
+
+        try {
+            journal.replay(noteList, xmlNoteList::readNote);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.JOURNALSTORAGE_READ_JOURNAL,
+                    "Failed to read note list journal '" + journal.getJournalFile() + "' ...", e);
+        }
+        registerJournal(source, journal);
+        return noteList;
+    }
+
+    @Override
+    public void storeNoteList(NoteList noteList, String destination) throws STException {
+        @SuppressWarnings("unchecked")
+        ListJournal<Note> journal = (ListJournal<Note>) journals.get(getJournalKey(destination));
+
+        if (journal == null) {
+            xmlNoteList.storeNoteList(noteList, destination);
+            journal = new ListJournal<>(destination, "note-list", xmlNoteList::createNoteElement);
+            resetJournal(journal, noteList, destination);
+        } else {
+            storeInJournal(journal, noteList, STExceptionID.XMLSTORAGE_STORE_NOTE_LIST);
+        }
+    }
+
+    @Override
+    public WeightList readWeightList(String source) throws STException {
+        final WeightList weightList = xmlWeightList.readWeightList(source);
+        final ListJournal<Weight> journal = new ListJournal<>(source, "weight-list",
+                xmlWeightList::createWeightElement);
+
+        try {
+            journal.replay(weightList, xmlWeightList::readWeight);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.JOURNALSTORAGE_READ_JOURNAL,
+                    "Failed to read weight list journal '" + journal.getJournalFile() + "' ...", e);
+        }
+        registerJournal(source, journal);
+        return weightList;
+    }
+
+    @Override
+    public void storeWeightList(WeightList weightList, String destination) throws STException {
+        @SuppressWarnings("unchecked")
+        ListJournal<Weight> journal = (ListJournal<Weight>) journals.get(getJournalKey(destination));
+
+        if (journal == null) {
+            xmlWeightList.storeWeightList(weightList, destination);
+            journal = new ListJournal<>(destination, "weight-list", xmlWeightList::createWeightElement);
+            resetJournal(journal, weightList, destination);
+        } else {
+            storeInJournal(journal, weightList, STExceptionID.XMLSTORAGE_STORE_WEIGHT_LIST);
+        }
+    }
+
+    @Override
+    public void attachExerciseList(ExerciseList exerciseList, String source) throws STException {
+        attachJournal(new ListJournal<>(source, "exercise-list", xmlExerciseList::createExerciseElement),
+                exerciseList, source);
+    }
+
+    @Override
+    public void attachNoteList(NoteList noteList, String source) throws STException {
+        attachJournal(new ListJournal<>(source, "note-list", xmlNoteList::createNoteElement), noteList, source);
+    }
+
+    @Override
+    public void attachWeightList(WeightList weightList, String source) throws STException {
+        attachJournal(new ListJournal<>(source, "weight-list", xmlWeightList::createWeightElement),
+                weightList, source);
+    }
+
+    /**
+     * Waits for the running background compaction and compacts all journals into their XML files.
+     */
+    @Override
+    public void close() throws STException {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (ListJournal<?> journal : journals.values()) {
+            try {
+                journal.compact(compressedFiles);
+            } catch (Exception e) {
+                throw new STException(STExceptionID.JOURNALSTORAGE_COMPACTION,
+                        "Failed to compact journal '" + journal.getJournalFile() + "' ...", e);
+            }
+        }
+    }
+
+    private void registerJournal(final String xmlFilename, final ListJournal<?> journal) {
+        journals.put(getJournalKey(xmlFilename), journal);
+        scheduleCompactionIfNeeded(journal);
+    }
+
+    private <T extends IdObject> void attachJournal(final ListJournal<T> journal, final IdObjectList<T> list,
+            final String xmlFilename) throws STException {
+        try {
+            journal.attach(list);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.JOURNALSTORAGE_READ_JOURNAL,
+                    "Failed to read journal '" + journal.getJournalFile() + "' ...", e);
+        }
+        registerJournal(xmlFilename, journal);
+    }
+
+    private <T extends IdObject> void storeInJournal(final ListJournal<T> journal,
+            final IdObjectList<T> list, final STExceptionID exceptionID) throws STException {
+        try {
+            journal.store(list);
+        } catch (Exception e) {
+            throw new STException(exceptionID, "Failed to write journal '" + journal.getJournalFile() + "' ...", e);
+        }
+        scheduleCompactionIfNeeded(journal);
+    }
+
+    private <T extends IdObject> void resetJournal(final ListJournal<T> journal,
+            final IdObjectList<T> list, final String xmlFilename) throws STException {
+        try {
+            journal.reset(list);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.JOURNALSTORAGE_WRITE_JOURNAL,
+                    "Failed to delete journal '" + journal.getJournalFile() + "' ...", e);
+        }
+        journals.put(getJournalKey(xmlFilename), journal);
+    }
+
+    private void scheduleCompactionIfNeeded(final ListJournal<?> journal) {
+        if (journal.getJournalRecordCount() >= compactionThreshold && !compactionExecutor.isShutdown()) {
+            compactionExecutor.execute(() -> {
+                try {
+                    journal.compact(compressedFiles);
+                } catch (Exception e) {
+                    // the journal remains valid, compaction will be retried later
+                    LOGGER.log(Level.WARNING, "Failed to compact journal '" + journal.getJournalFile() + "'!", e);
+                }
+            });
+        }
+    }
+
+    private static String getJournalKey(final String xmlFilename) {
+        return Paths.get(xmlFilename).toAbsolutePath().normalize().toString();
+    }
+}
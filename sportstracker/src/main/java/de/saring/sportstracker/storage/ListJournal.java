@@ -0,0 +1,515 @@
+package de.saring.sportstracker.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
+
+/**
+ * This class manages the change journal of one application data list. The XML file of the list is the
+ * compacted base, all changes stored afterwards are appended to the journal file next to it (the XML
+ * filename with the suffix ".journal"). So only the added, changed and removed entries need to be written
+ * when storing the list.<br/>
+ * The changed entries are tracked by a listener on the list, which has been read or written as a whole.
+ * So list entries must always be stored by IdObjectList.set() after modification, otherwise the change
+ * will not be detected. Only the tracked entries get serialized on store.<br/>
+ * Each store appends one transaction: a record for each changed entry followed by a commit record with
+ * a checksum of the transaction. On reading, incomplete or corrupt transactions at the end of the journal
+ * (e.g. after a crash) will be ignored and removed.<br/>
+ * The compaction applies the committed journal records to the content of the XML file, writes the new
+ * XML file and removes the compacted records from the journal.
+ *
+ * @param <T> the entry type of the list, must be a subclass of IdObject
+ * @author Stefan Saring
+ */
+class ListJournal<T extends IdObject> {
+
+    private static final Logger LOGGER = Logger.getLogger(ListJournal.class.getName());
+
+    /** Suffix of the journal filename (appended to the XML filename). */
+    static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final byte RECORD_SET = 'S';
+    private static final byte RECORD_REMOVE = 'R';
+    private static final byte RECORD_COMMIT = 'C';
+
+    private final Path xmlFile;
+    private final Path journalFile;
+    private final String rootElementName;
+    private final Function<T, Element> elementCreator;
+
+    /** Lock for the compaction, prevents concurrent compactions of the same list. */
+    private final Object compactionLock = new Object();
+
+    /**
+     * Lock for the change tracking state, it's separate from the journal file lock, so list changes
+     * don't need to wait for running journal writes.
+     */
+    private final Object trackingLock = new Object();
+
+    /** The entries of the tracked list (map key is the entry ID), for detecting replaced entries. */
+    private Map<Integer, T> trackedEntries = new HashMap<>();
+
+    /** The added or changed entries, which have not been stored yet (map key is the entry ID). */
+    private final Map<Integer, T> changedEntries = new HashMap<>();
+
+    /**
+     * The numbers of the last changes of the changed entries (map key is the entry ID). Entries can be changed
+     * in place and set again, so the changes made while storing are detected by the number, not by the instance.
+     */
+    private final Map<Integer, Long> changeNumbers = new HashMap<>();
+
+    /** Number of the last tracked change, it's increased for each change. */
+    private long changeNumber;
+
+    /** The IDs of the removed entries, which have not been stored yet. */
+    private final Set<Integer> removedIds = new HashSet<>();
+
+    /** Number of entry records in the journal file. */
+    private int journalRecordCount;
+
+    /** Size of the valid (committed) journal content in bytes. */
+    private long journalSize;
+
+    /**
+     * Standard c'tor.
+     *
+     * @param xmlFilename name of the XML file of the list
+     * @param rootElementName name of the root element of the XML file
+     * @param elementCreator function for creating the XML element of a list entry
+     */
+    ListJournal(final String xmlFilename, final String rootElementName, final Function<T, Element> elementCreator) {
+        this.xmlFile = Paths.get(xmlFilename);
+        this.journalFile = Paths.get(xmlFilename + JOURNAL_SUFFIX);
+        this.rootElementName = rootElementName;
+        this.elementCreator = elementCreator;
+    }
+
+    /**
+     * Returns the path of the journal file.
+     *
+     * @return path of the journal file
+     */
+    Path getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Returns the number of entry records in the journal, which have not been compacted yet.
+     *
+     * @return number of journal records
+     */
+    synchronized int getJournalRecordCount() {
+        return journalRecordCount;
+    }
+
+    /**
+     * Applies all committed journal transactions to the specified list read from the XML file.
+     * Incomplete or corrupt transactions at the end of the journal will be removed. The list gets
+     * tracked for changes afterwards.
+     *
+     * @param list the list read from the XML file, the journal changes will be applied to it
+     * @param entryReader function for creating a list entry from its XML element
+     * @throws IOException on journal read problems
+     * @throws JDOMException on XML parse problems of journal records
+     */
+    synchronized void replay(final IdObjectList<T> list, final Function<Element, T> entryReader)
+            throws IOException, JDOMException {
+
+        journalRecordCount = 0;
+        journalSize = 0;
+
+        if (Files.exists(journalFile)) {
+            final byte[] journal = Files.readAllBytes(journalFile);
+            final SAXBuilder builder = new SAXBuilder();
+            journalSize = readCommittedRecords(journal, journal.length, record -> {
+                if (record.content == null) {
+                    list.removeByID(record.id);
+                } else {
+                    list.set(entryReader.apply(parseElement(builder, record.content)));
+                }
+                journalRecordCount++;
+            });
+
+            if (journalSize < journal.length) {
+                LOGGER.warning("Removing incomplete transaction from journal '" + journalFile + "' ("
+                        + (journal.length - journalSize) + " bytes)...");
+                try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(journalSize);
+                    channel.force(true);
+                }
+            }
+        }
+
+        track(list);
+    }
+
+    /**
+     * Takes the specified list as the content of the XML file with all committed journal transactions
+     * applied (e.g. read from a snapshot of the files) and tracks it for changes. The journal records
+     * are not parsed, the size of the committed journal content is needed for appending only.
+     *
+     * @param list the list with the content of the XML file and the journal
+     * @throws IOException on journal read problems
+     * @throws JDOMException on XML parse problems of journal records
+     */
+    synchronized void attach(final IdObjectList<T> list) throws IOException, JDOMException {
+        journalRecordCount = 0;
+        journalSize = 0;
+
+        if (Files.exists(journalFile)) {
+            final byte[] journal = Files.readAllBytes(journalFile);
+            journalSize = readCommittedRecords(journal, journal.length, record -> journalRecordCount++);
+        }
+        track(list);
+    }
+
+    /**
+     * Stores all added, changed and removed entries of the tracked list by appending a transaction to the
+     * journal. Nothing will be written when the list has not been changed. On write problems the changes
+     * remain pending, so they will be written by the next store again.
+     *
+     * @param list the tracked list or a copy of its entries (e.g. for storing in background), changes
+     *         made in the tracked list after creating the copy remain pending
+     * @return the number of written entry records
+     * @throws IOException on write problems
+     */
+    synchronized int store(final IdObjectList<T> list) throws IOException {
+        final Map<Integer, T> pendingEntries;
+        final Map<Integer, Long> pendingChangeNumbers;
+        final Set<Integer> pendingRemovedIds;
+        synchronized (trackingLock) {
+            pendingEntries = new HashMap<>(changedEntries);
+            pendingChangeNumbers = new HashMap<>(changeNumbers);
+            pendingRemovedIds = new HashSet<>(removedIds);
+        }
+
+        final Map<Integer, Long> storedChangeNumbers = new HashMap<>();
+        final Set<Integer> storedRemovedIds = new HashSet<>();
+        int writtenEntryCount = 0;
+        final XMLOutputter outputter = new XMLOutputter(Format.getRawFormat());
+        final ByteArrayOutputStream transaction = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(transaction);
+
+        if (!pendingEntries.isEmpty() || !pendingRemovedIds.isEmpty()) {
+            for (T entry : list) {
+                // entries removed after creating the passed list copy are still contained, they remain
+                // pending, entries added afterwards are not contained yet
+                pendingRemovedIds.remove(entry.getId());
+                if (pendingEntries.containsKey(entry.getId())) {
+                    final byte[] content = outputter.outputString(elementCreator.apply(entry))
+                            .getBytes(StandardCharsets.UTF_8);
+                    output.writeByte(RECORD_SET);
+                    output.writeInt(entry.getId());
+                    output.writeInt(content.length);
+                    output.write(content);
+                    // an entry replaced after creating the passed list copy remains pending
+                    if (pendingEntries.get(entry.getId()) == entry) {
+                        storedChangeNumbers.put(entry.getId(), pendingChangeNumbers.get(entry.getId()));
+                    }
+                    writtenEntryCount++;
+                }
+            }
+
+            for (Integer removedId : pendingRemovedIds) {
+                output.writeByte(RECORD_REMOVE);
+                output.writeInt(removedId);
+                storedRemovedIds.add(removedId);
+            }
+        }
+
+        final int recordCount = writtenEntryCount + storedRemovedIds.size();
+        if (recordCount == 0) {
+            return 0;
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(transaction.toByteArray());
+        output.writeByte(RECORD_COMMIT);
+        output.writeLong(crc.getValue());
+        output.flush();
+
+        // an incomplete transaction of a previous failed store will be overwritten
+        try (FileChannel channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(journalSize);
+            channel.position(journalSize);
+            final ByteBuffer buffer = ByteBuffer.wrap(transaction.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        // entries which have been changed again while storing remain pending
+        synchronized (trackingLock) {
+            storedChangeNumbers.forEach((id, number) -> {
+                if (number.equals(changeNumbers.get(id))) {
+                    changedEntries.remove(id);
+                    changeNumbers.remove(id);
+                }
+            });
+            removedIds.removeAll(storedRemovedIds);
+        }
+
+        journalRecordCount += recordCount;
+        journalSize += transaction.size();
+        return recordCount;
+    }
+
+    /**
+     * Applies the committed journal transactions to the content of the XML file, writes the new XML file
+     * and removes the compacted transactions from the journal. The XML file is created from the files only,
+     * so pending list changes are not included. Transactions appended during the compaction will be kept.
+     *
+     * @param compressed true for writing a GZIP compressed XML file
+     * @throws IOException on read or write problems
+     * @throws JDOMException on XML parse problems of the XML file or of journal records
+     */
+    void compact(final boolean compressed) throws IOException, JDOMException {
+        synchronized (compactionLock) {
+            final byte[] journal;
+            final long compactedJournalSize;
+            final int compactedRecordCount;
+
+            synchronized (this) {
+                if (journalRecordCount == 0) {
+                    return;
+                }
+                compactedJournalSize = journalSize;
+                compactedRecordCount = journalRecordCount;
+                journal = Files.readAllBytes(journalFile);
+            }
+
+            final SAXBuilder builder = new SAXBuilder();
+            final Element eList = readXmlFile(builder);
+            final Map<Integer, Element> entryElements = new LinkedHashMap<>();
+            for (Element eEntry : eList.getChildren()) {
+                entryElements.put(Integer.parseInt(eEntry.getChildText("id")), eEntry);
+            }
+
+            readCommittedRecords(journal, compactedJournalSize, record -> {
+                if (record.content == null) {
+                    entryElements.remove(record.id);
+                } else {
+                    entryElements.put(record.id, parseElement(builder, record.content));
+                }
+            });
+
+            eList.removeContent();
+            entryElements.values().forEach(eEntry -> eList.addContent(eEntry.detach()));
+            XMLUtils.writeXMLFile(eList, xmlFile.toString(), compressed);
+
+            synchronized (this) {
+                removeJournalHead(compactedJournalSize);
+                journalRecordCount -= compactedRecordCount;
+            }
+        }
+    }
+
+    /**
+     * Starts tracking the specified list after it has been written to the XML file as a whole. An existing
+     * journal file will be deleted.
+     *
+     * @param list the list written to the XML file
+     * @throws IOException on journal deletion problems
+     */
+    synchronized void reset(final IdObjectList<T> list) throws IOException {
+        Files.deleteIfExists(journalFile);
+        journalRecordCount = 0;
+        journalSize = 0;
+        track(list);
+    }
+
+    /**
+     * Registers the change listener on the specified list, all entries of the list are persisted.
+     */
+    private void track(final IdObjectList<T> list) {
+        synchronized (trackingLock) {
+            trackedEntries = createEntryMap(list);
+            changedEntries.clear();
+            changeNumbers.clear();
+            removedIds.clear();
+        }
+
+        list.addListChangeListener(changedObject -> {
+            synchronized (trackingLock) {
+                if (changedObject != null) {
+                    @SuppressWarnings("unchecked")
+                    final T changedEntry = (T) changedObject;
+                    trackedEntries.put(changedEntry.getId(), changedEntry);
+                    changedEntries.put(changedEntry.getId(), changedEntry);
+                    changeNumbers.put(changedEntry.getId(), ++changeNumber);
+                    removedIds.remove(changedEntry.getId());
+                } else {
+                    // entries have been removed or replaced => compare the entry instances
+                    final Map<Integer, T> currentEntries = createEntryMap(list);
+                    currentEntries.forEach((id, entry) -> {
+                        if (trackedEntries.get(id) != entry) {
+                            changedEntries.put(id, entry);
+                            changeNumbers.put(id, ++changeNumber);
+                            removedIds.remove(id);
+                        }
+                    });
+                    trackedEntries.keySet().stream()
+                            .filter(id -> !currentEntries.containsKey(id))
+                            .forEach(id -> {
+                                changedEntries.remove(id);
+                                changeNumbers.remove(id);
+                                removedIds.add(id);
+                            });
+                    trackedEntries = currentEntries;
+                }
+            }
+        });
+    }
+
+    private Map<Integer, T> createEntryMap(final IdObjectList<T> list) {
+        final Map<Integer, T> entryMap = new HashMap<>();
+        list.forEach(entry -> entryMap.put(entry.getId(), entry));
+        return entryMap;
+    }
+
+    private Element readXmlFile(final SAXBuilder builder) throws IOException, JDOMException {
+        if (!Files.exists(xmlFile)) {
+            return new Element(rootElementName);
+        }
+        try (InputStream inputStream = XMLUtils.openInputStream(xmlFile)) {
+            return builder.build(inputStream).detachRootElement();
+        }
+    }
+
+    /**
+     * Reads all records of the committed transactions from the specified journal content and passes them
+     * to the record processor, incomplete or corrupt transactions at the end will be ignored.
+     *
+     * @param journal the journal content
+     * @param length the length of the journal content to read
+     * @param processor processor of the committed records
+     * @return the size of the committed journal content
+     */
+    private static long readCommittedRecords(final byte[] journal, final long length,
+            final RecordProcessor processor) throws IOException, JDOMException {
+
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(journal, 0, (int) length));
+        final CRC32 crc = new CRC32();
+        final List<JournalRecord> pendingRecords = new ArrayList<>();
+        int position = 0;
+        int transactionStart = 0;
+        long committedSize = 0;
+
+        try {
+            while (position < length) {
+                final byte recordType = input.readByte();
+
+                if (recordType == RECORD_SET) {
+                    final int id = input.readInt();
+                    final int contentLength = input.readInt();
+                    if (contentLength < 0 || contentLength > length - position) {
+                        break;
+                    }
+                    final byte[] content = new byte[contentLength];
+                    input.readFully(content);
+                    pendingRecords.add(new JournalRecord(id, new String(content, StandardCharsets.UTF_8)));
+                    position += 1 + 4 + 4 + content.length;
+
+                } else if (recordType == RECORD_REMOVE) {
+                    pendingRecords.add(new JournalRecord(input.readInt(), null));
+                    position += 1 + 4;
+
+                } else if (recordType == RECORD_COMMIT) {
+                    crc.reset();
+                    crc.update(journal, transactionStart, position - transactionStart);
+                    if (input.readLong() != crc.getValue()) {
+                        break;
+                    }
+                    position += 1 + 8;
+
+                    // the transaction is complete and valid => process it
+                    for (JournalRecord record : pendingRecords) {
+                        processor.process(record);
+                    }
+                    pendingRecords.clear();
+                    committedSize = position;
+                    transactionStart = position;
+
+                } else {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            // incomplete transaction at the end of the journal
+        }
+        return committedSize;
+    }
+
+    private static Element parseElement(final SAXBuilder builder, final String content)
+            throws IOException, JDOMException {
+        return builder.build(new StringReader(content)).detachRootElement();
+    }
+
+    private void removeJournalHead(final long headSize) throws IOException {
+        if (headSize >= journalSize) {
+            Files.deleteIfExists(journalFile);
+        } else {
+            final byte[] journal = Files.readAllBytes(journalFile);
+            final Path tempFile = Paths.get(journalFile + ".tmp");
+            Files.write(tempFile, Arrays.copyOfRange(journal, (int) headSize, (int) journalSize));
+            Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        journalSize -= headSize;
+    }
+
+    /**
+     * A record read from the journal, the content is null for removed entries.
+     */
+    private static final class JournalRecord {
+        private final int id;
+        private final String content;
+
+        private JournalRecord(final int id, final String content) {
+            this.id = id;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Processor of the committed journal records.
+     */
+    @FunctionalInterface
+    private interface RecordProcessor {
+        void process(JournalRecord record) throws IOException, JDOMException;
+    }
+}
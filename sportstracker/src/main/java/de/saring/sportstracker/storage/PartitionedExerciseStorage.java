@@ -0,0 +1,712 @@
+package de.saring.sportstracker.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import javax.inject.Singleton;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.util.SafeFileUtils;
+import de.saring.util.data.IdObject;
+
+/**
+ * This class stores the exercise list in one XML file per year (partition), e.g. "exercises-2019.xml".
+ * The partition files have the same format as the exercise list XML file. A small manifest file contains
+ * the highest exercise ID and the year, the exercise count and the date bounds of all partitions, it's the
+ * source and destination name for reading and storing (e.g. "exercises-partitions.xml").<br/>
+ * The partitions of the recent years can be read first, the older partitions are read on demand afterwards.
+ * The highest exercise ID of the manifest allows the creation of new IDs before all partitions have been
+ * read, so all partitions are read at once for manifests without it. The partitions are read in
+ * parallel.<br/>
+ * The storage tracks the changes of the read or stored exercise list by a list listener, so storing the
+ * exercise list rewrites only the partitions of the years with changed exercises. The manifest defines the
+ * valid state: the partitions with added or changed exercises are written before the manifest, the
+ * partitions which only lost exercises are written or deleted after it. So an exercise moved to another year
+ * can be contained in two partitions after a crash, but never in none. On reading, the exercise of the
+ * partition matching the exercise count in the manifest will be used then.
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class PartitionedExerciseStorage {
+
+    /** Suffix of the manifest filenames. */
+    public static final String MANIFEST_SUFFIX = "-partitions.xml";
+
+    /** The XSD filename with the structure of the manifest. */
+    private static final String XSD_MANIFEST = "exercise-partitions.xsd";
+
+    private final XMLExerciseList xmlExerciseList = new XMLExerciseList();
+
+    /** Flag for writing GZIP compressed partition files. */
+    private volatile boolean compressedFiles;
+
+    /** The state of each read or stored manifest, the map key is the normalized manifest path. */
+    private final Map<String, ManifestState> manifestStates = new ConcurrentHashMap<>();
+
+    /**
+     * Sets whether the partition files will be written GZIP compressed, the manifest is always
+     * written uncompressed. Compressed and uncompressed partition files will always be read.
+     *
+     * @param compressed true for writing compressed partition files
+     */
+    public void setCompressedFiles(final boolean compressed) {
+        this.compressedFiles = compressed;
+    }
+
+    /**
+     * Reads the exercises of all partitions listed in the specified manifest file and maps the sport types
+     * by using the specified sport type list. Returns an empty list when the manifest doesn't exists yet.
+     *
+     * @param source name of the manifest file
+     * @param sportTypeList the sport type list for assigning sport types to exercises
+     * @return the created ExerciseList
+     * @throws STException thrown on read problems
+     */
+    public ExerciseList readExerciseList(final String source, final SportTypeList sportTypeList)
+            throws STException {
+        return readRecentExerciseList(source, sportTypeList, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Reads the exercises of the partitions of the specified and all later years listed in the specified
+     * manifest file. The older partitions need to be read by readExercisesOfYears() afterwards, only then
+     * the partitions of these years can be stored. All partitions are read when the manifest doesn't
+     * contain the highest exercise ID (written by older versions).
+     *
+     * @param source name of the manifest file
+     * @param sportTypeList the sport type list for assigning sport types to exercises
+     * @param firstYear the first year to read
+     * @return the created ExerciseList with the exercises of the recent years
+     * @throws STException thrown on read problems
+     */
+    public ExerciseList readRecentExerciseList(final String source, final SportTypeList sportTypeList,
+            final int firstYear) throws STException {
+
+        final ExerciseList exerciseList = new ExerciseList();
+        final Manifest manifest = SafeFileUtils.exists(source) ? readManifest(source) : new Manifest();
+        final ManifestState state = new ManifestState(manifest.partitions,
+                manifest.maxId == null ? 0 : manifest.maxId);
+
+        final List<Integer> recentYears = state.partitions.keySet().stream()
+                .filter(year -> manifest.maxId == null || year >= firstYear)
+                .collect(Collectors.toList());
+        final Map<Integer, Exercise> exercises = new HashMap<>();
+        final Map<Integer, Integer> exerciseYears = new HashMap<>();
+        mergePartitions(state, readPartitions(source, sportTypeList, recentYears), exercises, exerciseYears);
+
+        exerciseList.clearAndAddAll(new ArrayList<>(exercises.values()));
+        state.maxId = Math.max(state.maxId, getMaxId(exerciseList));
+        state.loadedYears.addAll(recentYears);
+        state.track(exerciseList, exerciseYears);
+        manifestStates.put(getManifestKey(source), state);
+        return exerciseList;
+    }
+
+    /**
+     * Returns the years of the partitions listed in the specified manifest file, which have not been read
+     * yet. Returns an empty list when the manifest has not been read before.
+     *
+     * @param source name of the manifest file
+     * @return the years of the unread partitions in ascending order
+     */
+    public List<Integer> getUnreadYears(final String source) {
+        final ManifestState state = manifestStates.get(getManifestKey(source));
+        if (state == null) {
+            return new ArrayList<>();
+        }
+
+        synchronized (state) {
+            return state.getUnreadYears();
+        }
+    }
+
+    /**
+     * Returns the highest exercise ID used in the partitions of the specified manifest file, including the
+     * partitions which have not been read yet. Returns 0 when the manifest has not been read before.
+     *
+     * @param source name of the manifest file
+     * @return the highest exercise ID
+     */
+    public int getMaxExerciseId(final String source) {
+        final ManifestState state = manifestStates.get(getManifestKey(source));
+        if (state == null) {
+            return 0;
+        }
+
+        synchronized (state) {
+            return state.maxId;
+        }
+    }
+
+    /**
+     * Reads the exercises of the partitions of the specified years, which have not been read by
+     * readRecentExerciseList() or a previous call. The returned exercises need to be added to the exercise
+     * list read before, they replace the exercises with the same ID (only after a crash while storing).
+     * It returns an empty list when these partitions have been read already.
+     *
+     * @param source name of the manifest file
+     * @param sportTypeList the sport type list for assigning sport types to exercises
+     * @param years the years of the partitions to read
+     * @return the exercises of the read partitions
+     * @throws STException thrown on read problems
+     */
+    public List<Exercise> readExercisesOfYears(final String source, final SportTypeList sportTypeList,
+            final List<Integer> years) throws STException {
+
+        final ManifestState state = manifestStates.get(getManifestKey(source));
+        if (state == null) {
+            return new ArrayList<>();
+        }
+
+        final List<Integer> readYears;
+        final Map<Integer, Exercise> exercises;
+        final Map<Integer, Integer> exerciseYears;
+        synchronized (state) {
+            readYears = state.getUnreadYears().stream()
+                    .filter(years::contains)
+                    .collect(Collectors.toList());
+            exercises = new HashMap<>(state.trackedEntries);
+            exerciseYears = new HashMap<>(state.trackedYears);
+        }
+
+        final Map<Integer, List<Exercise>> partitions = readPartitions(source, sportTypeList, readYears);
+        synchronized (state) {
+            final Map<Integer, Exercise> previousExercises = new HashMap<>(exercises);
+            mergePartitions(state, partitions, exercises, exerciseYears);
+
+            final List<Exercise> readExercises = exercises.values().stream()
+                    .filter(exercise -> previousExercises.get(exercise.getId()) != exercise)
+                    .collect(Collectors.toList());
+            readExercises.forEach(exercise -> state.pendingEntries.put(exercise.getId(), exercise));
+            readExercises.forEach(exercise -> state.pendingYears.put(exercise.getId(),
+                    exerciseYears.get(exercise.getId())));
+            readExercises.forEach(exercise -> state.maxId = Math.max(state.maxId, exercise.getId()));
+
+            // the read partitions can't be stored before their exercises have been added to the list
+            if (readExercises.isEmpty()) {
+                state.loadedYears.addAll(readYears);
+            } else {
+                state.pendingLoadedYears.addAll(readYears);
+            }
+            return readExercises;
+        }
+    }
+
+    /**
+     * Stores the exercise list in the partition files of the specified manifest. When the exercise list has
+     * been read or stored before, only the partitions of years with changed exercises will be written,
+     * the partitions of years without exercises will be deleted. Otherwise all partitions will be written.
+     *
+     * @param exerciseList the exercise list to store (the read or stored list or a copy of its entries)
+     * @param destination name of the manifest file
+     * @throws STException thrown on store problems
+     */
+    public void storeExerciseList(final ExerciseList exerciseList, final String destination) throws STException {
+        final ManifestState state = manifestStates.get(getManifestKey(destination));
+        if (state == null) {
+            storeAllPartitions(exerciseList, destination);
+            return;
+        }
+
+        final Map<Integer, DirtyYear> dirtyYears;
+        final int maxId;
+        synchronized (state) {
+            dirtyYears = new TreeMap<>(state.dirtyYears);
+            maxId = Math.max(state.maxId, getMaxId(exerciseList));
+            for (Integer year : dirtyYears.keySet()) {
+                if (state.partitions.containsKey(year) && !state.loadedYears.contains(year)) {
+                    throw new STException(STExceptionID.XMLSTORAGE_STORE_EXERCISE_LIST,
+                            "The exercise partition of year " + year + " has not been read yet!");
+                }
+            }
+        }
+        if (dirtyYears.isEmpty()) {
+            return;
+        }
+
+        final Map<Integer, List<Exercise>> partitions = new TreeMap<>();
+        dirtyYears.keySet().forEach(year -> partitions.put(year, new ArrayList<>()));
+        exerciseList.forEach(exercise -> {
+            final List<Exercise> partition = partitions.get(exercise.getDateTime().getYear());
+            if (partition != null) {
+                partition.add(exercise);
+            }
+        });
+
+        final Map<Integer, PartitionInfo> partitionInfos;
+        synchronized (state) {
+            partitionInfos = new TreeMap<>(state.partitions);
+        }
+        partitions.forEach((year, exercises) -> {
+            if (exercises.isEmpty()) {
+                partitionInfos.remove(year);
+            } else {
+                partitionInfos.put(year, new PartitionInfo(year, exercises));
+            }
+        });
+
+        try {
+            // the manifest is the commit point: partitions with added or changed exercises are written
+            // before, partitions which only lost exercises are written or deleted afterwards
+            for (Map.Entry<Integer, List<Exercise>> partition : partitions.entrySet()) {
+                if (dirtyYears.get(partition.getKey()).gained && !partition.getValue().isEmpty()) {
+                    writePartition(destination, partition.getKey(), partition.getValue());
+                }
+            }
+
+            writeManifest(destination, partitionInfos, maxId);
+
+            for (Map.Entry<Integer, List<Exercise>> partition : partitions.entrySet()) {
+                if (partition.getValue().isEmpty()) {
+                    deletePartition(destination, partition.getKey());
+                } else if (!dirtyYears.get(partition.getKey()).gained) {
+                    writePartition(destination, partition.getKey(), partition.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new STException(STExceptionID.XMLSTORAGE_STORE_EXERCISE_LIST,
+                    "Failed to write exercise partitions of manifest '" + destination + "' ...", e);
+        }
+
+        synchronized (state) {
+            state.partitions.clear();
+            state.partitions.putAll(partitionInfos);
+            state.maxId = Math.max(state.maxId, maxId);
+            // years with changes while storing remain dirty
+            dirtyYears.forEach((year, dirtyYear) -> state.dirtyYears.remove(year, dirtyYear));
+        }
+    }
+
+    /**
+     * Attaches the exercise list, which has been read from another source with the same content as the
+     * partitions of the specified manifest (e.g. from a snapshot). It's taken as the persisted state, so
+     * the next store writes the changed partitions only.
+     *
+     * @param exerciseList the exercise list with the content of the partitions
+     * @param source name of the manifest file
+     */
+    public void attachExerciseList(final ExerciseList exerciseList, final String source) {
+        final Map<Integer, List<Exercise>> partitions = groupByYear(exerciseList);
+        final Map<Integer, PartitionInfo> partitionInfos = new TreeMap<>();
+        partitions.forEach((year, exercises) -> partitionInfos.put(year, new PartitionInfo(year, exercises)));
+
+        final ManifestState state = new ManifestState(partitionInfos, getMaxId(exerciseList));
+        state.loadedYears.addAll(partitionInfos.keySet());
+        state.track(exerciseList, null);
+        manifestStates.put(getManifestKey(source), state);
+    }
+
+    /**
+     * Returns the names of all partition files listed in the specified manifest file (e.g. for checking
+     * them for modifications). Returns an empty list when the manifest doesn't exists yet.
+     *
+     * @param manifestFilename name of the manifest file
+     * @return names of the partition files
+     * @throws STException thrown on manifest read problems
+     */
+    public static List<String> getPartitionFilenames(final String manifestFilename) throws STException {
+        if (!SafeFileUtils.exists(manifestFilename)) {
+            return new ArrayList<>();
+        }
+        return readManifest(manifestFilename).partitions.keySet().stream()
+                .map(year -> getPartitionFilename(manifestFilename, year))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the name of the partition file for the specified manifest and year.
+     *
+     * @param manifestFilename name of the manifest file
+     * @param year year of the partition
+     * @return name of the partition file
+     */
+    static String getPartitionFilename(final String manifestFilename, final int year) {
+        final String prefix = manifestFilename.endsWith(MANIFEST_SUFFIX) ?
+                manifestFilename.substring(0, manifestFilename.length() - MANIFEST_SUFFIX.length()) :
+                manifestFilename;
+        return prefix + "-" + year + ".xml";
+    }
+
+    /**
+     * Writes all partitions of the exercise list and the manifest, the partitions of other years listed
+     * in an existing manifest will be deleted. The exercise list gets tracked for changes afterwards.
+     */
+    private void storeAllPartitions(final ExerciseList exerciseList, final String destination)
+            throws STException {
+
+        final Map<Integer, List<Exercise>> partitions = groupByYear(exerciseList);
+        final Map<Integer, PartitionInfo> partitionInfos = new TreeMap<>();
+        partitions.forEach((year, exercises) -> partitionInfos.put(year, new PartitionInfo(year, exercises)));
+
+        final Set<Integer> previousYears = new HashSet<>(getPreviousYears(destination));
+        previousYears.removeAll(partitions.keySet());
+
+        try {
+            for (Map.Entry<Integer, List<Exercise>> partition : partitions.entrySet()) {
+                writePartition(destination, partition.getKey(), partition.getValue());
+            }
+            writeManifest(destination, partitionInfos, getMaxId(exerciseList));
+            for (Integer year : previousYears) {
+                deletePartition(destination, year);
+            }
+        } catch (IOException e) {
+            throw new STException(STExceptionID.XMLSTORAGE_STORE_EXERCISE_LIST,
+                    "Failed to write exercise partitions of manifest '" + destination + "' ...", e);
+        }
+
+        final ManifestState state = new ManifestState(partitionInfos, getMaxId(exerciseList));
+        state.loadedYears.addAll(partitionInfos.keySet());
+        state.track(exerciseList, null);
+        manifestStates.put(getManifestKey(destination), state);
+    }
+
+    private static Set<Integer> getPreviousYears(final String manifestFilename) {
+        try {
+            return SafeFileUtils.exists(manifestFilename) ?
+                    readManifest(manifestFilename).partitions.keySet() : new HashSet<>();
+        } catch (STException e) {
+            // an invalid previous manifest will be replaced, its partitions are unknown
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * Reads the partitions of the specified years in parallel, the map key of the result is the year.
+     */
+    private Map<Integer, List<Exercise>> readPartitions(final String source, final SportTypeList sportTypeList,
+            final List<Integer> years) throws STException {
+
+        final Map<Integer, List<Exercise>> partitions = new TreeMap<>();
+        if (years.isEmpty()) {
+            return partitions;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(years.size(), Runtime.getRuntime().availableProcessors())), runnable -> {
+                    final Thread thread = new Thread(runnable, "ST-LoadPartition");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        try {
+            final Map<Integer, Future<ExerciseList>> fPartitions = new TreeMap<>();
+            for (Integer year : years) {
+                final String partitionFilename = getPartitionFilename(source, year);
+                if (!SafeFileUtils.exists(partitionFilename)) {
+                    throw new STException(STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST,
+                            "The exercise partition file '" + partitionFilename + "' is missing!");
+                }
+                fPartitions.put(year, executor.submit(() ->
+                        xmlExerciseList.readExerciseList(partitionFilename, sportTypeList)));
+            }
+
+            for (Map.Entry<Integer, Future<ExerciseList>> fPartition : fPartitions.entrySet()) {
+                partitions.put(fPartition.getKey(), fPartition.getValue().get().stream()
+                        .collect(Collectors.toList()));
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof STException ? (STException) e.getCause() :
+                    new STException(STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST,
+                            "Failed to read exercise partitions of manifest '" + source + "' ...", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new STException(STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST,
+                    "Interrupted while reading exercise partitions of manifest '" + source + "'!", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return partitions;
+    }
+
+    /**
+     * Adds the exercises of the read partitions to the map of exercises (key is the ID) and stores the
+     * partition year of each exercise. An exercise contained in two partitions (after a crash while storing)
+     * is taken from the partition which matches the exercise count of the manifest (or from the first read
+     * partition), the year of the other partition gets marked as dirty, so it will be rewritten on the next
+     * store.
+     */
+    private static void mergePartitions(final ManifestState state, final Map<Integer, List<Exercise>> partitions,
+            final Map<Integer, Exercise> exercises, final Map<Integer, Integer> exerciseYears) {
+
+        partitions.forEach((year, partitionExercises) -> {
+            final PartitionInfo partitionInfo = state.partitions.get(year);
+            if (partitionInfo == null || partitionInfo.count != partitionExercises.size()) {
+                state.inconsistentYears.add(year);
+            }
+        });
+
+        partitions.forEach((year, partitionExercises) -> {
+            for (Exercise exercise : partitionExercises) {
+                final Integer otherYear = exerciseYears.get(exercise.getId());
+                if (otherYear == null || (state.inconsistentYears.contains(otherYear)
+                        && !state.inconsistentYears.contains(year))) {
+                    exercises.put(exercise.getId(), exercise);
+                    exerciseYears.put(exercise.getId(), year);
+                    if (otherYear != null) {
+                        state.markDirty(otherYear, false);
+                    }
+                } else {
+                    state.markDirty(year, false);
+                }
+            }
+        });
+    }
+
+    private void writePartition(final String manifestFilename, final int year, final List<Exercise> exercises)
+            throws IOException {
+        final Element eExerciseList = new Element("exercise-list");
+        exercises.forEach(exercise -> eExerciseList.addContent(xmlExerciseList.createExerciseElement(exercise)));
+        XMLUtils.writeXMLFile(eExerciseList, getPartitionFilename(manifestFilename, year), compressedFiles);
+    }
+
+    private static void deletePartition(final String manifestFilename, final int year) throws IOException {
+        final Path partitionFile = Paths.get(getPartitionFilename(manifestFilename, year));
+        Files.deleteIfExists(partitionFile);
+        Files.deleteIfExists(SafeFileUtils.getBackupFile(partitionFile));
+    }
+
+    private static void writeManifest(final String manifestFilename, final Map<Integer, PartitionInfo> partitions,
+            final int maxId) throws IOException {
+        final Element eManifest = new Element("exercise-partitions");
+        XMLUtils.addElement(eManifest, "max-id", String.valueOf(maxId));
+        partitions.values().forEach(partition -> eManifest.addContent(partition.createElement()));
+        XMLUtils.writeXMLFile(eManifest, manifestFilename);
+    }
+
+    private static Manifest readManifest(final String source) throws STException {
+        try {
+            final Document document = XMLUtils.getJDOMDocument(new File(source), XSD_MANIFEST);
+            final Manifest manifest = new Manifest();
+            final String maxId = document.getRootElement().getChildText("max-id");
+            manifest.maxId = maxId == null ? null : Integer.valueOf(maxId);
+            document.getRootElement().getChildren("partition").forEach(ePartition -> {
+                final PartitionInfo partition = PartitionInfo.read(ePartition);
+                manifest.partitions.put(partition.year, partition);
+            });
+            return manifest;
+        } catch (Exception e) {
+            throw new STException(STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST,
+                    "Failed to read exercise partition manifest '" + source + "' ...", e);
+        }
+    }
+
+    private static Map<Integer, List<Exercise>> groupByYear(final ExerciseList exerciseList) {
+        final Map<Integer, List<Exercise>> partitions = new TreeMap<>();
+        exerciseList.forEach(exercise ->
+                partitions.computeIfAbsent(exercise.getDateTime().getYear(), year -> new ArrayList<>()).add(exercise));
+        return partitions;
+    }
+
+    private static int getMaxId(final ExerciseList exerciseList) {
+        return exerciseList.stream().mapToInt(IdObject::getId).max().orElse(0);
+    }
+
+    private static String getManifestKey(final String manifestFilename) {
+        return Paths.get(manifestFilename).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * The content of a manifest file, the highest exercise ID is null for manifests of older versions.
+     */
+    private static final class Manifest {
+        private final Map<Integer, PartitionInfo> partitions = new TreeMap<>();
+        private Integer maxId;
+    }
+
+    /**
+     * The manifest entry of one partition.
+     */
+    private static final class PartitionInfo {
+        private final int year;
+        private final int count;
+        private final LocalDateTime firstDate;
+        private final LocalDateTime lastDate;
+
+        private PartitionInfo(final int year, final int count, final LocalDateTime firstDate,
+                final LocalDateTime lastDate) {
+            this.year = year;
+            this.count = count;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+        }
+
+        /**
+         * Creates the partition info for the specified exercises, they must be sorted by date.
+         */
+        private PartitionInfo(final int year, final List<Exercise> exercises) {
+            this(year, exercises.size(), exercises.get(0).getDateTime(),
+                    exercises.get(exercises.size() - 1).getDateTime());
+        }
+
+        private static PartitionInfo read(final Element ePartition) {
+            return new PartitionInfo(Integer.parseInt(ePartition.getChildText("year")),
+                    Integer.parseInt(ePartition.getChildText("count")),
+                    LocalDateTime.parse(ePartition.getChildText("first-date"), XMLUtils.DATE_TIME_FORMAT),
+                    LocalDateTime.parse(ePartition.getChildText("last-date"), XMLUtils.DATE_TIME_FORMAT));
+        }
+
+        private Element createElement() {
+            final Element ePartition = new Element("partition");
+            XMLUtils.addElement(ePartition, "year", String.valueOf(year));
+            XMLUtils.addElement(ePartition, "count", String.valueOf(count));
+            XMLUtils.addElement(ePartition, "first-date", firstDate.format(XMLUtils.DATE_TIME_FORMAT));
+            XMLUtils.addElement(ePartition, "last-date", lastDate.format(XMLUtils.DATE_TIME_FORMAT));
+            return ePartition;
+        }
+    }
+
+    /**
+     * The dirty state of a partition year. The flag gained is true when exercises of the year have been
+     * added or changed, otherwise exercises have only been removed from it. Each change creates a new
+     * instance, so changes while storing can be detected.
+     */
+    private static final class DirtyYear {
+        private final boolean gained;
+
+        private DirtyYear(final boolean gained) {
+            this.gained = gained;
+        }
+    }
+
+    /**
+     * The persisted state of a manifest and the change tracking of its exercise list. All fields are
+     * guarded by the instance lock.
+     */
+    private static final class ManifestState {
+
+        /** The persisted manifest entries, the map key is the year. */
+        private final Map<Integer, PartitionInfo> partitions;
+
+        /** The highest exercise ID of the persisted or read partitions. */
+        private int maxId;
+
+        /** The years of the partitions, which have been read. */
+        private final Set<Integer> loadedYears = new HashSet<>();
+
+        /** The exercises of the tracked list and their partition years (map key is the ID). */
+        private Map<Integer, Exercise> trackedEntries = new HashMap<>();
+        private Map<Integer, Integer> trackedYears = new HashMap<>();
+
+        /** The years of the read partitions with an exercise count different to the manifest. */
+        private final Set<Integer> inconsistentYears = new HashSet<>();
+
+        /** The lazily read exercises, which have not been added to the tracked list yet. */
+        private final Map<Integer, Exercise> pendingEntries = new HashMap<>();
+        private final Map<Integer, Integer> pendingYears = new HashMap<>();
+
+        /** The years of the lazily read partitions, they are loaded when all its exercises have been added. */
+        private final Set<Integer> pendingLoadedYears = new HashSet<>();
+
+        /** The years with changed exercises, which have not been stored yet. */
+        private final Map<Integer, DirtyYear> dirtyYears = new HashMap<>();
+
+        private ManifestState(final Map<Integer, PartitionInfo> partitions, final int maxId) {
+            this.partitions = partitions;
+            this.maxId = maxId;
+        }
+
+        private List<Integer> getUnreadYears() {
+            return partitions.keySet().stream()
+                    .filter(year -> !loadedYears.contains(year) && !pendingLoadedYears.contains(year))
+                    .collect(Collectors.toList());
+        }
+
+        private synchronized void markDirty(final int year, final boolean gained) {
+            final DirtyYear dirtyYear = dirtyYears.get(year);
+            dirtyYears.put(year, new DirtyYear(gained || (dirtyYear != null && dirtyYear.gained)));
+        }
+
+        /**
+         * Registers the change listener on the specified exercise list. The partition years of the exercises
+         * can be passed (e.g. when the exercises were read from a partition of another year), otherwise the
+         * exercise years are used.
+         */
+        private void track(final ExerciseList exerciseList, final Map<Integer, Integer> exerciseYears) {
+            synchronized (this) {
+                trackedEntries = createEntryMap(exerciseList);
+                trackedYears = new HashMap<>();
+                exerciseList.forEach(exercise -> trackedYears.put(exercise.getId(), exerciseYears == null ?
+                        exercise.getDateTime().getYear() : exerciseYears.get(exercise.getId())));
+            }
+
+            exerciseList.addListChangeListener(changedObject -> {
+                synchronized (this) {
+                    if (changedObject != null) {
+                        trackChangedEntry((Exercise) changedObject);
+                    } else {
+                        trackChangedList(exerciseList);
+                    }
+                }
+            });
+        }
+
+        private void trackChangedEntry(final Exercise exercise) {
+            final int year = exercise.getDateTime().getYear();
+            final Integer previousYear = trackedYears.put(exercise.getId(), year);
+            trackedEntries.put(exercise.getId(), exercise);
+            markDirty(year, true);
+            if (previousYear != null && previousYear != year) {
+                markDirty(previousYear, false);
+            }
+        }
+
+        /**
+         * Compares the entries of the changed list with the tracked entries, when entries have been removed
+         * or replaced. The lazily read exercises are not changed, they get tracked when they are contained.
+         */
+        private void trackChangedList(final ExerciseList exerciseList) {
+            final Map<Integer, Exercise> currentEntries = createEntryMap(exerciseList);
+            currentEntries.forEach((id, exercise) -> {
+                if (pendingEntries.get(id) == exercise) {
+                    final Integer previousYear = trackedYears.put(id, pendingYears.get(id));
+                    if (previousYear != null && !previousYear.equals(pendingYears.get(id))) {
+                        markDirty(previousYear, false);
+                    }
+                    pendingEntries.remove(id);
+                    pendingYears.remove(id);
+                } else if (trackedEntries.get(id) != exercise) {
+                    trackChangedEntry(exercise);
+                }
+            });
+
+            new ArrayList<>(trackedYears.keySet()).stream()
+                    .filter(id -> !currentEntries.containsKey(id))
+                    .forEach(id -> markDirty(trackedYears.remove(id), false));
+            trackedEntries = currentEntries;
+
+            if (pendingEntries.isEmpty()) {
+                loadedYears.addAll(pendingLoadedYears);
+                pendingLoadedYears.clear();
+            }
+        }
+
+        private static Map<Integer, Exercise> createEntryMap(final ExerciseList exerciseList) {
+            return exerciseList.stream().collect(Collectors.toMap(IdObject::getId, exercise -> exercise));
+        }
+    }
+}
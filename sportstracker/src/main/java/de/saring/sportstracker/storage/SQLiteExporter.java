@@ -3,14 +3,26 @@ package de.saring.sportstracker.storage;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
 import javax.inject.Singleton;
 
@@ -25,20 +37,40 @@ import de.saring.sportstracker.data.Weight;
 import de.saring.sportstracker.gui.STDocument;
 import de.saring.util.Date310Utils;
 import de.saring.util.StringUtils;
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
 import de.saring.util.gui.javafx.ColorUtils;
 
 /**
  * Exporter for the SportsTracker application data to a SQLite database. The exporter uses the plain
- * JDBC API (no ORM) and the xerial/sqlite-jdbc library (contains the native SQLite libraries).
+ * JDBC API (no ORM) and the xerial/sqlite-jdbc library (contains the native SQLite libraries).<br/>
+ * The first export creates the database, all data is inserted in one transaction by using JDBC batches,
+ * the indexes are created afterwards. The database also contains a content hash of each exported row.
+ * So the next exports are incremental, they compare the data with these hashes and write only the inserted,
+ * changed and deleted rows (also in one transaction). The database will be recreated, when it has not been
+ * created by an exporter with row hashes.
  *
  * @author Stefan Saring
  */
 @Singleton
 public class SQLiteExporter {
 
+    private static final Logger LOGGER = Logger.getLogger(SQLiteExporter.class.getName());
+
     private static final String SCHEMA_FILE = "/sql/st-export.sql";
+    private static final String HASHES_FILE = "/sql/st-export-hashes.sql";
+    private static final String INDEXES_FILE = "/sql/st-export-indexes.sql";
     private static final String DATABASE_FILE = System.getProperty("user.home") + "/st-export.sqlite";
 
+    private static final String TABLE_SPORT_TYPE = "SPORT_TYPE";
+    private static final String TABLE_EXERCISE = "EXERCISE";
+    private static final String TABLE_NOTE = "NOTE";
+    private static final String TABLE_WEIGHT = "WEIGHT";
+    private static final String TABLE_ROW_HASH = "EXPORT_ROW_HASH";
+
+    /** Maximum number of rows to be inserted in one JDBC batch. */
+    private static final int BATCH_SIZE = 1000;
+
     private STDocument document;
 
     /**
@@ -60,33 +92,97 @@ public class SQLiteExporter {
     }
 
     /**
-     * Exports the application data to a new SQLite database, an already existing database will be overwritten.
+     * Exports the application data to the SQLite database. An already existing database of a previous export
+     * will be updated incrementally, otherwise a new database will be created. The exercises of all years must
+     * have been loaded before (see ExerciseList.loadAllYears()).
      *
      * @throws STException on export errors
      */
     public void exportToSqlite() throws STException {
+        if (!document.getExerciseList().isLoadedCompletely()) {
+            throw new STException(STExceptionID.SQLITE_EXPORT, "The exercises of all years must be loaded " +
+                    "before exporting, loading the exercises of some years has failed!");
+        }
 
-        deleteExistingDatabase();
+        final boolean incremental = isIncrementalExportPossible();
+        if (!incremental) {
+            deleteExistingDatabase();
+        }
 
         // create database connection
         try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_FILE)) {
 
-            // create database schema
-            final String dbSchema = readDatabaseSchema();
-            final Statement statement = connection.createStatement();
-            statement.setQueryTimeout(10);
-            statement.executeUpdate(dbSchema);
-
-            // export data
-            exportSportTypes(connection);
-            exportExercises(connection);
-            exportNotes(connection);
-            exportWeights(connection);
+            if (!incremental) {
+                try (Statement statement = connection.createStatement()) {
+                    // create database schema
+                    statement.setQueryTimeout(10);
+                    statement.executeUpdate(readSqlFile(SCHEMA_FILE));
+                    statement.executeUpdate(readSqlFile(HASHES_FILE));
+
+                    // the database gets recreated on the first export, so the bulk load doesn't need a
+                    // rollback journal on disk and synchronous writes
+                    statement.execute("PRAGMA journal_mode = MEMORY");
+                    statement.execute("PRAGMA synchronous = OFF");
+                }
+            }
+
+            // export all data in one transaction
+            connection.setAutoCommit(false);
+            try {
+                final Map<String, Map<Integer, Long>> rowHashes =
+                        incremental ? readRowHashes(connection) : new HashMap<>();
+
+                exportSportTypes(connection, rowHashes);
+                exportTable(connection, rowHashes, TABLE_EXERCISE, document.getExerciseList(),
+                        SQLiteExporter::createExerciseRow, SQLiteExporter::createExerciseRow);
+                exportTable(connection, rowHashes, TABLE_NOTE, document.getNoteList(),
+                        SQLiteExporter::createNoteRow, SQLiteExporter::createNoteRow);
+                exportTable(connection, rowHashes, TABLE_WEIGHT, document.getWeightList(),
+                        SQLiteExporter::createWeightRow, SQLiteExporter::createWeightRow);
+
+                if (!incremental) {
+                    // creating the indexes after inserting the data is faster than updating them on each insert
+                    final long startTime = System.currentTimeMillis();
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate(readSqlFile(INDEXES_FILE));
+                    }
+                    LOGGER.info("Created the indexes in " + (System.currentTimeMillis() - startTime) + " ms.");
+                }
+
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new STException(STExceptionID.SQLITE_EXPORT, "Failed to export application data to SQLite!", e);
         }
     }
 
+    /**
+     * Checks whether the database of a previous export exists and contains the row hashes.
+     *
+     * @return true when the database can be updated incrementally
+     */
+    private boolean isIncrementalExportPossible() {
+        if (!Files.exists(Paths.get(DATABASE_FILE))) {
+            return false;
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + DATABASE_FILE);
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM SQLITE_MASTER WHERE TYPE = 'table' AND NAME = ?")) {
+            statement.setString(1, TABLE_ROW_HASH);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        } catch (SQLException e) {
+            LOGGER.warning("Failed to check the existing database '" + DATABASE_FILE + "', it will be recreated: " +
+                    e.getMessage());
+            return false;
+        }
+    }
+
     private void deleteExistingDatabase() throws STException {
         try {
             Files.deleteIfExists(Paths.get(DATABASE_FILE));
@@ -96,10 +192,10 @@ public class SQLiteExporter {
         }
     }
 
-    private String readDatabaseSchema() throws STException {
+    private String readSqlFile(final String sqlFile) throws STException {
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                this.getClass().getResourceAsStream(SCHEMA_FILE)))) {
+                this.getClass().getResourceAsStream(sqlFile)))) {
 
             StringBuffer fileContent = new StringBuffer();
             String line;
@@ -110,127 +206,292 @@ public class SQLiteExporter {
             return fileContent.toString();
         } catch (IOException e) {
             throw new STException(STExceptionID.SQLITE_EXPORT, //
-                    "Failed to read the database schema file '" + SCHEMA_FILE + "'!", e);
+                    "Failed to read the SQL file '" + sqlFile + "'!", e);
         }
     }
 
-    private void exportSportTypes(final Connection connection) throws SQLException {
-
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO SPORT_TYPE (ID, NAME, RECORD_DISTANCE, COLOR, ICON) VALUES (?, ?, ?, ?, ?)");
+    /**
+     * Reads the row hashes of the previous export.
+     *
+     * @return map of the table names and the hashes of all rows of this table (key is the row ID)
+     */
+    private Map<String, Map<Integer, Long>> readRowHashes(final Connection connection) throws SQLException {
+        final Map<String, Map<Integer, Long>> rowHashes = new HashMap<>();
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT TABLE_NAME, ROW_ID, HASH FROM " + TABLE_ROW_HASH)) {
+            while (resultSet.next()) {
+                rowHashes.computeIfAbsent(resultSet.getString(1), tableName -> new HashMap<>())
+                        .put(resultSet.getInt(2), resultSet.getLong(3));
+            }
+        }
+        return rowHashes;
+    }
 
-        for (SportType sportType : document.getSportTypeList()) {
-            statement.clearParameters();
+    private void exportSportTypes(final Connection connection, final Map<String, Map<Integer, Long>> rowHashes)
+            throws SQLException {
+
+        final TableChanges<SportType> changes = exportTable(connection, rowHashes, TABLE_SPORT_TYPE,
+                document.getSportTypeList(), SQLiteExporter::createSportTypeRow,
+                SQLiteExporter::createSportTypeHashValues);
+
+        // the sport subtypes and equipment of changed and deleted sport types will be replaced
+        // (they must be inserted after the sport types because of the references)
+        final long startTime = System.currentTimeMillis();
+        final List<Integer> replacedSportTypeIds = new ArrayList<>(changes.deletedIds);
+        changes.changedEntries.forEach(sportType -> replacedSportTypeIds.add(sportType.getId()));
+
+        final TableBatch deleteSubTypesBatch = new TableBatch(connection,
+                "DELETE FROM SPORT_SUBTYPE WHERE SPORT_TYPE_ID = ?");
+        final TableBatch deleteEquipmentsBatch = new TableBatch(connection,
+                "DELETE FROM EQUIPMENT WHERE SPORT_TYPE_ID = ?");
+        try (deleteSubTypesBatch; deleteEquipmentsBatch) {
+            for (Integer sportTypeId : replacedSportTypeIds) {
+                deleteSubTypesBatch.addRow(List.of(sportTypeId));
+                deleteEquipmentsBatch.addRow(List.of(sportTypeId));
+            }
+        }
 
-            statement.setInt(1, sportType.getId());
-            statement.setString(2, sportType.getName());
-            statement.setInt(3, sportType.isRecordDistance() ? 1 : 0);
-            statement.setString(4, sportType.getColor() == null ? null : ColorUtils.toRGBCode(sportType.getColor()));
-            if (!StringUtils.isNullOrEmpty(sportType.getIcon())) {
-                statement.setString(5, sportType.getIcon());
+        final TableBatch subTypeBatch = new TableBatch(connection, //
+                "INSERT INTO SPORT_SUBTYPE (SPORT_SUBTYPE_ID, SPORT_TYPE_ID, NAME) VALUES (?, ?, ?)");
+        try (subTypeBatch) {
+            for (SportType sportType : changes.changedEntries) {
+                for (SportSubType sportSubType : sportType.getSportSubTypeList()) {
+                    subTypeBatch.addRow(Arrays.asList(sportSubType.getId(), sportType.getId(), sportSubType.getName()));
+                }
             }
-            statement.executeUpdate();
+        }
+        logThroughput("SPORT_SUBTYPE", subTypeBatch.getRowCount(), 0, startTime);
 
-            exportSportSubTypes(connection, sportType);
-            exportEquipments(connection, sportType);
+        final TableBatch equipmentBatch = new TableBatch(connection, //
+                "INSERT INTO EQUIPMENT (EQUIPMENT_ID, SPORT_TYPE_ID, NAME) VALUES (?, ?, ?)");
+        try (equipmentBatch) {
+            for (SportType sportType : changes.changedEntries) {
+                for (Equipment equipment : sportType.getEquipmentList()) {
+                    equipmentBatch.addRow(Arrays.asList(equipment.getId(), sportType.getId(), equipment.getName()));
+                }
+            }
         }
+        logThroughput("EQUIPMENT", equipmentBatch.getRowCount(), 0, startTime);
     }
 
-    private void exportSportSubTypes(final Connection connection, final SportType sportType) throws SQLException {
+    /**
+     * Exports the entries of the specified list to the table. Only the rows with a missing or different row hash
+     * will be inserted or replaced, rows of removed entries will be deleted. The row hashes are updated too.
+     *
+     * @param connection the database connection
+     * @param rowHashes the row hashes of the previous export (empty on the first export)
+     * @param tableName name of the table
+     * @param entries the entries to export
+     * @param rowCreator creates the column values of an entry (in order of the table columns)
+     * @param hashValuesCreator creates all values of an entry to be used for the row hash
+     * @param <T> the entry type
+     * @return the changed entries and the IDs of the deleted rows
+     */
+    private <T extends IdObject> TableChanges<T> exportTable(final Connection connection,
+            final Map<String, Map<Integer, Long>> rowHashes, final String tableName, final IdObjectList<T> entries,
+            final Function<T, List<Object>> rowCreator, final Function<T, List<Object>> hashValuesCreator)
+            throws SQLException {
+
+        final long startTime = System.currentTimeMillis();
+        final Map<Integer, Long> previousHashes = rowHashes.getOrDefault(tableName, Map.of());
+        final TableChanges<T> changes = new TableChanges<>();
+
+        final TableBatch upsertBatch = new TableBatch(connection, createUpsertSql(tableName));
+        final TableBatch deleteBatch = new TableBatch(connection, "DELETE FROM " + tableName + " WHERE ID = ?");
+        final TableBatch upsertHashBatch = new TableBatch(connection, "INSERT OR REPLACE INTO " + TABLE_ROW_HASH +
+                " (TABLE_NAME, ROW_ID, HASH) VALUES (?, ?, ?)");
+        final TableBatch deleteHashBatch = new TableBatch(connection, "DELETE FROM " + TABLE_ROW_HASH +
+                " WHERE TABLE_NAME = ? AND ROW_ID = ?");
+
+        try (upsertBatch; deleteBatch; upsertHashBatch; deleteHashBatch) {
+            for (T entry : entries) {
+                final long hash = computeRowHash(hashValuesCreator.apply(entry));
+                final Long previousHash = previousHashes.get(entry.getId());
+                if (previousHash == null || previousHash != hash) {
+                    upsertBatch.addRow(rowCreator.apply(entry));
+                    upsertHashBatch.addRow(Arrays.asList(tableName, entry.getId(), hash));
+                    changes.changedEntries.add(entry);
+                }
+            }
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO SPORT_SUBTYPE (SPORT_SUBTYPE_ID, SPORT_TYPE_ID, NAME) VALUES (?, ?, ?)");
+            for (Integer previousId : previousHashes.keySet()) {
+                if (entries.getByID(previousId) == null) {
+                    deleteBatch.addRow(List.of(previousId));
+                    deleteHashBatch.addRow(Arrays.asList(tableName, previousId));
+                    changes.deletedIds.add(previousId);
+                }
+            }
+        }
 
-        for (SportSubType sportSubType : sportType.getSportSubTypeList()) {
-            statement.clearParameters();
+        logThroughput(tableName, upsertBatch.getRowCount(), deleteBatch.getRowCount(), startTime);
+        return changes;
+    }
 
-            statement.setInt(1, sportSubType.getId());
-            statement.setInt(2, sportType.getId());
-            statement.setString(3, sportSubType.getName());
-            statement.executeUpdate();
+    private static String createUpsertSql(final String tableName) {
+        final String columns;
+        switch (tableName) {
+            case TABLE_SPORT_TYPE:
+                columns = "ID, NAME, RECORD_DISTANCE, COLOR, ICON";
+                break;
+            case TABLE_EXERCISE:
+                columns = "ID, DATE_TIME, SPORT_TYPE_ID, SPORT_SUBTYPE_ID, INTENSITY, DURATION, DISTANCE, " +
+                        "AVG_SPEED, AVG_HEARTRATE, ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT";
+                break;
+            case TABLE_NOTE:
+                columns = "ID, DATE_TIME, COMMENT";
+                break;
+            case TABLE_WEIGHT:
+                columns = "ID, DATE_TIME, VALUE, COMMENT";
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid table name " + tableName + "!");
         }
-    }
 
-    private void exportEquipments(final Connection connection, final SportType sportType) throws SQLException {
+        final StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ").append(tableName)
+                .append(" (").append(columns).append(") VALUES (");
+        final int columnCount = columns.split(",").length;
+        for (int i = 0; i < columnCount; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(")").toString();
+    }
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO EQUIPMENT (EQUIPMENT_ID, SPORT_TYPE_ID, NAME) VALUES (?, ?, ?)");
+    private static List<Object> createSportTypeRow(final SportType sportType) {
+        return Arrays.asList(
+                sportType.getId(),
+                sportType.getName(),
+                sportType.isRecordDistance() ? 1 : 0,
+                sportType.getColor() == null ? null : ColorUtils.toRGBCode(sportType.getColor()),
+                StringUtils.isNullOrEmpty(sportType.getIcon()) ? null : sportType.getIcon());
+    }
 
-        for (Equipment equipment : sportType.getEquipmentList()) {
-            statement.clearParameters();
+    /**
+     * Creates the values for the row hash of the sport type, it includes the sport subtypes and equipment.
+     */
+    private static List<Object> createSportTypeHashValues(final SportType sportType) {
+        final List<Object> values = new ArrayList<>(createSportTypeRow(sportType));
+        values.add("SUBTYPES");
+        sportType.getSportSubTypeList().forEach(subType -> values.addAll(List.of(subType.getId(), subType.getName())));
+        values.add("EQUIPMENT");
+        sportType.getEquipmentList().forEach(equipment -> values.addAll(List.of(equipment.getId(), equipment.getName())));
+        return values;
+    }
 
-            statement.setInt(1, equipment.getId());
-            statement.setInt(2, sportType.getId());
-            statement.setString(3, equipment.getName());
-            statement.executeUpdate();
-        }
+    private static List<Object> createExerciseRow(final Exercise exercise) {
+        return Arrays.asList(
+                exercise.getId(),
+                Date310Utils.localDateTimeToUnixTime(exercise.getDateTime()),
+                exercise.getSportType().getId(),
+                exercise.getSportSubType().getId(),
+                String.valueOf(exercise.getIntensity()),
+                exercise.getDuration(),
+                exercise.getDistance(),
+                exercise.getAvgSpeed(),
+                exercise.getAvgHeartRate(),
+                exercise.getAscent(),
+                exercise.getDescent(),
+                exercise.getCalories(),
+                StringUtils.isNullOrEmpty(exercise.getHrmFile()) ? null : exercise.getHrmFile(),
+                exercise.getEquipment() == null ? null : exercise.getEquipment().getId(),
+                StringUtils.isNullOrEmpty(exercise.getComment()) ? null : exercise.getComment());
     }
 
-    private void exportExercises(final Connection connection) throws SQLException {
+    private static List<Object> createNoteRow(final Note note) {
+        return Arrays.asList(
+                note.getId(),
+                Date310Utils.localDateTimeToUnixTime(note.getDateTime()),
+                note.getComment());
+    }
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO EXERCISE (ID, DATE_TIME, SPORT_TYPE_ID, SPORT_SUBTYPE_ID, INTENSITY, DURATION, DISTANCE, " +
-                        "AVG_SPEED, AVG_HEARTRATE, ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    private static List<Object> createWeightRow(final Weight weight) {
+        return Arrays.asList(
+                weight.getId(),
+                Date310Utils.localDateTimeToUnixTime(weight.getDateTime()),
+                weight.getValue(),
+                StringUtils.isNullOrEmpty(weight.getComment()) ? null : weight.getComment());
+    }
 
-        for (Exercise exercise : document.getExerciseList()) {
-            statement.clearParameters();
+    /**
+     * Computes the content hash of a row, it's the first 64 bit of the SHA-256 digest of all values.
+     */
+    private static long computeRowHash(final List<Object> values) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported!", e);
+        }
 
-            statement.setInt(1, exercise.getId());
-            statement.setLong(2, Date310Utils.localDateTimeToUnixTime(exercise.getDateTime()));
-            statement.setInt(3, exercise.getSportType().getId());
-            statement.setInt(4, exercise.getSportSubType().getId());
-            statement.setString(5, String.valueOf(exercise.getIntensity()));
-            statement.setInt(6, exercise.getDuration());
-            statement.setFloat(7, exercise.getDistance());
-            statement.setFloat(8, exercise.getAvgSpeed());
-            statement.setInt(9, exercise.getAvgHeartRate());
-            statement.setInt(10, exercise.getAscent());
-            statement.setInt(11, exercise.getDescent());
-            statement.setInt(12, exercise.getCalories());
-            if (!StringUtils.isNullOrEmpty(exercise.getHrmFile())) {
-                statement.setString(13, exercise.getHrmFile());
-            }
-            if (exercise.getEquipment() != null) {
-                statement.setInt(14, exercise.getEquipment().getId());
-            }
-            if (!StringUtils.isNullOrEmpty(exercise.getComment())) {
-                statement.setString(15, exercise.getComment());
-            }
-            statement.executeUpdate();
+        for (Object value : values) {
+            // the separator byte distinguishes null values from the string "null"
+            digest.update((byte) (value == null ? 0 : 1));
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
         }
+        return ByteBuffer.wrap(digest.digest()).getLong();
     }
 
-    private void exportNotes(final Connection connection) throws SQLException {
+    private static void logThroughput(final String tableName, final int rowCount, final int deletedRowCount,
+            final long startTime) {
+        final long duration = Math.max(1, System.currentTimeMillis() - startTime);
+        LOGGER.info("Exported " + rowCount + " rows (" + deletedRowCount + " deleted) to table " + tableName +
+                " in " + duration + " ms (" + (rowCount * 1000L / duration) + " rows/s).");
+    }
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO NOTE (ID, DATE_TIME, COMMENT) VALUES (?, ?, ?)");
+    /**
+     * The changes of a table in an export.
+     *
+     * @param <T> the entry type
+     */
+    private static final class TableChanges<T> {
 
-        for (Note note : document.getNoteList()) {
-            statement.clearParameters();
+        /** The inserted or updated entries. */
+        private final List<T> changedEntries = new ArrayList<>();
 
-            statement.setInt(1, note.getId());
-            statement.setLong(2, Date310Utils.localDateTimeToUnixTime(note.getDateTime()));
-            statement.setString(3, note.getComment());
-            statement.executeUpdate();
-        }
+        /** The IDs of the deleted rows. */
+        private final List<Integer> deletedIds = new ArrayList<>();
     }
 
-    private void exportWeights(final Connection connection) throws SQLException {
+    /**
+     * Batch of statements for a database table. The prepared statement is created once, the rows are
+     * executed in JDBC batches of BATCH_SIZE rows. The remaining rows are executed when the batch gets closed.
+     */
+    private static final class TableBatch implements AutoCloseable {
+
+        private final PreparedStatement statement;
+        private int rowCount;
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO WEIGHT (ID, DATE_TIME, VALUE, COMMENT) VALUES (?, ?, ?, ?)");
+        private TableBatch(final Connection connection, final String sql) throws SQLException {
+            this.statement = connection.prepareStatement(sql);
+        }
+
+        /**
+         * Adds the row with the specified parameter values to the batch. All parameters must be set for each
+         * row (null values for NULL columns), clearParameters() can't be used, it also clears the batch.
+         */
+        private void addRow(final List<Object> values) throws SQLException {
+            for (int i = 0; i < values.size(); i++) {
+                statement.setObject(i + 1, values.get(i));
+            }
+            statement.addBatch();
+            rowCount++;
 
-        for (Weight weight : document.getWeightList()) {
-            statement.clearParameters();
+            if (rowCount % BATCH_SIZE == 0) {
+                statement.executeBatch();
+            }
+        }
+
+        private int getRowCount() {
+            return rowCount;
+        }
 
-            statement.setInt(1, weight.getId());
-            statement.setLong(2, Date310Utils.localDateTimeToUnixTime(weight.getDateTime()));
-            statement.setFloat(3, weight.getValue());
-            if (!StringUtils.isNullOrEmpty(weight.getComment())) {
-                statement.setString(4, weight.getComment());
+        @Override
+        public void close() throws SQLException {
+            try {
+                statement.executeBatch();
+            } finally {
+                statement.close();
             }
-            statement.executeUpdate();
         }
     }
 }
@@ -0,0 +1,633 @@
+package de.saring.sportstracker.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.inject.Singleton;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.data.Equipment;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportSubType;
+import de.saring.sportstracker.data.SportType;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.util.Date310Utils;
+import de.saring.util.StringUtils;
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
+import de.saring.util.gui.javafx.ColorUtils;
+import javafx.scene.paint.Color;
+
+/**
+ * This storage implementation uses a SQLite database for the application data, the schema is the same as
+ * for the SQLite export (see SQLiteExporter). All lists are stored in the same database, the source and
+ * destination names are the database filename.<br/>
+ * The storage remembers the persisted state of each list. When storing a list, only the added, changed and
+ * removed entries are written (all in one transaction), so storing depends on the number of changed entries.
+ * The first store of a list, which has not been read from this database before, replaces the whole table
+ * content.<br/>
+ * Foreign keys are not enforced by the storage connections, the references are validated when reading the
+ * exercises.
+ *
+ * @author Stefan Saring
+ */
+@Singleton
+public class SQLiteStorage implements IStorage {
+
+    /** Suffix of the SQLite database filenames. */
+    public static final String DATABASE_SUFFIX = ".sqlite";
+
+    private static final String SCHEMA_FILE = "/sql/st-export.sql";
+
+    private static final String TABLE_SPORT_TYPE = "SPORT_TYPE";
+    private static final String TABLE_EXERCISE = "EXERCISE";
+    private static final String TABLE_NOTE = "NOTE";
+    private static final String TABLE_WEIGHT = "WEIGHT";
+
+    private static final String UPSERT_EXERCISE = "INSERT OR REPLACE INTO EXERCISE (ID, DATE_TIME, " +
+            "SPORT_TYPE_ID, SPORT_SUBTYPE_ID, INTENSITY, DURATION, DISTANCE, AVG_SPEED, AVG_HEARTRATE, " +
+            "ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_NOTE = "INSERT OR REPLACE INTO NOTE (ID, DATE_TIME, COMMENT) VALUES (?, ?, ?)";
+    private static final String UPSERT_WEIGHT =
+            "INSERT OR REPLACE INTO WEIGHT (ID, DATE_TIME, VALUE, COMMENT) VALUES (?, ?, ?, ?)";
+
+    /**
+     * The persisted row values of all entries (map key is the entry ID) of each read or stored table,
+     * the map key is the normalized database path and the table name.
+     */
+    private final Map<String, Map<Integer, List<Object>>> persistedRows = new ConcurrentHashMap<>();
+
+    @Override
+    public SportTypeList readSportTypeList(String source) throws STException {
+        final SportTypeList sportTypeList = new SportTypeList();
+        if (!Files.exists(Paths.get(source))) {
+            return sportTypeList;
+        }
+
+        try (Connection connection = openConnection(source);
+             Statement stSportTypes = connection.createStatement();
+             PreparedStatement stSubTypes = connection.prepareStatement(
+                     "SELECT SPORT_SUBTYPE_ID, NAME FROM SPORT_SUBTYPE WHERE SPORT_TYPE_ID = ? ORDER BY ID");
+             PreparedStatement stEquipments = connection.prepareStatement(
+                     "SELECT EQUIPMENT_ID, NAME FROM EQUIPMENT WHERE SPORT_TYPE_ID = ? ORDER BY ID")) {
+
+            final List<SportType> sportTypes = new ArrayList<>();
+            try (ResultSet rsSportTypes = stSportTypes.executeQuery(
+                    "SELECT ID, NAME, RECORD_DISTANCE, COLOR, ICON FROM SPORT_TYPE ORDER BY ID")) {
+                while (rsSportTypes.next()) {
+                    final SportType sportType = new SportType(rsSportTypes.getInt("ID"));
+                    sportType.setName(rsSportTypes.getString("NAME"));
+                    sportType.setRecordDistance(rsSportTypes.getInt("RECORD_DISTANCE") != 0);
+                    sportType.setColor(Color.web(rsSportTypes.getString("COLOR")));
+                    sportType.setIcon(rsSportTypes.getString("ICON"));
+                    sportTypes.add(sportType);
+                }
+            }
+
+            for (SportType sportType : sportTypes) {
+                stSubTypes.setInt(1, sportType.getId());
+                try (ResultSet rsSubTypes = stSubTypes.executeQuery()) {
+                    while (rsSubTypes.next()) {
+                        final SportSubType sportSubType = new SportSubType(rsSubTypes.getInt("SPORT_SUBTYPE_ID"));
+                        sportSubType.setName(rsSubTypes.getString("NAME"));
+                        sportType.getSportSubTypeList().set(sportSubType);
+                    }
+                }
+
+                stEquipments.setInt(1, sportType.getId());
+                try (ResultSet rsEquipments = stEquipments.executeQuery()) {
+                    while (rsEquipments.next()) {
+                        final Equipment equipment = new Equipment(rsEquipments.getInt("EQUIPMENT_ID"));
+                        equipment.setName(rsEquipments.getString("NAME"));
+                        sportType.getEquipmentList().set(equipment);
+                    }
+                }
+            }
+
+            sportTypeList.clearAndAddAll(sportTypes);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.SQLITESTORAGE_READ,
+                    "Failed to read sport type list from SQLite database '" + source + "' ...", e);
+        }
+
+        persistedRows.put(getTableKey(source, TABLE_SPORT_TYPE),
+                createRows(sportTypeList, SQLiteStorage::createSportTypeRow));
+        return sportTypeList;
+    }
+
+    @Override
+    public void storeSportTypeList(SportTypeList sportTypeList, String destination) throws STException {
+        storeList(sportTypeList, destination, TABLE_SPORT_TYPE, SQLiteStorage::createSportTypeRow,
+                SportTypeEntryWriter::new);
+    }
+
+    @Override
+    public ExerciseList readExerciseList(String source, SportTypeList sportTypeList) throws STException {
+        final ExerciseList exerciseList = new ExerciseList();
+        if (!Files.exists(Paths.get(source))) {
+            return exerciseList;
+        }
+
+        try (Connection connection = openConnection(source);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM EXERCISE ORDER BY ID")) {
+
+            final List<Exercise> exercises = new ArrayList<>();
+            while (resultSet.next()) {
+                exercises.add(readExercise(resultSet, sportTypeList));
+            }
+            exerciseList.clearAndAddAll(exercises);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.SQLITESTORAGE_READ,
+                    "Failed to read exercise list from SQLite database '" + source + "' ...", e);
+        }
+
+        persistedRows.put(getTableKey(source, TABLE_EXERCISE),
+                createRows(exerciseList, SQLiteStorage::createExerciseRow));
+        return exerciseList;
+    }
+
+    @Override
+    public void storeExerciseList(ExerciseList exerciseList, String destination) throws STException {
+        storeList(exerciseList, destination, TABLE_EXERCISE, SQLiteStorage::createExerciseRow,
+                connection -> new TableEntryWriter<>(connection, TABLE_EXERCISE, UPSERT_EXERCISE));
+    }
+
+    @Override
+    public NoteList readNoteList(String source) throws STException {
+        final NoteList noteList = new NoteList();
+        if (!Files.exists(Paths.get(source))) {
+            return noteList;
+        }
+
+        try (Connection connection = openConnection(source);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT ID, DATE_TIME, COMMENT FROM NOTE ORDER BY ID")) {
+
+            final List<Note> notes = new ArrayList<>();
+            while (resultSet.next()) {
+                final Note note = new Note(resultSet.getInt("ID"));
+                note.setDateTime(unixTimeToLocalDateTime(resultSet.getLong("DATE_TIME")));
+                note.setComment(resultSet.getString("COMMENT"));
+                notes.add(note);
+            }
+            noteList.clearAndAddAll(notes);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.SQLITESTORAGE_READ,
+                    "Failed to read note list from SQLite database '" + source + "' ...", e);
+        }
+
+        persistedRows.put(getTableKey(source, TABLE_NOTE), createRows(noteList, SQLiteStorage::createNoteRow));
+        return noteList;
+    }
+
+    @Override
+    public void storeNoteList(NoteList noteList, String destination) throws STException {
+        storeList(noteList, destination, TABLE_NOTE, SQLiteStorage::createNoteRow,
+                connection -> new TableEntryWriter<>(connection, TABLE_NOTE, UPSERT_NOTE));
+    }
+
+    @Override
+    public WeightList readWeightList(String source) throws STException {
+        final WeightList weightList = new WeightList();
+        if (!Files.exists(Paths.get(source))) {
+            return weightList;
+        }
+
+        try (Connection connection = openConnection(source);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT ID, DATE_TIME, VALUE, COMMENT FROM WEIGHT ORDER BY ID")) {
+
+            final List<Weight> weights = new ArrayList<>();
+            while (resultSet.next()) {
+                final Weight weight = new Weight(resultSet.getInt("ID"));
+                weight.setDateTime(unixTimeToLocalDateTime(resultSet.getLong("DATE_TIME")));
+                weight.setValue(resultSet.getFloat("VALUE"));
+                weight.setComment(resultSet.getString("COMMENT"));
+                weights.add(weight);
+            }
+            weightList.clearAndAddAll(weights);
+        } catch (Exception e) {
+            throw new STException(STExceptionID.SQLITESTORAGE_READ,
+                    "Failed to read weight list from SQLite database '" + source + "' ...", e);
+        }
+
+        persistedRows.put(getTableKey(source, TABLE_WEIGHT), createRows(weightList, SQLiteStorage::createWeightRow));
+        return weightList;
+    }
+
+    @Override
+    public void storeWeightList(WeightList weightList, String destination) throws STException {
+        storeList(weightList, destination, TABLE_WEIGHT, SQLiteStorage::createWeightRow,
+                connection -> new TableEntryWriter<>(connection, TABLE_WEIGHT, UPSERT_WEIGHT));
+    }
+
+    @Override
+    public void attachSportTypeList(SportTypeList sportTypeList, String source) {
+        persistedRows.put(getTableKey(source, TABLE_SPORT_TYPE),
+                createRows(sportTypeList, SQLiteStorage::createSportTypeRow));
+    }
+
+    @Override
+    public void attachExerciseList(ExerciseList exerciseList, String source) {
+        persistedRows.put(getTableKey(source, TABLE_EXERCISE),
+                createRows(exerciseList, SQLiteStorage::createExerciseRow));
+    }
+
+    @Override
+    public void attachNoteList(NoteList noteList, String source) {
+        persistedRows.put(getTableKey(source, TABLE_NOTE), createRows(noteList, SQLiteStorage::createNoteRow));
+    }
+
+    @Override
+    public void attachWeightList(WeightList weightList, String source) {
+        persistedRows.put(getTableKey(source, TABLE_WEIGHT), createRows(weightList, SQLiteStorage::createWeightRow));
+    }
+
+    /**
+     * Stores the specified list in the database table in one transaction. When the persisted state of the
+     * table is known, then only the added, changed and removed entries are written. Otherwise the whole
+     * table content will be replaced.
+     */
+    private <T extends IdObject> void storeList(final IdObjectList<T> list, final String destination,
+            final String tableName, final Function<T, List<Object>> rowCreator,
+            final EntryWriterFactory<T> writerFactory) throws STException {
+
+        final String tableKey = getTableKey(destination, tableName);
+        final Map<Integer, List<Object>> previousRows = persistedRows.get(tableKey);
+        final Map<Integer, List<Object>> currentRows = createRows(list, rowCreator);
+
+        try {
+            createDatabaseIfMissing(destination);
+
+            try (Connection connection = openConnection(destination)) {
+                connection.setAutoCommit(false);
+
+                try (EntryWriter<T> writer = writerFactory.create(connection)) {
+                    if (previousRows == null) {
+                        writer.deleteAll();
+                    }
+
+                    for (T entry : list) {
+                        final List<Object> row = currentRows.get(entry.getId());
+                        if (previousRows == null || !row.equals(previousRows.get(entry.getId()))) {
+                            writer.write(entry, row);
+                        }
+                    }
+
+                    if (previousRows != null) {
+                        for (Integer previousId : previousRows.keySet()) {
+                            if (!currentRows.containsKey(previousId)) {
+                                writer.delete(previousId);
+                            }
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        } catch (Exception e) {
+            throw new STException(STExceptionID.SQLITESTORAGE_STORE,
+                    "Failed to store the " + tableName + " entries in SQLite database '" + destination + "' ...", e);
+        }
+
+        persistedRows.put(tableKey, currentRows);
+    }
+
+    private void createDatabaseIfMissing(final String database) throws SQLException, IOException {
+        if (Files.exists(Paths.get(database))) {
+            return;
+        }
+
+        try (Connection connection = openConnection(database);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(readDatabaseSchema());
+        }
+    }
+
+    private String readDatabaseSchema() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                this.getClass().getResourceAsStream(SCHEMA_FILE), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    private static Connection openConnection(final String database) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + database);
+    }
+
+    private static String getTableKey(final String database, final String tableName) {
+        return Paths.get(database).toAbsolutePath().normalize() + "#" + tableName;
+    }
+
+    private static <T extends IdObject> Map<Integer, List<Object>> createRows(final IdObjectList<T> list,
+            final Function<T, List<Object>> rowCreator) {
+        final Map<Integer, List<Object>> rows = new LinkedHashMap<>();
+        list.forEach(entry -> rows.put(entry.getId(), rowCreator.apply(entry)));
+        return rows;
+    }
+
+    /**
+     * Creates the row of the sport type, the first 5 values are the SPORT_TYPE table columns, followed
+     * by the ID and name of all sport subtypes and equipment (needed for detecting changes).
+     */
+    private static List<Object> createSportTypeRow(final SportType sportType) {
+        final List<Object> row = new ArrayList<>(Arrays.asList(
+                sportType.getId(),
+                sportType.getName(),
+                sportType.isRecordDistance() ? 1 : 0,
+                toColorCode(sportType.getColor()),
+                StringUtils.isNullOrEmpty(sportType.getIcon()) ? null : sportType.getIcon()));
+
+        row.add("SUBTYPES");
+        sportType.getSportSubTypeList().forEach(subType -> row.addAll(List.of(subType.getId(), subType.getName())));
+        row.add("EQUIPMENT");
+        sportType.getEquipmentList().forEach(equipment -> row.addAll(List.of(equipment.getId(), equipment.getName())));
+        return row;
+    }
+
+    private static List<Object> createExerciseRow(final Exercise exercise) {
+        return Arrays.asList(
+                exercise.getId(),
+                Date310Utils.localDateTimeToUnixTime(exercise.getDateTime()),
+                exercise.getSportType().getId(),
+                exercise.getSportSubType().getId(),
+                String.valueOf(exercise.getIntensity()),
+                exercise.getDuration(),
+                exercise.getDistance(),
+                exercise.getAvgSpeed(),
+                exercise.getAvgHeartRate(),
+                exercise.getAscent(),
+                exercise.getDescent(),
+                exercise.getCalories(),
+                exercise.getHrmFile(),
+                exercise.getEquipment() == null ? null : exercise.getEquipment().getId(),
+                exercise.getComment());
+    }
+
+    private static List<Object> createNoteRow(final Note note) {
+        return Arrays.asList(
+                note.getId(),
+                Date310Utils.localDateTimeToUnixTime(note.getDateTime()),
+                note.getComment());
+    }
+
+    private static List<Object> createWeightRow(final Weight weight) {
+        return Arrays.asList(
+                weight.getId(),
+                Date310Utils.localDateTimeToUnixTime(weight.getDateTime()),
+                weight.getValue(),
+                weight.getComment());
+    }
+
+    private static Exercise readExercise(final ResultSet resultSet, final SportTypeList sportTypeList)
+            throws SQLException {
+
+        final Exercise exercise = new Exercise(resultSet.getInt("ID"));
+        exercise.setDateTime(unixTimeToLocalDateTime(resultSet.getLong("DATE_TIME")));
+
+        final int sportTypeId = resultSet.getInt("SPORT_TYPE_ID");
+        final SportType sportType = sportTypeList.getByID(sportTypeId);
+        if (sportType == null) {
+            throw new IllegalArgumentException("Failed to read exercise with ID '" + exercise.getId() +
+                    "', the sport type ID '" + sportTypeId + "' is unknown!");
+        }
+        exercise.setSportType(sportType);
+
+        final int sportSubTypeId = resultSet.getInt("SPORT_SUBTYPE_ID");
+        final SportSubType sportSubType = sportType.getSportSubTypeList().getByID(sportSubTypeId);
+        if (sportSubType == null) {
+            throw new IllegalArgumentException("Failed to read exercise with ID '" + exercise.getId() +
+                    "', the sport subtype ID '" + sportSubTypeId + "' is unknown!");
+        }
+        exercise.setSportSubType(sportSubType);
+
+        exercise.setIntensity(Exercise.IntensityType.valueOf(resultSet.getString("INTENSITY")));
+        exercise.setDuration(resultSet.getInt("DURATION"));
+        exercise.setDistance(resultSet.getFloat("DISTANCE"));
+        exercise.setAvgSpeed(resultSet.getFloat("AVG_SPEED"));
+        exercise.setAvgHeartRate(resultSet.getInt("AVG_HEARTRATE"));
+        exercise.setAscent(resultSet.getInt("ASCENT"));
+        exercise.setDescent(resultSet.getInt("DESCENT"));
+        exercise.setCalories(resultSet.getInt("CALORIES"));
+        exercise.setHrmFile(resultSet.getString("HRM_FILE"));
+        exercise.setComment(resultSet.getString("COMMENT"));
+
+        final int equipmentId = resultSet.getInt("EQUIPMENT_ID");
+        if (!resultSet.wasNull()) {
+            final Equipment equipment = sportType.getEquipmentList().getByID(equipmentId);
+            if (equipment == null) {
+                throw new IllegalArgumentException("Failed to read exercise with ID '" + exercise.getId() +
+                        "', the equipment ID '" + equipmentId + "' is unknown!");
+            }
+            exercise.setEquipment(equipment);
+        }
+        return exercise;
+    }
+
+    private static LocalDateTime unixTimeToLocalDateTime(final long unixTime) {
+        return LocalDateTime.ofEpochSecond(unixTime, 0, ZoneOffset.UTC);
+    }
+
+    private static String toColorCode(final Color color) {
+        // the AWT conversion rounds the color components, so the code is lossless for 8 bit components
+        final java.awt.Color awtColor = ColorUtils.toAwtColor(color);
+        return String.format("#%02X%02X%02X", awtColor.getRed(), awtColor.getGreen(), awtColor.getBlue());
+    }
+
+    private static void bindValues(final PreparedStatement statement, final List<Object> values)
+            throws SQLException {
+        statement.clearParameters();
+        for (int i = 0; i < values.size(); i++) {
+            statement.setObject(i + 1, values.get(i));
+        }
+    }
+
+    private static void deleteRow(final Connection connection, final String tableName, final int id)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + tableName + " WHERE ID = ?")) {
+            statement.setInt(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void deleteSportTypeChildren(final Connection connection, final int sportTypeId)
+            throws SQLException {
+        try (PreparedStatement stSubTypes = connection.prepareStatement(
+                "DELETE FROM SPORT_SUBTYPE WHERE SPORT_TYPE_ID = ?");
+             PreparedStatement stEquipments = connection.prepareStatement(
+                     "DELETE FROM EQUIPMENT WHERE SPORT_TYPE_ID = ?")) {
+            stSubTypes.setInt(1, sportTypeId);
+            stSubTypes.executeUpdate();
+            stEquipments.setInt(1, sportTypeId);
+            stEquipments.executeUpdate();
+        }
+    }
+
+    /**
+     * Writer of the list entries to the database tables, it's used inside a transaction.
+     *
+     * @param <T> the entry type
+     */
+    private interface EntryWriter<T> extends AutoCloseable {
+
+        void write(T entry, List<Object> row) throws SQLException;
+
+        void delete(int id) throws SQLException;
+
+        void deleteAll() throws SQLException;
+
+        @Override
+        void close() throws SQLException;
+    }
+
+    /**
+     * Factory for creating an EntryWriter for the specified connection.
+     *
+     * @param <T> the entry type
+     */
+    @FunctionalInterface
+    private interface EntryWriterFactory<T> {
+
+        EntryWriter<T> create(Connection connection) throws SQLException;
+    }
+
+    /**
+     * EntryWriter for tables, where each entry is stored in a single row with the entry ID as primary key.
+     *
+     * @param <T> the entry type
+     */
+    private static final class TableEntryWriter<T extends IdObject> implements EntryWriter<T> {
+
+        private final Connection connection;
+        private final String tableName;
+        private final PreparedStatement stUpsert;
+        private final PreparedStatement stDelete;
+
+        private TableEntryWriter(final Connection connection, final String tableName, final String upsertSql)
+                throws SQLException {
+            this.connection = connection;
+            this.tableName = tableName;
+            this.stUpsert = connection.prepareStatement(upsertSql);
+            this.stDelete = connection.prepareStatement("DELETE FROM " + tableName + " WHERE ID = ?");
+        }
+
+        @Override
+        public void write(final T entry, final List<Object> row) throws SQLException {
+            bindValues(stUpsert, row);
+            stUpsert.executeUpdate();
+        }
+
+        @Override
+        public void delete(final int id) throws SQLException {
+            stDelete.setInt(1, id);
+            stDelete.executeUpdate();
+        }
+
+        @Override
+        public void deleteAll() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM " + tableName);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            stUpsert.close();
+            stDelete.close();
+        }
+    }
+
+    /**
+     * EntryWriter for the sport types, the sport subtypes and equipment of a sport type are replaced on each write.
+     */
+    private static final class SportTypeEntryWriter implements EntryWriter<SportType> {
+
+        private final Connection connection;
+        private final PreparedStatement stSportType;
+        private final PreparedStatement stSubType;
+        private final PreparedStatement stEquipment;
+
+        private SportTypeEntryWriter(final Connection connection) throws SQLException {
+            this.connection = connection;
+            this.stSportType = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO SPORT_TYPE (ID, NAME, RECORD_DISTANCE, COLOR, ICON) VALUES (?, ?, ?, ?, ?)");
+            this.stSubType = connection.prepareStatement(
+                    "INSERT INTO SPORT_SUBTYPE (SPORT_SUBTYPE_ID, SPORT_TYPE_ID, NAME) VALUES (?, ?, ?)");
+            this.stEquipment = connection.prepareStatement(
+                    "INSERT INTO EQUIPMENT (EQUIPMENT_ID, SPORT_TYPE_ID, NAME) VALUES (?, ?, ?)");
+        }
+
+        @Override
+        public void write(final SportType sportType, final List<Object> row) throws SQLException {
+            // the sport subtypes and equipment are part of the sport type row, they get replaced
+            deleteSportTypeChildren(connection, sportType.getId());
+            bindValues(stSportType, row.subList(0, 5));
+            stSportType.executeUpdate();
+
+            for (SportSubType sportSubType : sportType.getSportSubTypeList()) {
+                bindValues(stSubType, Arrays.asList(
+                        sportSubType.getId(), sportType.getId(), sportSubType.getName()));
+                stSubType.executeUpdate();
+            }
+            for (Equipment equipment : sportType.getEquipmentList()) {
+                bindValues(stEquipment, Arrays.asList(
+                        equipment.getId(), sportType.getId(), equipment.getName()));
+                stEquipment.executeUpdate();
+            }
+        }
+
+        @Override
+        public void delete(final int id) throws SQLException {
+            deleteSportTypeChildren(connection, id);
+            deleteRow(connection, TABLE_SPORT_TYPE, id);
+        }
+
+        @Override
+        public void deleteAll() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM SPORT_SUBTYPE");
+                statement.executeUpdate("DELETE FROM EQUIPMENT");
+                statement.executeUpdate("DELETE FROM SPORT_TYPE");
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            stSportType.close();
+            stSubType.close();
+            stEquipment.close();
+        }
+    }
+}
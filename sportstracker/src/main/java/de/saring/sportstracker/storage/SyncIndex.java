@@ -0,0 +1,279 @@
+package de.saring.sportstracker.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import de.saring.util.SafeFileUtils;
+
+/**
+ * The synchronization index of a data directory. It contains the unique ID of the directory and for
+ * each directory it has been synchronized with (peer) the entry hashes of all synchronized lists
+ * after the last synchronization. These hashes are the common base for the three-way merge of the
+ * next synchronization, so deleted entries can be distinguished from added entries.<br/>
+ * The index contains also the state of the lists of its own directory after the last synchronization:
+ * the hash, year and modification stamp of each entry and the hash of the list file. So the entries of
+ * an unchanged list file don't need to be hashed again and the modification stamps of the entries can
+ * be used for resolving conflicts.<br/>
+ * The index is stored in a small binary file, it's written by using {@link SafeFileUtils}.
+ *
+ * @author Stefan Saring
+ */
+final class SyncIndex {
+
+    /** Name of the index file in the data directory. */
+    static final String FILENAME = "st-sync.index";
+
+    private static final int MAGIC = 0x53545359;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_LIST_STATES = 1;
+
+    private final String directoryId;
+
+    /** The entry hashes of each list (map key is the list name) of each peer (map key is the peer ID). */
+    private final Map<String, Map<String, Map<Integer, Long>>> peerBases;
+
+    /** The state of each list of the own directory (map key is the list name). */
+    private final Map<String, ListState> listStates;
+
+    private SyncIndex(final String directoryId, final Map<String, Map<String, Map<Integer, Long>>> peerBases,
+            final Map<String, ListState> listStates) {
+        this.directoryId = directoryId;
+        this.peerBases = peerBases;
+        this.listStates = listStates;
+    }
+
+    /**
+     * Reads the index of the specified data directory. A new index with a new directory ID will be
+     * returned, when the directory contains no index yet.
+     *
+     * @param directory the data directory
+     * @return the read or created index
+     * @throws IOException on read problems
+     */
+    static SyncIndex read(final Path directory) throws IOException {
+        final Path file = directory.resolve(FILENAME);
+        if (!Files.exists(file) && !Files.exists(SafeFileUtils.getBackupFile(file))) {
+            return new SyncIndex(UUID.randomUUID().toString(), new HashMap<>(), new HashMap<>());
+        }
+        return SafeFileUtils.readFile(file, SyncIndex::readContent);
+    }
+
+    private static SyncIndex readContent(final Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final int magic = in.readInt();
+            final int version = in.readInt();
+            if (magic != MAGIC || (version != VERSION && version != VERSION_WITHOUT_LIST_STATES)) {
+                throw new IOException("The file '" + file + "' is not a supported synchronization index!");
+            }
+
+            final String directoryId = in.readUTF();
+            final Map<String, Map<String, Map<Integer, Long>>> peerBases = new HashMap<>();
+            final int peerCount = in.readInt();
+            for (int i = 0; i < peerCount; i++) {
+                final String peerId = in.readUTF();
+                final Map<String, Map<Integer, Long>> lists = new HashMap<>();
+                final int listCount = in.readInt();
+                for (int j = 0; j < listCount; j++) {
+                    final String listName = in.readUTF();
+                    final Map<Integer, Long> hashes = new TreeMap<>();
+                    final int entryCount = in.readInt();
+                    for (int k = 0; k < entryCount; k++) {
+                        hashes.put(in.readInt(), in.readLong());
+                    }
+                    lists.put(listName, hashes);
+                }
+                peerBases.put(peerId, lists);
+            }
+
+            final Map<String, ListState> listStates = new HashMap<>();
+            if (version != VERSION_WITHOUT_LIST_STATES) {
+                final int listCount = in.readInt();
+                for (int i = 0; i < listCount; i++) {
+                    final String listName = in.readUTF();
+                    final boolean fileHashKnown = in.readBoolean();
+                    final long fileHash = in.readLong();
+                    final Map<Integer, EntryState> entryStates = new TreeMap<>();
+                    final int entryCount = in.readInt();
+                    for (int j = 0; j < entryCount; j++) {
+                        entryStates.put(in.readInt(), new EntryState(in.readLong(), in.readInt(), in.readLong()));
+                    }
+                    listStates.put(listName, new ListState(entryStates, fileHashKnown ? fileHash : null));
+                }
+            }
+            return new SyncIndex(directoryId, peerBases, listStates);
+        }
+    }
+
+    /**
+     * Writes the index to the specified data directory.
+     *
+     * @param directory the data directory
+     * @throws IOException on write problems
+     */
+    void write(final Path directory) throws IOException {
+        SafeFileUtils.writeFile(directory.resolve(FILENAME), outputStream -> {
+            final DataOutputStream out = new DataOutputStream(outputStream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(directoryId);
+            out.writeInt(peerBases.size());
+            for (Map.Entry<String, Map<String, Map<Integer, Long>>> peer : peerBases.entrySet()) {
+                out.writeUTF(peer.getKey());
+                out.writeInt(peer.getValue().size());
+                for (Map.Entry<String, Map<Integer, Long>> list : peer.getValue().entrySet()) {
+                    out.writeUTF(list.getKey());
+                    out.writeInt(list.getValue().size());
+                    for (Map.Entry<Integer, Long> hash : list.getValue().entrySet()) {
+                        out.writeInt(hash.getKey());
+                        out.writeLong(hash.getValue());
+                    }
+                }
+            }
+
+            out.writeInt(listStates.size());
+            for (Map.Entry<String, ListState> list : listStates.entrySet()) {
+                out.writeUTF(list.getKey());
+                final Long fileHash = list.getValue().getFileHash();
+                out.writeBoolean(fileHash != null);
+                out.writeLong(fileHash == null ? 0 : fileHash);
+                out.writeInt(list.getValue().getEntryStates().size());
+                for (Map.Entry<Integer, EntryState> entry : list.getValue().getEntryStates().entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeLong(entry.getValue().getHash());
+                    out.writeInt(entry.getValue().getYear());
+                    out.writeLong(entry.getValue().getStamp());
+                }
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Returns the unique ID of the data directory.
+     *
+     * @return the directory ID
+     */
+    String getDirectoryId() {
+        return directoryId;
+    }
+
+    /**
+     * Returns the entry hashes of the specified list after the last synchronization with the specified peer.
+     *
+     * @param peerId ID of the peer directory
+     * @param listName name of the list
+     * @return the entry hashes (map key is the entry ID) or null when not synchronized yet
+     */
+    Map<Integer, Long> getBase(final String peerId, final String listName) {
+        final Map<String, Map<Integer, Long>> lists = peerBases.get(peerId);
+        final Map<Integer, Long> hashes = lists == null ? null : lists.get(listName);
+        return hashes == null ? null : Collections.unmodifiableMap(hashes);
+    }
+
+    /**
+     * Sets the entry hashes of the specified list after the synchronization with the specified peer.
+     *
+     * @param peerId ID of the peer directory
+     * @param listName name of the list
+     * @param hashes the entry hashes (map key is the entry ID)
+     */
+    void setBase(final String peerId, final String listName, final Map<Integer, Long> hashes) {
+        peerBases.computeIfAbsent(peerId, id -> new HashMap<>()).put(listName, new TreeMap<>(hashes));
+    }
+
+    /**
+     * Returns the state of the specified list of the own directory after the last synchronization.
+     *
+     * @param listName name of the list
+     * @return the list state or null when not synchronized yet
+     */
+    ListState getListState(final String listName) {
+        return listStates.get(listName);
+    }
+
+    /**
+     * Sets the state of the specified list of the own directory after the synchronization.
+     *
+     * @param listName name of the list
+     * @param listState the list state
+     */
+    void setListState(final String listName, final ListState listState) {
+        listStates.put(listName, listState);
+    }
+
+    /**
+     * The state of a synchronized list: the states of all entries and the hash of the list file content.
+     */
+    static final class ListState {
+
+        private final Map<Integer, EntryState> entryStates;
+        private final Long fileHash;
+
+        /**
+         * Creates the list state.
+         *
+         * @param entryStates the entry states (map key is the entry ID)
+         * @param fileHash the hash of the list file or null when not known
+         */
+        ListState(final Map<Integer, EntryState> entryStates, final Long fileHash) {
+            this.entryStates = Collections.unmodifiableMap(new TreeMap<>(entryStates));
+            this.fileHash = fileHash;
+        }
+
+        Map<Integer, EntryState> getEntryStates() {
+            return entryStates;
+        }
+
+        Long getFileHash() {
+            return fileHash;
+        }
+    }
+
+    /**
+     * The state of a synchronized entry: the hash of its content, the year of its date and the time of
+     * its last modification (milliseconds since epoch).
+     */
+    static final class EntryState {
+
+        private final long hash;
+        private final int year;
+        private final long stamp;
+
+        EntryState(final long hash, final int year, final long stamp) {
+            this.hash = hash;
+            this.year = year;
+            this.stamp = stamp;
+        }
+
+        long getHash() {
+            return hash;
+        }
+
+        int getYear() {
+            return year;
+        }
+
+        long getStamp() {
+            return stamp;
+        }
+
+        /**
+         * Returns true when the specified state has the same content (hash and year).
+         *
+         * @param other the other entry state (can be null)
+         * @return true for same content
+         */
+        boolean hasSameContent(final EntryState other) {
+            return other != null && hash == other.hash && year == other.year;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import de.saring.sportstracker.data.ExerciseList;
 import de.saring.sportstracker.data.SportSubType;
 import de.saring.sportstracker.data.SportType;
 import de.saring.sportstracker.data.SportTypeList;
+import de.saring.util.SafeFileUtils;
 
 /**
  * This class is for reading or writing an ExerciseList object from or to a XML
@@ -31,6 +32,19 @@ public class XMLExerciseList {
      */
     private static final String XSD_EXERCISES = "exercises.xsd";
 
+    /** Flag for writing GZIP compressed XML files. */
+    private volatile boolean compressed;
+
+    /**
+     * Sets whether the XML file will be written GZIP compressed. Compressed and uncompressed
+     * files will always be read.
+     *
+     * @param compressed true for writing compressed files
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
     /**
      * Reads the exercise list from the specified XML file and maps the sport types
      * by using the specified sport type list.
@@ -46,7 +60,7 @@ public class XMLExerciseList {
         try {
             // return an empty list if the file doesn't exists yet
             File fSource = new File(source);
-            if (!fSource.exists()) {
+            if (!SafeFileUtils.exists(source)) {
                 return new ExerciseList();
             }
 
@@ -70,14 +84,14 @@ public class XMLExerciseList {
     }
 
     /**
-     * Reads the data from the specified sport-type element and returns the created
+     * Reads the data from the specified exercise element and returns the created
      * Exercise object.
      *
      * @param eExercise exercise JDOM element
      * @param sportTypeList the sport type list for assigning sport types to exercises.
      * @return the created Exercise object
      */
-    private Exercise readExercise(Element eExercise, SportTypeList sportTypeList) {
+    Exercise readExercise(Element eExercise, SportTypeList sportTypeList) {
 
         Exercise exercise = new Exercise(
                 Integer.parseInt(eExercise.getChildText("id")));
@@ -175,7 +189,7 @@ public class XMLExerciseList {
 
         // write the element to XML file
         try {
-            XMLUtils.writeXMLFile(eExerciseList, destination);
+            XMLUtils.writeXMLFile(eExerciseList, destination, compressed);
         } catch (IOException e) {
             throw new STException(STExceptionID.XMLSTORAGE_STORE_EXERCISE_LIST,
                     "Failed to write exercise list to XML file '" + destination + "' ...", e);
@@ -190,44 +204,53 @@ public class XMLExerciseList {
         Element eExerciseList = new Element("exercise-list");
 
         // append an exercise element for each exercise
-        exerciseList.forEach(exercise -> {
-            Element eExercise = new Element("exercise");
-            eExerciseList.addContent(eExercise);
-
-            // create required exercise elements
-            XMLUtils.addElement(eExercise, "id", String.valueOf(exercise.getId()));
-            XMLUtils.addElement(eExercise, "sport-type-id", String.valueOf(exercise.getSportType().getId()));
-            XMLUtils.addElement(eExercise, "sport-subtype-id", String.valueOf(exercise.getSportSubType().getId()));
-            XMLUtils.addElement(eExercise, "date", exercise.getDateTime().format(XMLUtils.DATE_TIME_FORMAT));
-            XMLUtils.addElement(eExercise, "duration", String.valueOf(exercise.getDuration()));
-            XMLUtils.addElement(eExercise, "intensity", String.valueOf(exercise.getIntensity()));
-            XMLUtils.addElement(eExercise, "distance", String.valueOf(exercise.getDistance()));
-            XMLUtils.addElement(eExercise, "avg-speed", String.valueOf(exercise.getAvgSpeed()));
-
-            // create optional exercise elements
-            if (exercise.getAvgHeartRate() != 0) {
-                XMLUtils.addElement(eExercise, "avg-heartrate", String.valueOf(exercise.getAvgHeartRate()));
-            }
-            if (exercise.getAscent() != 0) {
-                XMLUtils.addElement(eExercise, "ascent", String.valueOf(exercise.getAscent()));
-            }
-            if (exercise.getDescent() != 0) {
-                XMLUtils.addElement(eExercise, "descent", String.valueOf(exercise.getDescent()));
-            }
-            if (exercise.getCalories() != 0) {
-                XMLUtils.addElement(eExercise, "calories", String.valueOf(exercise.getCalories()));
-            }
-            if (exercise.getHrmFile() != null) {
-                XMLUtils.addElement(eExercise, "hrm-file", exercise.getHrmFile());
-            }
-            if (exercise.getEquipment() != null) {
-                XMLUtils.addElement(eExercise, "equipment-id", String.valueOf(exercise.getEquipment().getId()));
-            }
-            if (exercise.getComment() != null) {
-                XMLUtils.addElement(eExercise, "comment", exercise.getComment());
-            }
-        });
+        exerciseList.forEach(exercise -> eExerciseList.addContent(createExerciseElement(exercise)));
 
         return eExerciseList;
     }
+
+    /**
+     * Creates the "exercise" element for the specified exercise.
+     *
+     * @param exercise the exercise to store
+     * @return the created Element
+     */
+    Element createExerciseElement(Exercise exercise) {
+        Element eExercise = new Element("exercise");
+
+        // create required exercise elements
+        XMLUtils.addElement(eExercise, "id", String.valueOf(exercise.getId()));
+        XMLUtils.addElement(eExercise, "sport-type-id", String.valueOf(exercise.getSportType().getId()));
+        XMLUtils.addElement(eExercise, "sport-subtype-id", String.valueOf(exercise.getSportSubType().getId()));
+        XMLUtils.addElement(eExercise, "date", exercise.getDateTime().format(XMLUtils.DATE_TIME_FORMAT));
+        XMLUtils.addElement(eExercise, "duration", String.valueOf(exercise.getDuration()));
+        XMLUtils.addElement(eExercise, "intensity", String.valueOf(exercise.getIntensity()));
+        XMLUtils.addElement(eExercise, "distance", String.valueOf(exercise.getDistance()));
+        XMLUtils.addElement(eExercise, "avg-speed", String.valueOf(exercise.getAvgSpeed()));
+
+        // create optional exercise elements
+        if (exercise.getAvgHeartRate() != 0) {
+            XMLUtils.addElement(eExercise, "avg-heartrate", String.valueOf(exercise.getAvgHeartRate()));
+        }
+        if (exercise.getAscent() != 0) {
+            XMLUtils.addElement(eExercise, "ascent", String.valueOf(exercise.getAscent()));
+        }
+        if (exercise.getDescent() != 0) {
+            XMLUtils.addElement(eExercise, "descent", String.valueOf(exercise.getDescent()));
+        }
+        if (exercise.getCalories() != 0) {
+            XMLUtils.addElement(eExercise, "calories", String.valueOf(exercise.getCalories()));
+        }
+        if (exercise.getHrmFile() != null) {
+            XMLUtils.addElement(eExercise, "hrm-file", exercise.getHrmFile());
+        }
+        if (exercise.getEquipment() != null) {
+            XMLUtils.addElement(eExercise, "equipment-id", String.valueOf(exercise.getEquipment().getId()));
+        }
+        if (exercise.getComment() != null) {
+            XMLUtils.addElement(eExercise, "comment", exercise.getComment());
+        }
+
+        return eExercise;
+    }
 }
@@ -12,6 +12,7 @@ import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STExceptionID;
 import de.saring.sportstracker.data.Note;
 import de.saring.sportstracker.data.NoteList;
+import de.saring.util.SafeFileUtils;
 
 /**
  * This class is for reading or writing a NoteList object from or to a XML file.
@@ -25,6 +26,18 @@ public class XMLNoteList {
      */
     private static final String XSD_NOTES = "notes.xsd";
 
+    /** Flag for writing GZIP compressed XML files. */
+    private volatile boolean compressed;
+
+    /**
+     * Sets whether the XML file will be written GZIP compressed. Compressed and uncompressed
+     * files will always be read.
+     *
+     * @param compressed true for writing compressed files
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
 
     /**
      * Reads the note list from the specified XML file.
@@ -39,7 +52,7 @@ public class XMLNoteList {
         try {
             // return an empty list if the file doesn't exists yet
             File fSource = new File(source);
-            if (!fSource.exists()) {
+            if (!SafeFileUtils.exists(source)) {
                 return new NoteList();
             }
 
@@ -68,7 +81,7 @@ public class XMLNoteList {
      * @param eNote note JDOM element
      * @return the created Note object
      */
-    private Note readNote(Element eNote) {
+    Note readNote(Element eNote) {
         Note note = new Note(Integer.parseInt(eNote.getChildText("id")));
         note.setComment(eNote.getChildText("text"));
 
@@ -97,7 +110,7 @@ public class XMLNoteList {
 
         // write the element to XML file
         try {
-            XMLUtils.writeXMLFile(eNoteList, destination);
+            XMLUtils.writeXMLFile(eNoteList, destination, compressed);
         } catch (IOException e) {
             throw new STException(STExceptionID.XMLSTORAGE_STORE_NOTE_LIST,
                     "Failed to write note list to XML file '" + destination + "' ...", e);
@@ -114,14 +127,21 @@ public class XMLNoteList {
     private Element createNoteListElement(NoteList noteList) {
         Element eNoteList = new Element("note-list");
 
-        noteList.forEach(note -> {
-            Element eNote = new Element("note");
-            eNoteList.addContent(eNote);
-
-            XMLUtils.addElement(eNote, "id", String.valueOf(note.getId()));
-            XMLUtils.addElement(eNote, "date", note.getDateTime().format(XMLUtils.DATE_TIME_FORMAT));
-            XMLUtils.addElement(eNote, "text", note.getComment());
-        });
+        noteList.forEach(note -> eNoteList.addContent(createNoteElement(note)));
         return eNoteList;
     }
+
+    /**
+     * Creates the "note" element for the specified note.
+     *
+     * @param note the Note to store
+     * @return the created Element
+     */
+    Element createNoteElement(Note note) {
+        Element eNote = new Element("note");
+        XMLUtils.addElement(eNote, "id", String.valueOf(note.getId()));
+        XMLUtils.addElement(eNote, "date", note.getDateTime().format(XMLUtils.DATE_TIME_FORMAT));
+        XMLUtils.addElement(eNote, "text", note.getComment());
+        return eNote;
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import de.saring.sportstracker.data.Equipment;
 import de.saring.sportstracker.data.SportSubType;
 import de.saring.sportstracker.data.SportType;
 import de.saring.sportstracker.data.SportTypeList;
+import de.saring.util.SafeFileUtils;
 import de.saring.util.gui.javafx.ColorUtils;
 
 /**
@@ -33,6 +34,19 @@ public class XMLSportTypeList {
      */
     private static final String XSD_SPORT_TYPES = "sport-types.xsd";
 
+    /** Flag for writing GZIP compressed XML files. */
+    private volatile boolean compressed;
+
+    /**
+     * Sets whether the XML file will be written GZIP compressed. Compressed and uncompressed
+     * files will always be read.
+     *
+     * @param compressed true for writing compressed files
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
     /**
      * Reads the sport type list from the specified XML file.
      * Returns an empty list when the file doesn't exists yet.
@@ -46,7 +60,7 @@ public class XMLSportTypeList {
         try {
             // return an empty list if the file doesn't exists yet
             File fSource = new File(source);
-            if (!fSource.exists()) {
+            if (!SafeFileUtils.exists(source)) {
                 return new SportTypeList();
             }
 
@@ -75,7 +89,7 @@ public class XMLSportTypeList {
      * @param eSportType sport-type JDOM element
      * @return the created SportType object
      */
-    private SportType readSportType(Element eSportType) {
+    SportType readSportType(Element eSportType) {
 
         SportType sportType = new SportType(Integer.parseInt(eSportType.getChildText("id")));
         sportType.setName(eSportType.getChildText("name"));
@@ -138,7 +152,7 @@ public class XMLSportTypeList {
 
         // write the element to XML file
         try {
-            XMLUtils.writeXMLFile(eSportTypeList, destination);
+            XMLUtils.writeXMLFile(eSportTypeList, destination, compressed);
         } catch (IOException e) {
             throw new STException(STExceptionID.XMLSTORAGE_STORE_SPORT_TYPE_LIST,
                     "Failed to write sport type list to XML file '" + destination + "' ...", e);
@@ -154,46 +168,55 @@ public class XMLSportTypeList {
         Element eSportTypeList = new Element("sport-type-list");
 
         // append an "sport-type" element for each sport type
-        sportTypeList.forEach(sportType -> {
-            Element eSportType = new Element("sport-type");
-            eSportTypeList.addContent(eSportType);
-
-            // create sport type attributes and elements
-            eSportType.setAttribute("record-distance", String.valueOf(sportType.isRecordDistance()));
-            XMLUtils.addElement(eSportType, "id", String.valueOf(sportType.getId()));
-            XMLUtils.addElement(eSportType, "name", sportType.getName());
-            XMLUtils.addElement(eSportType, "icon", sportType.getIcon());
-
-            Element eColor = new Element("color");
-            java.awt.Color awtColor = ColorUtils.toAwtColor(sportType.getColor());
-            eColor.setAttribute("red", String.valueOf(awtColor.getRed()));
-            eColor.setAttribute("green", String.valueOf(awtColor.getGreen()));
-            eColor.setAttribute("blue", String.valueOf(awtColor.getBlue()));
-            eSportType.addContent(eColor);
-
-            // append an "sport-subtype" element for each sport subtype
-            Element eSportSubTypeList = new Element("sport-subtype-list");
-            eSportType.addContent(eSportSubTypeList);
-
-            sportType.getSportSubTypeList().forEach(sportSubType -> {
-                Element eSportSubType = new Element("sport-subtype");
-                eSportSubTypeList.addContent(eSportSubType);
-                XMLUtils.addElement(eSportSubType, "id", String.valueOf(sportSubType.getId()));
-                XMLUtils.addElement(eSportSubType, "name", sportSubType.getName());
-            });
+        sportTypeList.forEach(sportType -> eSportTypeList.addContent(createSportTypeElement(sportType)));
 
-            // append an "equipment" element for each equipment
-            Element eEquipmentList = new Element("equipment-list");
-            eSportType.addContent(eEquipmentList);
+        return eSportTypeList;
+    }
 
-            sportType.getEquipmentList().forEach(equipment-> {
-                Element eEquipment = new Element("equipment");
-                eEquipmentList.addContent(eEquipment);
-                XMLUtils.addElement(eEquipment, "id", String.valueOf(equipment.getId()));
-                XMLUtils.addElement(eEquipment, "name", equipment.getName());
-            });
+    /**
+     * Creates the "sport-type" element for the specified sport type.
+     *
+     * @param sportType the sport type to store
+     * @return the created Element
+     */
+    Element createSportTypeElement(SportType sportType) {
+        Element eSportType = new Element("sport-type");
+
+        // create sport type attributes and elements
+        eSportType.setAttribute("record-distance", String.valueOf(sportType.isRecordDistance()));
+        XMLUtils.addElement(eSportType, "id", String.valueOf(sportType.getId()));
+        XMLUtils.addElement(eSportType, "name", sportType.getName());
+        XMLUtils.addElement(eSportType, "icon", sportType.getIcon());
+
+        Element eColor = new Element("color");
+        java.awt.Color awtColor = ColorUtils.toAwtColor(sportType.getColor());
+        eColor.setAttribute("red", String.valueOf(awtColor.getRed()));
+        eColor.setAttribute("green", String.valueOf(awtColor.getGreen()));
+        eColor.setAttribute("blue", String.valueOf(awtColor.getBlue()));
+        eSportType.addContent(eColor);
+
+        // append an "sport-subtype" element for each sport subtype
+        Element eSportSubTypeList = new Element("sport-subtype-list");
+        eSportType.addContent(eSportSubTypeList);
+
+        sportType.getSportSubTypeList().forEach(sportSubType -> {
+            Element eSportSubType = new Element("sport-subtype");
+            eSportSubTypeList.addContent(eSportSubType);
+            XMLUtils.addElement(eSportSubType, "id", String.valueOf(sportSubType.getId()));
+            XMLUtils.addElement(eSportSubType, "name", sportSubType.getName());
         });
 
-        return eSportTypeList;
+        // append an "equipment" element for each equipment
+        Element eEquipmentList = new Element("equipment-list");
+        eSportType.addContent(eEquipmentList);
+
+        sportType.getEquipmentList().forEach(equipment-> {
+            Element eEquipment = new Element("equipment");
+            eEquipmentList.addContent(eEquipment);
+            XMLUtils.addElement(eEquipment, "id", String.valueOf(equipment.getId()));
+            XMLUtils.addElement(eEquipment, "name", equipment.getName());
+        });
+
+        return eSportType;
     }
-}
\ No newline at end of file
+}
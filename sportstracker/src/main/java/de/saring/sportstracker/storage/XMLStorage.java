@@ -36,6 +36,14 @@ public class XMLStorage implements IStorage {
         xmlWeightList = new XMLWeightList();
     }
 
+    @Override
+    public void setCompressedFiles(boolean compressed) {
+        xmlSportTypeList.setCompressed(compressed);
+        xmlExerciseList.setCompressed(compressed);
+        xmlNoteList.setCompressed(compressed);
+        xmlWeightList.setCompressed(compressed);
+    }
+
     @Override
     public SportTypeList readSportTypeList(String source) throws STException {
         return xmlSportTypeList.readSportTypeList(source);
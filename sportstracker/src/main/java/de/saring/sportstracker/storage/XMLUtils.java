@@ -11,11 +11,21 @@ import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import de.saring.util.SafeFileUtils;
+
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Helper class for common functions when reading and writing XML files.
@@ -28,12 +38,18 @@ public final class XMLUtils {
     /** The date and time parser and formatter instance. */
     public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
+    /** Buffer size for reading and writing the (compressed) XML files. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private XMLUtils() {
     }
 
     /**
      * Parses the specified XML file and creates the JDOM document. The XML will
      * be verified against the specified XSD schema (will be read from classpath).
+     * When the XML file is missing or can't be parsed, the backup file of the
+     * previous generation will be parsed instead. GZIP compressed XML files
+     * will be detected and decompressed automatically.
      *
      * @param xmlFile the XML file to parse
      * @param xsdFilename the name of the XSD (just the filename)
@@ -60,8 +76,46 @@ public final class XMLUtils {
             }
         });
 
-        // create JDOM Document
-        return builder.build(xmlFile);
+        // create JDOM Document, the backup file will be read when the XML file is missing or invalid
+        return SafeFileUtils.<Document, JDOMException>readFile(xmlFile.toPath(), file -> {
+            try (InputStream inputStream = openInputStream(file)) {
+                return builder.build(inputStream, file.toUri().toString());
+            }
+        });
+    }
+
+    /**
+     * Opens the specified file for reading, the content of GZIP compressed files (detected
+     * by the GZIP header) will be decompressed while reading.
+     *
+     * @param file the file to read
+     * @return the buffered input stream of the (decompressed) file content
+     * @throws IOException on read problems
+     */
+    static InputStream openInputStream(final Path file) throws IOException {
+        final BufferedInputStream inputStream = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        try {
+            inputStream.mark(2);
+            final int magic = inputStream.read() | (inputStream.read() << 8);
+            inputStream.reset();
+            return magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(inputStream, BUFFER_SIZE) : inputStream;
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true when the specified file is GZIP compressed.
+     *
+     * @param file the file to check
+     * @return true when compressed
+     * @throws IOException on read problems
+     */
+    static boolean isCompressed(final Path file) throws IOException {
+        try (InputStream inputStream = openInputStream(file)) {
+            return inputStream instanceof GZIPInputStream;
+        }
     }
 
     /**
@@ -79,13 +133,30 @@ public final class XMLUtils {
 
     /**
      * Writes the specified JDOM element to the XML file specified by filename.
-     * The file will use UTF-8 encoding and has 4-space indentation.
+     * The file will use UTF-8 encoding and has 4-space indentation. The file gets
+     * replaced atomically, the previous file will be kept as backup file.
      *
      * @param eRoot root element of the XML document
      * @param filename filename of the XML file to create
      * @throws IOException
      */
     public static void writeXMLFile(Element eRoot, String filename) throws IOException {
+        writeXMLFile(eRoot, filename, false);
+    }
+
+    /**
+     * Writes the specified JDOM element to the XML file specified by filename.
+     * The file will use UTF-8 encoding and has 4-space indentation. When compression
+     * is enabled, the XML content will be GZIP compressed while writing, so the file
+     * can still be used by other tools after decompression. The file gets replaced
+     * atomically, the previous file will be kept as backup file.
+     *
+     * @param eRoot root element of the XML document
+     * @param filename filename of the XML file to create
+     * @param compressed true for writing a GZIP compressed file
+     * @throws IOException
+     */
+    public static void writeXMLFile(Element eRoot, String filename, boolean compressed) throws IOException {
 
         Document document = new Document(eRoot);
         XMLOutputter outputter = new XMLOutputter();
@@ -95,9 +166,13 @@ public final class XMLUtils {
         outputter.setFormat(format);
 
         // FileWriter can't be used here, because default encoding on Win32 isn't UTF-8
-        try (OutputStreamWriter osWriter = new OutputStreamWriter(new FileOutputStream(filename), "UTF-8")) {
-            outputter.output(document, osWriter);
-            osWriter.flush();
-        }
+        SafeFileUtils.writeFile(Paths.get(filename), outputStream -> {
+            final OutputStream xmlOutputStream = compressed ?
+                    new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+            try (OutputStreamWriter osWriter = new OutputStreamWriter(xmlOutputStream, StandardCharsets.UTF_8)) {
+                outputter.output(document, osWriter);
+                osWriter.flush();
+            }
+        });
     }
 }
@@ -4,6 +4,7 @@ import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STExceptionID;
 import de.saring.sportstracker.data.Weight;
 import de.saring.sportstracker.data.WeightList;
+import de.saring.util.SafeFileUtils;
 import org.jdom2.Document;
 import org.jdom2.Element;
 
@@ -25,6 +26,19 @@ public class XMLWeightList {
      */
     private static final String XSD_WEIGHTS = "weights.xsd";
 
+    /** Flag for writing GZIP compressed XML files. */
+    private volatile boolean compressed;
+
+    /**
+     * Sets whether the XML file will be written GZIP compressed. Compressed and uncompressed
+     * files will always be read.
+     *
+     * @param compressed true for writing compressed files
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
     /**
      * Reads the weight list from the specified XML file.
      * Returns an empty list when the file doesn't exists yet.
@@ -38,7 +52,7 @@ public class XMLWeightList {
         try {
             // return an empty list if the file doesn't exists yet
             File fSource = new File(source);
-            if (!fSource.exists()) {
+            if (!SafeFileUtils.exists(source)) {
                 return new WeightList();
             }
 
@@ -67,7 +81,7 @@ public class XMLWeightList {
      * @param eWeight weight JDOM element
      * @return the created Weight object
      */
-    private Weight readWeight(Element eWeight) {
+    Weight readWeight(Element eWeight) {
         Weight weight = new Weight(Integer.parseInt(eWeight.getChildText("id")));
         weight.setValue(Float.parseFloat(eWeight.getChildText("value")));
         weight.setComment(eWeight.getChildText("comment"));
@@ -97,7 +111,7 @@ public class XMLWeightList {
 
         // write the element to XML file
         try {
-            XMLUtils.writeXMLFile(eWeightList, destination);
+            XMLUtils.writeXMLFile(eWeightList, destination, compressed);
         } catch (IOException e) {
             throw new STException(STExceptionID.XMLSTORAGE_STORE_WEIGHT_LIST,
                     "Failed to write weight list to XML file '" + destination + "' ...", e);
@@ -114,15 +128,22 @@ public class XMLWeightList {
     private Element createWeightListElement(WeightList weightList) {
         Element eWeightList = new Element("weight-list");
 
-        weightList.forEach(weight -> {
-            Element eWeight = new Element("weight");
-            eWeightList.addContent(eWeight);
-
-            XMLUtils.addElement(eWeight, "id", String.valueOf(weight.getId()));
-            XMLUtils.addElement(eWeight, "date", weight.getDateTime().format(XMLUtils.DATE_TIME_FORMAT));
-            XMLUtils.addElement(eWeight, "value", String.valueOf(weight.getValue()));
-            XMLUtils.addElement(eWeight, "comment", weight.getComment());
-        });
+        weightList.forEach(weight -> eWeightList.addContent(createWeightElement(weight)));
         return eWeightList;
     }
+
+    /**
+     * Creates the "weight" element for the specified weight.
+     *
+     * @param weight the Weight to store
+     * @return the created Element
+     */
+    Element createWeightElement(Weight weight) {
+        Element eWeight = new Element("weight");
+        XMLUtils.addElement(eWeight, "id", String.valueOf(weight.getId()));
+        XMLUtils.addElement(eWeight, "date", weight.getDateTime().format(XMLUtils.DATE_TIME_FORMAT));
+        XMLUtils.addElement(eWeight, "value", String.valueOf(weight.getValue()));
+        XMLUtils.addElement(eWeight, "comment", weight.getComment());
+        return eWeight;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+-- SQLite schema definition of the row hashes for the incremental SportsTracker export.
+
+-- The table contains the content hash of each exported row of all tables, so the next export
+-- needs to write only the inserted, changed and deleted rows. The hash of a sport type row
+-- includes its sport subtypes and equipment.
+
+CREATE TABLE EXPORT_ROW_HASH (
+    TABLE_NAME TEXT NOT NULL,
+    ROW_ID INTEGER NOT NULL,
+    HASH INTEGER NOT NULL,
+    PRIMARY KEY (TABLE_NAME, ROW_ID)
+);
@@ -0,0 +1,9 @@
+-- SQLite index definitions for SportsTracker export.
+
+-- The indexes are created after all data has been inserted, this is much faster than
+-- updating the indexes on each insert.
+
+CREATE INDEX EXERCISE_DATE_TIME_IDX ON EXERCISE (DATE_TIME);
+CREATE INDEX EXERCISE_SPORT_TYPE_IDX ON EXERCISE (SPORT_TYPE_ID, SPORT_SUBTYPE_ID);
+CREATE INDEX NOTE_DATE_TIME_IDX ON NOTE (DATE_TIME);
+CREATE INDEX WEIGHT_DATE_TIME_IDX ON WEIGHT (DATE_TIME);
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.PatternSyntaxException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -551,4 +553,35 @@ public class ExerciseListTest {
         assertThrows(PatternSyntaxException.class, () ->
             list.getEntriesForFilter(filter));
     }
+
+    /**
+     * Tests the loading of unloaded years: they must be loaded on the first access by a filter, a date range
+     * or a stored exercise only, new IDs must be higher than the highest ID of the stored exercises.
+     */
+    @Test
+    public void testLoadUnloadedYears() {
+        final List<List<Integer>> loadedYears = new ArrayList<>();
+        list.setUnloadedYears(List.of(2001, 2002, 2005), 10, loadedYears::add);
+        assertFalse(list.isLoadedCompletely());
+        assertEquals(11, list.getNewID());
+
+        list.getEntriesInDateRange(LocalDate.of(2003, 1, 1), LocalDate.of(2003, 12, 31));
+        assertTrue(loadedYears.isEmpty());
+
+        EntryFilter filter = new EntryFilter();
+        filter.setDateStart(LocalDate.of(2001, 6, 1));
+        filter.setDateEnd(LocalDate.of(2003, 12, 31));
+        list.getEntriesForFilter(filter);
+        assertEquals(List.of(List.of(2001, 2002)), loadedYears);
+
+        Exercise exercise = list.getByID(1).clone(list.getNewID());
+        exercise.setDateTime(LocalDateTime.of(2005, 3, 1, 10, 0, 0));
+        list.set(exercise);
+        assertEquals(List.of(List.of(2001, 2002), List.of(2005)), loadedYears);
+        assertTrue(list.isLoadedCompletely());
+
+        list.loadAllYears();
+        assertEquals(2, loadedYears.size());
+        assertEquals(12, list.getNewID());
+    }
 }
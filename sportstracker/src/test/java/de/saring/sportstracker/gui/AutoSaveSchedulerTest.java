@@ -0,0 +1,111 @@
+package de.saring.sportstracker.gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.saring.sportstracker.data.NoteList;
+
+/**
+ * Unit tests of class AutoSaveScheduler, the document will be mocked via Mockito.
+ *
+ * @author Stefan Saring
+ */
+public class AutoSaveSchedulerTest {
+
+    private static final long QUIET_PERIOD_MILLIS = 100;
+
+    private STDocument documentMock;
+    private AutoSaveScheduler scheduler;
+
+    @BeforeEach
+    public void setUp() {
+        final DataListSnapshot snapshot = new DataListSnapshot();
+        snapshot.addList(STDocument.DataList.NOTES, new NoteList(), 1);
+
+        documentMock = mock(STDocument.class);
+        when(documentMock.createDataListSnapshot()).thenReturn(snapshot);
+        when(documentMock.getUnsavedChangeCount()).thenReturn(0L);
+
+        // the snapshots are created directly by the scheduler thread in the tests
+        scheduler = new AutoSaveScheduler(documentMock, Runnable::run, QUIET_PERIOD_MILLIS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Tests the coalescing of data changes: a burst of changes must result in a single save
+     * after the quiet period.
+     */
+    @Test
+    public void testSaveAfterBurstOfChanges() throws Exception {
+        final AtomicInteger saveListenerCalls = new AtomicInteger();
+        scheduler.setSaveListener(saveListenerCalls::incrementAndGet);
+        assertNull(scheduler.getLastSaveLatency());
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.onDataChanged();
+            Thread.sleep(QUIET_PERIOD_MILLIS / 10);
+        }
+
+        verify(documentMock, timeout(5000)).storeDataListSnapshot(any());
+        Thread.sleep(QUIET_PERIOD_MILLIS * 3);
+        verify(documentMock, times(1)).createDataListSnapshot();
+        verify(documentMock, times(1)).storeDataListSnapshot(any());
+
+        assertEquals(1, saveListenerCalls.get());
+        assertNotNull(scheduler.getLastSaveLatency());
+        assertEquals(0, scheduler.getPendingChangeCount());
+    }
+
+    /**
+     * Tests the backpressure: changes during a running save must not start a concurrent save,
+     * the next save must be started after completion of the running save.
+     */
+    @Test
+    public void testNextSaveAfterRunningSave() throws Exception {
+        final CountDownLatch saveStarted = new CountDownLatch(1);
+        final CountDownLatch saveReleased = new CountDownLatch(1);
+        final AtomicInteger runningSaves = new AtomicInteger();
+        final AtomicInteger maxRunningSaves = new AtomicInteger();
+
+        doAnswer(invocation -> {
+            maxRunningSaves.accumulateAndGet(runningSaves.incrementAndGet(), Math::max);
+            saveStarted.countDown();
+            saveReleased.await(5, TimeUnit.SECONDS);
+            runningSaves.decrementAndGet();
+            return null;
+        }).when(documentMock).storeDataListSnapshot(any());
+
+        scheduler.onDataChanged();
+        assertTrue(saveStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.isSaveRunning());
+
+        // the scheduler thread is busy with storing, the change must be saved afterwards
+        scheduler.onDataChanged();
+        Thread.sleep(QUIET_PERIOD_MILLIS * 2);
+        saveReleased.countDown();
+
+        verify(documentMock, timeout(5000).times(2)).storeDataListSnapshot(any());
+        assertEquals(1, maxRunningSaves.get());
+    }
+}
@@ -0,0 +1,175 @@
+package de.saring.sportstracker.gui;
+
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.SportSubType;
+import de.saring.sportstracker.data.SportType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class contains all unit tests for the ExerciseBatchImporter class, the document will be mocked via Mockito.
+ *
+ * @author Stefan Saring
+ */
+public class ExerciseBatchImporterTest {
+
+    private static final String TESTDATA_DIR = "../st-exerciseviewer/misc/testdata/";
+
+    private Path tempDirectory;
+    private Path fileS410;
+    private Path fileS625X;
+    private Path fileS610Hrm;
+    private Path fileS610Srd;
+    private Path fileBroken;
+
+    private SportType sportType;
+    private SportSubType sportSubType;
+    private ExerciseList exerciseList;
+
+    private ExerciseBatchImporter importer;
+
+    /**
+     * This method creates the temporary directory with the exercise files and the exercise list with the
+     * exercise of an already imported file.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDirectory = Files.createTempDirectory("st-batchimport-test");
+        fileS410 = copyTestFile("s410-sample.hrm", "s410.hrm");
+        fileS625X = copyTestFile("s625x-sample.hrm", "s625x.hrm");
+        fileS610Hrm = copyTestFile("s610/ma_br_20040912T072607.hrm", "s610.hrm");
+        fileS610Srd = copyTestFile("s610/ma_br_20040912T072607.srd", "s610.srd");
+        fileBroken = Files.write(tempDirectory.resolve("broken.hrm"), "no exercise data".getBytes());
+        Files.write(tempDirectory.resolve("notes.txt"), "no exercise file".getBytes());
+
+        sportType = new SportType(1);
+        sportType.setName("Cycling");
+        sportType.setRecordDistance(true);
+        sportSubType = new SportSubType(1);
+        sportSubType.setName("Road");
+        sportType.getSportSubTypeList().set(sportSubType);
+
+        final Exercise existingExercise = new Exercise(5);
+        existingExercise.setDateTime(LocalDateTime.of(2004, 4, 26, 11, 9, 37));
+        existingExercise.setSportType(sportType);
+        existingExercise.setSportSubType(sportSubType);
+        existingExercise.setHrmFile(fileS410.toString());
+        exerciseList = new ExerciseList();
+        exerciseList.set(existingExercise);
+
+        final STDocument documentMock = mock(STDocument.class);
+        when(documentMock.getExerciseList()).thenReturn(exerciseList);
+        importer = new ExerciseBatchImporter(documentMock);
+    }
+
+    /**
+     * This method removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests the search of exercise files: only the files supported by the parsers must be found, sorted by path.
+     */
+    @Test
+    public void testFindExerciseFiles() throws IOException {
+        final List<Path> files = ExerciseBatchImporter.findExerciseFiles(tempDirectory);
+        assertEquals(Arrays.asList(fileBroken, fileS410, fileS610Hrm, fileS610Srd, fileS625X), files);
+    }
+
+    /**
+     * Tests the import of all files: the already imported file, the second file of the same exercise and the
+     * broken file must be skipped, the new exercises must be added in one batch.
+     */
+    @Test
+    public void testImportFiles() throws Exception {
+        final List<Path> files = ExerciseBatchImporter.findExerciseFiles(tempDirectory);
+        final List<Integer> progress = new ArrayList<>();
+
+        final ExerciseBatchImporter.ExistingExercises existingExercises = importer.getExistingExercises();
+        final ExerciseBatchImporter.ImportResult result = importer.importFiles(files, existingExercises, sportType,
+                sportSubType, (processedFiles, totalFiles) -> {
+                    assertEquals(5, totalFiles);
+                    progress.add(processedFiles);
+                }, () -> false);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), progress);
+        assertEquals(2, result.getExerciseCount());
+        assertEquals(Arrays.asList(fileS410, fileS610Srd), result.getDuplicateFiles());
+        assertEquals(Arrays.asList(fileBroken), result.getFailedFiles());
+
+        // the exercise list must not be changed before the result gets applied
+        assertEquals(1, exerciseList.size());
+        final List<Integer> listChanges = new ArrayList<>();
+        exerciseList.addListChangeListener(changedObject -> listChanges.add(1));
+
+        result.applyToExerciseList();
+        assertEquals(1, listChanges.size());
+        assertEquals(3, exerciseList.size());
+
+        // the new exercises are sorted by date and get new IDs
+        final Exercise exerciseS610 = exerciseList.getAt(1);
+        assertEquals(6, exerciseS610.getId());
+        assertEquals(fileS610Hrm.toString(), exerciseS610.getHrmFile());
+        assertEquals(LocalDateTime.of(2004, 9, 12, 7, 26, 7), exerciseS610.getDateTime());
+        assertSame(sportType, exerciseS610.getSportType());
+        assertSame(sportSubType, exerciseS610.getSportSubType());
+        assertEquals(Exercise.IntensityType.NORMAL, exerciseS610.getIntensity());
+        assertTrue(exerciseS610.getDuration() > 0);
+
+        final Exercise exerciseS625X = exerciseList.getAt(2);
+        assertEquals(7, exerciseS625X.getId());
+        assertEquals(fileS625X.toString(), exerciseS625X.getHrmFile());
+        assertTrue(exerciseS625X.getDistance() > 0);
+
+        // a second import must skip all files
+        final ExerciseBatchImporter.ImportResult result2 = importer.importFiles(files,
+                importer.getExistingExercises(), sportType, sportSubType, (processedFiles, totalFiles) -> {},
+                () -> false);
+        assertEquals(0, result2.getExerciseCount());
+        assertEquals(4, result2.getDuplicateFiles().size());
+        assertEquals(Arrays.asList(fileBroken), result2.getFailedFiles());
+    }
+
+    /**
+     * Tests the cancellation of the import, the exercise list must not be changed.
+     */
+    @Test
+    public void testImportFilesCancelled() throws Exception {
+        final List<Path> files = ExerciseBatchImporter.findExerciseFiles(tempDirectory);
+
+        final ExerciseBatchImporter.ExistingExercises existingExercises = importer.getExistingExercises();
+        assertThrows(CancellationException.class, () -> importer.importFiles(files, existingExercises, sportType,
+                sportSubType, (processedFiles, totalFiles) -> {}, () -> true));
+        assertEquals(1, exerciseList.size());
+    }
+
+    private Path copyTestFile(final String testFile, final String targetName) throws IOException {
+        return Files.copy(Paths.get(TESTDATA_DIR + testFile), tempDirectory.resolve(targetName));
+    }
+}
@@ -0,0 +1,120 @@
+package de.saring.sportstracker.gui;
+
+import de.saring.sportstracker.data.Exercise;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains all unit tests for the ExerciseFileChecker class.
+ *
+ * @author Stefan Saring
+ */
+public class ExerciseFileCheckerTest {
+
+    private Path tempDirectory;
+    private Path existingFile;
+    private Path missingFile;
+
+    private Exercise exerciseWithoutFile;
+    private Exercise exerciseExistingFile;
+    private Exercise exerciseMissingFile;
+    private Exercise exerciseExistingFile2;
+
+    private ExerciseFileChecker checker;
+
+    /**
+     * This method creates the temporary directory with the exercise file and all exercises for testing.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDirectory = Files.createTempDirectory("st-filecheck-test");
+        existingFile = Files.createFile(tempDirectory.resolve("existing.hrm"));
+        missingFile = tempDirectory.resolve("missing.hrm");
+
+        exerciseWithoutFile = new Exercise(1);
+        exerciseExistingFile = new Exercise(2);
+        exerciseExistingFile.setHrmFile(existingFile.toString());
+        exerciseMissingFile = new Exercise(3);
+        exerciseMissingFile.setHrmFile(missingFile.toString());
+        exerciseExistingFile2 = new Exercise(4);
+        exerciseExistingFile2.setHrmFile(existingFile.toString());
+
+        checker = new ExerciseFileChecker();
+    }
+
+    /**
+     * This method stops the checker and removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        checker.close();
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests the check of the exercise files: only the exercise with the missing file must be returned.
+     */
+    @Test
+    public void testFindExercisesWithMissingFiles() {
+        final List<Exercise> missingFileExercises = checker.findExercisesWithMissingFiles(Arrays.asList(
+                exerciseWithoutFile, exerciseExistingFile, exerciseMissingFile, exerciseExistingFile2));
+        assertEquals(Arrays.asList(exerciseMissingFile), missingFileExercises);
+    }
+
+    /**
+     * Tests the update of the cached results: the listener must be notified when a checked file has been
+     * deleted and the next check must return the exercises of both the deleted and the missing file.
+     */
+    @Test
+    public void testFileDeletedAfterCheck() throws Exception {
+        final List<Exercise> exercises = Arrays.asList(
+                exerciseWithoutFile, exerciseExistingFile, exerciseMissingFile, exerciseExistingFile2);
+        final BlockingQueue<Set<Path>> notifications = new ArrayBlockingQueue<>(10);
+        checker.setMissingFilesListener(notifications::add);
+        assertEquals(1, checker.findExercisesWithMissingFiles(exercises).size());
+
+        Files.delete(existingFile);
+        final Set<Path> missingFiles = notifications.poll(10, TimeUnit.SECONDS);
+        assertNotNull(missingFiles);
+        assertEquals(Set.of(ExerciseFileChecker.getAbsolutePath(existingFile.toString())), missingFiles);
+
+        assertEquals(Arrays.asList(exerciseExistingFile, exerciseMissingFile, exerciseExistingFile2),
+                checker.findExercisesWithMissingFiles(exercises));
+    }
+
+    /**
+     * Tests the update of the cached results: a missing file must be found after it has been created.
+     */
+    @Test
+    public void testFileCreatedAfterCheck() throws Exception {
+        final List<Exercise> exercises = Arrays.asList(exerciseExistingFile, exerciseMissingFile);
+        assertEquals(Arrays.asList(exerciseMissingFile), checker.findExercisesWithMissingFiles(exercises));
+
+        Files.createFile(missingFile);
+        final long timeout = System.currentTimeMillis() + 10_000;
+        while (!checker.findExercisesWithMissingFiles(exercises).isEmpty()) {
+            assertTrue(System.currentTimeMillis() < timeout, "Created file has not been detected!");
+            Thread.sleep(50);
+        }
+    }
+}
@@ -1,14 +1,49 @@
 package de.saring.sportstracker.gui;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.sportstracker.storage.IStorage;
+import de.saring.util.XmlBeanStorage;
+import de.saring.util.unitcalc.FormatUtils;
+
 /**
  * Unit tests of class STDocument/Impl. All the involved components will be
  * mocked via Mockito.
@@ -17,13 +52,18 @@ import org.junit.jupiter.api.Test;
  */
 public class STDocumentTest {
 
+    /** Data directory for the read tests, so no snapshot of the user data will be used. */
+    private static final String NOT_EXISTING_DATA_DIRECTORY = "misc/testdata/not-existing";
+
     private STDocument document;
+    private IStorage storageMock;
 
     @BeforeEach
     public void setUp() {
-        // STContext needs to be mocked
+        // STContext and IStorage needs to be mocked
         STContext contextMock = mock(STContext.class);
-        document = new STDocumentImpl(contextMock, null);
+        storageMock = mock(IStorage.class);
+        document = new STDocumentImpl(contextMock, storageMock);
     }
 
     /**
@@ -46,4 +86,323 @@ public class STDocumentTest {
         document.evaluateCommandLineParameters(List.of("--foo", "--datadir=temp"));
         assertEquals("temp", documentImpl.getDataDirectory());
     }
+
+    /**
+     * Test of method readApplicationData(): all lists read by the storage must be available in the document,
+     * the exercise with the missing exercise file must be reported by checkExerciseFiles().
+     */
+    @Test
+    public void testReadApplicationData() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        final SportTypeList sportTypeList = new SportTypeList();
+        final ExerciseList exerciseList = new ExerciseList();
+        final NoteList noteList = new NoteList();
+        final WeightList weightList = new WeightList();
+
+        final Exercise exercise = new Exercise(1);
+        exercise.setDateTime(LocalDateTime.of(2018, 10, 1, 12, 0));
+        exercise.setHrmFile("misc/testdata/does-not-exist.hrm");
+        exerciseList.set(exercise);
+
+        when(storageMock.readSportTypeList(anyString())).thenReturn(sportTypeList);
+        when(storageMock.readRecentExerciseList(anyString(), any(SportTypeList.class), anyInt())).thenReturn(exerciseList);
+        when(storageMock.readNoteList(anyString())).thenReturn(noteList);
+        when(storageMock.readWeightList(anyString())).thenReturn(weightList);
+
+        document.readApplicationData();
+        assertSame(sportTypeList, document.getSportTypeList());
+        assertSame(exerciseList, document.getExerciseList());
+        assertSame(noteList, document.getNoteList());
+        assertSame(weightList, document.getWeightList());
+
+        assertEquals(List.of(exercise), document.checkExerciseFiles());
+        // a second check must not use the already consumed background check
+        assertEquals(List.of(exercise), document.checkExerciseFiles());
+    }
+
+    /**
+     * Test of method readApplicationData() for the partitioned XML storage: only the exercises of the recent years
+     * must be read at first, the older exercises must be read on the first access to their years without making
+     * the exercise list dirty. New IDs must be higher than the highest stored ID meanwhile.
+     */
+    @Test
+    public void testReadApplicationDataOnDemand() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        document.loadOptions();
+        document.getOptions().setStorageType(STOptions.StorageType.XMLPartitioned);
+        mockStorageWithEmptyLists();
+
+        final Exercise recentExercise = new Exercise(1);
+        recentExercise.setDateTime(LocalDateTime.now());
+        final ExerciseList exerciseList = new ExerciseList();
+        exerciseList.set(recentExercise);
+        final Exercise olderExercise = new Exercise(5);
+        olderExercise.setDateTime(LocalDateTime.of(2010, 10, 1, 12, 0));
+
+        final int firstYear = LocalDate.now().getYear() - 1;
+        when(storageMock.readRecentExerciseList(anyString(), any(SportTypeList.class), eq(firstYear)))
+                .thenReturn(exerciseList);
+        when(storageMock.getUnreadExerciseYears(anyString())).thenReturn(List.of(2010));
+        when(storageMock.getMaxExerciseId(anyString())).thenReturn(5);
+        when(storageMock.readExercisesOfYears(anyString(), any(SportTypeList.class), eq(List.of(2010))))
+                .thenReturn(List.of(olderExercise));
+
+        document.readApplicationData();
+        assertEquals(List.of(recentExercise), document.getExerciseList().stream().collect(Collectors.toList()));
+        assertEquals(6, document.getExerciseList().getNewID());
+        verify(storageMock, never()).readExercisesOfYears(anyString(), any(SportTypeList.class), any());
+
+        // a date range query of another year must not read the older exercises
+        assertTrue(document.getExerciseList().getEntriesInDateRange(
+                LocalDate.of(2012, 1, 1), LocalDate.of(2012, 12, 31)).isEmpty());
+        verify(storageMock, never()).readExercisesOfYears(anyString(), any(SportTypeList.class), any());
+
+        assertEquals(List.of(olderExercise), document.getExerciseList().getEntriesInDateRange(
+                LocalDate.of(2010, 1, 1), LocalDate.of(2010, 12, 31)));
+        assertEquals(List.of(olderExercise, recentExercise),
+                document.getExerciseList().stream().collect(Collectors.toList()));
+        assertTrue(document.getExerciseList().isLoadedCompletely());
+        assertFalse(document.isDirtyData());
+        assertEquals(6, document.getExerciseList().getNewID());
+
+        document.getExerciseList().loadAllYears();
+        verify(storageMock, times(1)).readExercisesOfYears(anyString(), any(SportTypeList.class), any());
+    }
+
+    /**
+     * Test of method readApplicationData() for the partitioned XML storage: when reading the older exercises
+     * on demand fails, the listener must be notified and the exercises must not be read again.
+     */
+    @Test
+    public void testReadApplicationDataOnDemandFailed() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        document.loadOptions();
+        document.getOptions().setStorageType(STOptions.StorageType.XMLPartitioned);
+        mockStorageWithEmptyLists();
+
+        when(storageMock.getUnreadExerciseYears(anyString())).thenReturn(List.of(2010, 2011));
+        when(storageMock.getMaxExerciseId(anyString())).thenReturn(8);
+        when(storageMock.readExercisesOfYears(anyString(), any(SportTypeList.class), any()))
+                .thenThrow(new STException(STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST, "Test"));
+
+        final List<List<Integer>> failedYears = new ArrayList<>();
+        document.readApplicationData();
+        document.setExerciseLoadErrorListener(failedYears::add);
+
+        document.getExerciseList().loadAllYears();
+        document.getExerciseList().loadAllYears();
+        assertEquals(List.of(List.of(2010, 2011)), failedYears);
+        verify(storageMock, times(1)).readExercisesOfYears(anyString(), any(SportTypeList.class), any());
+
+        // the IDs of the unreadable exercises must not be reused
+        assertEquals(9, document.getExerciseList().getNewID());
+    }
+
+    /**
+     * Test of method readApplicationData(): when reading of multiple lists fails, the first problem must be
+     * thrown and the others must be attached as suppressed exceptions. Successfully read lists must be available.
+     */
+    @Test
+    public void testReadApplicationDataWithErrors() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        final NoteList noteList = new NoteList();
+        final STException exerciseException = new STException(STExceptionID.XMLSTORAGE_READ_EXERCISE_LIST, "Test");
+        final STException weightException = new STException(STExceptionID.XMLSTORAGE_READ_WEIGHT_LIST, "Test");
+
+        when(storageMock.readSportTypeList(anyString())).thenReturn(new SportTypeList());
+        when(storageMock.readRecentExerciseList(anyString(), any(SportTypeList.class), anyInt())).thenThrow(exerciseException);
+        when(storageMock.readNoteList(anyString())).thenReturn(noteList);
+        when(storageMock.readWeightList(anyString())).thenThrow(weightException);
+
+        final STException thrown = assertThrows(STException.class, () -> document.readApplicationData());
+        assertSame(exerciseException, thrown);
+        assertEquals(1, thrown.getSuppressed().length);
+        assertSame(weightException, thrown.getSuppressed()[0]);
+
+        assertSame(noteList, document.getNoteList());
+        assertEquals(0, document.getExerciseList().size());
+        assertEquals(0, document.getWeightList().size());
+        assertTrue(document.checkExerciseFiles().isEmpty());
+    }
+
+    /**
+     * Tests the per list dirty data tracking: a change in a list must mark only this list as dirty and
+     * storeApplicationData() must only write the modified lists.
+     */
+    @Test
+    public void testStoreApplicationDataOnlyDirtyLists() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        mockStorageWithEmptyLists();
+        document.readApplicationData();
+        assertFalse(document.isDirtyData());
+
+        final Weight weight = new Weight(1);
+        weight.setDateTime(LocalDateTime.of(2018, 10, 1, 12, 0));
+        document.getWeightList().set(weight);
+
+        final Note note = new Note(1);
+        note.setDateTime(LocalDateTime.of(2018, 10, 2, 12, 0));
+        document.getNoteList().set(note);
+
+        assertTrue(document.isDirtyData());
+        assertEquals(EnumSet.of(STDocument.DataList.NOTES, STDocument.DataList.WEIGHTS),
+                document.getDirtyDataLists());
+
+        document.storeApplicationData();
+        assertFalse(document.isDirtyData());
+        verify(storageMock).storeWeightList(eq(document.getWeightList()), anyString());
+        verify(storageMock).storeNoteList(eq(document.getNoteList()), anyString());
+        verify(storageMock, never()).storeExerciseList(any(), anyString());
+        verify(storageMock, never()).storeSportTypeList(any(), anyString());
+    }
+
+    /**
+     * Tests the per list dirty data tracking: a list must stay dirty when storing fails.
+     */
+    @Test
+    public void testStoreApplicationDataFailed() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        mockStorageWithEmptyLists();
+        document.readApplicationData();
+
+        final Weight weight = new Weight(1);
+        weight.setDateTime(LocalDateTime.of(2018, 10, 1, 12, 0));
+        document.getWeightList().set(weight);
+
+        doThrow(new STException(STExceptionID.XMLSTORAGE_STORE_WEIGHT_LIST, "Test"))
+                .when(storageMock).storeWeightList(any(), anyString());
+
+        assertThrows(STException.class, () -> document.storeApplicationData());
+        assertEquals(Set.of(STDocument.DataList.WEIGHTS), document.getDirtyDataLists());
+    }
+
+    /**
+     * Tests the storing of data list snapshots: changes after snapshot creation must keep the list dirty,
+     * outdated snapshots must not be stored after a newer state has been stored.
+     */
+    @Test
+    public void testStoreDataListSnapshot() throws STException {
+        useDataDirectory(NOT_EXISTING_DATA_DIRECTORY);
+        mockStorageWithEmptyLists();
+        document.readApplicationData();
+        assertTrue(document.createDataListSnapshot().isEmpty());
+
+        final Weight weight = new Weight(1);
+        weight.setDateTime(LocalDateTime.of(2018, 10, 1, 12, 0));
+        document.getWeightList().set(weight);
+
+        final DataListSnapshot snapshot = document.createDataListSnapshot();
+        assertEquals(Set.of(STDocument.DataList.WEIGHTS), snapshot.getDataLists());
+
+        final Weight weight2 = new Weight(2);
+        weight2.setDateTime(LocalDateTime.of(2018, 10, 2, 12, 0));
+        document.getWeightList().set(weight2);
+        assertEquals(2, document.getUnsavedChangeCount());
+
+        // the snapshot contains the first weight only, the list must stay dirty
+        document.storeDataListSnapshot(snapshot);
+        verify(storageMock).storeWeightList(argThat(weightList -> weightList.size() == 1), anyString());
+        assertEquals(Set.of(STDocument.DataList.WEIGHTS), document.getDirtyDataLists());
+        assertEquals(1, document.getUnsavedChangeCount());
+
+        document.storeApplicationData();
+        assertFalse(document.isDirtyData());
+        assertEquals(0, document.getUnsavedChangeCount());
+
+        // storing the outdated snapshot again must not overwrite the stored list
+        document.storeDataListSnapshot(snapshot);
+        verify(storageMock, times(2)).storeWeightList(any(), anyString());
+    }
+
+    /**
+     * Tests the snapshot of the application data: it must be written when closing the storage and must be
+     * used on the next read instead of the storage, as long as the data files are unchanged.
+     */
+    @Test
+    public void testReadApplicationDataFromSnapshot() throws Exception {
+        final Path dataDirectory = Files.createTempDirectory("st-document-test");
+        try {
+            useDataDirectory(dataDirectory.toString());
+            mockStorageWithEmptyLists();
+            document.readApplicationData();
+
+            final Note note = new Note(1);
+            note.setDateTime(LocalDateTime.of(2018, 10, 2, 12, 0));
+            note.setComment("Snapshot test");
+            document.getNoteList().set(note);
+
+            // no snapshot must be written as long as there are unsaved changes
+            document.closeStorage();
+            assertFalse(Files.exists(dataDirectory.resolve("st-data.snapshot")));
+
+            document.storeApplicationData();
+            document.closeStorage();
+            verify(storageMock, times(2)).close();
+            assertTrue(Files.exists(dataDirectory.resolve("st-data.snapshot")));
+
+            // a new document must read the data from the snapshot without using the storage
+            final IStorage newStorageMock = mock(IStorage.class);
+            final STDocument newDocument = new STDocumentImpl(mock(STContext.class), newStorageMock);
+            newDocument.evaluateCommandLineParameters(List.of("--datadir=" + dataDirectory));
+            newDocument.readApplicationData();
+
+            verify(newStorageMock, never()).readNoteList(anyString());
+            verify(newStorageMock).attachNoteList(eq(newDocument.getNoteList()), anyString());
+            assertEquals(1, newDocument.getNoteList().size());
+            assertEquals("Snapshot test", newDocument.getNoteList().getByID(1).getComment());
+            assertFalse(newDocument.isDirtyData());
+        } finally {
+            Files.deleteIfExists(dataDirectory.resolve("st-data.snapshot"));
+            Files.delete(dataDirectory);
+        }
+    }
+
+    /**
+     * Tests the migration of the options file of previous versions (written by XmlBeanStorage): the options
+     * must be read from it and the new options file must be written and used afterwards.
+     */
+    @Test
+    public void testLoadOptionsMigration() throws Exception {
+        final Path dataDirectory = Files.createTempDirectory("st-document-test");
+        try {
+            final STOptions previousOptions = new STOptions();
+            previousOptions.setUnitSystem(FormatUtils.UnitSystem.English);
+            previousOptions.setStorageType(STOptions.StorageType.SQLite);
+            previousOptions.setPreviousExerciseDirectory("/home/user/exercises");
+            XmlBeanStorage.saveBean(previousOptions, dataDirectory.resolve("st-options.xml").toString());
+
+            useDataDirectory(dataDirectory.toString());
+            document.loadOptions();
+            assertEquals(FormatUtils.UnitSystem.English, document.getOptions().getUnitSystem());
+            assertEquals(STOptions.StorageType.SQLite, document.getOptions().getStorageType());
+
+            document.storeOptions();
+            assertTrue(Files.exists(dataDirectory.resolve("st-options.properties")));
+
+            // a new document must read the new options file
+            Files.delete(dataDirectory.resolve("st-options.xml"));
+            final STDocument newDocument = new STDocumentImpl(mock(STContext.class), mock(IStorage.class));
+            newDocument.evaluateCommandLineParameters(List.of("--datadir=" + dataDirectory));
+            newDocument.loadOptions();
+            assertEquals(FormatUtils.UnitSystem.English, newDocument.getOptions().getUnitSystem());
+            assertEquals(STOptions.StorageType.SQLite, newDocument.getOptions().getStorageType());
+            assertEquals("/home/user/exercises", newDocument.getOptions().getPreviousExerciseDirectory());
+            assertEquals(new STOptions().isDisplaySmoothedCharts(), newDocument.getOptions().isDisplaySmoothedCharts());
+        } finally {
+            Files.deleteIfExists(dataDirectory.resolve("st-options.properties"));
+            Files.deleteIfExists(dataDirectory.resolve("st-options.xml"));
+            Files.delete(dataDirectory);
+        }
+    }
+
+    private void useDataDirectory(final String dataDirectory) {
+        document.evaluateCommandLineParameters(List.of("--datadir=" + dataDirectory));
+    }
+
+    private void mockStorageWithEmptyLists() throws STException {
+        when(storageMock.readSportTypeList(anyString())).thenReturn(new SportTypeList());
+        when(storageMock.readRecentExerciseList(anyString(), any(SportTypeList.class), anyInt())).thenReturn(new ExerciseList());
+        when(storageMock.readNoteList(anyString())).thenReturn(new NoteList());
+        when(storageMock.readWeightList(anyString())).thenReturn(new WeightList());
+    }
 }
@@ -0,0 +1,166 @@
+package de.saring.sportstracker.storage;
+
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains all unit tests for the BinarySnapshot class.
+ *
+ * @author Stefan Saring
+ */
+public class BinarySnapshotTest {
+
+    private Path tempDirectory;
+    private String snapshotFilename;
+    private List<String> dataFilenames;
+
+    private SportTypeList sportTypeList;
+    private ExerciseList exerciseList;
+    private NoteList noteList;
+    private WeightList weightList;
+
+    /**
+     * This method copies the valid test data files into a temporary directory and reads them.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDirectory = Files.createTempDirectory("st-snapshot-test");
+        snapshotFilename = tempDirectory.resolve("st-data.snapshot").toString();
+        dataFilenames = Stream.of("sport-types", "exercises", "notes", "weights")
+                .map(name -> tempDirectory.resolve(name + ".xml").toString())
+                .collect(Collectors.toList());
+
+        for (String dataFilename : dataFilenames) {
+            final String validFilename = Paths.get(dataFilename).getFileName().toString().replace(".xml", "-valid.xml");
+            Files.copy(Paths.get("misc/testdata", validFilename), Paths.get(dataFilename));
+        }
+
+        final XMLStorage storage = new XMLStorage();
+        sportTypeList = storage.readSportTypeList(dataFilenames.get(0));
+        exerciseList = storage.readExerciseList(dataFilenames.get(1), sportTypeList);
+        noteList = storage.readNoteList(dataFilenames.get(2));
+        weightList = storage.readWeightList(dataFilenames.get(3));
+    }
+
+    /**
+     * This method removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests writing and reading the snapshot: the read lists must contain exactly the same data
+     * (compared by the XML representation).
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        writeSnapshot();
+
+        final BinarySnapshot snapshot = BinarySnapshot.read(snapshotFilename, dataFilenames);
+        assertNotNull(snapshot);
+
+        final XMLSportTypeList xmlSportTypeList = new XMLSportTypeList();
+        final XMLExerciseList xmlExerciseList = new XMLExerciseList();
+        final XMLNoteList xmlNoteList = new XMLNoteList();
+        final XMLWeightList xmlWeightList = new XMLWeightList();
+
+        assertEquals(toXml(sportTypeList, xmlSportTypeList::createSportTypeElement),
+                toXml(snapshot.getSportTypeList(), xmlSportTypeList::createSportTypeElement));
+        assertEquals(toXml(exerciseList, xmlExerciseList::createExerciseElement),
+                toXml(snapshot.getExerciseList(), xmlExerciseList::createExerciseElement));
+        assertEquals(toXml(noteList, xmlNoteList::createNoteElement),
+                toXml(snapshot.getNoteList(), xmlNoteList::createNoteElement));
+        assertEquals(toXml(weightList, xmlWeightList::createWeightElement),
+                toXml(snapshot.getWeightList(), xmlWeightList::createWeightElement));
+
+        // the exercises must reference the sport type instances of the read sport type list
+        snapshot.getExerciseList().forEach(exercise ->
+                assertSame(snapshot.getSportTypeList().getByID(exercise.getSportType().getId()),
+                        exercise.getSportType()));
+    }
+
+    /**
+     * Tests that no snapshot will be read when it does not exist.
+     */
+    @Test
+    public void testReadMissingSnapshot() throws IOException {
+        assertNull(BinarySnapshot.read(snapshotFilename, dataFilenames));
+    }
+
+    /**
+     * Tests that the snapshot will not be used when a data file has been modified.
+     */
+    @Test
+    public void testReadOutdatedSnapshotDataFileModified() throws IOException {
+        writeSnapshot();
+
+        Files.write(Paths.get(dataFilenames.get(2)), "\n".getBytes(), StandardOpenOption.APPEND);
+        assertNull(BinarySnapshot.read(snapshotFilename, dataFilenames));
+    }
+
+    /**
+     * Tests that the snapshot will not be used when a journal file has been created for a data file.
+     */
+    @Test
+    public void testReadOutdatedSnapshotJournalCreated() throws IOException {
+        writeSnapshot();
+
+        Files.write(Paths.get(dataFilenames.get(1) + ListJournal.JOURNAL_SUFFIX), new byte[]{1, 2, 3});
+        assertNull(BinarySnapshot.read(snapshotFilename, dataFilenames));
+    }
+
+    /**
+     * Tests that reading a truncated snapshot fails with an IOException.
+     */
+    @Test
+    public void testReadCorruptSnapshot() throws IOException {
+        writeSnapshot();
+
+        final byte[] snapshot = Files.readAllBytes(Paths.get(snapshotFilename));
+        Files.write(Paths.get(snapshotFilename), Arrays.copyOf(snapshot, snapshot.length - 10));
+        assertThrows(IOException.class, () -> BinarySnapshot.read(snapshotFilename, dataFilenames));
+    }
+
+    private void writeSnapshot() throws IOException {
+        new BinarySnapshot(sportTypeList, exerciseList, noteList, weightList).write(snapshotFilename, dataFilenames);
+        assertTrue(Files.exists(Paths.get(snapshotFilename)));
+    }
+
+    private static <T extends IdObject> List<String> toXml(final IdObjectList<T> list,
+            final Function<T, Element> elementCreator) {
+        final XMLOutputter outputter = new XMLOutputter(Format.getRawFormat());
+        return list.stream()
+                .map(entry -> outputter.outputString(elementCreator.apply(entry)))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+package de.saring.sportstracker.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.WeightList;
+
+/**
+ * This class contains all unit tests for the BulkExporter class.
+ *
+ * @author Stefan Saring
+ */
+public class BulkExporterTest {
+
+    private Path tempDirectory;
+    private ExerciseList exerciseList;
+    private NoteList noteList;
+    private WeightList weightList;
+
+    private final BulkExporter exporter = new BulkExporter();
+
+    /**
+     * Reads the valid XML test data and creates the temporary export directory.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDirectory = Files.createTempDirectory("st-export-test");
+
+        final XMLStorage xmlStorage = new XMLStorage();
+        final SportTypeList sportTypeList = xmlStorage.readSportTypeList("misc/testdata/sport-types-valid.xml");
+        exerciseList = xmlStorage.readExerciseList("misc/testdata/exercises-valid.xml", sportTypeList);
+        noteList = xmlStorage.readNoteList("misc/testdata/notes-valid.xml");
+        weightList = xmlStorage.readWeightList("misc/testdata/weights-valid.xml");
+    }
+
+    /**
+     * Removes the temporary export directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests the CSV export of all lists, including the quoting of special characters and the overwriting
+     * of existing files.
+     */
+    @Test
+    public void testExportAllCsv() throws Exception {
+        noteList.getByID(1).setComment("Text with \"quotes\", comma\nand line break");
+        exporter.exportAll(exerciseList, noteList, weightList, tempDirectory, BulkExporter.Format.CSV);
+
+        final List<String> exerciseLines = readLines(tempDirectory.resolve("exercises.csv"));
+        assertEquals(4, exerciseLines.size());
+        assertTrue(exerciseLines.get(0).startsWith("id,date,sportType,sportSubType,duration,"));
+
+        final String notes = new String(Files.readAllBytes(tempDirectory.resolve("notes.csv")), StandardCharsets.UTF_8);
+        assertTrue(notes.startsWith("id,date,comment\r\n1,2009-01-02T09:10:11,"
+                + "\"Text with \"\"quotes\"\", comma\nand line break\"\r\n"));
+
+        assertEquals(4, readLines(tempDirectory.resolve("weights.csv")).size());
+
+        // existing export files are overwritten without creating backup files
+        exporter.exportAll(exerciseList, noteList, weightList, tempDirectory, BulkExporter.Format.CSV);
+        try (Stream<Path> paths = Files.list(tempDirectory)) {
+            assertEquals(3, paths.count());
+        }
+    }
+
+    /**
+     * Tests the JSON Lines export of all lists.
+     */
+    @Test
+    public void testExportAllJsonLines() throws Exception {
+        noteList.getByID(1).setComment("Text with \"quotes\"\nand line break");
+        exporter.exportAll(exerciseList, noteList, weightList, tempDirectory, BulkExporter.Format.JSON_LINES);
+
+        assertEquals(3, readLines(tempDirectory.resolve("exercises.jsonl")).size());
+        final List<String> noteLines = readLines(tempDirectory.resolve("notes.jsonl"));
+        assertEquals(3, noteLines.size());
+        assertEquals("{\"id\":1,\"date\":\"2009-01-02T09:10:11\"," +
+                "\"comment\":\"Text with \\\"quotes\\\"\\nand line break\"}", noteLines.get(0));
+
+        final List<String> weightLines = readLines(tempDirectory.resolve("weights.jsonl"));
+        assertTrue(weightLines.get(2).contains("\"comment\":null"));
+    }
+
+    /**
+     * Tests the export of a list with multiple chunks, the entries must be written in list order.
+     */
+    @Test
+    public void testExportChunksInOrder() throws Exception {
+        final List<Note> notes = new ArrayList<>();
+        final LocalDateTime startDate = LocalDateTime.of(2019, 1, 1, 0, 0, 0);
+        for (int i = 1; i <= 50_000; i++) {
+            final Note note = new Note(i);
+            note.setDateTime(startDate.plusMinutes(i));
+            note.setComment("Note " + i);
+            notes.add(note);
+        }
+        final NoteList largeNoteList = new NoteList();
+        largeNoteList.clearAndAddAll(notes);
+
+        final Path file = tempDirectory.resolve("notes.csv");
+        exporter.exportNotes(largeNoteList, file, BulkExporter.Format.CSV);
+
+        final List<String> lines = readLines(file);
+        assertEquals(50_001, lines.size());
+        for (int i = 1; i <= 50_000; i++) {
+            assertTrue(lines.get(i).startsWith(i + ","));
+        }
+    }
+
+    private static List<String> readLines(final Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+}
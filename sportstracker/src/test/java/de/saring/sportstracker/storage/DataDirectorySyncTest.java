@@ -0,0 +1,295 @@
+package de.saring.sportstracker.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.core.STExceptionID;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.sportstracker.gui.STDocument;
+
+/**
+ * This class contains all unit tests for the DataDirectorySync class. The document is mocked via Mockito,
+ * it contains the valid XML test data.
+ *
+ * @author Stefan Saring
+ */
+public class DataDirectorySyncTest {
+
+    private Path localDirectory;
+    private Path remoteDirectory;
+
+    private final XMLStorage xmlStorage = new XMLStorage();
+    private SportTypeList sportTypeList;
+    private NoteList noteList;
+    private WeightList weightList;
+
+    private DataDirectorySync dataDirectorySync;
+
+    /**
+     * Creates the temporary data directories and the document mock with the valid XML test data.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        localDirectory = Files.createTempDirectory("st-sync-local");
+        remoteDirectory = Files.createTempDirectory("st-sync-remote");
+
+        sportTypeList = xmlStorage.readSportTypeList("misc/testdata/sport-types-valid.xml");
+        final ExerciseList exerciseList = xmlStorage.readExerciseList("misc/testdata/exercises-valid.xml",
+                sportTypeList);
+        noteList = xmlStorage.readNoteList("misc/testdata/notes-valid.xml");
+        weightList = xmlStorage.readWeightList("misc/testdata/weights-valid.xml");
+
+        final STDocument documentMock = mock(STDocument.class);
+        when(documentMock.getDataDirectory()).thenReturn(localDirectory.toString());
+        when(documentMock.getSportTypeList()).thenReturn(sportTypeList);
+        when(documentMock.getExerciseList()).thenReturn(exerciseList);
+        when(documentMock.getNoteList()).thenReturn(noteList);
+        when(documentMock.getWeightList()).thenReturn(weightList);
+        when(documentMock.getDirtyDataLists()).thenReturn(EnumSet.noneOf(STDocument.DataList.class));
+
+        dataDirectorySync = new DataDirectorySync(documentMock);
+    }
+
+    /**
+     * Removes the temporary data directories after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        deleteDirectory(localDirectory);
+        deleteDirectory(remoteDirectory);
+    }
+
+    /**
+     * Tests the first synchronization with an empty directory, it must be initialized with all entries.
+     * A synchronization of unchanged data must not contain any changes.
+     */
+    @Test
+    public void testSyncWithEmptyDirectory() throws Exception {
+        DataDirectorySync.SyncResult result = synchronize();
+        assertEquals(0, result.getLocalChangeCount());
+        assertEquals(9, result.getRemoteChangeCount());
+        assertEquals(0, result.getConflictCount());
+        assertTrue(Files.exists(localDirectory.resolve(SyncIndex.FILENAME)));
+        assertTrue(Files.exists(remoteDirectory.resolve(SyncIndex.FILENAME)));
+
+        assertEquals(3, readRemoteNotes().size());
+        assertEquals(3, xmlStorage.readWeightList(remoteDirectory.resolve("weights.xml").toString()).size());
+
+        result = synchronize();
+        assertEquals(0, result.getLocalChangeCount());
+        assertEquals(0, result.getRemoteChangeCount());
+    }
+
+    /**
+     * Tests the synchronization of changes and deletions made in only one of the directories.
+     */
+    @Test
+    public void testSyncChangesOfBothDirectories() throws Exception {
+        synchronize();
+
+        // change note 1 and delete weight 2 locally
+        changeComment(noteList, 1, "Changed locally");
+        weightList.removeByID(2);
+
+        // change note 2 and delete note 3 remotely
+        final NoteList remoteNotes = readRemoteNotes();
+        remoteNotes.getByID(2).setComment("Changed remotely");
+        remoteNotes.removeByID(3);
+        xmlStorage.storeNoteList(remoteNotes, remoteDirectory.resolve("notes.xml").toString());
+
+        final DataDirectorySync.SyncResult result = synchronize();
+        assertEquals(2, result.getLocalChangeCount());
+        assertEquals(2, result.getRemoteChangeCount());
+        assertEquals(0, result.getConflictCount());
+
+        assertEquals(2, noteList.size());
+        assertEquals("Changed locally", noteList.getByID(1).getComment());
+        assertEquals("Changed remotely", noteList.getByID(2).getComment());
+        assertNull(noteList.getByID(3));
+
+        final NoteList mergedRemoteNotes = readRemoteNotes();
+        assertEquals(2, mergedRemoteNotes.size());
+        assertEquals("Changed locally", mergedRemoteNotes.getByID(1).getComment());
+        assertNull(xmlStorage.readWeightList(remoteDirectory.resolve("weights.xml").toString()).getByID(2));
+    }
+
+    /**
+     * Tests the synchronization of different entries added with the same ID in both directories,
+     * both entries must be kept.
+     */
+    @Test
+    public void testSyncEntriesAddedWithSameId() throws Exception {
+        synchronize();
+
+        noteList.set(createNote(4, "Added locally"));
+        final NoteList remoteNotes = readRemoteNotes();
+        remoteNotes.set(createNote(4, "Added remotely"));
+        xmlStorage.storeNoteList(remoteNotes, remoteDirectory.resolve("notes.xml").toString());
+
+        synchronize();
+        assertEquals(5, noteList.size());
+        assertEquals("Added locally", noteList.getByID(4).getComment());
+        assertEquals("Added remotely", noteList.getByID(5).getComment());
+
+        final NoteList mergedRemoteNotes = readRemoteNotes();
+        assertEquals(5, mergedRemoteNotes.size());
+        assertEquals("Added locally", mergedRemoteNotes.getByID(4).getComment());
+        assertEquals("Added remotely", mergedRemoteNotes.getByID(5).getComment());
+    }
+
+    /**
+     * Tests the first synchronization with a directory containing different entries with the same IDs: the
+     * entries with different dates must both be kept, the entries with the same date are the same entry and
+     * the more recently modified one (the local entry without tracked changes) must be taken.
+     */
+    @Test
+    public void testFirstSyncEntriesWithSameId() throws Exception {
+        final NoteList remoteNotes = new NoteList();
+        remoteNotes.set(createNote(1, "Added remotely"));
+        final Note remoteNote2 = noteList.getByID(2).clone(2);
+        remoteNote2.setComment("Changed remotely");
+        remoteNotes.set(remoteNote2);
+        xmlStorage.storeNoteList(remoteNotes, remoteDirectory.resolve("notes.xml").toString());
+
+        final DataDirectorySync.SyncResult result = synchronize();
+        assertEquals(1, result.getConflictCount());
+        assertEquals(4, noteList.size());
+        assertEquals("Note 1", noteList.getByID(1).getComment());
+        assertEquals("Note 2", noteList.getByID(2).getComment());
+        assertEquals("Added remotely", noteList.getByID(4).getComment());
+
+        final NoteList mergedRemoteNotes = readRemoteNotes();
+        assertEquals(4, mergedRemoteNotes.size());
+        assertEquals("Note 1", mergedRemoteNotes.getByID(1).getComment());
+        assertEquals("Note 2", mergedRemoteNotes.getByID(2).getComment());
+        assertEquals("Added remotely", mergedRemoteNotes.getByID(4).getComment());
+
+        // the synchronized lists must be equal afterwards
+        final DataDirectorySync.SyncResult nextResult = synchronize();
+        assertEquals(0, nextResult.getLocalChangeCount());
+        assertEquals(0, nextResult.getRemoteChangeCount());
+    }
+
+    /**
+     * Tests the synchronization of entries changed in both directories: the entry with the more recent
+     * modification must be taken, i.e. the local change time or the modification time of the remote file.
+     */
+    @Test
+    public void testSyncConflictsByModificationTime() throws Exception {
+        synchronize();
+
+        final NoteList remoteNotes = readRemoteNotes();
+        changeComment(remoteNotes, 1, "Changed remotely");
+        changeComment(remoteNotes, 2, "Changed remotely");
+        final Path remoteNotesFile = remoteDirectory.resolve("notes.xml");
+        xmlStorage.storeNoteList(remoteNotes, remoteNotesFile.toString());
+
+        // note 2 is changed locally before and note 1 after the remote change
+        changeComment(noteList, 2, "Changed locally");
+        Thread.sleep(20);
+        Files.setLastModifiedTime(remoteNotesFile, FileTime.fromMillis(System.currentTimeMillis()));
+        Thread.sleep(20);
+        changeComment(noteList, 1, "Changed locally");
+
+        final DataDirectorySync.SyncResult result = synchronize();
+        assertEquals(2, result.getConflictCount());
+        assertEquals("Changed locally", noteList.getByID(1).getComment());
+        assertEquals("Changed remotely", noteList.getByID(2).getComment());
+
+        final NoteList mergedRemoteNotes = readRemoteNotes();
+        assertEquals("Changed locally", mergedRemoteNotes.getByID(1).getComment());
+        assertEquals("Changed remotely", mergedRemoteNotes.getByID(2).getComment());
+
+        // the synchronized lists must be equal afterwards
+        final DataDirectorySync.SyncResult nextResult = synchronize();
+        assertEquals(0, nextResult.getLocalChangeCount());
+        assertEquals(0, nextResult.getRemoteChangeCount());
+    }
+
+    /**
+     * Tests the synchronization with a directory containing different sport types, it must fail.
+     */
+    @Test
+    public void testSyncWithDifferentSportTypes() throws Exception {
+        final SportTypeList remoteSportTypes = xmlStorage.readSportTypeList("misc/testdata/sport-types-valid.xml");
+        remoteSportTypes.getByID(1).setName("Changed");
+        xmlStorage.storeSportTypeList(remoteSportTypes, remoteDirectory.resolve("sport-types.xml").toString());
+
+        final STException exception = assertThrows(STException.class, this::synchronize);
+        assertEquals(STExceptionID.DATASYNC_SPORT_TYPES_DIFFERENT, exception.getId());
+        assertTrue(Files.notExists(remoteDirectory.resolve(SyncIndex.FILENAME)));
+    }
+
+    /**
+     * Tests the synchronization with a directory containing a pending journal file, it must fail without
+     * modifying the directory.
+     */
+    @Test
+    public void testSyncWithPendingJournal() throws Exception {
+        synchronize();
+        final Path remoteNotesFile = remoteDirectory.resolve("notes.xml");
+        final byte[] remoteNotesContent = Files.readAllBytes(remoteNotesFile);
+        Files.write(remoteDirectory.resolve("notes.xml" + ListJournal.JOURNAL_SUFFIX), new byte[] {'C'});
+
+        changeComment(noteList, 1, "Changed locally");
+        final STException exception = assertThrows(STException.class, this::synchronize);
+        assertEquals(STExceptionID.DATASYNC_JOURNAL_PENDING, exception.getId());
+        assertArrayEquals(remoteNotesContent, Files.readAllBytes(remoteNotesFile));
+    }
+
+    private DataDirectorySync.SyncResult synchronize() throws STException {
+        final DataDirectorySync.SyncResult result = dataDirectorySync.synchronize(remoteDirectory);
+        result.applyLocalChanges();
+        dataDirectorySync.commit(result);
+        return result;
+    }
+
+    private NoteList readRemoteNotes() throws STException {
+        return xmlStorage.readNoteList(remoteDirectory.resolve("notes.xml").toString());
+    }
+
+    private static void changeComment(final NoteList notes, final int id, final String comment) {
+        final Note note = notes.getByID(id);
+        note.setComment(comment);
+        notes.set(note);
+    }
+
+    private static Note createNote(final int id, final String comment) {
+        final Note note = new Note(id);
+        note.setDateTime(LocalDateTime.of(2019, 4, 13, 10, 0, 0));
+        note.setComment(comment);
+        return note;
+    }
+
+    private static void deleteDirectory(final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+}
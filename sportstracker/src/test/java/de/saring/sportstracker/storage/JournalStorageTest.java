@@ -0,0 +1,340 @@
+package de.saring.sportstracker.storage;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import org.jdom2.Element;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains all unit tests for the JournalStorage class.
+ *
+ * @author Stefan Saring
+ */
+public class JournalStorageTest {
+
+    private Path tempDirectory;
+    private String notesXml;
+    private Path notesJournal;
+
+    /**
+     * This method initializes the environment for testing, the valid note list is copied
+     * into a temporary directory.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDirectory = Files.createTempDirectory("st-journal-test");
+        notesXml = tempDirectory.resolve("notes.xml").toString();
+        notesJournal = Paths.get(notesXml + ListJournal.JOURNAL_SUFFIX);
+        Files.copy(Paths.get("misc/testdata/notes-valid.xml"), Paths.get(notesXml));
+    }
+
+    /**
+     * This method removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests that stored changes are appended to the journal only and that they are
+     * contained in the list after reading it again.
+     */
+    @Test
+    public void testStoreAndReadWithJournal() throws Exception {
+        final byte[] originalXml = Files.readAllBytes(Paths.get(notesXml));
+
+        JournalStorage storage = new JournalStorage(100);
+        NoteList noteList = storage.readNoteList(notesXml);
+        assertEquals(3, noteList.size());
+
+        // storing an unmodified list must not create a journal
+        storage.storeNoteList(noteList, notesXml);
+        assertFalse(Files.exists(notesJournal));
+
+        changeComment(noteList, 2, "Note 2 changed");
+        noteList.removeByID(3);
+        noteList.set(createNote(4, "Note 4"));
+        storage.storeNoteList(noteList, notesXml);
+
+        // the XML file must be unchanged, the journal must contain the changes
+        assertArrayEquals(originalXml, Files.readAllBytes(Paths.get(notesXml)));
+        assertTrue(Files.exists(notesJournal));
+
+        NoteList noteListNew = new JournalStorage(100).readNoteList(notesXml);
+        assertEquals("1:Note 1|2:Note 2 changed|4:Note 4", toContentString(noteListNew));
+    }
+
+    /**
+     * Tests that only the changed entries get serialized on store and that changes made in the tracked
+     * list after creating the stored copy remain pending.
+     */
+    @Test
+    public void testStoreChangedEntriesOnly() throws Exception {
+        final XMLNoteList xmlNoteList = new XMLNoteList();
+        final AtomicInteger createdElementCount = new AtomicInteger();
+        final ListJournal<Note> journal = new ListJournal<>(notesXml, "note-list", note -> {
+            createdElementCount.incrementAndGet();
+            return xmlNoteList.createNoteElement(note);
+        });
+
+        NoteList noteList = xmlNoteList.readNoteList(notesXml);
+        journal.replay(noteList, xmlNoteList::readNote);
+        assertEquals(0, journal.store(noteList));
+        assertEquals(0, createdElementCount.get());
+
+        changeComment(noteList, 2, "Note 2 changed");
+        noteList.removeByID(3);
+        assertEquals(2, journal.store(noteList));
+        assertEquals(1, createdElementCount.get());
+
+        // store a copy of the list, the note changed afterwards must be stored by the next store
+        noteList.set(createNote(4, "Note 4"));
+        final NoteList noteListCopy = new NoteList();
+        noteListCopy.clearAndAddAll(noteList.stream().collect(Collectors.toList()));
+        noteList.set(createNote(4, "Note 4 changed"));
+        assertEquals(1, journal.store(noteListCopy));
+        assertEquals(1, journal.store(noteList));
+        assertEquals(0, journal.store(noteList));
+        assertEquals(3, createdElementCount.get());
+
+        journal.compact(false);
+        assertFalse(Files.exists(notesJournal));
+        NoteList noteListNew = new XMLStorage().readNoteList(notesXml);
+        assertEquals("1:Note 1|2:Note 2 changed|4:Note 4 changed", toContentString(noteListNew));
+    }
+
+    /**
+     * Tests that an entry changed in place and set again while a copy of the list is being stored (e.g. by the
+     * background save) remains pending, the change must be stored by the next store.
+     */
+    @Test
+    public void testStoreEntryChangedInPlaceWhileStoring() throws Exception {
+        final XMLNoteList xmlNoteList = new XMLNoteList();
+        final NoteList noteList = xmlNoteList.readNoteList(notesXml);
+        final AtomicInteger createdElementCount = new AtomicInteger();
+        final ListJournal<Note> journal = new ListJournal<>(notesXml, "note-list", note -> {
+            final Element element = xmlNoteList.createNoteElement(note);
+            if (createdElementCount.incrementAndGet() == 1) {
+                changeComment(noteList, note.getId(), "Note 2 changed again");
+            }
+            return element;
+        });
+        journal.replay(noteList, xmlNoteList::readNote);
+
+        changeComment(noteList, 2, "Note 2 changed");
+        final NoteList noteListCopy = new NoteList();
+        noteListCopy.clearAndAddAll(noteList.stream().collect(Collectors.toList()));
+        assertEquals(1, journal.store(noteListCopy));
+        assertEquals(1, journal.store(noteList));
+        assertEquals(0, journal.store(noteList));
+
+        journal.compact(false);
+        NoteList noteListNew = new XMLStorage().readNoteList(notesXml);
+        assertEquals("1:Note 1|2:Note 2 changed again|3:Note 3", toContentString(noteListNew));
+    }
+
+    /**
+     * Tests that the changes of an attached list (e.g. read from a snapshot) are appended to the journal
+     * only, the XML file must not be rewritten.
+     */
+    @Test
+    public void testStoreAttachedList() throws Exception {
+        final byte[] originalXml = Files.readAllBytes(Paths.get(notesXml));
+
+        JournalStorage storage = new JournalStorage(100);
+        NoteList noteList = new XMLStorage().readNoteList(notesXml);
+        storage.attachNoteList(noteList, notesXml);
+
+        changeComment(noteList, 2, "Note 2 changed");
+        storage.storeNoteList(noteList, notesXml);
+        assertArrayEquals(originalXml, Files.readAllBytes(Paths.get(notesXml)));
+        assertTrue(Files.exists(notesJournal));
+
+        // attach the list again (journal exists now), the next changes must be appended
+        storage = new JournalStorage(100);
+        storage.attachNoteList(noteList, notesXml);
+        noteList.removeByID(1);
+        storage.storeNoteList(noteList, notesXml);
+        assertArrayEquals(originalXml, Files.readAllBytes(Paths.get(notesXml)));
+
+        NoteList noteListNew = new JournalStorage(100).readNoteList(notesXml);
+        assertEquals("2:Note 2 changed|3:Note 3", toContentString(noteListNew));
+    }
+
+    /**
+     * Tests that the journal gets compacted into the XML file when closing the storage.
+     */
+    @Test
+    public void testCompactionOnClose() throws Exception {
+        JournalStorage storage = new JournalStorage(100);
+        NoteList noteList = storage.readNoteList(notesXml);
+        noteList.set(createNote(4, "Note 4"));
+        storage.storeNoteList(noteList, notesXml);
+        assertTrue(Files.exists(notesJournal));
+
+        storage.close();
+        assertFalse(Files.exists(notesJournal));
+
+        // the compacted XML file must be readable by the plain XML storage
+        NoteList noteListNew = new XMLStorage().readNoteList(notesXml);
+        assertEquals("1:Note 1|2:Note 2|3:Note 3|4:Note 4", toContentString(noteListNew));
+    }
+
+    /**
+     * Tests that the journal gets compacted in background when the threshold has been reached.
+     */
+    @Test
+    public void testCompactionOnThreshold() throws Exception {
+        JournalStorage storage = new JournalStorage(2);
+        NoteList noteList = storage.readNoteList(notesXml);
+
+        changeComment(noteList, 1, "Note 1 changed");
+        storage.storeNoteList(noteList, notesXml);
+        changeComment(noteList, 2, "Note 2 changed");
+        storage.storeNoteList(noteList, notesXml);
+
+        // wait until the background compaction has been finished
+        for (int i = 0; i < 100 && Files.exists(notesJournal); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(Files.exists(notesJournal));
+
+        NoteList noteListNew = new XMLStorage().readNoteList(notesXml);
+        assertEquals("1:Note 1 changed|2:Note 2 changed|3:Note 3", toContentString(noteListNew));
+        storage.close();
+    }
+
+    /**
+     * Tests the crash recovery: the journal gets truncated at each possible position (as after a crash
+     * while writing). The read list must always contain the state of the last completely stored transaction.
+     */
+    @Test
+    public void testReadTruncatedJournal() throws Exception {
+        final byte[] originalXml = Files.readAllBytes(Paths.get(notesXml));
+
+        JournalStorage storage = new JournalStorage(100);
+        NoteList noteList = storage.readNoteList(notesXml);
+
+        final List<Long> committedSizes = new ArrayList<>();
+        final List<String> committedContents = new ArrayList<>();
+        committedSizes.add(0L);
+        committedContents.add(toContentString(noteList));
+
+        changeComment(noteList, 1, "Note 1 changed");
+        noteList.set(createNote(4, "Note 4"));
+        storeAndRecordState(storage, noteList, committedSizes, committedContents);
+
+        noteList.removeByID(2);
+        storeAndRecordState(storage, noteList, committedSizes, committedContents);
+
+        changeComment(noteList, 4, "Note 4 changed with umlauts äöü");
+        storeAndRecordState(storage, noteList, committedSizes, committedContents);
+
+        final byte[] journal = Files.readAllBytes(notesJournal);
+        assertEquals(committedSizes.get(committedSizes.size() - 1).longValue(), journal.length);
+
+        for (int length = 0; length <= journal.length; length++) {
+            Files.write(notesJournal, Arrays.copyOf(journal, length));
+
+            int expectedIndex = 0;
+            while (expectedIndex + 1 < committedSizes.size() && committedSizes.get(expectedIndex + 1) <= length) {
+                expectedIndex++;
+            }
+
+            NoteList noteListRead = new JournalStorage(100).readNoteList(notesXml);
+            assertEquals(committedContents.get(expectedIndex), toContentString(noteListRead),
+                    "Wrong content for journal length " + length);
+
+            // the incomplete transaction must have been removed
+            assertEquals(committedSizes.get(expectedIndex).longValue(), Files.size(notesJournal));
+            assertArrayEquals(originalXml, Files.readAllBytes(Paths.get(notesXml)));
+        }
+    }
+
+    /**
+     * Tests that a corrupt transaction (wrong checksum) will be ignored.
+     */
+    @Test
+    public void testReadCorruptJournal() throws Exception {
+        JournalStorage storage = new JournalStorage(100);
+        NoteList noteList = storage.readNoteList(notesXml);
+        changeComment(noteList, 1, "Note 1 changed");
+        storage.storeNoteList(noteList, notesXml);
+
+        final byte[] journal = Files.readAllBytes(notesJournal);
+        journal[journal.length / 2]++;
+        Files.write(notesJournal, journal);
+
+        NoteList noteListRead = new JournalStorage(100).readNoteList(notesXml);
+        assertEquals("1:Note 1|2:Note 2|3:Note 3", toContentString(noteListRead));
+    }
+
+    /**
+     * Tests that a list stored to a new destination is written as whole XML file.
+     */
+    @Test
+    public void testStoreToNewDestination() throws STException {
+        JournalStorage storage = new JournalStorage(100);
+        NoteList noteList = storage.readNoteList(notesXml);
+
+        final String otherNotesXml = tempDirectory.resolve("other-notes.xml").toString();
+        storage.storeNoteList(noteList, otherNotesXml);
+
+        assertFalse(Files.exists(Paths.get(otherNotesXml + ListJournal.JOURNAL_SUFFIX)));
+        NoteList noteListNew = new XMLStorage().readNoteList(otherNotesXml);
+        assertEquals("1:Note 1|2:Note 2|3:Note 3", toContentString(noteListNew));
+    }
+
+    private void storeAndRecordState(final JournalStorage storage, final NoteList noteList,
+            final List<Long> committedSizes, final List<String> committedContents) throws Exception {
+        storage.storeNoteList(noteList, notesXml);
+        committedSizes.add(Files.size(notesJournal));
+        committedContents.add(toContentString(noteList));
+    }
+
+    /**
+     * Changes the comment of the specified note, it must be stored in the list again for tracking the change.
+     */
+    private static void changeComment(final NoteList noteList, final int id, final String comment) {
+        final Note note = noteList.getByID(id);
+        note.setComment(comment);
+        noteList.set(note);
+    }
+
+    private static Note createNote(final int id, final String comment) {
+        Note note = new Note(id);
+        note.setDateTime(LocalDateTime.of(2009, 2, id, 10, 0, 0));
+        note.setComment(comment);
+        return note;
+    }
+
+    private static String toContentString(final NoteList noteList) {
+        return noteList.stream()
+                .map(note -> note.getId() + ":" + note.getComment())
+                .collect(Collectors.joining("|"));
+    }
+}
@@ -0,0 +1,329 @@
+package de.saring.sportstracker.storage;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.SportTypeList;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains all unit tests for the PartitionedExerciseStorage class.
+ *
+ * @author Stefan Saring
+ */
+public class PartitionedExerciseStorageTest {
+
+    private static final FileTime OLD_FILE_TIME = FileTime.fromMillis(1_000_000_000_000L);
+
+    private Path tempDirectory;
+    private String manifestFilename;
+
+    private SportTypeList sportTypeList;
+    private ExerciseList exerciseList;
+
+    /**
+     * This method reads the valid XML test data (all exercises of 2003), adds an exercise of 2019 and
+     * creates the temporary directory for the partitions.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDirectory = Files.createTempDirectory("st-partition-test");
+        manifestFilename = tempDirectory.resolve("exercises" + PartitionedExerciseStorage.MANIFEST_SUFFIX).toString();
+
+        final XMLStorage xmlStorage = new XMLStorage();
+        sportTypeList = xmlStorage.readSportTypeList("misc/testdata/sport-types-valid.xml");
+        exerciseList = xmlStorage.readExerciseList("misc/testdata/exercises-valid.xml", sportTypeList);
+
+        final Exercise exercise2019 = exerciseList.getAt(0).clone(exerciseList.getNewID());
+        exercise2019.setDateTime(LocalDateTime.of(2019, 4, 13, 10, 0, 0));
+        exerciseList.set(exercise2019);
+    }
+
+    /**
+     * This method removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests the getPartitionFilename() method.
+     */
+    @Test
+    public void testGetPartitionFilename() {
+        assertEquals("data/exercises-2019.xml",
+                PartitionedExerciseStorage.getPartitionFilename("data/exercises-partitions.xml", 2019));
+    }
+
+    /**
+     * Tests storing the exercises in yearly partitions and reading them by another storage instance:
+     * the read list must contain exactly the same exercises.
+     */
+    @Test
+    public void testStoreAndRead() throws STException {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+
+        assertTrue(Files.exists(Paths.get(manifestFilename)));
+        assertTrue(Files.exists(getPartitionFile(2003)));
+        assertTrue(Files.exists(getPartitionFile(2019)));
+        assertReadListEqual(new PartitionedExerciseStorage());
+    }
+
+    /**
+     * Tests storing of a changed exercise list: only the partition of the modified exercise must be rewritten.
+     */
+    @Test
+    public void testStoreChangedPartitionOnly() throws Exception {
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        storage.storeExerciseList(exerciseList, manifestFilename);
+        Files.setLastModifiedTime(getPartitionFile(2003), OLD_FILE_TIME);
+        Files.setLastModifiedTime(getPartitionFile(2019), OLD_FILE_TIME);
+
+        final Exercise exercise2019 = exerciseList.getAt(exerciseList.size() - 1);
+        exercise2019.setComment("Modified comment");
+        exerciseList.set(exercise2019);
+        storage.storeExerciseList(exerciseList, manifestFilename);
+
+        assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(getPartitionFile(2003)));
+        assertNotEquals(OLD_FILE_TIME, Files.getLastModifiedTime(getPartitionFile(2019)));
+        assertReadListEqual(new PartitionedExerciseStorage());
+    }
+
+    /**
+     * Tests storing of an attached exercise list (e.g. read from a snapshot): only the partition of the
+     * modified exercise must be rewritten. The partition filenames must be taken from the manifest.
+     */
+    @Test
+    public void testStoreAttachedList() throws Exception {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+        Files.setLastModifiedTime(getPartitionFile(2003), OLD_FILE_TIME);
+        Files.setLastModifiedTime(getPartitionFile(2019), OLD_FILE_TIME);
+        assertEquals(List.of(getPartitionFile(2003).toString(), getPartitionFile(2019).toString()),
+                PartitionedExerciseStorage.getPartitionFilenames(manifestFilename));
+
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        storage.attachExerciseList(exerciseList, manifestFilename);
+        final Exercise exercise2019 = exerciseList.getAt(exerciseList.size() - 1);
+        exercise2019.setComment("Modified comment");
+        exerciseList.set(exercise2019);
+        storage.storeExerciseList(exerciseList, manifestFilename);
+
+        assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(getPartitionFile(2003)));
+        assertNotEquals(OLD_FILE_TIME, Files.getLastModifiedTime(getPartitionFile(2019)));
+        assertReadListEqual(new PartitionedExerciseStorage());
+    }
+
+    /**
+     * Tests the storing of an exercise list read by another storage instance, where all exercises of
+     * one year have been removed: the partition of this year must be deleted.
+     */
+    @Test
+    public void testStoreRemovedYear() throws STException {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        final ExerciseList readExerciseList = storage.readExerciseList(manifestFilename, sportTypeList);
+        readExerciseList.removeByID(readExerciseList.getAt(readExerciseList.size() - 1).getId());
+        storage.storeExerciseList(readExerciseList, manifestFilename);
+
+        assertTrue(Files.exists(getPartitionFile(2003)));
+        assertFalse(Files.exists(getPartitionFile(2019)));
+        exerciseList = readExerciseList;
+        assertReadListEqual(new PartitionedExerciseStorage());
+    }
+
+    /**
+     * Tests the reading of the older partitions on demand: the recent partitions can be changed and stored
+     * before, the added older exercises must not cause a rewrite of their partition. The highest exercise ID
+     * must be known before reading the older partitions.
+     */
+    @Test
+    public void testReadOlderPartitionsOnDemand() throws Exception {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+        Files.setLastModifiedTime(getPartitionFile(2003), OLD_FILE_TIME);
+        final int maxId = exerciseList.stream().mapToInt(Exercise::getId).max().getAsInt();
+
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        final ExerciseList readExerciseList = storage.readRecentExerciseList(manifestFilename, sportTypeList, 2019);
+        assertEquals(1, readExerciseList.size());
+        assertEquals(List.of(2003), storage.getUnreadYears(manifestFilename));
+        assertEquals(maxId, storage.getMaxExerciseId(manifestFilename));
+
+        final Exercise exercise2019 = readExerciseList.getAt(0);
+        exercise2019.setComment("Modified comment");
+        readExerciseList.set(exercise2019);
+        storage.storeExerciseList(readExerciseList, manifestFilename);
+
+        assertTrue(storage.readExercisesOfYears(manifestFilename, sportTypeList, List.of(2018)).isEmpty());
+        final List<Exercise> olderExercises = storage.readExercisesOfYears(manifestFilename, sportTypeList,
+                List.of(2003));
+        assertEquals(exerciseList.size() - 1, olderExercises.size());
+        final List<Exercise> allExercises = readExerciseList.stream().collect(Collectors.toList());
+        allExercises.addAll(olderExercises);
+        readExerciseList.clearAndAddAll(allExercises);
+        storage.storeExerciseList(readExerciseList, manifestFilename);
+
+        assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(getPartitionFile(2003)));
+        assertTrue(storage.getUnreadYears(manifestFilename).isEmpty());
+        assertTrue(storage.readExercisesOfYears(manifestFilename, sportTypeList, List.of(2003)).isEmpty());
+        exerciseList = readExerciseList;
+        assertReadListEqual(new PartitionedExerciseStorage());
+    }
+
+    /**
+     * Tests the reading of a manifest of an older version without the highest exercise ID: all partitions
+     * must be read at once, the next store must add the highest ID to the manifest.
+     */
+    @Test
+    public void testReadManifestWithoutMaxId() throws Exception {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+        final String manifest = new String(Files.readAllBytes(Paths.get(manifestFilename)), StandardCharsets.UTF_8);
+        assertTrue(manifest.contains("<max-id>"));
+        Files.write(Paths.get(manifestFilename), manifest.replaceAll("<max-id>\\d+</max-id>", "")
+                .getBytes(StandardCharsets.UTF_8));
+
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        final ExerciseList readExerciseList = storage.readRecentExerciseList(manifestFilename, sportTypeList, 2019);
+        assertEquals(exerciseList.size(), readExerciseList.size());
+        assertTrue(storage.getUnreadYears(manifestFilename).isEmpty());
+        assertEquals(exerciseList.stream().mapToInt(Exercise::getId).max().getAsInt(),
+                storage.getMaxExerciseId(manifestFilename));
+
+        final Exercise exercise = readExerciseList.getAt(0);
+        exercise.setComment("Modified comment");
+        readExerciseList.set(exercise);
+        storage.storeExerciseList(readExerciseList, manifestFilename);
+        assertTrue(new String(Files.readAllBytes(Paths.get(manifestFilename)), StandardCharsets.UTF_8)
+                .contains("<max-id>"));
+    }
+
+    /**
+     * Tests the storing of an exercise moved into a partition, which has not been read yet: an exception
+     * is expected, the partition must not be written.
+     */
+    @Test
+    public void testStoreUnreadPartition() throws Exception {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+        Files.setLastModifiedTime(getPartitionFile(2003), OLD_FILE_TIME);
+
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        final ExerciseList readExerciseList = storage.readRecentExerciseList(manifestFilename, sportTypeList, 2019);
+        final Exercise exercise = readExerciseList.getAt(0);
+        exercise.setDateTime(LocalDateTime.of(2003, 12, 24, 10, 0, 0));
+        readExerciseList.set(exercise);
+
+        assertThrows(STException.class, () -> storage.storeExerciseList(readExerciseList, manifestFilename));
+        assertEquals(OLD_FILE_TIME, Files.getLastModifiedTime(getPartitionFile(2003)));
+    }
+
+    /**
+     * Tests the reading after a crash while storing an exercise moved to another year: the exercise must not be
+     * lost or duplicated, no matter whether the crash happened before or after writing the manifest.
+     */
+    @Test
+    public void testReadAfterCrashWhileMovingExercise() throws Exception {
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        storage.storeExerciseList(exerciseList, manifestFilename);
+        final byte[] manifest = Files.readAllBytes(Paths.get(manifestFilename));
+        final byte[] partition2003 = Files.readAllBytes(getPartitionFile(2003));
+
+        final Exercise exercise = exerciseList.getAt(0);
+        exercise.setDateTime(LocalDateTime.of(2019, 12, 24, 10, 0, 0));
+        exerciseList.set(exercise);
+        storage.storeExerciseList(exerciseList, manifestFilename);
+        final byte[] movedManifest = Files.readAllBytes(Paths.get(manifestFilename));
+
+        // crash after writing the partition of the new year, but before writing the manifest
+        Files.write(Paths.get(manifestFilename), manifest);
+        Files.write(getPartitionFile(2003), partition2003);
+        assertReadExerciseYear(exercise.getId(), 2003, exerciseList.size());
+
+        // crash after writing the manifest, but before writing the partition of the previous year
+        Files.write(Paths.get(manifestFilename), movedManifest);
+        Files.write(getPartitionFile(2003), partition2003);
+        assertReadExerciseYear(exercise.getId(), 2019, exerciseList.size());
+
+        // the next store must remove the duplicate exercise from the inconsistent partition
+        final PartitionedExerciseStorage recoveringStorage = new PartitionedExerciseStorage();
+        final ExerciseList readExerciseList = recoveringStorage.readExerciseList(manifestFilename, sportTypeList);
+        recoveringStorage.storeExerciseList(readExerciseList, manifestFilename);
+        assertEquals(exerciseList.size() - 2, new XMLExerciseList().readExerciseList(
+                getPartitionFile(2003).toString(), sportTypeList).size());
+        assertReadListEqual(new PartitionedExerciseStorage());
+    }
+
+    /**
+     * Tests the reading of a not existing manifest, an empty list is expected.
+     */
+    @Test
+    public void testReadMissingManifest() throws STException {
+        assertEquals(0, new PartitionedExerciseStorage().readExerciseList(manifestFilename, sportTypeList).size());
+    }
+
+    /**
+     * Tests the reading of a manifest with a missing partition file, an exception is expected.
+     */
+    @Test
+    public void testReadMissingPartition() throws Exception {
+        new PartitionedExerciseStorage().storeExerciseList(exerciseList, manifestFilename);
+        Files.delete(getPartitionFile(2019));
+
+        assertThrows(STException.class, () ->
+                new PartitionedExerciseStorage().readExerciseList(manifestFilename, sportTypeList));
+    }
+
+    private Path getPartitionFile(final int year) {
+        return Paths.get(PartitionedExerciseStorage.getPartitionFilename(manifestFilename, year));
+    }
+
+    private void assertReadExerciseYear(final int exerciseId, final int year, final int expectedSize)
+            throws STException {
+        final PartitionedExerciseStorage storage = new PartitionedExerciseStorage();
+        final ExerciseList readExerciseList = storage.readRecentExerciseList(manifestFilename, sportTypeList, 2019);
+        final List<Exercise> allExercises = readExerciseList.stream().collect(Collectors.toList());
+        final List<Exercise> olderExercises = storage.readExercisesOfYears(manifestFilename, sportTypeList,
+                storage.getUnreadYears(manifestFilename));
+        allExercises.removeIf(exercise -> olderExercises.stream().anyMatch(older -> older.getId() == exercise.getId()));
+        allExercises.addAll(olderExercises);
+
+        assertEquals(expectedSize, allExercises.size());
+        assertEquals(year, allExercises.stream().filter(exercise -> exercise.getId() == exerciseId)
+                .findFirst().get().getDateTime().getYear());
+    }
+
+    private void assertReadListEqual(final PartitionedExerciseStorage storage) throws STException {
+        final ExerciseList readExerciseList = storage.readExerciseList(manifestFilename, sportTypeList);
+        assertEquals(toXml(exerciseList), toXml(readExerciseList));
+    }
+
+    private static List<String> toXml(final ExerciseList list) {
+        final XMLExerciseList xmlExerciseList = new XMLExerciseList();
+        final XMLOutputter outputter = new XMLOutputter(Format.getRawFormat());
+        return list.stream()
+                .map(exercise -> outputter.outputString(xmlExerciseList.createExerciseElement(exercise)))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,10 +1,18 @@
 package de.saring.sportstracker.storage;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
 
 import javafx.scene.paint.Color;
@@ -63,6 +71,104 @@ public class SQLiteExporterTest {
         assertTrue(Files.exists(exporter.getDatabasePath()));
     }
 
+    /**
+     * Test of method exportToSqlite(): All exported rows must be stored in the database, also when multiple
+     * batches are needed. Optional values not set in an exercise must be NULL, they must not be taken from
+     * the previous batch row. The indexes must be created too.
+     */
+    @Test
+    public void testExportToSqliteContent() throws STException, SQLException {
+
+        final Exercise firstExercise = document.getExerciseList().getAt(0);
+        for (int i = 2; i <= 2500; i++) {
+            final Exercise exercise = new Exercise(i);
+            exercise.setDateTime(firstExercise.getDateTime().plusDays(i));
+            exercise.setSportType(firstExercise.getSportType());
+            exercise.setSportSubType(firstExercise.getSportSubType());
+            exercise.setIntensity(Exercise.IntensityType.NORMAL);
+            exercise.setDuration(3600);
+            document.getExerciseList().set(exercise);
+        }
+
+        exporter.exportToSqlite();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + exporter.getDatabasePath());
+             Statement statement = connection.createStatement()) {
+
+            assertEquals(1, queryInt(statement, "SELECT COUNT(*) FROM SPORT_TYPE"));
+            assertEquals(1, queryInt(statement, "SELECT COUNT(*) FROM SPORT_SUBTYPE"));
+            assertEquals(1, queryInt(statement, "SELECT COUNT(*) FROM EQUIPMENT"));
+            assertEquals(2500, queryInt(statement, "SELECT COUNT(*) FROM EXERCISE"));
+            assertEquals(1, queryInt(statement, "SELECT COUNT(*) FROM NOTE"));
+            assertEquals(1, queryInt(statement, "SELECT COUNT(*) FROM WEIGHT"));
+            assertEquals(4, queryInt(statement, "SELECT COUNT(*) FROM SQLITE_MASTER WHERE TYPE = 'index' " +
+                    "AND NAME LIKE '%_IDX'"));
+
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT HRM_FILE, EQUIPMENT_ID, COMMENT FROM EXERCISE WHERE ID = 2")) {
+                assertTrue(resultSet.next());
+                assertNull(resultSet.getString("HRM_FILE"));
+                assertNull(resultSet.getObject("EQUIPMENT_ID"));
+                assertNull(resultSet.getString("COMMENT"));
+            }
+        }
+    }
+
+    /**
+     * Test of method exportToSqlite(): The second export must update the existing database incrementally,
+     * only the inserted, changed and deleted rows must be written. The sport subtypes of unchanged sport
+     * types must not be replaced.
+     */
+    @Test
+    public void testExportToSqliteIncremental() throws STException, SQLException {
+
+        exporter.exportToSqlite();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + exporter.getDatabasePath());
+             Statement statement = connection.createStatement()) {
+
+            final int subTypeRowId = queryInt(statement, "SELECT ID FROM SPORT_SUBTYPE");
+
+            // change a note, delete the weight and add an exercise
+            document.getNoteList().getAt(0).setComment("Changed comment");
+            document.getWeightList().removeByID(1);
+            final Exercise exercise = new Exercise(2);
+            exercise.setDateTime(LocalDateTime.now());
+            exercise.setSportType(document.getSportTypeList().getAt(0));
+            exercise.setSportSubType(document.getSportTypeList().getAt(0).getSportSubTypeList().getAt(0));
+            exercise.setIntensity(Exercise.IntensityType.LOW);
+            exercise.setDuration(1800);
+            document.getExerciseList().set(exercise);
+
+            exporter.exportToSqlite();
+
+            // the same connection must still be usable after the export
+            assertEquals(2, queryInt(statement, "SELECT COUNT(*) FROM EXERCISE"));
+            assertEquals(0, queryInt(statement, "SELECT COUNT(*) FROM WEIGHT"));
+            assertEquals(subTypeRowId, queryInt(statement, "SELECT ID FROM SPORT_SUBTYPE"));
+            assertEquals(4, queryInt(statement, "SELECT COUNT(*) FROM EXPORT_ROW_HASH"));
+            try (ResultSet resultSet = statement.executeQuery("SELECT COMMENT FROM NOTE WHERE ID = 1")) {
+                assertTrue(resultSet.next());
+                assertEquals("Changed comment", resultSet.getString(1));
+            }
+
+            // the subtypes of a changed sport type must be replaced
+            document.getSportTypeList().getAt(0).setName("Biking");
+            exporter.exportToSqlite();
+
+            assertEquals(1, queryInt(statement, "SELECT COUNT(*) FROM SPORT_SUBTYPE"));
+            assertNotEquals(subTypeRowId, queryInt(statement, "SELECT ID FROM SPORT_SUBTYPE"));
+            assertEquals(2, queryInt(statement, "SELECT COUNT(*) FROM EXERCISE"));
+        }
+    }
+
+    private static int queryInt(final Statement statement, final String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
     private void fillDocumentWithTestData() {
 
         SportSubType sportSubType = new SportSubType(1);
@@ -81,6 +187,7 @@ public class SQLiteExporterTest {
         exercise.setDateTime(LocalDateTime.now());
         exercise.setSportType(sportType);
         exercise.setSportSubType(sportSubType);
+        exercise.setEquipment(equipment);
         exercise.setIntensity(Exercise.IntensityType.HIGH);
         exercise.setDistance(42);
         exercise.setAvgSpeed(20);
@@ -0,0 +1,184 @@
+package de.saring.sportstracker.storage;
+
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.NoteList;
+import de.saring.sportstracker.data.SportTypeList;
+import de.saring.sportstracker.data.WeightList;
+import de.saring.util.data.IdObject;
+import de.saring.util.data.IdObjectList;
+import javafx.scene.paint.Color;
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class contains all unit tests for the SQLiteStorage class.
+ *
+ * @author Stefan Saring
+ */
+public class SQLiteStorageTest {
+
+    private Path tempDirectory;
+    private String databaseFilename;
+
+    private SportTypeList sportTypeList;
+    private ExerciseList exerciseList;
+    private NoteList noteList;
+    private WeightList weightList;
+
+    /**
+     * This method reads the valid XML test data and creates the temporary directory for the database.
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        tempDirectory = Files.createTempDirectory("st-sqlite-test");
+        databaseFilename = tempDirectory.resolve("st-data" + SQLiteStorage.DATABASE_SUFFIX).toString();
+
+        final XMLStorage xmlStorage = new XMLStorage();
+        sportTypeList = xmlStorage.readSportTypeList("misc/testdata/sport-types-valid.xml");
+        exerciseList = xmlStorage.readExerciseList("misc/testdata/exercises-valid.xml", sportTypeList);
+        noteList = xmlStorage.readNoteList("misc/testdata/notes-valid.xml");
+        weightList = xmlStorage.readWeightList("misc/testdata/weights-valid.xml");
+    }
+
+    /**
+     * This method removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests storing all lists in a new database and reading them by another storage instance: the read
+     * lists must contain exactly the same data (compared by the XML representation).
+     */
+    @Test
+    public void testStoreAndRead() throws STException {
+        storeAllLists(new SQLiteStorage());
+        assertReadListsEqual(new SQLiteStorage());
+    }
+
+    /**
+     * Tests storing of changed lists: added, modified and removed entries must be written to the database.
+     */
+    @Test
+    public void testStoreChangedLists() throws STException {
+        final SQLiteStorage storage = new SQLiteStorage();
+        storeAllLists(storage);
+
+        // modify an exercise, remove a note and add a new note
+        final Exercise exercise = exerciseList.getAt(0);
+        exercise.setComment("Modified comment");
+        exercise.setEquipment(null);
+        exerciseList.set(exercise);
+
+        noteList.removeByID(noteList.getAt(0).getId());
+        final Note newNote = new Note(noteList.getNewID());
+        newNote.setDateTime(LocalDateTime.of(2018, 5, 12, 18, 30, 0));
+        newNote.setComment("New note");
+        noteList.set(newNote);
+
+        // modify the color of a sport type
+        sportTypeList.getAt(0).setColor(Color.rgb(10, 20, 30));
+
+        storage.storeExerciseList(exerciseList, databaseFilename);
+        storage.storeNoteList(noteList, databaseFilename);
+        storage.storeSportTypeList(sportTypeList, databaseFilename);
+        assertReadListsEqual(new SQLiteStorage());
+
+        // storing the same lists again must not change anything
+        storage.storeExerciseList(exerciseList, databaseFilename);
+        storage.storeNoteList(noteList, databaseFilename);
+        assertReadListsEqual(new SQLiteStorage());
+    }
+
+    /**
+     * Tests the storing of lists read from the database by another storage instance.
+     */
+    @Test
+    public void testStoreListsReadFromDatabase() throws STException {
+        storeAllLists(new SQLiteStorage());
+
+        final SQLiteStorage storage = new SQLiteStorage();
+        final WeightList readWeightList = storage.readWeightList(databaseFilename);
+        readWeightList.removeByID(readWeightList.getAt(0).getId());
+        storage.storeWeightList(readWeightList, databaseFilename);
+
+        weightList = readWeightList;
+        assertReadListsEqual(new SQLiteStorage());
+    }
+
+    /**
+     * Tests the reading of a not existing database, empty lists are expected.
+     */
+    @Test
+    public void testReadMissingDatabase() throws STException {
+        final SQLiteStorage storage = new SQLiteStorage();
+        final SportTypeList readSportTypeList = storage.readSportTypeList(databaseFilename);
+        assertEquals(0, readSportTypeList.size());
+        assertEquals(0, storage.readExerciseList(databaseFilename, readSportTypeList).size());
+        assertEquals(0, storage.readNoteList(databaseFilename).size());
+        assertEquals(0, storage.readWeightList(databaseFilename).size());
+        assertFalse(Files.exists(Paths.get(databaseFilename)));
+    }
+
+    private void storeAllLists(final SQLiteStorage storage) throws STException {
+        storage.storeSportTypeList(sportTypeList, databaseFilename);
+        storage.storeExerciseList(exerciseList, databaseFilename);
+        storage.storeNoteList(noteList, databaseFilename);
+        storage.storeWeightList(weightList, databaseFilename);
+    }
+
+    private void assertReadListsEqual(final SQLiteStorage storage) throws STException {
+        final SportTypeList readSportTypeList = storage.readSportTypeList(databaseFilename);
+        final ExerciseList readExerciseList = storage.readExerciseList(databaseFilename, readSportTypeList);
+        final NoteList readNoteList = storage.readNoteList(databaseFilename);
+        final WeightList readWeightList = storage.readWeightList(databaseFilename);
+
+        final XMLSportTypeList xmlSportTypeList = new XMLSportTypeList();
+        final XMLExerciseList xmlExerciseList = new XMLExerciseList();
+        final XMLNoteList xmlNoteList = new XMLNoteList();
+        final XMLWeightList xmlWeightList = new XMLWeightList();
+
+        assertEquals(toXml(sportTypeList, xmlSportTypeList::createSportTypeElement),
+                toXml(readSportTypeList, xmlSportTypeList::createSportTypeElement));
+        assertEquals(toXml(exerciseList, xmlExerciseList::createExerciseElement),
+                toXml(readExerciseList, xmlExerciseList::createExerciseElement));
+        assertEquals(toXml(noteList, xmlNoteList::createNoteElement),
+                toXml(readNoteList, xmlNoteList::createNoteElement));
+        assertEquals(toXml(weightList, xmlWeightList::createWeightElement),
+                toXml(readWeightList, xmlWeightList::createWeightElement));
+    }
+
+    private static <T extends IdObject> List<String> toXml(final IdObjectList<T> list,
+            final Function<T, Element> elementCreator) {
+        final XMLOutputter outputter = new XMLOutputter(Format.getRawFormat());
+        return list.stream()
+                .map(entry -> outputter.outputString(elementCreator.apply(entry)))
+                .collect(Collectors.toList());
+    }
+}
@@ -2,13 +2,19 @@ package de.saring.sportstracker.storage;
 
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.data.*;
+import de.saring.util.SafeFileUtils;
 import de.saring.util.gui.javafx.ColorUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +54,7 @@ public class XMLStorageTest {
 
     private static void deleteFileIfExists(String filename) {
         new File(filename).delete();
+        new File(filename + SafeFileUtils.BACKUP_SUFFIX).delete();
     }
 
     /**
@@ -330,6 +337,35 @@ public class XMLStorageTest {
         checkExerciseListContent(exercisesNew);
     }
 
+    /**
+     * Tests the storing of a GZIP compressed exercise list: the file must be detected and read as
+     * compressed file and must contain the same XML as the uncompressed file after decompression.
+     */
+    @Test
+    public void testStoreExerciseListCompressed() throws Exception {
+        SportTypeList sportTypeList = createSportTypeList();
+        ExerciseList exercises = storage.readExerciseList("misc/testdata/exercises-valid.xml", sportTypeList);
+
+        storage.storeExerciseList(exercises, EXERCISES_WRITETEST_XML);
+        byte[] uncompressedContent = Files.readAllBytes(Paths.get(EXERCISES_WRITETEST_XML));
+        assertFalse(XMLUtils.isCompressed(Paths.get(EXERCISES_WRITETEST_XML)));
+
+        storage.setCompressedFiles(true);
+        storage.storeExerciseList(exercises, EXERCISES_WRITETEST_XML);
+        assertTrue(XMLUtils.isCompressed(Paths.get(EXERCISES_WRITETEST_XML)));
+        assertTrue(Files.size(Paths.get(EXERCISES_WRITETEST_XML)) < uncompressedContent.length);
+        checkExerciseListContent(storage.readExerciseList(EXERCISES_WRITETEST_XML, sportTypeList));
+
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(Paths.get(EXERCISES_WRITETEST_XML)))) {
+            assertArrayEquals(uncompressedContent, inputStream.readAllBytes());
+        }
+
+        // the previous uncompressed file is the backup file, it must be readable as well
+        ExerciseList exercisesBackup = new XMLStorage().readExerciseList(
+                EXERCISES_WRITETEST_XML + SafeFileUtils.BACKUP_SUFFIX, sportTypeList);
+        checkExerciseListContent(exercisesBackup);
+    }
+
     /**
      * Tests of the appropriate method.
      */
@@ -369,6 +405,27 @@ public class XMLStorageTest {
         checkNoteListContent(noteListNew);
     }
 
+    /**
+     * Tests the recovery on reading: when the XML file is corrupt (e.g. after a crash),
+     * the backup file of the previous generation needs to be read.
+     */
+    @Test
+    public void testReadNoteListFromBackup() throws Exception {
+        NoteList noteList = storage.readNoteList("misc/testdata/notes-valid.xml");
+
+        // store twice, so the backup file contains the valid list
+        storage.storeNoteList(noteList, NOTES_WRITETEST_XML);
+        storage.storeNoteList(noteList, NOTES_WRITETEST_XML);
+        assertTrue(new File(NOTES_WRITETEST_XML + SafeFileUtils.BACKUP_SUFFIX).exists());
+
+        Files.write(Paths.get(NOTES_WRITETEST_XML), "<note-list><note>".getBytes(StandardCharsets.UTF_8));
+        checkNoteListContent(storage.readNoteList(NOTES_WRITETEST_XML));
+
+        // the backup must also be used when the XML file is missing
+        Files.delete(Paths.get(NOTES_WRITETEST_XML));
+        checkNoteListContent(storage.readNoteList(NOTES_WRITETEST_XML));
+    }
+
     /**
      * This helper methods checks the content of the specified NoteList.
      * It has to be exactly same as in "misc/testdata/notes-valid.xml".
@@ -3,7 +3,6 @@ package de.saring.exerciseviewer.parser.impl;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import de.saring.exerciseviewer.core.EVException;
@@ -20,6 +19,7 @@ import de.saring.exerciseviewer.data.LapSpeed;
 import de.saring.exerciseviewer.data.LapTemperature;
 import de.saring.exerciseviewer.data.RecordingMode;
 import de.saring.exerciseviewer.parser.AbstractExerciseParser;
+import de.saring.exerciseviewer.parser.BinaryInput;
 import de.saring.exerciseviewer.parser.ExerciseParserInfo;
 
 /**
@@ -63,7 +63,7 @@ public class HAC4TURParser extends AbstractExerciseParser {
      * Private inner class which is used for reading samples from the file.
      */
     private static class Sample {
-        private int[] contents = new int[20];
+        private final BinaryInput contents;
         private int distance = 0;
         private int altitude;
         private int heartRate;
@@ -75,8 +75,8 @@ public class HAC4TURParser extends AbstractExerciseParser {
          * Construct a new sample with the sample bytes. This will initialize
          * all sample values.
          */
-        public Sample(int[] contents) throws EVException {
-            if (contents.length != 20) {
+        public Sample(BinaryInput contents) throws EVException {
+            if (contents.getSize() != 20) {
                 throw new EVException("Length of a sample should be 20 bytes!");
             }
             this.contents = contents;
@@ -135,41 +135,27 @@ public class HAC4TURParser extends AbstractExerciseParser {
         }
 
         private long calculateTime() {
-            int[] timeBytes = Arrays.copyOfRange(contents, 0, 0 + 4);
-            return (timeBytes[0] & 0xff)
-                    + ((timeBytes[1] << 8) & 0xff00)
-                    + ((timeBytes[2] << 16) & 0xff0000)
-                    + ((timeBytes[3] << 24) & 0xff000000);
+            return contents.u32le(0);
         }
 
         private int calculateDistance() {
-            int[] distanceBytes = Arrays.copyOfRange(contents, 8, 8 + 4);
-            int distance = 0;
-            for (int theByte = 0; theByte < distanceBytes.length; theByte++) {
-                distance += distanceBytes[theByte] * (int) Math.pow(2, theByte * 8);
-            }
-            return distance;
+            return (int) contents.u32le(8);
         }
 
         private int calculateAltitude() {
-            int[] altitudeBytes = Arrays.copyOfRange(contents, 12, 12 + 2);
-            int altitude = 0;
-            for (int theByte = 0; theByte < altitudeBytes.length; theByte++) {
-                altitude += altitudeBytes[theByte] * (int) Math.pow(2, theByte * 8);
-            }
-            return altitude;
+            return contents.u16le(12);
         }
 
         private int calculateHeartRate() {
-            return contents[14];
+            return contents.u8(14);
         }
 
         private int calculateCadence() {
-            return contents[15];
+            return contents.u8(15);
         }
 
         private int calculateTemperature() {
-            return contents[16];
+            return contents.u8(16);
         }
 
         @Override
@@ -185,11 +171,6 @@ public class HAC4TURParser extends AbstractExerciseParser {
         }
     }
 
-    private List<String> fileContent;
-    private int[] fileContentsBytes;
-    private int nrOfLinesInNote;
-    private int sampleInterval;
-
     @Override
     public ExerciseParserInfo getInfo() {
         return info;
@@ -201,8 +182,9 @@ public class HAC4TURParser extends AbstractExerciseParser {
         // read file to array of strings and to array of bytes.
         // we'll need both as the tur file contains both text (header)
         // and binary (samples) information.
-        fileContent = readFileToStringList(filename);
-        fileContentsBytes = readFileToByteArray(filename);
+        // (the parser is shared, so all the file data is kept in local variables)
+        List<String> fileContent = readFileToStringList(filename);
+        BinaryInput fileContentsBytes = readFileToBinaryInput(filename);
 
         // Create a new exercise file and give it the right type
         EVExercise exercise = new EVExercise(EVExercise.ExerciseFileType.HAC4TUR);
@@ -216,13 +198,13 @@ public class HAC4TURParser extends AbstractExerciseParser {
 
         // get the nr of lines there are in the note. This is important,
         // as this decides were all the following data can be found.
-        nrOfLinesInNote = readInteger(FilePosition.NR_OF_LINES_IN_NOTE);
+        int nrOfLinesInNote = readInteger(fileContent, FilePosition.NR_OF_LINES_IN_NOTE);
         // set recording mode. For now, just set it to always having recorded
         // speed, cadence, altitude, but not Power.
         RecordingMode recMode = new RecordingMode();
         exercise.setRecordingMode(recMode);
         recMode.setHeartRate(true);
-        recMode.setSpeed(readFloat(FilePosition.AVERAGE_SPEED + nrOfLinesInNote) > 0.0);
+        recMode.setSpeed(readFloat(fileContent, FilePosition.AVERAGE_SPEED + nrOfLinesInNote) > 0.0);
         recMode.setAltitude(true);
         recMode.setPower(false);
         recMode.setTemperature(true);
@@ -236,24 +218,25 @@ public class HAC4TURParser extends AbstractExerciseParser {
         }
 
         // get duration of exercise. The duration is recorded in seconds, so this one is easy.
-        exercise.setDuration(readInteger(FilePosition.DURATION + nrOfLinesInNote) * 10);
+        exercise.setDuration(readInteger(fileContent, FilePosition.DURATION + nrOfLinesInNote) * 10);
 
         // get average heart rate
-        exercise.setHeartRateAVG((short) Math.round(readFloat(FilePosition.AVERAGE_HEART_RATE + nrOfLinesInNote)));
+        exercise.setHeartRateAVG((short) Math.round(readFloat(fileContent, FilePosition.AVERAGE_HEART_RATE + nrOfLinesInNote)));
 
         // odometer
-        exercise.setOdometer(readInteger(FilePosition.ODOMETER + nrOfLinesInNote));
+        exercise.setOdometer(readInteger(fileContent, FilePosition.ODOMETER + nrOfLinesInNote));
         // total exercise time, the total exercise time is recorded in seconds, so this needs to be calculated to minutes.
-        exercise.setSumExerciseTime(readInteger(FilePosition.TOTAL_EXERCISE_TIME + nrOfLinesInNote) / 60);
+        exercise.setSumExerciseTime(readInteger(fileContent, FilePosition.TOTAL_EXERCISE_TIME + nrOfLinesInNote) / 60);
 
         // set recording interval
-        sampleInterval = readSampleInterval(FilePosition.BEGIN_SAMPLES + nrOfLinesInNote);
+        int sampleInterval = readSampleInterval(
+                fileContent, fileContentsBytes, FilePosition.BEGIN_SAMPLES + nrOfLinesInNote);
         exercise.setRecordingInterval((short) sampleInterval);
 
         // read all samples
-        exercise.setSampleList(readSamples(
+        exercise.getSampleList().addAll(readSamples(fileContent, fileContentsBytes,
                 FilePosition.NR_SAMPLES + nrOfLinesInNote,
-                FilePosition.BEGIN_SAMPLES + nrOfLinesInNote));
+                FilePosition.BEGIN_SAMPLES + nrOfLinesInNote, sampleInterval));
 
         // now that we have the samples, other values can be calculated.
         exercise.setAltitude(calculateAltitudes(exercise));
@@ -263,7 +246,7 @@ public class HAC4TURParser extends AbstractExerciseParser {
         exercise.setTemperature(calculateTemperature(exercise));
 
         // calculate heartrate limits (only one available in HAC files)
-        exercise.getHeartRateLimits().add(calculateHeartRate(exercise));
+        exercise.getHeartRateLimits().add(calculateHeartRate(exercise, fileContent, nrOfLinesInNote));
 
         // get lap data
         exercise.setLapList(getLaps(exercise));
@@ -362,11 +345,13 @@ public class HAC4TURParser extends AbstractExerciseParser {
     /**
      * Calculates the heartrate range information.
      */
-    private HeartRateLimit calculateHeartRate(EVExercise exercise) throws EVException {
+    private HeartRateLimit calculateHeartRate(EVExercise exercise, List<String> fileContent, int nrOfLinesInNote)
+            throws EVException {
 
-        short upper = (short) readInteger(FilePosition.HR_LIMIT_UPPER + nrOfLinesInNote);
-        short lower = (short) readInteger(FilePosition.HR_LIMIT_LOWER + nrOfLinesInNote);
+        short upper = (short) readInteger(fileContent, FilePosition.HR_LIMIT_UPPER + nrOfLinesInNote);
+        short lower = (short) readInteger(fileContent, FilePosition.HR_LIMIT_LOWER + nrOfLinesInNote);
         int max = Integer.MIN_VALUE;
+        int sampleInterval = exercise.getRecordingInterval();
 
         int intervalsBelow = 0;
         int intervalsBetween = 0;
@@ -423,9 +408,12 @@ public class HAC4TURParser extends AbstractExerciseParser {
     /**
      * Returns the sample interval in seconds.
      *
+     * @param fileContent the lines of the file
+     * @param fileContentsBytes the bytes of the file
      * @param fpBeginSamples file position at which the sample data begins
      */
-    private int readSampleInterval(int fpBeginSamples) throws EVException {
+    private int readSampleInterval(List<String> fileContent, BinaryInput fileContentsBytes, int fpBeginSamples)
+            throws EVException {
 
         // find length of all strings to this point
         int lengthUntilSamples = 0;
@@ -433,8 +421,8 @@ public class HAC4TURParser extends AbstractExerciseParser {
             lengthUntilSamples += fileContent.get(i).length() + 1;
 
         // start reading samples
-        int[] firstSampleBytes = Arrays.copyOfRange(fileContentsBytes, lengthUntilSamples, lengthUntilSamples + 20);
-        int[] secondSampleBytes = Arrays.copyOfRange(fileContentsBytes, lengthUntilSamples + 20, lengthUntilSamples + 40);
+        BinaryInput firstSampleBytes = fileContentsBytes.slice(lengthUntilSamples, 20);
+        BinaryInput secondSampleBytes = fileContentsBytes.slice(lengthUntilSamples + 20, 20);
         Sample firstSample = new Sample(firstSampleBytes);
         Sample secondSample = new Sample(secondSampleBytes);
         return (int) (secondSample.getTime() - firstSample.getTime());
@@ -445,13 +433,17 @@ public class HAC4TURParser extends AbstractExerciseParser {
      * temporary storing the samples. It parses the number of samples and the sample
      * data from the specified file positions.
      *
+     * @param fileContent the lines of the file
+     * @param fileContentsBytes the bytes of the file
      * @param fpNrSamples file position for the number of samples
      * @param fpBeginSamples file position for the begin of sample data
+     * @param sampleInterval the sample interval in seconds
      * @return the created list of exercise samples
      */
-    private List<ExerciseSample> readSamples(int fpNrSamples, int fpBeginSamples) throws EVException {
+    private List<ExerciseSample> readSamples(List<String> fileContent, BinaryInput fileContentsBytes,
+            int fpNrSamples, int fpBeginSamples, int sampleInterval) throws EVException {
 
-        int nrSamples = readInteger(fpNrSamples);
+        int nrSamples = readInteger(fileContent, fpNrSamples);
         // find length of all strings to this point
         int lengthUntilSamples = 0;
         for (int i = 0; i < fpBeginSamples; i++) {
@@ -462,7 +454,7 @@ public class HAC4TURParser extends AbstractExerciseParser {
         List<Sample> samples = new ArrayList<>();
         for (int i = 0; i < nrSamples; i++) {
             int startFrom = lengthUntilSamples + (i * 20);
-            int[] sampleBytes = Arrays.copyOfRange(fileContentsBytes, startFrom, startFrom + 20);
+            BinaryInput sampleBytes = fileContentsBytes.slice(startFrom, 20);
             samples.add(new Sample(sampleBytes));
         }
 
@@ -491,7 +483,7 @@ public class HAC4TURParser extends AbstractExerciseParser {
     /**
      * Read a float from the file contents.
      */
-    private float readFloat(int pos) throws EVException {
+    private float readFloat(List<String> fileContent, int pos) throws EVException {
         try {
             return Float.parseFloat(fileContent.get(pos));
         } catch (Exception e) {
@@ -502,7 +494,7 @@ public class HAC4TURParser extends AbstractExerciseParser {
     /**
      * Read an integer from the file contents.
      */
-    private int readInteger(int pos) throws EVException {
+    private int readInteger(List<String> fileContent, int pos) throws EVException {
         try {
             return Integer.parseInt(fileContent.get(pos));
         } catch (Exception e) {
@@ -8,6 +8,7 @@ import de.saring.exerciseviewer.data.EVExercise;
 import de.saring.exerciseviewer.data.HeartRateLimit;
 import de.saring.exerciseviewer.data.RecordingMode;
 import de.saring.exerciseviewer.parser.AbstractExerciseParser;
+import de.saring.exerciseviewer.parser.BinaryInput;
 import de.saring.exerciseviewer.parser.ExerciseParserInfo;
 
 /**
@@ -47,11 +48,6 @@ public class PolarF6RawParser extends AbstractExerciseParser {
      */
     private final ExerciseParserInfo info = new ExerciseParserInfo("Polar F6/F11", List.of("frd", "FRD"));
 
-    /**
-     * The binary data of the exercise file.
-     */
-    private int[] fileContent;
-
     @Override
     public ExerciseParserInfo getInfo() {
         return info;
@@ -60,47 +56,47 @@ public class PolarF6RawParser extends AbstractExerciseParser {
     @Override
     public EVExercise parseExercise(String filename) throws EVException {
         // read binary file content to array
-        fileContent = readFileToByteArray(filename);
+        BinaryInput fileContent = readFileToBinaryInput(filename);
 
         // create an PVExercise object from this data and set file type
         EVExercise exercise = new EVExercise(EVExercise.ExerciseFileType.F6RAW);
         exercise.setDeviceName("Polar F Series");
 
         // check wheter the read data fits the expected data length
-        if (fileContent.length != F6_EXERCISE_FILE_LENGTH && fileContent.length != F11_EXERCISE_FILE_LENGTH) {
+        if (fileContent.getSize() != F6_EXERCISE_FILE_LENGTH && fileContent.getSize() != F11_EXERCISE_FILE_LENGTH) {
             throw new EVException("The exercise file is not valid, the file length is not correct ...");
         }
 
         // read the exercise name
         StringBuilder exerciseName = new StringBuilder();
         int i = 0;
-        while ((fileContent[i] & 0x80) != 0x80 && i < 8) {
-            exerciseName.append(decodeChar(fileContent[i]));
+        while ((fileContent.u8(i) & 0x80) != 0x80 && i < 8) {
+            exerciseName.append(decodeChar(fileContent.u8(i)));
             i++;
         }
-        exerciseName.append(String.valueOf(fileContent[i] - 0x80));
+        exerciseName.append(String.valueOf(fileContent.u8(i) - 0x80));
         exercise.setType(exerciseName.toString());
 
         // read the exercise date
-        int dateDay = fileContent[8];
-        int dateMonth = fileContent[9];
-        int dateYear = 2000 + fileContent[10];
-        int dateSeconds = decodeBCD(fileContent[11]);
-        int dateMinutes = decodeBCD(fileContent[12]);
-        int dateHours = decodeBCD(fileContent[13]);
+        int dateDay = fileContent.u8(8);
+        int dateMonth = fileContent.u8(9);
+        int dateYear = 2000 + fileContent.u8(10);
+        int dateSeconds = fileContent.bcd(11);
+        int dateMinutes = fileContent.bcd(12);
+        int dateHours = fileContent.bcd(13);
 
         // add exercise to the calendar
         exercise.setDateTime(LocalDateTime.of(dateYear, dateMonth, dateDay, dateHours, dateMinutes, dateSeconds));
 
         // get duration
-        int durationSeconds = decodeBCD(fileContent[14]);
-        int durationMinutes = decodeBCD(fileContent[15]);
-        int durationHours = decodeBCD(fileContent[16]);
+        int durationSeconds = fileContent.bcd(14);
+        int durationMinutes = fileContent.bcd(15);
+        int durationHours = fileContent.bcd(16);
         exercise.setDuration((durationHours * 60 * 60 * 10) + (durationMinutes * 60 * 10) + durationSeconds * 10);
 
         // get heartrate data
-        exercise.setHeartRateAVG((short) fileContent[17]);
-        exercise.setHeartRateMax((short) fileContent[18]);
+        exercise.setHeartRateAVG((short) fileContent.u8(17));
+        exercise.setHeartRateMax((short) fileContent.u8(18));
 
         // decode recording mode (heartrate is always recorded)
         // (not available in F6/F11 files)
@@ -114,30 +110,30 @@ public class PolarF6RawParser extends AbstractExerciseParser {
         // the percental heartrate representation is used
         // get the heartrate limit data (3 zones + the selected zone)
 
-        HeartRateLimit heartRateLimit0 = decodeHeartRateLimit(35, 23); // in-zone
+        HeartRateLimit heartRateLimit0 = decodeHeartRateLimit(fileContent, 35, 23); // in-zone
         exercise.getHeartRateLimits().add(heartRateLimit0);
 
-        HeartRateLimit heartRateLimit1 = decodeHeartRateLimit(37, 26); // light
+        HeartRateLimit heartRateLimit1 = decodeHeartRateLimit(fileContent, 37, 26); // light
         heartRateLimit1.setLowerHeartRate((short) 60);
         heartRateLimit1.setUpperHeartRate((short) 70);
         heartRateLimit1.setAbsoluteRange(false);
         exercise.getHeartRateLimits().add(heartRateLimit1);
 
-        HeartRateLimit heartRateLimit2 = decodeHeartRateLimit(39, 29); // moderate
+        HeartRateLimit heartRateLimit2 = decodeHeartRateLimit(fileContent, 39, 29); // moderate
         heartRateLimit2.setLowerHeartRate((short) 71);
         heartRateLimit2.setUpperHeartRate((short) 80);
         heartRateLimit2.setAbsoluteRange(false);
         exercise.getHeartRateLimits().add(heartRateLimit2);
 
-        HeartRateLimit heartRateLimit3 = decodeHeartRateLimit(41, 32); // hard
+        HeartRateLimit heartRateLimit3 = decodeHeartRateLimit(fileContent, 41, 32); // hard
         heartRateLimit3.setLowerHeartRate((short) 81);
         heartRateLimit3.setUpperHeartRate((short) 90);
         heartRateLimit3.setAbsoluteRange(false);
         exercise.getHeartRateLimits().add(heartRateLimit3);
 
         // get energy (in kCal)
-        int energyLowByte = fileContent[19];
-        int energyHighByte = fileContent[20];
+        int energyLowByte = fileContent.u8(19);
+        int energyHighByte = fileContent.u8(20);
         exercise.setEnergy(energyLowByte + (energyHighByte << 8));
 
         // Note: the following data is appended from the totals section to each
@@ -145,20 +141,20 @@ public class PolarF6RawParser extends AbstractExerciseParser {
 
         // set the offset if the file is a 50 byte F11 file
         int offset = 0;
-        if (fileContent.length == F11_EXERCISE_FILE_LENGTH) {
+        if (fileContent.getSize() == F11_EXERCISE_FILE_LENGTH) {
             offset = 1;
         }
 
         // get the total exercise time
-        int cumWorkoutSeconds = decodeBCD(fileContent[43 + offset]);
-        int cumWorkoutMinutes = decodeBCD(fileContent[44 + offset]);
-        int cumWorkoutHours = decodeBCD(fileContent[45 + offset]);
+        int cumWorkoutSeconds = fileContent.bcd(43 + offset);
+        int cumWorkoutMinutes = fileContent.bcd(44 + offset);
+        int cumWorkoutHours = fileContent.bcd(45 + offset);
         exercise.setSumExerciseTime((cumWorkoutHours * 60) + cumWorkoutMinutes + (cumWorkoutSeconds / 60));
 
         // get total energy
-        int energyTotalPart1 = decodeBCD(fileContent[46 + offset]);
-        int energyTotalPart2 = decodeBCD(fileContent[47 + offset]);
-        int energyTotalPart3 = decodeBCD(fileContent[48 + offset]);
+        int energyTotalPart1 = fileContent.bcd(46 + offset);
+        int energyTotalPart2 = fileContent.bcd(47 + offset);
+        int energyTotalPart3 = fileContent.bcd(48 + offset);
         exercise.setEnergyTotal((energyTotalPart3 * 10000) + (energyTotalPart2 * 100) + energyTotalPart1);
 
         return exercise;
@@ -282,32 +278,22 @@ public class PolarF6RawParser extends AbstractExerciseParser {
         return cDecoded;
     }
 
-    /**
-     * Decodes a BCD "byte" (in Polar format) to normal int value.
-     *
-     * @param value BCD "byte" to decode
-     * @return normal int value of BCD value
-     */
-    private int decodeBCD(int value) {
-        // (upper 4 bits * 10) + lower 4 bits
-        return ((value >> 4) * 10) + (value & 0x0f);
-    }
-
     /**
      * This method decodes the data for a HeartRateLimit object (limits and times
      * below, within and above) and returns it.
      *
+     * @param fileContent the binary data of the exercise file
      * @param offsetLimits offset in fileContent, where the limit data starts
      * @param offsetTimes offset in fileContent, where the times data starts
      * @return the filled HeartRateLimit object
      */
-    private HeartRateLimit decodeHeartRateLimit(int offsetLimits, int offsetTimes) {
-        short lowerHeartRate = (short) fileContent[offsetLimits + 0];
-        short upperHeartRate = (short) fileContent[offsetLimits + 1];
+    private HeartRateLimit decodeHeartRateLimit(BinaryInput fileContent, int offsetLimits, int offsetTimes) {
+        short lowerHeartRate = (short) fileContent.u8(offsetLimits + 0);
+        short upperHeartRate = (short) fileContent.u8(offsetLimits + 1);
 
-        int hrLimitWithinSecs = decodeBCD(fileContent[offsetTimes]);
-        hrLimitWithinSecs += decodeBCD(fileContent[offsetTimes + 1]) * 60;
-        hrLimitWithinSecs += decodeBCD(fileContent[offsetTimes + 2]) * 60 * 60;
+        int hrLimitWithinSecs = fileContent.bcd(offsetTimes);
+        hrLimitWithinSecs += fileContent.bcd(offsetTimes + 1) * 60;
+        hrLimitWithinSecs += fileContent.bcd(offsetTimes + 2) * 60 * 60;
 
         return new HeartRateLimit(lowerHeartRate, upperHeartRate, null, hrLimitWithinSecs, null, true);
     }
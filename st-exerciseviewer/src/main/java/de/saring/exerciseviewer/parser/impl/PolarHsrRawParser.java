@@ -12,6 +12,7 @@ import de.saring.exerciseviewer.data.Lap;
 import de.saring.exerciseviewer.data.LapSpeed;
 import de.saring.exerciseviewer.data.RecordingMode;
 import de.saring.exerciseviewer.parser.AbstractExerciseParser;
+import de.saring.exerciseviewer.parser.BinaryInput;
 import de.saring.exerciseviewer.parser.ExerciseParserInfo;
 import de.saring.util.unitcalc.ConvertUtils;
 
@@ -40,34 +41,24 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
      */
     private final ExerciseParserInfo info = new ExerciseParserInfo("Polar HSR", List.of("hsr", "HSR"));
 
-    /**
-     * The binary data of the exercise file.
-     */
-    private int[] fileContent;
-    /**
-     * section data
-     */
-    private int[][] s;
-
-
     @Override
     public ExerciseParserInfo getInfo() {
         return info;
     }
 
-    private int sdata(int section, int index) throws EVException {
+    private int sdata(BinaryInput[] s, int section, int index) throws EVException {
         section += index / 60;
         index %= 60;
 
         if (section >= s.length) {
             throw new EVException(String.format("Error! Section %d does not exist", section));
         }
-        if (index >= s[section].length) {
+        if (index >= s[section].getSize()) {
             throw new EVException(String.format("Error! Byte %d in section %d does not exist (%d)",
-                    index, section, s[section].length));
+                    index, section, s[section].getSize()));
         }
 
-        return s[section][index];
+        return s[section].u8(index);
     }
 
     @Override
@@ -76,7 +67,7 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         short[] interval = {5, 15, 30, 60, 120, 240, 300, 480};
 
         // read binary file content to array
-        fileContent = readFileToByteArray(filename);
+        BinaryInput fileContent = readFileToBinaryInput(filename);
 
         // create an PVExercise object from this data and set file type
         // TODO - support S410 and S520
@@ -84,30 +75,29 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         exercise.setDeviceName("Polar S4xx/S5xx Series");
 
         // get bytes in file
-        int bytesInFile = (fileContent[1] * 0x100) + fileContent[0];
-        if (bytesInFile != fileContent.length) {
+        int bytesInFile = fileContent.u16le(0);
+        if (bytesInFile != fileContent.getSize()) {
             throw new EVException("The exercise file is not valid, the file length is not correct ...");
         }
 
         // get data bytes
         int bytesInData = bytesInFile - 2;
-        int[] data = new int[bytesInData];
-        System.arraycopy(fileContent, 2, data, 0, bytesInData);
+        BinaryInput data = fileContent.slice(2, bytesInData);
 
         // process data
         int ii = 0;
         int sectionIx = 0;
         int sectionsInData = 0;
-        s = new int[1][1];
+        BinaryInput[] s = new BinaryInput[1];
 
         while (ii < bytesInData) {
             if (sectionIx == 0) {
                 // get first section
-                if (data[0] == 85) {
-                    sectionsInData = data[3];
+                if (data.u8(0) == 85) {
+                    sectionsInData = data.u8(3);
 
                     // alloc mem
-                    s = new int[sectionsInData + 1][];
+                    s = new BinaryInput[sectionsInData + 1];
 
                     // ok, first section read, continue
                     sectionIx++;
@@ -118,18 +108,15 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
                 }
             } else {
                 // find new section
-                if (data[ii] == 85) {
+                if (data.u8(ii) == 85) {
                     // check section number
-                    if (data[ii + 1] != sectionIx) {
+                    if (data.u8(ii + 1) != sectionIx) {
                         throw new EVException("Wrong section index in file");
                     }
 
-                    // allocate memory for this section
-                    int sectionLength = data[ii + 2];
-                    s[sectionIx] = new int[sectionLength];
-
-                    // set data in sections array (s) 
-                    System.arraycopy(data, ii + 3, s[sectionIx], 0, sectionLength);
+                    // set view of the section data in sections array (s)
+                    int sectionLength = data.u8(ii + 2);
+                    s[sectionIx] = data.slice(ii + 3, sectionLength);
 
                     //System.out.format(">>> new section #%d(%d) found at %d with %d bytes\n", 
                     //        sectionIx, sectionsInData, ii, sectionLength);
@@ -145,7 +132,7 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
             if ((sectionIx - 1) != sectionsInData) {
                 throw new EVException("Could not find all sections");
             }
-            if (data[ii] != 7) {
+            if (data.u8(ii) != 7) {
                 throw new EVException("Could not find no-more-sections byte in file");
             }
             // ok, all set
@@ -154,24 +141,24 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
 
         // get the number of samples recorded.  floor of (seconds / hertz).
         // Watch seems to always record a last entry, even partial seconds: +1;
-        int numberOfSamples = sdata(1, 0);
+        int numberOfSamples = sdata(s, 1, 0);
 
         // get recording interval
-        int intix = sdata(1, 1) - 95;
+        int intix = sdata(s, 1, 1) - 95;
         if (intix >= interval.length)
             throw new EVException("Recording interval is not valid ...");
         exercise.setRecordingInterval(interval[intix]);
 
         // TODO does the heartrate ranges are specified by absolute or percentual values?
-        boolean fHeartRateRangeAbsolute = true; //(sdata(1,1) & 0x10) == 0;
+        boolean fHeartRateRangeAbsolute = true; //(sdata(s, 1,1) & 0x10) == 0;
 
         // get exercise type
-        byte typeNr = (byte) sdata(1, 2);
+        byte typeNr = (byte) sdata(s, 1, 2);
         if (typeNr > 0) {
             // get exercise type label
             StringBuilder sbExerciseLabel = new StringBuilder();
             for (int i = 0; i < 7; i++) {
-                sbExerciseLabel.append(decodeChar(sdata(1, i + 3)));
+                sbExerciseLabel.append(decodeChar(sdata(s, 1, i + 3)));
             }
             exercise.setType(sbExerciseLabel.toString());
         } else {
@@ -179,43 +166,43 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         }
 
         // get exercise date
-        int dateSeconds = decodeBCD(sdata(1, 10));
-        int dateMinutes = decodeBCD(sdata(1, 11));
-        int dateHours = decodeBCD(sdata(1, 12) & 0x7f);
-        int dateDay = decodeBCD(sdata(1, 13) & 0x7f);
-        int dateYear = (2000 + sdata(1, 14));
-        int dateMonth = sdata(1, 15) & 0x0f;
+        int dateSeconds = BinaryInput.decodeBcd(sdata(s, 1, 10));
+        int dateMinutes = BinaryInput.decodeBcd(sdata(s, 1, 11));
+        int dateHours = BinaryInput.decodeBcd(sdata(s, 1, 12) & 0x7f);
+        int dateDay = BinaryInput.decodeBcd(sdata(s, 1, 13) & 0x7f);
+        int dateYear = (2000 + sdata(s, 1, 14));
+        int dateMonth = sdata(s, 1, 15) & 0x0f;
 
         // when bit 7 of byte 12 is set, then the hour is in PM mode
-        if (dateHours < 12 && (sdata(1, 12) & 0x80) == 0x80) {
+        if (dateHours < 12 && (sdata(s, 1, 12) & 0x80) == 0x80) {
             dateHours += 12;
         }
 
         exercise.setDateTime(LocalDateTime.of(dateYear, dateMonth, dateDay, dateHours, dateMinutes, dateSeconds));
 
         // get duration
-        int durationTenthSeconds = (sdata(1, 15) >> 4);
-        int durationSeconds = decodeBCD(sdata(1, 16));
-        int durationMinutes = decodeBCD(sdata(1, 17));
-        int durationHours = decodeBCD(sdata(1, 18));
+        int durationTenthSeconds = (sdata(s, 1, 15) >> 4);
+        int durationSeconds = BinaryInput.decodeBcd(sdata(s, 1, 16));
+        int durationMinutes = BinaryInput.decodeBcd(sdata(s, 1, 17));
+        int durationHours = BinaryInput.decodeBcd(sdata(s, 1, 18));
         exercise.setDuration((durationHours * 60 * 60 * 10) + (durationMinutes * 60 * 10) + durationSeconds * 10 + durationTenthSeconds);
 
         // get heartrate data
-        exercise.setHeartRateAVG((short) sdata(1, 19));
-        exercise.setHeartRateMax((short) sdata(1, 20));
+        exercise.setHeartRateAVG((short) sdata(s, 1, 19));
+        exercise.setHeartRateMax((short) sdata(s, 1, 20));
 
         // get number of laps
-        int numberOfMeas = decodeBCD(sdata(1, 21));
-        int numberOfLaps = decodeBCD(sdata(1, 22));
+        int numberOfMeas = BinaryInput.decodeBcd(sdata(s, 1, 21));
+        int numberOfLaps = BinaryInput.decodeBcd(sdata(s, 1, 22));
 
         // get unit format from bit 1 of byte 25
         // => 0 = metric, 1 = english
-        boolean fMetricUnits = (sdata(1, 25) & 0x02) == 0x00;
+        boolean fMetricUnits = (sdata(s, 1, 25) & 0x02) == 0x00;
 
         // decode recording mode (heartrate is always recorded)
 
-        boolean fBike2 = (sdata(1, 26) & 0x20) == 0x20;
-        boolean fBike1 = (sdata(1, 26) & 0x10) == 0x10;
+        boolean fBike2 = (sdata(s, 1, 26) & 0x20) == 0x20;
+        boolean fBike1 = (sdata(s, 1, 26) & 0x10) == 0x10;
         RecordingMode recMode = exercise.getRecordingMode();
         recMode.setHeartRate(true);
         recMode.setPower(false);
@@ -240,11 +227,11 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         // get the heartrate limit data (Polar S510 has 3 limits)
         int indexHRLimitStart = 28;
 
-        HeartRateLimit hrLimit1 = decodeHeartRateLimit(indexHRLimitStart + 0, indexHRLimitStart + 9);
+        HeartRateLimit hrLimit1 = decodeHeartRateLimit(s, indexHRLimitStart + 0, indexHRLimitStart + 9);
         exercise.getHeartRateLimits().add(hrLimit1);
-        HeartRateLimit hrLimit2 = decodeHeartRateLimit(indexHRLimitStart + 2, indexHRLimitStart + 18);
+        HeartRateLimit hrLimit2 = decodeHeartRateLimit(s, indexHRLimitStart + 2, indexHRLimitStart + 18);
         exercise.getHeartRateLimits().add(hrLimit2);
-        HeartRateLimit hrLimit3 = decodeHeartRateLimit(indexHRLimitStart + 4, indexHRLimitStart + 27);
+        HeartRateLimit hrLimit3 = decodeHeartRateLimit(s, indexHRLimitStart + 4, indexHRLimitStart + 27);
         exercise.getHeartRateLimits().add(hrLimit3);
 
         for (HeartRateLimit hrLimit : exercise.getHeartRateLimits()) {
@@ -252,33 +239,33 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         }
 
         // get energy (in kCal)
-        int energyPart1 = decodeBCD(sdata(1, 69 + 0));
-        int energyPart2 = decodeBCD(sdata(1, 69 + 1));
-        int energyPart3 = decodeBCD(sdata(1, 69 + 2));
+        int energyPart1 = BinaryInput.decodeBcd(sdata(s, 1, 69 + 0));
+        int energyPart2 = BinaryInput.decodeBcd(sdata(s, 1, 69 + 1));
+        int energyPart3 = BinaryInput.decodeBcd(sdata(s, 1, 69 + 2));
         exercise.setEnergy((energyPart1 + (energyPart2 * 100) + (energyPart3 * 10000)) / 10);
 
         // get total energy (in kCal)
-        int energyTotalPart1 = decodeBCD(sdata(1, 72 + 0));
-        int energyTotalPart2 = decodeBCD(sdata(1, 72 + 1));
-        int energyTotalPart3 = decodeBCD(sdata(1, 72 + 2));
+        int energyTotalPart1 = BinaryInput.decodeBcd(sdata(s, 1, 72 + 0));
+        int energyTotalPart2 = BinaryInput.decodeBcd(sdata(s, 1, 72 + 1));
+        int energyTotalPart3 = BinaryInput.decodeBcd(sdata(s, 1, 72 + 2));
         exercise.setEnergyTotal(energyTotalPart1 + (energyTotalPart2 * 100) + (energyTotalPart3 * 10000));
 
         // get cumulative workout time
-        int cumWorkoutPart1 = decodeBCD(sdata(1, 75 + 0));
-        int cumWorkoutPart2 = decodeBCD(sdata(1, 75 + 1));
-        int cumWorkoutPart3 = decodeBCD(sdata(1, 75 + 2));
+        int cumWorkoutPart1 = BinaryInput.decodeBcd(sdata(s, 1, 75 + 0));
+        int cumWorkoutPart2 = BinaryInput.decodeBcd(sdata(s, 1, 75 + 1));
+        int cumWorkoutPart3 = BinaryInput.decodeBcd(sdata(s, 1, 75 + 2));
         exercise.setSumExerciseTime(cumWorkoutPart3 + (cumWorkoutPart1 * 60) + (cumWorkoutPart2 * 60 * 100));
 
         // get cumulative ride time
-        int cumRidePart1 = decodeBCD(sdata(1, 78 + 0));
-        int cumRidePart2 = decodeBCD(sdata(1, 78 + 1));
-        int cumRidePart3 = decodeBCD(sdata(1, 78 + 2));
+        int cumRidePart1 = BinaryInput.decodeBcd(sdata(s, 1, 78 + 0));
+        int cumRidePart2 = BinaryInput.decodeBcd(sdata(s, 1, 78 + 1));
+        int cumRidePart3 = BinaryInput.decodeBcd(sdata(s, 1, 78 + 2));
         exercise.setSumRideTime(cumRidePart3 + (cumRidePart1 * 60) + (cumRidePart2 * 60 * 100));
 
         // get odometer
-        int odometerPart1 = decodeBCD(sdata(1, 81 + 0));
-        int odometerPart2 = decodeBCD(sdata(1, 81 + 1));
-        int odometerPart3 = decodeBCD(sdata(1, 81 + 2));
+        int odometerPart1 = BinaryInput.decodeBcd(sdata(s, 1, 81 + 0));
+        int odometerPart2 = BinaryInput.decodeBcd(sdata(s, 1, 81 + 1));
+        int odometerPart3 = BinaryInput.decodeBcd(sdata(s, 1, 81 + 2));
         int odometer = odometerPart1 + (odometerPart2 * 100) + (odometerPart3 * 10000);
         if (fMetricUnits) {
             exercise.setOdometer(odometer);
@@ -290,22 +277,22 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         if (recMode.isSpeed()) {
 
             // get exercise distance (in 1/10th of km)
-            int distance = (sdata(1, 84) + (sdata(1, 85) << 8)) * 100;
+            int distance = (sdata(s, 1, 84) + (sdata(s, 1, 85) << 8)) * 100;
             if (!fMetricUnits) {
                 distance = ConvertUtils.convertMiles2Kilometer(distance);
             }
 
             // get AVG speed
-            int avgSpeedPart1 = sdata(1, 86);
-            int avgSpeedPart2 = (sdata(1, 87) & 0x0f);
+            int avgSpeedPart1 = sdata(s, 1, 86);
+            int avgSpeedPart2 = (sdata(s, 1, 87) & 0x0f);
             float avgSpeed = ((avgSpeedPart2 << 8) | avgSpeedPart1) / 16f;
             if (!fMetricUnits) {
                 avgSpeed = (float) ConvertUtils.convertMiles2Kilometer(avgSpeed);
             }
 
             // get max speed
-            int maxSpeedPart1 = sdata(1, 87) >> 4;
-            int maxSpeedPart2 = sdata(1, 88);
+            int maxSpeedPart1 = sdata(s, 1, 87) >> 4;
+            int maxSpeedPart2 = sdata(s, 1, 88);
             float maxSpeed = ((maxSpeedPart2 << 4) | maxSpeedPart1) / 16f;
             if (!fMetricUnits) {
                 maxSpeed = (float) ConvertUtils.convertMiles2Kilometer(maxSpeed);
@@ -319,8 +306,8 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         if (recMode.isCadence ()) {
             ExerciseCadence cadence = new ExerciseCadence ();
             exercise.setCadence (cadence);
-            cadence.setCadenceAVG ((short) sdata(1, 89)); // TODO, does this work?
-            cadence.setCadenceMax ((short) sdata(1, 90));
+            cadence.setCadenceAVG ((short) sdata(s, 1, 89)); // TODO, does this work?
+            cadence.setCadenceMax ((short) sdata(s, 1, 90));
         } */
 
         ////////// decode lap data /////////////
@@ -341,9 +328,9 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         int lapseccnt = (int) (((double) (numberOfMeas * lapSize) / 60) + .9999);
 
         // check section size
-        if (s[lapsec + lapseccnt - 1].length != (numberOfMeas * lapSize) % 60) {
+        if (s[lapsec + lapseccnt - 1].getSize() != (numberOfMeas * lapSize) % 60) {
             throw new EVException(String.format("Lap-data section (%d) has wrong size (%d instead of %d)",
-                    lapsec + lapseccnt - 1, s[lapsec + lapseccnt - 1].length, (numberOfMeas * lapSize) % 60));
+                    lapsec + lapseccnt - 1, s[lapsec + lapseccnt - 1].getSize(), (numberOfMeas * lapSize) % 60));
         }
 
         // process all laps
@@ -356,32 +343,32 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
             exercise.getLapList().add(lap);
 
             // get lap split time (in 1/10th seconds)
-            int bLapEndHour = sdata(lapsec, os + 2);
-            int bLapEndMinute = sdata(lapsec, os + 1) & 0x3f;
-            int bLapEndSecond = sdata(lapsec, os + 0) & 0x3f;
-            int bLapEndTenthSecond = 4 * (sdata(lapsec, os + 1) >> 6) + (sdata(lapsec, os + 0) >> 6);
+            int bLapEndHour = sdata(s, lapsec, os + 2);
+            int bLapEndMinute = sdata(s, lapsec, os + 1) & 0x3f;
+            int bLapEndSecond = sdata(s, lapsec, os + 0) & 0x3f;
+            int bLapEndTenthSecond = 4 * (sdata(s, lapsec, os + 1) >> 6) + (sdata(s, lapsec, os + 0) >> 6);
             lap.setTimeSplit(bLapEndTenthSecond + (bLapEndSecond * 10) + (bLapEndMinute * 60 * 10) + (bLapEndHour * 60 * 60 * 10));
 
             // get heartrate data of lap
-            lap.setHeartRateSplit((short) sdata(lapsec, os + 3));
-            lap.setHeartRateAVG((short) sdata(lapsec, os + 4));
-            lap.setHeartRateMax((short) sdata(lapsec, os + 5));
+            lap.setHeartRateSplit((short) sdata(s, lapsec, os + 3));
+            lap.setHeartRateAVG((short) sdata(s, lapsec, os + 4));
+            lap.setHeartRateMax((short) sdata(s, lapsec, os + 5));
 
             // get speed (bicycle) related data of lap (if recorded)
             if (recMode.isSpeed()) {
 
                 // TODO get lap distance (in 1/10th of km)
-                int lapDistance = sdata(lapsec, os + 6);
-                lapDistance += (sdata(lapsec, os + 7) << 8);
-                //lapDistance += (sdata(lapsec, os + 8) << 16); not sure about this byte..
+                int lapDistance = sdata(s, lapsec, os + 6);
+                lapDistance += (sdata(s, lapsec, os + 7) << 8);
+                //lapDistance += (sdata(s, lapsec, os + 8) << 16); not sure about this byte..
                 lapDistance *= 100;
                 if (!fMetricUnits) {
                     lapDistance = ConvertUtils.convertMiles2Kilometer(lapDistance);
                 }
 
                 // get speed at end of lap
-                float lapEndSpeed = sdata(lapsec, os + 9);
-                lapEndSpeed += sdata(lapsec, os + 10) << 8;
+                float lapEndSpeed = sdata(s, lapsec, os + 9);
+                lapEndSpeed += sdata(s, lapsec, os + 10) << 8;
                 lapEndSpeed *= 5.0f / 80;
                 if (!fMetricUnits) {
                     lapEndSpeed = (float) ConvertUtils.convertMiles2Kilometer(lapEndSpeed);
@@ -392,9 +379,9 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
 
             // process exercise interval data | TODO, implement in polarviewer
             // flag stands for (TBC): 1 == warmup, 2 == interval, 3 == cooling down, 0 == basicuse
-            //System.out.format("flag: %d\n", sdata(lapsec, os + 15) >> 5); 
-            //System.out.format("recovery time: %d [sec]\n", sdata(lapsec, os + 13)*60,  sdata(lapsec, os + 12)); 
-            //System.out.format("recovery heart rate: %d [bpm]\n", ( (sdata(lapsec, os+14) < 254 ) ? sdata(lapsec, os+14) : -1)); 
+            //System.out.format("flag: %d\n", sdata(s, lapsec, os + 15) >> 5); 
+            //System.out.format("recovery time: %d [sec]\n", sdata(s, lapsec, os + 13)*60,  sdata(s, lapsec, os + 12)); 
+            //System.out.format("recovery heart rate: %d [bpm]\n", ( (sdata(s, lapsec, os+14) < 254 ) ? sdata(s, lapsec, os+14) : -1)); 
         }
 
         ////////// decode sample data /////////////
@@ -406,22 +393,22 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         for (int i = 0; i < numberOfSamples; i++) {
             ExerciseSample exeSample = new ExerciseSample();
             exeSample.setTimestamp(i * exercise.getRecordingInterval() * 1000L);
-            exercise.getSampleList().add(exeSample);
 
             // get sample heartrate
-            exeSample.setHeartRate((short) sdata(hrsec, i));
+            exeSample.setHeartRate((short) sdata(s, hrsec, i));
 
             // get bicycle related data (if recorded)
             if (recMode.isSpeed()) {
 
                 // get sample speed
-                float sampleSpeed = (float) (sdata(spdsec, i)) / 2f;
+                float sampleSpeed = (float) (sdata(s, spdsec, i)) / 2f;
                 if (fMetricUnits) {
                     exeSample.setSpeed(sampleSpeed);
                 } else {
                     exeSample.setSpeed((float) ConvertUtils.convertMiles2Kilometer(sampleSpeed));
                 }
             }
+            exercise.getSampleList().add(exeSample);
         }
 
         // when speed is recorded => calculate distance for each recorded sample
@@ -563,40 +550,30 @@ public class PolarHsrRawParser extends AbstractExerciseParser {
         return cDecoded;
     }
 
-    /**
-     * Decodes a BCD "byte" (in Polar format) to normal int value.
-     *
-     * @param value BCD "byte" to decode
-     * @return normal int value of BCD value
-     */
-    private int decodeBCD(int value) {
-        // (upper 4 bits * 10) + lower 4 bits
-        return ((value >> 4) * 10) + (value & 0x0f);
-    }
-
     /**
      * This method decodes the data for a HeartRateLimit object (limits and times
      * below, within and above) and returns it.
      *
+     * @param s the data of the file sections
      * @param offsetLimits offset in fileContent, where the limit data starts
      * @param offsetTimes offset in fileContent, where the times data starts
      * @return the filled HeartRateLimit object
      */
-    private HeartRateLimit decodeHeartRateLimit(int offsetLimits, int offsetTimes) throws EVException {
-        short lowerHeartRate = (short) sdata(1, offsetLimits + 0);
-        short upperHeartRate = (short) sdata(1, offsetLimits + 1);
+    private HeartRateLimit decodeHeartRateLimit(BinaryInput[] s, int offsetLimits, int offsetTimes) throws EVException {
+        short lowerHeartRate = (short) sdata(s, 1, offsetLimits + 0);
+        short upperHeartRate = (short) sdata(s, 1, offsetLimits + 1);
 
-        int hrLimitBelowSecs = decodeBCD(sdata(1, offsetTimes + 0));
-        hrLimitBelowSecs += decodeBCD(sdata(1, offsetTimes + 1)) * 60;
-        hrLimitBelowSecs += decodeBCD(sdata(1, offsetTimes + 2)) * 60 * 60;
+        int hrLimitBelowSecs = BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 0));
+        hrLimitBelowSecs += BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 1)) * 60;
+        hrLimitBelowSecs += BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 2)) * 60 * 60;
 
-        int hrLimitWithinSecs = decodeBCD(sdata(1, offsetTimes + 3));
-        hrLimitWithinSecs += decodeBCD(sdata(1, offsetTimes + 4)) * 60;
-        hrLimitWithinSecs += decodeBCD(sdata(1, offsetTimes + 5)) * 60 * 60;
+        int hrLimitWithinSecs = BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 3));
+        hrLimitWithinSecs += BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 4)) * 60;
+        hrLimitWithinSecs += BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 5)) * 60 * 60;
 
-        int hrLimitAboveSecs = decodeBCD(sdata(1, offsetTimes + 6));
-        hrLimitAboveSecs += decodeBCD(sdata(1, offsetTimes + 7)) * 60;
-        hrLimitAboveSecs += decodeBCD(sdata(1, offsetTimes + 8)) * 60 * 60;
+        int hrLimitAboveSecs = BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 6));
+        hrLimitAboveSecs += BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 7)) * 60;
+        hrLimitAboveSecs += BinaryInput.decodeBcd(sdata(s, 1, offsetTimes + 8)) * 60 * 60;
 
         return new HeartRateLimit(lowerHeartRate, upperHeartRate,
                 hrLimitBelowSecs, hrLimitWithinSecs, hrLimitAboveSecs, true);
@@ -1,17 +1,16 @@
 package de.saring.exerciseviewer.parser.impl;
 
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import de.saring.exerciseviewer.core.EVException;
 import de.saring.exerciseviewer.data.EVExercise;
@@ -37,6 +36,10 @@ import de.saring.util.unitcalc.CalculationUtils;
  * <br/>
  * It is assumed that the exercise files have the extension ".pwx".
  * <br/>
+ * The file is parsed by a StAX reader (streaming), the laps and samples are stored in the exercise
+ * while reading the elements, no document tree is built. The statistics computed from the samples
+ * are accumulated while reading them, so the samples don't need to be stored when parsing the summary.
+ * <br/>
  * This file has been completely rewritten from the initial version
  * that was based on PolarHsrRawParser.java by Remco den Breeje
  * which is based on PolarSRawParser.java by Stefan Saring
@@ -90,18 +93,21 @@ public class TimexPwxParser extends AbstractExerciseParser {
         }
     }
 
-    private MinMaxAvg node2MinMaxAvg(Node inNode) {
+    private MinMaxAvg parseMinMaxAvg(XMLStreamReader reader) throws XMLStreamException {
         MinMaxAvg result = new MinMaxAvg();
-        NamedNodeMap attributes = inNode.getAttributes();
-        for (int i = 0; i < attributes.getLength(); i++) {
-            if (attributes.item(i).getNodeName().equals("max")) {
-                result.setMax(Float.valueOf(attributes.item(i).getTextContent()));
-            } else if (attributes.item(i).getNodeName().equals("min")) {
-                result.setMin(Float.valueOf(attributes.item(i).getTextContent()));
-            } else if (attributes.item(i).getNodeName().equals("avg")) {
-                result.setAvg(Float.valueOf(attributes.item(i).getTextContent()));
-            }
+        String max = reader.getAttributeValue(null, "max");
+        if (max != null) {
+            result.setMax(Float.valueOf(max));
+        }
+        String min = reader.getAttributeValue(null, "min");
+        if (min != null) {
+            result.setMin(Float.valueOf(min));
+        }
+        String avg = reader.getAttributeValue(null, "avg");
+        if (avg != null) {
+            result.setAvg(Float.valueOf(avg));
         }
+        skipElement(reader);
         return result;
     }
 
@@ -198,76 +204,156 @@ public class TimexPwxParser extends AbstractExerciseParser {
 //        public float getClimbingElevation(){ return climbingElevation; }
     }
 
+    /**
+     * The state of the currently parsed workout, it's updated while streaming the segments and samples.
+     */
+    private static class WorkoutState {
+        private float runningDistance = 0;
+        private Lap previousLap;
+
+        private float lastDistance = 0;
+        private boolean distanceinsample = false;
+        private boolean firstsample = true;
+        private double lastOffset = 0;
+        private double currentOffset = 0;
+        private Position lastPosition = new Position(0, 0);
+        private short lastHeartRate = 0; // Stop the jitters... assumes no
+        private double latitude = 0.0, longitude = 0.0;
+        private double belowZone[] = {0, 0, 0, 0, 0, 0};
+        private double inZone[] = {0, 0, 0, 0, 0, 0};
+        private double aboveZone[] = {0, 0, 0, 0, 0, 0};
+    }
+
+    /**
+     * The statistics of all samples of the exercise, they are accumulated while streaming the samples. They are
+     * needed for computing the exercise statistics missing in the summary data of some models.
+     */
+    private static class SampleStatistics {
+        private final boolean storeSamples;
+        private int sampleCount = 0;
+        private double heartrateSum = 0;
+        private short heartrateMax = 0;
+        private float speedMax = 0f;
+        private Integer lastDistance;
+        private double altitudeSum = 0;
+        private short altitudeMin = Short.MAX_VALUE;
+        private short altitudeMax = Short.MIN_VALUE;
+        private short previousAltitude = Short.MAX_VALUE;
+        private int ascent = 0;
+
+        /**
+         * @param storeSamples flag whether the exercise samples needs to be stored in the exercise
+         */
+        private SampleStatistics(boolean storeSamples) {
+            this.storeSamples = storeSamples;
+        }
+
+        private void add(ExerciseSample sample) {
+            sampleCount++;
+            heartrateSum += sample.getHeartRate();
+            heartrateMax = (short) Math.max(heartrateMax, sample.getHeartRate());
+            speedMax = Math.max(speedMax, sample.getSpeed() == null ? 0f : sample.getSpeed());
+            lastDistance = sample.getDistance();
+
+            if (sample.getAltitude() != null) {
+                altitudeSum += sample.getAltitude();
+                altitudeMin = (short) Math.min(altitudeMin, sample.getAltitude());
+                altitudeMax = (short) Math.max(altitudeMax, sample.getAltitude());
+                if (previousAltitude < sample.getAltitude()) {
+                    ascent += sample.getAltitude() - previousAltitude;
+                }
+                previousAltitude = sample.getAltitude();
+            }
+        }
+    }
+
     @Override
     public ExerciseParserInfo getInfo() {
         return info;
     }
 
-    int countNodeItems(Node node, String string2count) {
-        // Given a Node and a Child Node Name, count the number of children with that node name
-        NodeList children = node.getChildNodes();
+    @Override
+    public EVExercise parseExercise(String filename) throws EVException {
+        return parseExercise(filename, true);
+    }
+
+    @Override
+    public EVExercise parseSummary(String filename) throws EVException {
+        return parseExercise(filename, false);
+    }
 
-        int numChildren = children.getLength();
-        String currentNodeName = null;
-        int numMatches = 0;
+    @Override
+    public boolean isSummarySupported() {
+        return true;
+    }
 
+    private EVExercise parseExercise(String filename, boolean storeSamples) throws EVException {
 
-        for (int i = 0; i < numChildren; i++) {
-            currentNodeName = children.item(i).getNodeName();
-            if (currentNodeName.equals(string2count)) {
-                numMatches++;
+        // create an EVExercise object from this data and set file type
+        EVExercise exercise = new EVExercise(EVExercise.ExerciseFileType.TIMEX_PWX);
+        SampleStatistics statistics = new SampleStatistics(storeSamples);
+
+        // open the pwx file and stream the workouts of the root node
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(filename))) {
+            XMLStreamReader reader = createXmlStreamReader(inputStream);
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals("pwx")) {
+                    throw new EVException("Failed to find a pwx node in file '" + filename + "'");
+                }
+
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if (reader.getLocalName().equals("workout")) {
+                        parseWorkoutNode(reader, exercise, statistics);
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } finally {
+                reader.close();
             }
+        } catch (EVException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EVException("Failed to read pwx exercise file '" + filename + "' ...", e);
         }
-        return numMatches;
+
+        cleanupDistanceAndSpeedInSamples(exercise);
+        return exercise;
     }
 
-    private EVExercise parseWorkoutNode(EVExercise exercise, Node workoutNode) {
-        NodeList children = workoutNode.getChildNodes();
-        String childName;
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();
-            switch (childName) {
-                case "athlete":
-                    // Nothing to do with this yet...or is there?
-                    break;
-                case "goal":
-                    // Not in files downloaded directly from the Timex 843/844
-                    // Probably is in the files downloaded from the online software
-                    break;
+    private void parseWorkoutNode(XMLStreamReader reader, EVExercise exercise, SampleStatistics statistics)
+            throws XMLStreamException {
+        WorkoutState workout = new WorkoutState();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
                 case "sportType":
                     // obtain sportType
-                    exercise.setType(children.item(i).getTextContent());
-                    break;
-                case "cmt":
-                case "code":
-                    // Not implemented
+                    exercise.setType(reader.getElementText());
                     break;
                 case "device":
                     // parse device
-                    exercise = parseWorkoutDeviceNode(exercise, children.item(i));
-                    // The passing an object and then assigning the result of the method to the same object is akward to me.
-                    // It seems like that could result in a lot of time moving data.  My understanding is that is not the case
-                    // in Java though.
+                    parseWorkoutDeviceNode(reader, exercise);
+                    break;
                 case "time":
                     // obtain start time
+                    String strDateTime = reader.getElementText();
                     try {
-                        String strDateTime = children.item(i).getTextContent();
                         exercise.setDateTime(LocalDateTime.parse(strDateTime, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                    } catch (Exception e) {
+                    } catch (DateTimeParseException e) {
                         exercise.setDateTime(null);
                     }
                     break;
                 case "summarydata":
                     // parse workout summary data
-                    SummaryData workoutSummary = parseSummaryData(children.item(i));
+                    SummaryData workoutSummary = parseSummaryData(reader);
                     exercise.setDuration((int) workoutSummary.getDuration() * 10);
                     exercise.setSumExerciseTime((int) workoutSummary.getDuration() / 60); // Not sure why these are different.
                     exercise.setSumRideTime((int) workoutSummary.getDuration() / 60);  // Assume some watches keep track of bike specific time..This one doesn't
                     exercise.setEnergy((int) (workoutSummary.getWork() * (0.238845896627495939619))); // Convert to Calories first
-                    //exercise.setEnergyTotal((int) (workoutSummary.getWork() * (0.238845896627495939619))); // Using the value in device/extensions
                     if (workoutSummary.getHr() != null) {
                         exercise.setHeartRateMax((short) workoutSummary.getHr().getMax());
-                        // exercise.setHeartRateMin((short) workoutSummary.getHr().getMin()); // Not implemented in EVExercise
                         exercise.setHeartRateAVG((short) workoutSummary.getHr().getAvg());
                     }
                     exercise.setOdometer((int) workoutSummary.getDistance() / 1000);
@@ -285,70 +371,85 @@ public class TimexPwxParser extends AbstractExerciseParser {
                     }
                     break;
                 case "segment":
+                    // parse lap segment
+                    parseWorkoutSegment(reader, exercise, workout);
+                    break;
                 case "sample":
-                    // This is handled after parsing everything else
+                    // parse sample, the device and its heart rate zones are defined before
+                    parseWorkoutSample(reader, exercise, workout, statistics);
                     break;
                 case "extension":
                     // Used for Timex Global Trainer and possibly others.
-                    exercise = parseWorkoutExtensionNode(exercise, children.item(i));
+                    parseWorkoutExtensionNode(reader, exercise);
                     break;
+                default:
+                    // athlete, goal, cmt, code and others are not implemented
+                    skipElement(reader);
             }
         }
-        // parse lap segments
-        exercise = parseWorkoutSegments(exercise, workoutNode);
-        // parse samples
-        exercise = parseWorkoutSamples(exercise, workoutNode);
-        return exercise;
+
+        // Store Zone Information in the exercise file
+        if (exercise.getHeartRateLimits() != null) {
+            for (int i = 0; i < 6; i++) {
+                HeartRateLimit hrLimit = exercise.getHeartRateLimits().get(i);
+                hrLimit.setTimeAbove((int) workout.aboveZone[i]);
+                hrLimit.setTimeBelow((int) workout.belowZone[i]);
+                hrLimit.setTimeWithin((int) workout.inZone[i]);
+            }
+        }
+        exercise.setRecordingInterval((short) 2);
+
+        // some models (e.g. Timex Ironman Run Trainer) don't contain statistic date (avg, max, ...)
+        // => compute the missing data
+        if (statistics.sampleCount > 0) {
+            computeHeartrateStatisticIfMissing(exercise, statistics);
+            computeSpeedStatisticIfMissing(exercise, statistics);
+            computeAltitudeStatisticIfMissing(exercise, statistics);
+        }
     }
 
-    private EVExercise parseWorkoutExtensionNode(EVExercise exercise, Node workoutExtensionNode) {
+    private void parseWorkoutExtensionNode(XMLStreamReader reader, EVExercise exercise) throws XMLStreamException {
         // Used for Global Trainer
-        NodeList children = workoutExtensionNode.getChildNodes();
-        String childName;
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();//
-            if (childName.equals("ascent")) {
-                exercise.getAltitude().setAscent(Integer.valueOf(children.item(i).getTextContent()));
-            } else if (childName.equals("descent")) {
-                // obtain descent - not used in EVExercise
-            } else if (childName.equals("points")) {
-                // points - not used in EVExercise
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("ascent")) {
+                exercise.getAltitude().setAscent(Integer.valueOf(reader.getElementText()));
+            } else {
+                // descent and points - not used in EVExercise
+                skipElement(reader);
             }
         }
-        return exercise;
     }
 
-    private EVExercise parseWorkoutDeviceNode(EVExercise exercise, Node deviceNode) {
-        NodeList children = deviceNode.getChildNodes();
-        String childName;
+    private void parseWorkoutDeviceNode(XMLStreamReader reader, EVExercise exercise) throws XMLStreamException {
         String make = "";
         String model = "";
 
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();
-            if (childName.equals("extension")) {
-                // parse extension
-                exercise = parseDeviceExtensionNode(exercise, children.item(i));
-            } else if (childName.equals("make")) {
-                make = children.item(i).getTextContent();
-            } else if (childName.equals("model")) {
-                model = children.item(i).getTextContent();
-                if (model.equals("Global Trainer") || model.equals("Run Trainer")) {
-                    exercise = setGlobalTrainerRecordingMode(exercise);
-                    exercise = setGlobalTrainerZones(exercise);
-                }
-            } else if (childName.equals("stopdetectionsetting")) {
-                // obtain stopdetectionsetting        
-            } else if (childName.equals("elevationchangesetting")) {
-                // obtain elevationchangesetting        
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "extension":
+                    // parse extension
+                    parseDeviceExtensionNode(reader, exercise);
+                    break;
+                case "make":
+                    make = reader.getElementText();
+                    break;
+                case "model":
+                    model = reader.getElementText();
+                    if (model.equals("Global Trainer") || model.equals("Run Trainer")) {
+                        setGlobalTrainerRecordingMode(exercise);
+                        setGlobalTrainerZones(exercise);
+                    }
+                    break;
+                default:
+                    // stopdetectionsetting and elevationchangesetting are not used
+                    skipElement(reader);
             }
         }
 
         exercise.setDeviceName((make.isEmpty() ? "" : make + " ") + model);
-        return exercise;
     }
 
-    private EVExercise setGlobalTrainerRecordingMode(EVExercise exercise) {
+    private void setGlobalTrainerRecordingMode(EVExercise exercise) {
         RecordingMode recMode = new RecordingMode();
 
         recMode.setHeartRate(true);
@@ -360,38 +461,33 @@ public class TimexPwxParser extends AbstractExerciseParser {
         recMode.setIntervalExercise(false); //
 
         exercise.setRecordingMode(recMode);
-        return exercise;
     }
 
-    private EVExercise setGlobalTrainerZones(EVExercise exercise) {
+    private void setGlobalTrainerZones(EVExercise exercise) {
         for (int i = 0; i < 6; i++) {
             short upperHeartRate = (short) (50 + (i + 1) * 25);
             short lowerHeartRate = (short) (50 + i * 25);
             HeartRateLimit hrLimit = new HeartRateLimit(lowerHeartRate, upperHeartRate, null, 0, null, true);
             exercise.getHeartRateLimits().add(hrLimit);
         }
-        return exercise;
     }
 
-    private EVExercise parseDeviceExtensionNode(EVExercise exercise, Node deviceExtensionNode) {
-        NodeList children = deviceExtensionNode.getChildNodes();
-        String childName;
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();//
-            if (childName.equals("settings")) {
-                exercise = parseDeviceExtensionSettingsNode(exercise, children.item(i));
-            } else if (childName.equals("stoppage")) {
+    private void parseDeviceExtensionNode(XMLStreamReader reader, EVExercise exercise) throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("settings")) {
+                parseDeviceExtensionSettingsNode(reader, exercise);
+            } else {
                 // obtain stoppage - not used in EVExercise
+                skipElement(reader);
             }
         }
-        return exercise;
     }
 
-    private EVExercise parseDeviceExtensionSettingsNode(EVExercise exercise, Node deviceExtensionSettingsNode) {
+    private void parseDeviceExtensionSettingsNode(XMLStreamReader reader, EVExercise exercise)
+            throws XMLStreamException {
         // None of this data is explicitly specified in the pwx.xsd.
         // It is in the pwx files from the Timex watch though.
         //------------------------------------------------------------
-        NodeList children = deviceExtensionSettingsNode.getChildNodes();
         String childName;
         // Create and Initialize Heart Rate Limits
         HeartRateLimit Zones[] = new HeartRateLimit[6];
@@ -399,11 +495,11 @@ public class TimexPwxParser extends AbstractExerciseParser {
             Zones[i] = new HeartRateLimit((short) 0, (short) 0, null, 0, null, true);
         }
 
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();// 
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            childName = reader.getLocalName();
             if (childName.equals("CHRMaxHR") || childName.equals("HRMMaxHR")) {
                 // Obtain Max HR - This is basis for Timex Zones
-                short HRMMaxHR = Short.valueOf(children.item(i).getTextContent());
+                short HRMMaxHR = Short.valueOf(reader.getElementText());
                 double HRZonesPercentages[] = {1, .9, .8, .7, .6, .5};
                 for (int k = 0; k < 5; k++) {
                     short upperHeartRate = (short) (HRZonesPercentages[k] * HRMMaxHR);
@@ -412,22 +508,16 @@ public class TimexPwxParser extends AbstractExerciseParser {
                 }
             } else if (childName.equals("CHRManualZoneHigherLimit") || childName.equals("HRMBpmManHi")) {
                 // obtain Manual Zone Higher Limit
-                Zones[5].setUpperHeartRate(Short.valueOf(children.item(i).getTextContent()));
+                Zones[5].setUpperHeartRate(Short.valueOf(reader.getElementText()));
             } else if (childName.equals("CHRManualZoneLowerLimit") || childName.equals("HRMBpmManLo")) {
-                // obtain Manual Zone Lower Limit          
-                Zones[5].setLowerHeartRate(Short.valueOf(children.item(i).getTextContent()));
-            } else if (childName.equals("HasHRMData")) {
-                // does file have hrm data   
+                // obtain Manual Zone Lower Limit
+                Zones[5].setLowerHeartRate(Short.valueOf(reader.getElementText()));
             } else if (childName.equals("KCalPerDevice")) {
-                // obtain kCalPerDevice        
-                exercise.setEnergyTotal(Integer.valueOf(children.item(i).getTextContent()));
-            } else if (childName.equals("WorkoutType")) {
-                // obtain workout type - If not Chrono, then stop parsing since intervals aren't yet implemented
-                if (!children.item(i).getTextContent().equals("Chrono")) {
-                    // Not sure how to handle this... I want it to stop parsing and report an unsupported file.
-
-                }
+                // obtain kCalPerDevice
+                exercise.setEnergyTotal(Integer.valueOf(reader.getElementText()));
             } else {
+                // does file have hrm data (HasHRMData)
+                // obtain workout type (WorkoutType) - intervals aren't yet implemented, only Chrono is supported
                 // obtain Alarm flags 1-3 (Enabled/Disabled)
                 // obtain Alarm Hours 1-3
                 // obtain Alarm Minutes 1-3
@@ -455,6 +545,7 @@ public class TimexPwxParser extends AbstractExerciseParser {
                 // obtain watch model
                 // obtain version number
                 // obtain workout number - Not sure what this number is
+                skipElement(reader);
             }
         }
         // don't care about Button Beep, Hourly Chime, Night Mode, Night Mode Duration, Display Format
@@ -478,120 +569,112 @@ public class TimexPwxParser extends AbstractExerciseParser {
 
         exercise.setRecordingMode(recMode);
         exercise.getHeartRateLimits().addAll(List.of(Zones));
-        return exercise;
     }
 
-    private SummaryData parseSummaryData(Node summaryDataNode) {
+    private SummaryData parseSummaryData(XMLStreamReader reader) throws XMLStreamException {
         SummaryData nodeSummaryData = new SummaryData();
-        NodeList children = summaryDataNode.getChildNodes();
 
-        String childName;
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();
-            if (childName.equals("beginning")) {
-                // obtain beginning time
-                nodeSummaryData.setBeginning(Double.valueOf(children.item(i).getTextContent()));
-            } else if (childName.equals("duration")) {
-                // obtain duration
-                nodeSummaryData.setDuration(Double.valueOf(children.item(i).getTextContent()));
-            } else if (childName.equals("hr")) {
-                // obtain hr (MinMaxAvg)  (bpm)
-                nodeSummaryData.setHr(node2MinMaxAvg(children.item(i)));
-            } else if (childName.equals("work")) {
-                // obtain work (Apparently Not used in Laps) (kJ)
-                nodeSummaryData.setWork(Integer.valueOf(children.item(i).getTextContent()));
-            } else if (childName.equals("spd")) {
-                // obtain spd (MinMaxAvg) (meters/second)
-                nodeSummaryData.setSpeed(node2MinMaxAvg(children.item(i)));
-            } else if (childName.equals("alt")) {
-                // obtain altitude (MinMaxAvg) (meters)
-                nodeSummaryData.setAltitude(node2MinMaxAvg(children.item(i)));
-            } else if (childName.equals("dist")) {
-                // obtain distance (meters)
-                nodeSummaryData.setDistance(Float.valueOf(children.item(i).getTextContent()));
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "beginning":
+                    // obtain beginning time
+                    nodeSummaryData.setBeginning(Double.valueOf(reader.getElementText()));
+                    break;
+                case "duration":
+                    // obtain duration
+                    nodeSummaryData.setDuration(Double.valueOf(reader.getElementText()));
+                    break;
+                case "hr":
+                    // obtain hr (MinMaxAvg)  (bpm)
+                    nodeSummaryData.setHr(parseMinMaxAvg(reader));
+                    break;
+                case "work":
+                    // obtain work (Apparently Not used in Laps) (kJ)
+                    nodeSummaryData.setWork(Integer.valueOf(reader.getElementText()));
+                    break;
+                case "spd":
+                    // obtain spd (MinMaxAvg) (meters/second)
+                    nodeSummaryData.setSpeed(parseMinMaxAvg(reader));
+                    break;
+                case "alt":
+                    // obtain altitude (MinMaxAvg) (meters)
+                    nodeSummaryData.setAltitude(parseMinMaxAvg(reader));
+                    break;
+                case "dist":
+                    // obtain distance (meters)
+                    nodeSummaryData.setDistance(Float.valueOf(reader.getElementText()));
+                    break;
+                default:
+                    // 1st time its for the entire workout
+                    // remaining times is for the Laps
+                    // obtain duration stopped
+                    // obtain tss
+                    // obtain normalizedPower (watts)
+                    // obtain pwr (MinMaxAvg) (watts)
+                    // obtain torq (MinMaxAvg) (nM)
+                    // obtain cadence (MinMaxAvg) (rpm)
+                    // obtain temp (MinMaxAvg) (C)
+                    // obtain variabilityIndex - Not sure what this is
+                    // obtain climbingelevation
+                    skipElement(reader);
             }
-            // 1st time its for the entire workout
-            // remaining times is for the Laps
-            // obtain duration stopped
-            // obtain tss
-            // obtain normalizedPower (watts)
-            // obtain pwr (MinMaxAvg) (watts)
-            // obtain torq (MinMaxAvg) (nM)
-            // obtain cadence (MinMaxAvg) (rpm)
-            // obtain temp (MinMaxAvg) (C)
-            // obtain variabilityIndex - Not sure what this is
-            // obtain climbingelevation
-        }
-        return nodeSummaryData; // Probably don't want to pass and return the Exercise itself.
+        }
+        return nodeSummaryData;
     }
 
-    private EVExercise parseWorkoutSegments(EVExercise exercise, Node workoutNode) {
-        ArrayList<Lap> laps = new ArrayList<>();
+    private void parseWorkoutSegment(XMLStreamReader reader, EVExercise exercise, WorkoutState workout)
+            throws XMLStreamException {
 
         // obtain segment name  ( Either laps or Workout Summary )
         // parse segment summary data
         // Create and initialize a holding Lap
+        Lap lap = new Lap();
+        LapSpeed lapSpd = new LapSpeed(0f, 0f,
+                402, // I typically mark each lap at the 1/4 mile.  A popup might be nice to fill in the rest.
+                null);
+        lap.setSpeed(lapSpd);
+        lap.setTemperature(new LapTemperature((short) 25));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!reader.getLocalName().equals("summarydata")) {
+                skipElement(reader);
+                continue;
+            }
 
-        // Finished Holding Lap
-        NodeList children = workoutNode.getChildNodes();
-        NodeList segmentChildren = null;
-        String childName;
-        float runningDistance = 0;
-        for (int i = 0; i < children.getLength(); i++) {
-            childName = children.item(i).getNodeName();
-            if (childName.equals("segment")) {
-                segmentChildren = children.item(i).getChildNodes();
-                Lap lap = new Lap();
-                LapSpeed lapSpd = new LapSpeed(0f, 0f,
-                        402, // I typically mark each lap at the 1/4 mile.  A popup might be nice to fill in the rest.
-                        null);
-                lap.setSpeed(lapSpd);
-                lap.setTemperature(new LapTemperature((short) 25));
-                for (int j = 0; j < segmentChildren.getLength(); j++) {
-                    childName = segmentChildren.item(j).getNodeName();
-                    if (childName.equals("summarydata")) {
-                        SummaryData segmentSummary = parseSummaryData(segmentChildren.item(j));
-                        lap.setTimeSplit((int) ((segmentSummary.getDuration() + segmentSummary.getBeginning()) * 10));
-                        if (segmentSummary.getDistance() != 0) {
-                            runningDistance += segmentSummary.getDistance();
-                            lapSpd.setDistance((int) runningDistance);
-                            lapSpd.setSpeedAVG((float) (3.600 * segmentSummary.getDistance() / segmentSummary.getDuration())); // Assumes 1/4 Mile Lap
-                            lapSpd.setSpeedEnd((float) 0.0);
-                        } else {
-                            runningDistance += 402.336;
-                            lapSpd.setDistance((int) runningDistance);
-                            lapSpd.setSpeedAVG((float) (3.6 * 402.336 / segmentSummary.getDuration())); // Assumes 1/4 Mile Lap
-                            lapSpd.setSpeedEnd((float) 0.0);
-                        }
-                        lap.setSpeed(lapSpd);
-                        if (segmentSummary.getHr() != null) {
-                            if (segmentSummary.getHr().getAvg() > 0) {
-                                lap.setHeartRateAVG((short) segmentSummary.getHr().getAvg());
-                            }
-                            if (segmentSummary.getHr().getMax() > 0) {
-                                lap.setHeartRateMax((short) segmentSummary.getHr().getMax());
-                            }
-                        }
-                        if (segmentSummary.getAltitude() != null) {
-                            short lapAltitude = (short) segmentSummary.getAltitude().getMax();
-                            int lapAscent = (int) (segmentSummary.getAltitude().getMax() - segmentSummary.getAltitude().getMin());
-                            lap.setAltitude(new LapAltitude(lapAltitude, lapAscent, 0));
-                        }
-                    }
+            SummaryData segmentSummary = parseSummaryData(reader);
+            lap.setTimeSplit((int) ((segmentSummary.getDuration() + segmentSummary.getBeginning()) * 10));
+            if (segmentSummary.getDistance() != 0) {
+                workout.runningDistance += segmentSummary.getDistance();
+                lapSpd.setDistance((int) workout.runningDistance);
+                lapSpd.setSpeedAVG((float) (3.600 * segmentSummary.getDistance() / segmentSummary.getDuration())); // Assumes 1/4 Mile Lap
+                lapSpd.setSpeedEnd((float) 0.0);
+            } else {
+                workout.runningDistance += 402.336;
+                lapSpd.setDistance((int) workout.runningDistance);
+                lapSpd.setSpeedAVG((float) (3.6 * 402.336 / segmentSummary.getDuration())); // Assumes 1/4 Mile Lap
+                lapSpd.setSpeedEnd((float) 0.0);
+            }
+            lap.setSpeed(lapSpd);
+            if (segmentSummary.getHr() != null) {
+                if (segmentSummary.getHr().getAvg() > 0) {
+                    lap.setHeartRateAVG((short) segmentSummary.getHr().getAvg());
                 }
-
-                // sometimes there are laps (mostly the last one) with lap length 0 => ignore them
-                Lap previousLap = laps.isEmpty() ? null : laps.get(laps.size() - 1);
-                if (previousLap == null || lap.getTimeSplit() > previousLap.getTimeSplit()) {
-                    laps.add(lap);
+                if (segmentSummary.getHr().getMax() > 0) {
+                    lap.setHeartRateMax((short) segmentSummary.getHr().getMax());
                 }
             }
+            if (segmentSummary.getAltitude() != null) {
+                short lapAltitude = (short) segmentSummary.getAltitude().getMax();
+                int lapAscent = (int) (segmentSummary.getAltitude().getMax() - segmentSummary.getAltitude().getMin());
+                lap.setAltitude(new LapAltitude(lapAltitude, lapAscent, 0));
+            }
         }
 
-        if (!laps.isEmpty()) {
-            exercise.getLapList().addAll(laps);
+        // sometimes there are laps (mostly the last one) with lap length 0 => ignore them
+        if (workout.previousLap == null || lap.getTimeSplit() > workout.previousLap.getTimeSplit()) {
+            exercise.getLapList().add(lap);
+            workout.previousLap = lap;
         }
-        return exercise;
     }
 
     private static float getDistanceFromPositions(Position startPosition, Position stopPosition) { //float lat1, float lng1, float lat2, float lng2) {
@@ -612,227 +695,115 @@ public class TimexPwxParser extends AbstractExerciseParser {
         return (float) (dist * meterConversion);
     }
 
-    private EVExercise parseWorkoutSamples(EVExercise exercise, Node workoutNode) {
-        // obtain all the sample data.
-        int totalSamples = countNodeItems(workoutNode, "sample");
-        int currentSampleNumber = 0;
-        float lastDistance = 0;
-        boolean distanceinsample = false;
-        boolean firstsample = true;
-        double lastOffset = 0;
-        double currentOffset = 0;
-        Position lastPosition = new Position(0, 0);
-        NodeList children = workoutNode.getChildNodes();
-        NodeList sampleChildren = null;
-        String childName;
-        ExerciseSample lastSample = new ExerciseSample(); // Stop the jitters... assumes no
-        Double latitude = 0.0, longitude = 0.0;
-        double belowZone[] = {0, 0, 0, 0, 0, 0};
-        double inZone[] = {0, 0, 0, 0, 0, 0};
-        double aboveZone[] = {0, 0, 0, 0, 0, 0};
-        int istop = children.getLength(); // getLength() is a slow function so keep it out of the loop.
-        for (int i = 0; i < istop; i++) {
-            childName = children.item(i).getNodeName();
-            if (childName.equals("sample")) {
-                ExerciseSample sample = new ExerciseSample();
-                sample.setHeartRate((short) 0);
-                sampleChildren = children.item(i).getChildNodes();
-                int jstop = sampleChildren.getLength();
-                for (int j = 0; j < jstop; j++) {
-                    childName = sampleChildren.item(j).getNodeName();
-                    if (childName.equals("timeoffset")) {
-                        if (currentOffset != 0)
-                            lastOffset = currentOffset;
-                        currentOffset = Double.valueOf(sampleChildren.item(j).getTextContent());
-                        sample.setTimestamp((long) (1000 * currentOffset));
-                    } else if (childName.equals("hr")) {
-                        sample.setHeartRate(Short.valueOf(sampleChildren.item(j).getTextContent()));
-                    } else if (childName.equals("spd")) {
-                        sample.setSpeed((float) 3.6 * Float.valueOf(sampleChildren.item(j).getTextContent()).floatValue());
-                    } else if (childName.equals("pwr")) {
-                        // Not implemented in ExerciseSample class
-                    } else if (childName.equals("torq")) {
-                        // Not implemented in ExerciseSample class
-                    } else if (childName.equals("cad")) {
-                        sample.setCadence(Short.valueOf(sampleChildren.item(j).getTextContent()));
-                        exercise.getRecordingMode().setCadence(true);
-                    } else if (childName.equals("dist")) {
-                        double dist = Double.valueOf(sampleChildren.item(j).getTextContent());
-                        sample.setDistance((int) Math.round(dist));
-                        distanceinsample = true;
-                    } else if (childName.equals("lat")) {
-                        latitude = Double.valueOf(sampleChildren.item(j).getTextContent());
-                    } else if (childName.equals("lon")) {
-                        longitude = Double.valueOf(sampleChildren.item(j).getTextContent());
-                    } else if (childName.equals("alt")) {
-                        sample.setAltitude(Float.valueOf(sampleChildren.item(j).getTextContent()).shortValue());
-                    } else if (childName.equals("temp")) {
-                        sample.setTemperature(Float.valueOf(sampleChildren.item(j).getTextContent()).shortValue());
-                    } else if (childName.equals("time")) {
-                        // Not implemented in ExerciseSample
-                    }
-                }
-                sample.setPosition(new Position(latitude, longitude));
-                if (firstsample) {
-                    lastPosition = sample.getPosition();
-                    firstsample = false;
-                }
-                if (!distanceinsample) {
-                    lastDistance += getDistanceFromPositions(lastPosition, sample.getPosition());
-                    sample.setDistance((int) lastDistance);
-                    lastPosition = sample.getPosition();
-                }
-                // Eliminates the jitters of 0bpm samples... assumes that heart rate won't change instantiously by much and
-                // that there will only be the occasional missed heart beat.  Also fixes the laps not adding up.
-                if (sample.getHeartRate() == 0)
-                    sample.setHeartRate(lastSample.getHeartRate());
-                else
-                    lastSample.setHeartRate(sample.getHeartRate());
-                exercise.getSampleList().add(sample);
-
-                // update Zone information
-                if (exercise.getHeartRateLimits() != null) {
-                    for (int j = 0; j < 6; j++) {
-                        if (sample.getHeartRate() > exercise.getHeartRateLimits().get(j).getUpperHeartRate()) {
-                            aboveZone[j] += (currentOffset - lastOffset);
-                        } else if (sample.getHeartRate() < exercise.getHeartRateLimits().get(j).getLowerHeartRate()) {
-                            belowZone[j] += (currentOffset - lastOffset);
-                        } else {
-                            inZone[j] += (currentOffset - lastOffset);
-                        }
-                    }
-                }
-            }
+    private void parseWorkoutSample(XMLStreamReader reader, EVExercise exercise, WorkoutState workout,
+            SampleStatistics statistics) throws XMLStreamException {
 
-        }
+        ExerciseSample sample = new ExerciseSample();
+        sample.setHeartRate((short) 0);
 
-        // Store Zone Information in the exercise file
-        if (exercise.getHeartRateLimits() != null) {
-            for (int i = 0; i < 6; i++) {
-                HeartRateLimit hrLimit = exercise.getHeartRateLimits().get(i);
-                hrLimit.setTimeAbove((int) aboveZone[i]);
-                hrLimit.setTimeBelow((int) belowZone[i]);
-                hrLimit.setTimeWithin((int) inZone[i]);
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "timeoffset":
+                    if (workout.currentOffset != 0)
+                        workout.lastOffset = workout.currentOffset;
+                    workout.currentOffset = Double.valueOf(reader.getElementText());
+                    sample.setTimestamp((long) (1000 * workout.currentOffset));
+                    break;
+                case "hr":
+                    sample.setHeartRate(Short.valueOf(reader.getElementText()));
+                    break;
+                case "spd":
+                    sample.setSpeed((float) 3.6 * Float.valueOf(reader.getElementText()).floatValue());
+                    break;
+                case "cad":
+                    sample.setCadence(Short.valueOf(reader.getElementText()));
+                    exercise.getRecordingMode().setCadence(true);
+                    break;
+                case "dist":
+                    double dist = Double.valueOf(reader.getElementText());
+                    sample.setDistance((int) Math.round(dist));
+                    workout.distanceinsample = true;
+                    break;
+                case "lat":
+                    workout.latitude = Double.valueOf(reader.getElementText());
+                    break;
+                case "lon":
+                    workout.longitude = Double.valueOf(reader.getElementText());
+                    break;
+                case "alt":
+                    sample.setAltitude(Float.valueOf(reader.getElementText()).shortValue());
+                    break;
+                case "temp":
+                    sample.setTemperature(Float.valueOf(reader.getElementText()).shortValue());
+                    break;
+                default:
+                    // pwr, torq and time are not implemented in ExerciseSample class
+                    skipElement(reader);
             }
         }
-        exercise.setRecordingInterval((short) 2);
 
-        // some models (e.g. Timex Ironman Run Trainer) don't contain statistic date (avg, max, ...)
-        // => compute the missing data   
-        if (!exercise.getSampleList().isEmpty()) {
-            computeHeartrateStatisticIfMissing(exercise);
-            computeSpeedStatisticIfMissing(exercise);
-            computeAltitudeStatisticIfMissing(exercise);
+        sample.setPosition(new Position(workout.latitude, workout.longitude));
+        if (workout.firstsample) {
+            workout.lastPosition = sample.getPosition();
+            workout.firstsample = false;
         }
-        return exercise;
-    }
-
-    private Node findFirstPwx(Document doc) {
-        // Find the first node of the document that is a pwx and then return it otherwise, return null
-        // Normally only expect one node at this level but who knows.
-        NodeList rootNodeList = doc.getChildNodes();
-        for (int i = 0; i < rootNodeList.getLength(); i++) {
-            if (rootNodeList.item(i).getNodeName().equals("pwx")) {
-                return rootNodeList.item(i);
-            }
+        if (!workout.distanceinsample) {
+            workout.lastDistance += getDistanceFromPositions(workout.lastPosition, sample.getPosition());
+            sample.setDistance((int) workout.lastDistance);
+            workout.lastPosition = sample.getPosition();
         }
-        return null;
-    }
-
-    @Override
-    public EVExercise parseExercise(String filename) throws EVException {
-
-        // create an EVExercise object from this data and set file type
-
-        EVExercise exercise = new EVExercise(EVExercise.ExerciseFileType.TIMEX_PWX);
-        // Open Document and Get root
-
-        DocumentBuilderFactory dbf = null;
-        DocumentBuilder db = null;
-        Document doc = null;
-
-        Node root = null;
+        // Eliminates the jitters of 0bpm samples... assumes that heart rate won't change instantiously by much and
+        // that there will only be the occasional missed heart beat.  Also fixes the laps not adding up.
+        if (sample.getHeartRate() == 0)
+            sample.setHeartRate(workout.lastHeartRate);
+        else
+            workout.lastHeartRate = sample.getHeartRate();
 
-        NodeList children = null;
-        // Open the pwx file
-        try {
-            dbf = DocumentBuilderFactory.newInstance(); // DocumentBuilderFactory
-            db = dbf.newDocumentBuilder(); // DocumentBuilder
-            doc = db.parse(filename); // Document
-            root = findFirstPwx(doc); // Node
-        } catch (Exception e) {
-            throw new EVException("Failed to open pwx exercise file '" + filename + "' ...", e);
+        statistics.add(sample);
+        if (statistics.storeSamples) {
+            exercise.getSampleList().add(sample);
         }
-        if (root != null)
-            exercise.setFileType(EVExercise.ExerciseFileType.TIMEX_PWX);
-        else
-            throw new EVException("Failed to find a pwx node in file '" + filename + "'");
 
-        children = root.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            if (children.item(i).getNodeName().equals("workout")) {
-                exercise = parseWorkoutNode(exercise, children.item(i));
+        // update Zone information
+        if (exercise.getHeartRateLimits() != null) {
+            double sampleDuration = workout.currentOffset - workout.lastOffset;
+            for (int j = 0; j < 6; j++) {
+                if (sample.getHeartRate() > exercise.getHeartRateLimits().get(j).getUpperHeartRate()) {
+                    workout.aboveZone[j] += sampleDuration;
+                } else if (sample.getHeartRate() < exercise.getHeartRateLimits().get(j).getLowerHeartRate()) {
+                    workout.belowZone[j] += sampleDuration;
+                } else {
+                    workout.inZone[j] += sampleDuration;
+                }
             }
         }
-
-        cleanupDistanceAndSpeedInSamples(exercise);
-
-        // done :-) ?
-        return exercise;
     }
 
-    private void computeHeartrateStatisticIfMissing(EVExercise exercise) {
+    private void computeHeartrateStatisticIfMissing(EVExercise exercise, SampleStatistics statistics) {
         if (exercise.getHeartRateAVG() == null) {
-            double sumHeartrate = 0;
-
-            for (ExerciseSample sample : exercise.getSampleList()) {
-                sumHeartrate += sample.getHeartRate();
-                short maxExerciseHeartrate = exercise.getHeartRateMax() == null ? 0 : exercise.getHeartRateMax();
-                exercise.setHeartRateMax((short) Math.max(maxExerciseHeartrate, sample.getHeartRate()));
-            }
-            exercise.setHeartRateAVG((short) Math.round(sumHeartrate / (double) exercise.getSampleList().size()));
+            short maxExerciseHeartrate = exercise.getHeartRateMax() == null ? 0 : exercise.getHeartRateMax();
+            exercise.setHeartRateMax((short) Math.max(maxExerciseHeartrate, statistics.heartrateMax));
+            exercise.setHeartRateAVG((short) Math.round(statistics.heartrateSum / (double) statistics.sampleCount));
         }
     }
 
-    private void computeSpeedStatisticIfMissing(EVExercise exercise) {
+    private void computeSpeedStatisticIfMissing(EVExercise exercise, SampleStatistics statistics) {
         if (exercise.getRecordingMode().isSpeed() && exercise.getSpeed() == null) {
 
-            float speedMax = (float) exercise.getSampleList().stream()
-                    .mapToDouble(sample -> sample.getSpeed() == null ? 0f : sample.getSpeed())
-                    .max()
-                    .orElse(0f);
-
-            ExerciseSample lastSample = exercise.getSampleList().get(exercise.getSampleList().size() - 1);
-            int distance = lastSample.getDistance();
+            int distance = statistics.lastDistance;
             float speedAvg = (CalculationUtils.calculateAvgSpeed(distance / 1000f,
                     Math.round(exercise.getDuration() / 10f)));
 
-            exercise.setSpeed(new ExerciseSpeed(speedAvg, speedMax, distance));
+            exercise.setSpeed(new ExerciseSpeed(speedAvg, statistics.speedMax, distance));
         }
     }
 
-    private void computeAltitudeStatisticIfMissing(EVExercise exercise) {
+    private void computeAltitudeStatisticIfMissing(EVExercise exercise, SampleStatistics statistics) {
         if (exercise.getRecordingMode().isAltitude() && exercise.getAltitude() == null) {
 
-            short altitudeMin = Short.MAX_VALUE;
-            short altitudeMax = Short.MIN_VALUE;
-            int ascent = 0;
-            double sumAltitude = 0;
-            short previousAltitude = Short.MAX_VALUE;
-
-            for (ExerciseSample sample : exercise.getSampleList()) {
-                sumAltitude += sample.getAltitude();
-                altitudeMin = (short) Math.min(altitudeMin, sample.getAltitude());
-                altitudeMax = (short) Math.max(altitudeMax, sample.getAltitude());
-
-                if (previousAltitude < sample.getAltitude()) {
-                    ascent += sample.getAltitude() - previousAltitude;
-                }
-                previousAltitude = sample.getAltitude();
-            }
-
-            short altitudeAvg = (short) Math.round(sumAltitude / (double) exercise.getSampleList().size());
-            exercise.setAltitude(new ExerciseAltitude(altitudeMin, altitudeAvg, altitudeMax, ascent, 0));
+            short altitudeAvg = (short) Math.round(statistics.altitudeSum / (double) statistics.sampleCount);
+            exercise.setAltitude(new ExerciseAltitude(statistics.altitudeMin, altitudeAvg, statistics.altitudeMax,
+                    statistics.ascent, 0));
         }
     }
 
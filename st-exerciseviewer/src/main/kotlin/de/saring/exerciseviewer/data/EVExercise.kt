@@ -25,7 +25,7 @@ import java.time.LocalDateTime
  * @property odometer  Odometer (cumulative ride distance) in km.
  * @property heartRateLimits List of heartrate limit data (can be more then one).
  * @property lapList List containing the data of all exercise laps.
- * @property sampleList List containing the data of all recorded exercise samples (for each interval).
+ * @property sampleList Table containing the data of all recorded exercise samples (for each interval).
  *
  * @author Stefan Saring
  */
@@ -52,7 +52,7 @@ data class EVExercise(
 
     var heartRateLimits: MutableList<HeartRateLimit> = mutableListOf(),
     var lapList: MutableList<Lap> = mutableListOf(),
-    var sampleList: MutableList<ExerciseSample> = mutableListOf())
+    var sampleList: ExerciseSampleTable = ExerciseSampleTable())
 {
     /**
      * Secondary constructor for easier creation of instances from Java code, otherwise all attributes needs to get passed.
@@ -100,12 +100,12 @@ data class EVExercise(
         }
 
         // calculate relation of exercise distance to last sample distance
-        val (_, _, _, _, _, distance) = this.sampleList[this.sampleList.size - 1]
-        val fRelation = distance!! / this.speed!!.distance.toDouble()
+        val samples = this.sampleList
+        val fRelation = samples.getDistance(samples.size - 1) / this.speed!!.distance.toDouble()
 
         // process all samples and recalculate the sample distance in relation to exercise distance
-        for (sample in this.sampleList) {
-            sample.distance = Math.round(sample.distance!! / fRelation).toInt()
+        for (i in 0 until samples.size) {
+            samples.setDistance(i, Math.round(samples.getDistance(i) / fRelation).toInt())
         }
     }
 
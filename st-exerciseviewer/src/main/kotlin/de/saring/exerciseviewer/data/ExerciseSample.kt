@@ -1,9 +1,19 @@
 package de.saring.exerciseviewer.data
 
+import de.saring.exerciseviewer.data.ExerciseSampleTable.Channel
+
 /**
- * This data class contains all the information recorded at each interval. All the attributes are optional,
+ * This class contains all the information recorded at each interval. All the attributes are optional,
  * it depends on the file type (or heartrate monitor model) whether the data is available or not.
  *
+ * A new sample stores its values by itself. The samples returned by an ExerciseSampleTable are views of the table
+ * rows, their values are read from and written to the table columns. Adding a sample to a table stores a copy of
+ * its values, the sample itself remains independent of the table.
+ *
+ * Like a data class the samples are equal when all their values are equal, no matter whether they are views or not.
+ * So the hash code of a view changes with the values of its row, views must not be used as keys in hash based
+ * collections. The function copy() returns an independent sample with the same or the specified values.
+ *
  * @property timestamp Timestamp since exercise start of this sample (in 1/1000 sec).
  * @property heartRate Heartrate at record moment.
  * @property altitude Altitude at record moment.
@@ -15,13 +25,171 @@ package de.saring.exerciseviewer.data
  *
  * @author Stefan Saring
  */
-data class ExerciseSample(
-
-        var timestamp: Long? = null,
-        var heartRate: Short? = null,
-        var altitude: Short? = null,
-        var speed: Float? = null,
-        var cadence: Short? = null,
-        var distance: Int? = null,
-        var temperature: Short? = null,
-        var position: Position? = null)
+class ExerciseSample(
+        timestamp: Long? = null,
+        heartRate: Short? = null,
+        altitude: Short? = null,
+        speed: Float? = null,
+        cadence: Short? = null,
+        distance: Int? = null,
+        temperature: Short? = null,
+        position: Position? = null) {
+
+    private var table: ExerciseSampleTable? = null
+    private var index = 0
+
+    private var detachedTimestamp = timestamp
+    private var detachedHeartRate = heartRate
+    private var detachedAltitude = altitude
+    private var detachedSpeed = speed
+    private var detachedCadence = cadence
+    private var detachedDistance = distance
+    private var detachedTemperature = temperature
+    private var detachedPosition = position
+
+    /**
+     * Creates the view of the specified row of the sample table.
+     */
+    internal constructor(table: ExerciseSampleTable, index: Int) : this() {
+        this.table = table
+        this.index = index
+    }
+
+    /** True when this sample is the view of a sample table row. */
+    internal val attached: Boolean
+        get() = table != null
+
+    var timestamp: Long?
+        get() = read(Channel.TIMESTAMP, detachedTimestamp) { getTimestamp(it) }
+        set(value) {
+            if (table == null) {
+                detachedTimestamp = value
+            } else {
+                write(Channel.TIMESTAMP, value) { i, v -> setTimestamp(i, v) }
+            }
+        }
+
+    var heartRate: Short?
+        get() = read(Channel.HEART_RATE, detachedHeartRate) { getHeartRate(it) }
+        set(value) {
+            if (table == null) {
+                detachedHeartRate = value
+            } else {
+                write(Channel.HEART_RATE, value) { i, v -> setHeartRate(i, v) }
+            }
+        }
+
+    var altitude: Short?
+        get() = read(Channel.ALTITUDE, detachedAltitude) { getAltitude(it) }
+        set(value) {
+            if (table == null) {
+                detachedAltitude = value
+            } else {
+                write(Channel.ALTITUDE, value) { i, v -> setAltitude(i, v) }
+            }
+        }
+
+    var speed: Float?
+        get() = read(Channel.SPEED, detachedSpeed) { getSpeed(it) }
+        set(value) {
+            if (table == null) {
+                detachedSpeed = value
+            } else {
+                write(Channel.SPEED, value) { i, v -> setSpeed(i, v) }
+            }
+        }
+
+    var cadence: Short?
+        get() = read(Channel.CADENCE, detachedCadence) { getCadence(it) }
+        set(value) {
+            if (table == null) {
+                detachedCadence = value
+            } else {
+                write(Channel.CADENCE, value) { i, v -> setCadence(i, v) }
+            }
+        }
+
+    var distance: Int?
+        get() = read(Channel.DISTANCE, detachedDistance) { getDistance(it) }
+        set(value) {
+            if (table == null) {
+                detachedDistance = value
+            } else {
+                write(Channel.DISTANCE, value) { i, v -> setDistance(i, v) }
+            }
+        }
+
+    var temperature: Short?
+        get() = read(Channel.TEMPERATURE, detachedTemperature) { getTemperature(it) }
+        set(value) {
+            if (table == null) {
+                detachedTemperature = value
+            } else {
+                write(Channel.TEMPERATURE, value) { i, v -> setTemperature(i, v) }
+            }
+        }
+
+    var position: Position?
+        get() = read(Channel.POSITION, detachedPosition) { Position(getLatitude(it), getLongitude(it)) }
+        set(value) {
+            if (table == null) {
+                detachedPosition = value
+            } else {
+                write(Channel.POSITION, value) { i, v -> setPosition(i, v.latitude, v.longitude) }
+            }
+        }
+
+    /**
+     * Returns a new sample with the current or the specified values, which is not bound to a sample table.
+     */
+    fun copy(timestamp: Long? = this.timestamp,
+             heartRate: Short? = this.heartRate,
+             altitude: Short? = this.altitude,
+             speed: Float? = this.speed,
+             cadence: Short? = this.cadence,
+             distance: Int? = this.distance,
+             temperature: Short? = this.temperature,
+             position: Position? = this.position) =
+            ExerciseSample(timestamp, heartRate, altitude, speed, cadence, distance, temperature, position)
+
+    private inline fun <T> read(channel: Channel, detachedValue: T?, getter: ExerciseSampleTable.(Int) -> T): T? {
+        val currentTable = table ?: return detachedValue
+        return if (currentTable.isPresent(channel, index)) currentTable.getter(index) else null
+    }
+
+    private inline fun <T> write(channel: Channel, value: T?, setter: ExerciseSampleTable.(Int, T) -> Unit) {
+        val currentTable = table!!
+        if (value == null) {
+            currentTable.clear(channel, index)
+        } else {
+            currentTable.setter(index, value)
+        }
+    }
+
+    operator fun component1() = timestamp
+    operator fun component2() = heartRate
+    operator fun component3() = altitude
+    operator fun component4() = speed
+    operator fun component5() = cadence
+    operator fun component6() = distance
+    operator fun component7() = temperature
+    operator fun component8() = position
+
+    override fun equals(other: Any?): Boolean =
+            other is ExerciseSample &&
+                    timestamp == other.timestamp &&
+                    heartRate == other.heartRate &&
+                    altitude == other.altitude &&
+                    speed == other.speed &&
+                    cadence == other.cadence &&
+                    distance == other.distance &&
+                    temperature == other.temperature &&
+                    position == other.position
+
+    override fun hashCode(): Int =
+            listOf(timestamp, heartRate, altitude, speed, cadence, distance, temperature, position).hashCode()
+
+    override fun toString(): String =
+            "ExerciseSample(timestamp=$timestamp, heartRate=$heartRate, altitude=$altitude, speed=$speed, " +
+                    "cadence=$cadence, distance=$distance, temperature=$temperature, position=$position)"
+}
@@ -0,0 +1,316 @@
+package de.saring.exerciseviewer.data
+
+import java.util.BitSet
+
+/**
+ * Columnar storage of the exercise samples. Each channel (timestamp, heart rate, altitude, ...) is stored in a
+ * primitive array, which is allocated when the first value of the channel gets stored. The presence of the
+ * (optional) values is stored in a bitset per channel. This needs much less memory than one object per sample
+ * with boxed values, so exercises with many samples (e.g. 24h recordings) can be handled.
+ *
+ * The columns can be accessed directly by the typed getters and setters (e.g. getHeartRate() and
+ * setHeartRate()), the getters must only be called when the value is present (see isPresent()).
+ *
+ * For compatibility the table is also a mutable list of ExerciseSample. The list elements are views of the table
+ * rows, changes of their values are stored in the table. The views are bound to the row index, so inserting or
+ * removing samples before them lets them refer to other rows. Adding or setting a sample stores a copy of its
+ * values, the passed sample is not bound to the table, so later changes of it are not stored in the table.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseSampleTable() : AbstractMutableList<ExerciseSample>() {
+
+    /**
+     * The channels of the sample data.
+     */
+    enum class Channel {
+        TIMESTAMP, HEART_RATE, ALTITUDE, SPEED, CADENCE, DISTANCE, TEMPERATURE, POSITION
+    }
+
+    private var sampleCount = 0
+    private var capacity = 0
+
+    private var timestamps: LongArray? = null
+    private var heartRates: ShortArray? = null
+    private var altitudes: ShortArray? = null
+    private var speeds: FloatArray? = null
+    private var cadences: ShortArray? = null
+    private var distances: IntArray? = null
+    private var temperatures: ShortArray? = null
+    private var latitudes: DoubleArray? = null
+    private var longitudes: DoubleArray? = null
+
+    private val presence = Array(Channel.values().size) { BitSet() }
+
+    /**
+     * Creates the table with a copy of the values of the specified samples.
+     *
+     * @param samples the samples to store
+     */
+    constructor(samples: Collection<ExerciseSample>) : this() {
+        ensureCapacity(samples.size)
+        addAll(samples)
+    }
+
+    override val size: Int
+        get() = sampleCount
+
+    /**
+     * Returns true when the value of the channel is present in the specified sample.
+     *
+     * @param channel the channel
+     * @param index index of the sample
+     * @return true when the value is present
+     */
+    fun isPresent(channel: Channel, index: Int): Boolean {
+        checkIndex(index)
+        return presence[channel.ordinal][index]
+    }
+
+    /**
+     * Removes the value of the channel from the specified sample.
+     *
+     * @param channel the channel
+     * @param index index of the sample
+     */
+    fun clear(channel: Channel, index: Int) {
+        checkIndex(index)
+        presence[channel.ordinal].clear(index)
+    }
+
+    /** Returns the timestamp since exercise start of the specified sample (in 1/1000 sec). */
+    fun getTimestamp(index: Int): Long = timestamps!![checkPresent(Channel.TIMESTAMP, index)]
+
+    /** Stores the timestamp since exercise start of the specified sample (in 1/1000 sec). */
+    fun setTimestamp(index: Int, value: Long) {
+        val values = timestamps ?: LongArray(capacity).also { timestamps = it }
+        values[markPresent(Channel.TIMESTAMP, index)] = value
+    }
+
+    /** Returns the heartrate of the specified sample. */
+    fun getHeartRate(index: Int): Short = heartRates!![checkPresent(Channel.HEART_RATE, index)]
+
+    /** Stores the heartrate of the specified sample. */
+    fun setHeartRate(index: Int, value: Short) {
+        val values = heartRates ?: ShortArray(capacity).also { heartRates = it }
+        values[markPresent(Channel.HEART_RATE, index)] = value
+    }
+
+    /** Returns the altitude of the specified sample. */
+    fun getAltitude(index: Int): Short = altitudes!![checkPresent(Channel.ALTITUDE, index)]
+
+    /** Stores the altitude of the specified sample. */
+    fun setAltitude(index: Int, value: Short) {
+        val values = altitudes ?: ShortArray(capacity).also { altitudes = it }
+        values[markPresent(Channel.ALTITUDE, index)] = value
+    }
+
+    /** Returns the speed of the specified sample (in km/h). */
+    fun getSpeed(index: Int): Float = speeds!![checkPresent(Channel.SPEED, index)]
+
+    /** Stores the speed of the specified sample (in km/h). */
+    fun setSpeed(index: Int, value: Float) {
+        val values = speeds ?: FloatArray(capacity).also { speeds = it }
+        values[markPresent(Channel.SPEED, index)] = value
+    }
+
+    /** Returns the cadence of the specified sample (in rpm). */
+    fun getCadence(index: Int): Short = cadences!![checkPresent(Channel.CADENCE, index)]
+
+    /** Stores the cadence of the specified sample (in rpm). */
+    fun setCadence(index: Int, value: Short) {
+        val values = cadences ?: ShortArray(capacity).also { cadences = it }
+        values[markPresent(Channel.CADENCE, index)] = value
+    }
+
+    /** Returns the distance of the specified sample (in meters). */
+    fun getDistance(index: Int): Int = distances!![checkPresent(Channel.DISTANCE, index)]
+
+    /** Stores the distance of the specified sample (in meters). */
+    fun setDistance(index: Int, value: Int) {
+        val values = distances ?: IntArray(capacity).also { distances = it }
+        values[markPresent(Channel.DISTANCE, index)] = value
+    }
+
+    /** Returns the temperature of the specified sample (in degrees celcius). */
+    fun getTemperature(index: Int): Short = temperatures!![checkPresent(Channel.TEMPERATURE, index)]
+
+    /** Stores the temperature of the specified sample (in degrees celcius). */
+    fun setTemperature(index: Int, value: Short) {
+        val values = temperatures ?: ShortArray(capacity).also { temperatures = it }
+        values[markPresent(Channel.TEMPERATURE, index)] = value
+    }
+
+    /** Returns the latitude of the position of the specified sample. */
+    fun getLatitude(index: Int): Double = latitudes!![checkPresent(Channel.POSITION, index)]
+
+    /** Returns the longitude of the position of the specified sample. */
+    fun getLongitude(index: Int): Double = longitudes!![checkPresent(Channel.POSITION, index)]
+
+    /** Stores the position (latitude and longitude) of the specified sample. */
+    fun setPosition(index: Int, latitude: Double, longitude: Double) {
+        val latitudeValues = latitudes ?: DoubleArray(capacity).also { latitudes = it }
+        val longitudeValues = longitudes ?: DoubleArray(capacity).also { longitudes = it }
+        markPresent(Channel.POSITION, index)
+        latitudeValues[index] = latitude
+        longitudeValues[index] = longitude
+    }
+
+    /**
+     * Returns the view of the specified sample, changes of its values are stored in this table.
+     */
+    override fun get(index: Int): ExerciseSample {
+        checkIndex(index)
+        return ExerciseSample(this, index)
+    }
+
+    /**
+     * Stores the values of the passed sample in the specified row and returns a copy of the previous values.
+     */
+    override fun set(index: Int, element: ExerciseSample): ExerciseSample {
+        val previous = get(index).copy()
+        storeValues(index, element)
+        return previous
+    }
+
+    /**
+     * Inserts a row with the values of the passed sample at the specified index.
+     */
+    override fun add(index: Int, element: ExerciseSample) {
+        if (index < 0 || index > sampleCount) {
+            throw IndexOutOfBoundsException("Index: $index, size: $sampleCount")
+        }
+
+        // the passed sample can be a view of a row which gets moved now
+        val values = if (element.attached) element.copy() else element
+
+        ensureCapacity(sampleCount + 1)
+        if (index < sampleCount) {
+            moveRows(index, index + 1, sampleCount - index)
+        }
+        sampleCount++
+        modCount++
+
+        clearRow(index)
+        storeValues(index, values)
+    }
+
+    /**
+     * Removes the specified row and returns a copy of its values.
+     */
+    override fun removeAt(index: Int): ExerciseSample {
+        val previous = get(index).copy()
+        moveRows(index + 1, index, sampleCount - index - 1)
+        sampleCount--
+        modCount++
+        clearRow(sampleCount)
+        return previous
+    }
+
+    /**
+     * Returns independent copies of all samples. The default sort() implementation of the list sorts this array and
+     * stores its elements afterwards, so it must not contain views of rows which get overwritten while storing.
+     */
+    override fun toArray(): Array<Any?> = Array(sampleCount) { get(it).copy() }
+
+    /**
+     * Appends the specified number of samples without any values, they can be set by the typed setters.
+     *
+     * @param count number of samples to append
+     */
+    fun addEmpty(count: Int) {
+        ensureCapacity(sampleCount + count)
+        sampleCount += count
+        modCount++
+    }
+
+    override fun clear() {
+        presence.forEach { it.clear() }
+        sampleCount = 0
+        modCount++
+    }
+
+    /**
+     * Increases the capacity of the table, so it can store the specified number of samples without reallocation.
+     *
+     * @param minCapacity the minimum number of samples
+     */
+    fun ensureCapacity(minCapacity: Int) {
+        if (minCapacity <= capacity) {
+            return
+        }
+
+        val newCapacity = Math.max(minCapacity, Math.max(capacity * 2, 16))
+        timestamps = timestamps?.copyOf(newCapacity)
+        heartRates = heartRates?.copyOf(newCapacity)
+        altitudes = altitudes?.copyOf(newCapacity)
+        speeds = speeds?.copyOf(newCapacity)
+        cadences = cadences?.copyOf(newCapacity)
+        distances = distances?.copyOf(newCapacity)
+        temperatures = temperatures?.copyOf(newCapacity)
+        latitudes = latitudes?.copyOf(newCapacity)
+        longitudes = longitudes?.copyOf(newCapacity)
+        capacity = newCapacity
+    }
+
+    private fun storeValues(index: Int, sample: ExerciseSample) {
+        storeValue(Channel.TIMESTAMP, index, sample.timestamp) { setTimestamp(index, it) }
+        storeValue(Channel.HEART_RATE, index, sample.heartRate) { setHeartRate(index, it) }
+        storeValue(Channel.ALTITUDE, index, sample.altitude) { setAltitude(index, it) }
+        storeValue(Channel.SPEED, index, sample.speed) { setSpeed(index, it) }
+        storeValue(Channel.CADENCE, index, sample.cadence) { setCadence(index, it) }
+        storeValue(Channel.DISTANCE, index, sample.distance) { setDistance(index, it) }
+        storeValue(Channel.TEMPERATURE, index, sample.temperature) { setTemperature(index, it) }
+        storeValue(Channel.POSITION, index, sample.position) { setPosition(index, it.latitude, it.longitude) }
+    }
+
+    private inline fun <T> storeValue(channel: Channel, index: Int, value: T?, setter: (T) -> Unit) {
+        if (value == null) {
+            clear(channel, index)
+        } else {
+            setter(value)
+        }
+    }
+
+    private fun moveRows(from: Int, to: Int, count: Int) {
+        arrayOf<Any?>(timestamps, heartRates, altitudes, speeds, cadences, distances, temperatures,
+                latitudes, longitudes).forEach { values ->
+            if (values != null) {
+                System.arraycopy(values, from, values, to, count)
+            }
+        }
+
+        presence.forEach { bits ->
+            val movedBits = bits.get(from, from + count)
+            bits.clear(Math.min(from, to), Math.max(from, to) + count)
+            var bit = movedBits.nextSetBit(0)
+            while (bit >= 0) {
+                bits.set(to + bit)
+                bit = movedBits.nextSetBit(bit + 1)
+            }
+        }
+    }
+
+    private fun clearRow(index: Int) {
+        presence.forEach { it.clear(index) }
+    }
+
+    private fun checkIndex(index: Int) {
+        if (index < 0 || index >= sampleCount) {
+            throw IndexOutOfBoundsException("Index: $index, size: $sampleCount")
+        }
+    }
+
+    private fun checkPresent(channel: Channel, index: Int): Int {
+        if (!isPresent(channel, index)) {
+            throw NoSuchElementException("The sample $index contains no value for channel $channel!")
+        }
+        return index
+    }
+
+    private fun markPresent(channel: Channel, index: Int): Int {
+        checkIndex(index)
+        presence[channel.ordinal].set(index)
+        return index
+    }
+}
@@ -3,16 +3,19 @@ package de.saring.exerciseviewer.gui
 import de.saring.exerciseviewer.core.EVException
 import de.saring.exerciseviewer.core.EVOptions
 import de.saring.exerciseviewer.data.EVExercise
-import de.saring.exerciseviewer.parser.ExerciseParserFactory
+import de.saring.exerciseviewer.parser.ExerciseFileCache
 
 /**
  * This class contains all model / document (MVC) related data and functionality of the ExerciseViewer application.
  *
  * @property options The ExerciseViewer options.
+ * @property exerciseFileCache The cache of the parsed exercise files.
  *
  * @author Stefan Saring
  */
-class EVDocument(val options: EVOptions) {
+class EVDocument(
+        val options: EVOptions,
+        private val exerciseFileCache: ExerciseFileCache) {
 
     /** The current exercise to be displayed.  */
     lateinit var exercise: EVExercise
@@ -21,15 +24,14 @@ class EVDocument(val options: EVOptions) {
     lateinit var exerciseFilename: String
 
     /**
-     * Reads the specified exercise file and stores it in the document.
+     * Reads the specified exercise file (or its cached parse result) and stores it in the document.
      *
      * @param filename exercise filename
      * @throws EVException on parsing problems
      */
     fun openExerciseFile(filename: String) {
 
-        val parser = ExerciseParserFactory.getParser(filename)
-        exercise = parser.parseExercise(filename)
+        exercise = exerciseFileCache.parseExercise(filename)
         exerciseFilename = filename
     }
 }
@@ -1,6 +1,7 @@
 package de.saring.exerciseviewer.gui
 
 import de.saring.exerciseviewer.core.EVOptions
+import de.saring.exerciseviewer.parser.ExerciseFileCache
 import de.saring.util.gui.javafx.WindowBoundsPersistence
 import javafx.scene.control.Alert
 import javafx.stage.Modality
@@ -16,12 +17,14 @@ import javax.inject.Inject
  * @constructor constructor for dependency injection
  * @param context the ExerciseViewer UI context
  * @param options the options to be used in ExerciseViewer
+ * @param exerciseFileCache the cache of the parsed exercise files
  *
  * @author Stefan Saring
  */
 class EVMain @Inject constructor(
         private val context: EVContext,
-        options: EVOptions) {
+        options: EVOptions,
+        exerciseFileCache: ExerciseFileCache) {
 
     private val logger = Logger.getLogger(EVMain::class.java.name)
     private val dialogName = "ExerciseViewer"
@@ -30,7 +33,7 @@ class EVMain @Inject constructor(
     // => Guice can't be used here, it does not provide a scope for dialogs
     // => Guice-Workaround would be the use of a new Injector per EV window,
     // but this costs performance and can cause memory leaks
-    private val document = EVDocument(options)
+    private val document = EVDocument(options, exerciseFileCache)
     private val controller = EVController(context, document)
 
     /**
@@ -1,5 +1,6 @@
 package de.saring.exerciseviewer.gui.panels
 
+import de.saring.exerciseviewer.data.ExerciseSampleTable.Channel
 import de.saring.exerciseviewer.data.HeartRateLimit
 import de.saring.exerciseviewer.data.Lap
 import de.saring.exerciseviewer.gui.EVContext
@@ -224,23 +225,23 @@ class DiagramPanelController(
 
         // fill data series with all recorded exercise samples
         if (!exercise.sampleList.isEmpty()) {
-            for (index in 0 until exercise.sampleList.size) {
+            val samples = exercise.sampleList
+            for (index in 0 until samples.size) {
 
-                val sample = exercise.sampleList[index]
                 val valueLeft = getConvertedSampleValue(axisTypeLeft, index)
                 val valueRight = getConvertedSampleValue(axisTypeRight, index)
 
                 if (fDomainAxisTime) {
                     // calculate current second
-                    sample.timestamp?.let { timestamp ->
-                        val timeSeconds = (timestamp / 1000).toInt()
+                    if (samples.isPresent(Channel.TIMESTAMP, index)) {
+                        val timeSeconds = (samples.getTimestamp(index) / 1000).toInt()
                         val second = createJFreeChartSecond(timeSeconds)
                         fillDataInTimeSeries(sLeft as TimeSeries, sRight as TimeSeries?, second, valueLeft, valueRight)
                     }
                 } else {
                     // get current distance of this sample
-                    sample.distance?.let { distance ->
-                        var fDistance = (distance / 1000f).toDouble()
+                    if (samples.isPresent(Channel.DISTANCE, index)) {
+                        var fDistance = (samples.getDistance(index) / 1000f).toDouble()
                         if (context.formatUtils.unitSystem != FormatUtils.UnitSystem.Metric) {
                             fDistance = ConvertUtils.convertKilometer2Miles(fDistance, false)
                         }
@@ -559,21 +560,27 @@ class DiagramPanelController(
     }
 
     private fun getRawSampleValue(axisType: AxisType, sampleIndex: Int): Double? {
-        val sample = document.exercise.sampleList[sampleIndex]
+        val samples = document.exercise.sampleList
+
+        val channel = when (axisType) {
+            AxisType.HEARTRATE -> Channel.HEART_RATE
+            AxisType.ALTITUDE -> Channel.ALTITUDE
+            AxisType.SPEED -> Channel.SPEED
+            AxisType.CADENCE -> Channel.CADENCE
+            AxisType.TEMPERATURE -> Channel.TEMPERATURE
+            else -> throw IllegalArgumentException("Unknown axis type: $axisType!")
+        }
 
-        when (axisType) {
-            AxisType.HEARTRATE ->
-                return sample.heartRate?.toDouble()
-            AxisType.ALTITUDE ->
-                return sample.altitude?.toDouble()
-            AxisType.SPEED ->
-                return sample.speed?.toDouble()
-            AxisType.CADENCE ->
-                return sample.cadence?.toDouble()
-            AxisType.TEMPERATURE ->
-                return sample.temperature?.toDouble()
-            else ->
-                throw IllegalArgumentException("Unknown axis type: $axisType!")
+        if (!samples.isPresent(channel, sampleIndex)) {
+            return null
+        }
+
+        return when (channel) {
+            Channel.HEART_RATE -> samples.getHeartRate(sampleIndex).toDouble()
+            Channel.ALTITUDE -> samples.getAltitude(sampleIndex).toDouble()
+            Channel.SPEED -> samples.getSpeed(sampleIndex).toDouble()
+            Channel.CADENCE -> samples.getCadence(sampleIndex).toDouble()
+            else -> samples.getTemperature(sampleIndex).toDouble()
         }
     }
 
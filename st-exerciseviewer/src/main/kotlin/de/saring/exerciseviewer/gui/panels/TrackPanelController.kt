@@ -1,6 +1,7 @@
 package de.saring.exerciseviewer.gui.panels
 
 import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseSampleTable.Channel
 import de.saring.exerciseviewer.gui.EVContext
 import de.saring.exerciseviewer.gui.EVDocument
 import de.saring.leafletmap.ColorMarker
@@ -104,11 +105,11 @@ class TrackPanelController(
     }
 
     private fun movePositionMarker(positionIndex: Int) {
-        val samplePosition = document.exercise.sampleList[positionIndex].position
+        val samples = document.exercise.sampleList
 
         // some samples could have no position
-        samplePosition?.let {
-            val position = LatLong(it.latitude, it.longitude)
+        if (samples.isPresent(Channel.POSITION, positionIndex)) {
+            val position = LatLong(samples.getLatitude(positionIndex), samples.getLongitude(positionIndex))
 
             if (positionMarkerName == null) {
                 positionMarkerName = mapView!!.addMarker(position, "", ColorMarker.BLUE_MARKER, 0)
@@ -176,11 +177,12 @@ class TrackPanelController(
         }
     }
 
-    private fun createSamplePositionList(exercise: EVExercise): List<LatLong> =
-            exercise.sampleList
-                    .filter { it.position != null }
-                    .map { LatLong(it.position!!.latitude, it.position!!.longitude) }
-                    .toList()
+    private fun createSamplePositionList(exercise: EVExercise): List<LatLong> {
+        val samples = exercise.sampleList
+        return (0 until samples.size)
+                .filter { samples.isPresent(Channel.POSITION, it) }
+                .map { LatLong(samples.getLatitude(it), samples.getLongitude(it)) }
+    }
 
     private fun createLapPositionList(exercise: EVExercise): List<LatLong> {
         val lapPositions = mutableListOf<LatLong>()
@@ -209,30 +211,34 @@ class TrackPanelController(
      */
     private fun createToolTipText(sampleIndex: Int): String {
 
-        val exercise = document.exercise
-        val sample = exercise.sampleList[sampleIndex]
+        val samples = document.exercise.sampleList
         val formatUtils = context.formatUtils
 
         val sb = StringBuilder()
         appendToolTipLine(sb, "pv.track.tooltip.trackpoint", (sampleIndex + 1).toString())
 
-        sample.timestamp?.let {
-            appendToolTipLine(sb, "pv.track.tooltip.time", formatUtils.seconds2TimeString((it / 1000).toInt()))
+        if (samples.isPresent(Channel.TIMESTAMP, sampleIndex)) {
+            appendToolTipLine(sb, "pv.track.tooltip.time",
+                    formatUtils.seconds2TimeString((samples.getTimestamp(sampleIndex) / 1000).toInt()))
         }
-        sample.distance?.let {
-            appendToolTipLine(sb, "pv.track.tooltip.distance", formatUtils.distanceToString((it / 1000f).toDouble(), 3))
+        if (samples.isPresent(Channel.DISTANCE, sampleIndex)) {
+            appendToolTipLine(sb, "pv.track.tooltip.distance",
+                    formatUtils.distanceToString((samples.getDistance(sampleIndex) / 1000f).toDouble(), 3))
         }
-        sample.altitude?.let {
-            appendToolTipLine(sb, "pv.track.tooltip.altitude", formatUtils.heightToString(it.toInt()))
+        if (samples.isPresent(Channel.ALTITUDE, sampleIndex)) {
+            appendToolTipLine(sb, "pv.track.tooltip.altitude",
+                    formatUtils.heightToString(samples.getAltitude(sampleIndex).toInt()))
         }
-        sample.heartRate?.let {
-            appendToolTipLine(sb, "pv.track.tooltip.heartrate", formatUtils.heartRateToString(it.toInt()))
+        if (samples.isPresent(Channel.HEART_RATE, sampleIndex)) {
+            appendToolTipLine(sb, "pv.track.tooltip.heartrate",
+                    formatUtils.heartRateToString(samples.getHeartRate(sampleIndex).toInt()))
         }
-        sample.speed?.let {
-            appendToolTipLine(sb, "pv.track.tooltip.speed", formatUtils.speedToString(it, 2))
+        if (samples.isPresent(Channel.SPEED, sampleIndex)) {
+            appendToolTipLine(sb, "pv.track.tooltip.speed", formatUtils.speedToString(samples.getSpeed(sampleIndex), 2))
         }
-        sample.temperature?.let {
-            appendToolTipLine(sb, "pv.track.tooltip.temperature", formatUtils.temperatureToString(it))
+        if (samples.isPresent(Channel.TEMPERATURE, sampleIndex)) {
+            appendToolTipLine(sb, "pv.track.tooltip.temperature",
+                    formatUtils.temperatureToString(samples.getTemperature(sampleIndex)))
         }
         return sb.toString()
     }
@@ -4,30 +4,49 @@ import de.saring.exerciseviewer.core.EVException
 import de.saring.exerciseviewer.data.EVExercise
 import de.saring.util.unitcalc.CalculationUtils
 import java.io.File
+import java.io.InputStream
+import java.nio.file.Paths
+import javax.xml.stream.XMLInputFactory
+import javax.xml.stream.XMLStreamConstants
+import javax.xml.stream.XMLStreamReader
 
 /**
  * This abstract ExerciseParser implementation class contains the basic functionality which can be used by all
  * ExerciseParser implementations.
  *
+ * The parser instances are shared by all callers and can be used by multiple threads at the same time. So the
+ * implementations must not store any state of the current parse in instance fields, it needs to be kept in local
+ * variables or in objects created for each parse.
+ *
  * @author Stefan Saring
  */
 abstract class AbstractExerciseParser : ExerciseParser {
 
     /**
-     * Helper method for reading the specified binary exercise file into an Int array. The reason for integers is:
-     * byte values are -128 to 127, int values are converted to 0 to 255, this makes parsing much easier.
+     * Default implementation for exercise file formats which don't store the summary separately, the exercise gets
+     * parsed completely and the samples are removed afterwards. Parsers should override it when the summary can be
+     * read without creating the samples.
+     */
+    @Throws(EVException::class)
+    override fun parseSummary(filename: String): EVExercise =
+            parseExercise(filename).apply { sampleList.clear() }
+
+    override val isSummarySupported: Boolean
+        get() = false
+
+    /**
+     * Helper method for reading the specified binary exercise file. The returned input provides unsigned accessors
+     * for the content, so the bytes don't need to be converted before parsing.
      *
      * @param filename filename of exercise file to read
-     * @return int buffer with the file content (one int for each byte)
+     * @return the binary content of the file
      * @throws EVException thrown on read problems
      */
     @Throws(EVException::class)
-    protected fun readFileToByteArray(filename: String): IntArray {
+    protected fun readFileToBinaryInput(filename: String): BinaryInput {
 
         try {
-            return File(filename).readBytes()
-                    .map { unsignedByteToInt(it) }
-                    .toIntArray()
+            return BinaryInput.read(Paths.get(filename))
         } catch (e: Exception) {
             throw EVException("Failed to read binary content from exercise file '$filename' ...", e)
         }
@@ -50,14 +69,6 @@ abstract class AbstractExerciseParser : ExerciseParser {
         }
     }
 
-    /**
-     * Converts the unsigned Byte value (0..255) to the appropriate Int value.
-     *
-     * @param value unsigned Byte value
-     * @return appropriate Int value
-     */
-    private fun unsignedByteToInt(value: Byte): Int = value.toInt().and(0xff)
-
     /**
      * Calculates the average speed for all laps of the specified exercise. This needs to be done for many models
      * because the average lap speed is not part of the recorded data.
@@ -82,4 +93,53 @@ abstract class AbstractExerciseParser : ExerciseParser {
             }
         }
     }
+
+    /**
+     * Creates a StAX reader for streaming the XML content of the specified stream, so XML-based exercise files
+     * can be parsed without building a document in memory. DTDs and external entities are not supported.
+     *
+     * @param inputStream stream with the XML content
+     * @return the created reader, it needs to be closed by the caller (the stream will not be closed)
+     */
+    protected fun createXmlStreamReader(inputStream: InputStream): XMLStreamReader =
+            XML_INPUT_FACTORY.get().createXMLStreamReader(inputStream)
+
+    /**
+     * Calls the action for each child element of the current element, the reader must be positioned on the start
+     * of the current element. The action is called with the reader positioned on the start of the child element,
+     * it must consume the child element up to its end (e.g. by reading its text or by skipping it). Text content
+     * (except whitespace) is not allowed between the child elements.
+     *
+     * @param action the action for each child element
+     */
+    protected inline fun XMLStreamReader.forEachChildElement(action: () -> Unit) {
+        while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+            action()
+        }
+    }
+
+    /**
+     * Skips the current element including all its content, the reader must be positioned on the start of the
+     * element. Afterwards it's positioned on the end of the element.
+     */
+    protected fun XMLStreamReader.skipElement() {
+        var depth = 1
+        while (depth > 0) {
+            when (next()) {
+                XMLStreamConstants.START_ELEMENT -> depth++
+                XMLStreamConstants.END_ELEMENT -> depth--
+            }
+        }
+    }
+
+    companion object {
+
+        /** The XMLInputFactory is not guaranteed to be thread-safe, so each thread uses its own instance. */
+        private val XML_INPUT_FACTORY: ThreadLocal<XMLInputFactory> = ThreadLocal.withInitial {
+            XMLInputFactory.newFactory().apply {
+                setProperty(XMLInputFactory.SUPPORT_DTD, false)
+                setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false)
+            }
+        }
+    }
 }
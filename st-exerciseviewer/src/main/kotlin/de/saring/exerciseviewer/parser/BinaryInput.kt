@@ -0,0 +1,133 @@
+package de.saring.exerciseviewer.parser
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+/**
+ * Read-only view of the binary content of an exercise file, based on a ByteBuffer. All accessors are absolute
+ * (the buffer position is never changed) and return unsigned values, multi-byte values are read in little endian
+ * byte order. Instances can be shared by multiple threads.
+ *
+ * @author Stefan Saring
+ */
+class BinaryInput private constructor(private val buffer: ByteBuffer) {
+
+    /**
+     * Number of bytes of the content.
+     */
+    val size: Int
+        get() = buffer.limit()
+
+    /**
+     * Returns the unsigned 8 bit value at the specified offset.
+     *
+     * @param offset byte offset
+     * @return value (0..255)
+     */
+    fun u8(offset: Int): Int = buffer.get(offset).toInt() and 0xff
+
+    /**
+     * Returns the unsigned 16 bit little endian value at the specified offset.
+     *
+     * @param offset byte offset of the low byte
+     * @return value (0..65535)
+     */
+    fun u16le(offset: Int): Int = buffer.getShort(offset).toInt() and 0xffff
+
+    /**
+     * Returns the unsigned 32 bit little endian value at the specified offset.
+     *
+     * @param offset byte offset of the lowest byte
+     * @return value (0..4294967295)
+     */
+    fun u32le(offset: Int): Long = buffer.getInt(offset).toLong() and 0xffffffffL
+
+    /**
+     * Returns the BCD encoded value (2 digits) of the byte at the specified offset.
+     *
+     * @param offset byte offset
+     * @return decoded value (0..99 for valid BCD values)
+     */
+    fun bcd(offset: Int): Int = decodeBcd(u8(offset))
+
+    /**
+     * Returns the bit field of the byte at the specified offset.
+     *
+     * @param offset byte offset
+     * @param shift position of the lowest bit of the field (0..7)
+     * @param count number of bits of the field (1..8)
+     * @return value of the bit field
+     */
+    fun bits(offset: Int, shift: Int, count: Int): Int = (u8(offset) shr shift) and ((1 shl count) - 1)
+
+    /**
+     * Returns a view of the specified part of the content, the content will not be copied.
+     *
+     * @param offset byte offset of the part
+     * @param length number of bytes of the part
+     * @return the view of the part
+     * @throws IndexOutOfBoundsException when the part is not inside of the content
+     */
+    fun slice(offset: Int, length: Int): BinaryInput {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw IndexOutOfBoundsException("Part ($offset, $length) is not inside of the content (size $size)!")
+        }
+
+        val part = buffer.duplicate()
+        part.position(offset)
+        part.limit(offset + length)
+        return BinaryInput(part.slice().order(ByteOrder.LITTLE_ENDIAN))
+    }
+
+    companion object {
+
+        /**
+         * Reads the content of the specified file into a heap buffer. The files are not memory-mapped, because
+         * a mapping can't be released explicitly and would keep the file open until garbage collection.
+         *
+         * @param path path of the file
+         * @return the content of the file
+         */
+        @JvmStatic
+        fun read(path: Path): BinaryInput =
+                FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+                    val fileSize = channel.size()
+                    if (fileSize > Int.MAX_VALUE) {
+                        throw IllegalArgumentException("The file '$path' is too large ($fileSize bytes)!")
+                    }
+
+                    val buffer = ByteBuffer.allocate(fileSize.toInt())
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) {
+                            break
+                        }
+                    }
+                    buffer.flip()
+                    wrap(buffer)
+                }
+
+        /**
+         * Creates the view of the specified bytes, they will not be copied.
+         *
+         * @param bytes the content
+         * @return the view of the content
+         */
+        @JvmStatic
+        fun wrap(bytes: ByteArray): BinaryInput = wrap(ByteBuffer.wrap(bytes))
+
+        private fun wrap(buffer: ByteBuffer): BinaryInput =
+                BinaryInput(buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN))
+
+        /**
+         * Decodes the specified BCD value (2 digits, upper 4 bits * 10 + lower 4 bits).
+         *
+         * @param value the BCD encoded byte value
+         * @return decoded value
+         */
+        @JvmStatic
+        fun decodeBcd(value: Int): Int = ((value shr 4) * 10) + (value and 0x0f)
+    }
+}
@@ -0,0 +1,289 @@
+package de.saring.exerciseviewer.parser
+
+import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseAltitude
+import de.saring.exerciseviewer.data.ExerciseCadence
+import de.saring.exerciseviewer.data.ExerciseSampleTable
+import de.saring.exerciseviewer.data.ExerciseSampleTable.Channel
+import de.saring.exerciseviewer.data.ExerciseSpeed
+import de.saring.exerciseviewer.data.ExerciseTemperature
+import de.saring.exerciseviewer.data.HeartRateLimit
+import de.saring.exerciseviewer.data.Lap
+import de.saring.exerciseviewer.data.LapAltitude
+import de.saring.exerciseviewer.data.LapSpeed
+import de.saring.exerciseviewer.data.LapTemperature
+import de.saring.exerciseviewer.data.Position
+import de.saring.exerciseviewer.data.RecordingMode
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.BitSet
+
+/**
+ * Compact binary encoding of parsed EVExercise objects, used for caching the parse results.
+ *
+ * Optional values are stored with a leading presence flag. The samples are stored by channel: the presence of the
+ * channel values is stored as bitset, followed by the present values only. So missing channels need just a few
+ * bytes, no matter how many samples the exercise contains.
+ *
+ * @author Stefan Saring
+ */
+internal object ExerciseCodec {
+
+    /**
+     * Version of the encoding, needs to be increased on each format change (e.g. new EVExercise attributes).
+     */
+    const val VERSION = 1
+
+    /**
+     * Writes the specified exercise to the output stream.
+     *
+     * @param output the output stream
+     * @param exercise the exercise to write
+     */
+    fun write(output: DataOutputStream, exercise: EVExercise) {
+        output.writeUTF(exercise.fileType.name)
+        output.writeNullableString(exercise.deviceName)
+        output.writeNullable(exercise.dateTime) {
+            output.writeLong(it.toEpochSecond(ZoneOffset.UTC))
+            output.writeInt(it.nano)
+        }
+        output.writeNullableString(exercise.type)
+        writeRecordingMode(output, exercise.recordingMode)
+        output.writeNullable(exercise.duration) { output.writeInt(it) }
+        output.writeNullable(exercise.recordingInterval) { output.writeShort(it.toInt()) }
+        output.writeNullable(exercise.heartRateAVG) { output.writeShort(it.toInt()) }
+        output.writeNullable(exercise.heartRateMax) { output.writeShort(it.toInt()) }
+
+        output.writeNullable(exercise.speed) {
+            output.writeFloat(it.speedAvg)
+            output.writeFloat(it.speedMax)
+            output.writeInt(it.distance)
+        }
+        output.writeNullable(exercise.cadence) {
+            output.writeShort(it.cadenceAvg.toInt())
+            output.writeShort(it.cadenceMax.toInt())
+            output.writeNullable(it.cyclesTotal) { cycles -> output.writeLong(cycles) }
+        }
+        output.writeNullable(exercise.altitude) {
+            output.writeShort(it.altitudeMin.toInt())
+            output.writeShort(it.altitudeAvg.toInt())
+            output.writeShort(it.altitudeMax.toInt())
+            output.writeInt(it.ascent)
+            output.writeInt(it.descent)
+        }
+        output.writeNullable(exercise.temperature) {
+            output.writeShort(it.temperatureMin.toInt())
+            output.writeShort(it.temperatureAvg.toInt())
+            output.writeShort(it.temperatureMax.toInt())
+        }
+
+        output.writeNullable(exercise.energy) { output.writeInt(it) }
+        output.writeNullable(exercise.energyTotal) { output.writeInt(it) }
+        output.writeNullable(exercise.sumExerciseTime) { output.writeInt(it) }
+        output.writeNullable(exercise.sumRideTime) { output.writeInt(it) }
+        output.writeNullable(exercise.odometer) { output.writeInt(it) }
+
+        output.writeInt(exercise.heartRateLimits.size)
+        exercise.heartRateLimits.forEach { writeHeartRateLimit(output, it) }
+        output.writeInt(exercise.lapList.size)
+        exercise.lapList.forEach { writeLap(output, it) }
+        writeSamples(output, exercise.sampleList)
+    }
+
+    /**
+     * Reads the next exercise from the input stream.
+     *
+     * @param input the input stream
+     * @return the read exercise
+     */
+    fun read(input: DataInputStream): EVExercise {
+        val exercise = EVExercise(EVExercise.ExerciseFileType.valueOf(input.readUTF()))
+        exercise.deviceName = input.readNullableString()
+        exercise.dateTime = input.readNullable {
+            LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC)
+        }
+        exercise.type = input.readNullableString()
+        exercise.recordingMode = readRecordingMode(input)
+        exercise.duration = input.readNullable { input.readInt() }
+        exercise.recordingInterval = input.readNullable { input.readShort() }
+        exercise.heartRateAVG = input.readNullable { input.readShort() }
+        exercise.heartRateMax = input.readNullable { input.readShort() }
+
+        exercise.speed = input.readNullable {
+            ExerciseSpeed(input.readFloat(), input.readFloat(), input.readInt())
+        }
+        exercise.cadence = input.readNullable {
+            ExerciseCadence(input.readShort(), input.readShort(), input.readNullable { input.readLong() })
+        }
+        exercise.altitude = input.readNullable {
+            ExerciseAltitude(input.readShort(), input.readShort(), input.readShort(), input.readInt(), input.readInt())
+        }
+        exercise.temperature = input.readNullable {
+            ExerciseTemperature(input.readShort(), input.readShort(), input.readShort())
+        }
+
+        exercise.energy = input.readNullable { input.readInt() }
+        exercise.energyTotal = input.readNullable { input.readInt() }
+        exercise.sumExerciseTime = input.readNullable { input.readInt() }
+        exercise.sumRideTime = input.readNullable { input.readInt() }
+        exercise.odometer = input.readNullable { input.readInt() }
+
+        repeat(input.readInt()) { exercise.heartRateLimits.add(readHeartRateLimit(input)) }
+        repeat(input.readInt()) { exercise.lapList.add(readLap(input)) }
+        readSamples(input, exercise.sampleList)
+        return exercise
+    }
+
+    private fun writeRecordingMode(output: DataOutputStream, recordingMode: RecordingMode) {
+        output.writeBoolean(recordingMode.isHeartRate)
+        output.writeBoolean(recordingMode.isSpeed)
+        output.writeBoolean(recordingMode.isAltitude)
+        output.writeBoolean(recordingMode.isCadence)
+        output.writeBoolean(recordingMode.isPower)
+        output.writeBoolean(recordingMode.isTemperature)
+        output.writeBoolean(recordingMode.isLocation)
+        output.writeBoolean(recordingMode.isIntervalExercise)
+        output.writeNullable(recordingMode.bikeNumber) { output.writeByte(it.toInt()) }
+    }
+
+    private fun readRecordingMode(input: DataInputStream) = RecordingMode(
+            isHeartRate = input.readBoolean(),
+            isSpeed = input.readBoolean(),
+            isAltitude = input.readBoolean(),
+            isCadence = input.readBoolean(),
+            isPower = input.readBoolean(),
+            isTemperature = input.readBoolean(),
+            isLocation = input.readBoolean(),
+            isIntervalExercise = input.readBoolean(),
+            bikeNumber = input.readNullable { input.readByte() })
+
+    private fun writeHeartRateLimit(output: DataOutputStream, limit: HeartRateLimit) {
+        output.writeShort(limit.lowerHeartRate.toInt())
+        output.writeShort(limit.upperHeartRate.toInt())
+        output.writeNullable(limit.timeBelow) { output.writeInt(it) }
+        output.writeInt(limit.timeWithin)
+        output.writeNullable(limit.timeAbove) { output.writeInt(it) }
+        output.writeBoolean(limit.isAbsoluteRange)
+    }
+
+    private fun readHeartRateLimit(input: DataInputStream) = HeartRateLimit(
+            lowerHeartRate = input.readShort(),
+            upperHeartRate = input.readShort(),
+            timeBelow = input.readNullable { input.readInt() },
+            timeWithin = input.readInt(),
+            timeAbove = input.readNullable { input.readInt() },
+            isAbsoluteRange = input.readBoolean())
+
+    private fun writeLap(output: DataOutputStream, lap: Lap) {
+        output.writeInt(lap.timeSplit)
+        output.writeNullable(lap.heartRateSplit) { output.writeShort(it.toInt()) }
+        output.writeNullable(lap.heartRateAVG) { output.writeShort(it.toInt()) }
+        output.writeNullable(lap.heartRateMax) { output.writeShort(it.toInt()) }
+        output.writeNullable(lap.speed) {
+            output.writeFloat(it.speedEnd)
+            output.writeFloat(it.speedAVG)
+            output.writeInt(it.distance)
+            output.writeNullable(it.cadence) { cadence -> output.writeShort(cadence.toInt()) }
+        }
+        output.writeNullable(lap.altitude) {
+            output.writeShort(it.altitude.toInt())
+            output.writeInt(it.ascent)
+            output.writeInt(it.descent)
+        }
+        output.writeNullable(lap.temperature) { output.writeShort(it.temperature.toInt()) }
+        output.writeNullable(lap.positionSplit) {
+            output.writeDouble(it.latitude)
+            output.writeDouble(it.longitude)
+        }
+    }
+
+    private fun readLap(input: DataInputStream) = Lap(
+            timeSplit = input.readInt(),
+            heartRateSplit = input.readNullable { input.readShort() },
+            heartRateAVG = input.readNullable { input.readShort() },
+            heartRateMax = input.readNullable { input.readShort() },
+            speed = input.readNullable {
+                LapSpeed(input.readFloat(), input.readFloat(), input.readInt(), input.readNullable { input.readShort() })
+            },
+            altitude = input.readNullable { LapAltitude(input.readShort(), input.readInt(), input.readInt()) },
+            temperature = input.readNullable { LapTemperature(input.readShort()) },
+            positionSplit = input.readNullable { Position(input.readDouble(), input.readDouble()) })
+
+    private fun writeSamples(output: DataOutputStream, samples: ExerciseSampleTable) {
+        output.writeInt(samples.size)
+
+        for (channel in Channel.values()) {
+            val presence = BitSet(samples.size)
+            for (i in 0 until samples.size) {
+                if (samples.isPresent(channel, i)) {
+                    presence.set(i)
+                }
+            }
+
+            val presenceBytes = presence.toByteArray()
+            output.writeInt(presenceBytes.size)
+            output.write(presenceBytes)
+
+            var i = presence.nextSetBit(0)
+            while (i >= 0) {
+                when (channel) {
+                    Channel.TIMESTAMP -> output.writeLong(samples.getTimestamp(i))
+                    Channel.HEART_RATE -> output.writeShort(samples.getHeartRate(i).toInt())
+                    Channel.ALTITUDE -> output.writeShort(samples.getAltitude(i).toInt())
+                    Channel.SPEED -> output.writeFloat(samples.getSpeed(i))
+                    Channel.CADENCE -> output.writeShort(samples.getCadence(i).toInt())
+                    Channel.DISTANCE -> output.writeInt(samples.getDistance(i))
+                    Channel.TEMPERATURE -> output.writeShort(samples.getTemperature(i).toInt())
+                    Channel.POSITION -> {
+                        output.writeDouble(samples.getLatitude(i))
+                        output.writeDouble(samples.getLongitude(i))
+                    }
+                }
+                i = presence.nextSetBit(i + 1)
+            }
+        }
+    }
+
+    private fun readSamples(input: DataInputStream, samples: ExerciseSampleTable) {
+        val sampleCount = input.readInt()
+        require(sampleCount >= 0) { "Invalid sample count $sampleCount!" }
+        samples.addEmpty(sampleCount)
+
+        for (channel in Channel.values()) {
+            val presenceBytes = ByteArray(input.readInt())
+            input.readFully(presenceBytes)
+            val presence = BitSet.valueOf(presenceBytes)
+
+            var i = presence.nextSetBit(0)
+            while (i >= 0) {
+                when (channel) {
+                    Channel.TIMESTAMP -> samples.setTimestamp(i, input.readLong())
+                    Channel.HEART_RATE -> samples.setHeartRate(i, input.readShort())
+                    Channel.ALTITUDE -> samples.setAltitude(i, input.readShort())
+                    Channel.SPEED -> samples.setSpeed(i, input.readFloat())
+                    Channel.CADENCE -> samples.setCadence(i, input.readShort())
+                    Channel.DISTANCE -> samples.setDistance(i, input.readInt())
+                    Channel.TEMPERATURE -> samples.setTemperature(i, input.readShort())
+                    Channel.POSITION -> samples.setPosition(i, input.readDouble(), input.readDouble())
+                }
+                i = presence.nextSetBit(i + 1)
+            }
+        }
+    }
+
+    private inline fun <T> DataOutputStream.writeNullable(value: T?, writer: (T) -> Unit) {
+        writeBoolean(value != null)
+        if (value != null) {
+            writer(value)
+        }
+    }
+
+    private inline fun <T> DataInputStream.readNullable(reader: () -> T): T? =
+            if (readBoolean()) reader() else null
+
+    private fun DataOutputStream.writeNullableString(value: String?) = writeNullable(value) { writeUTF(it) }
+
+    private fun DataInputStream.readNullableString(): String? = readNullable { readUTF() }
+}
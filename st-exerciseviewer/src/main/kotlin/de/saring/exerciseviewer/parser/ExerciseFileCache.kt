@@ -0,0 +1,300 @@
+package de.saring.exerciseviewer.parser
+
+import de.saring.exerciseviewer.core.EVException
+import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseSampleTable
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.charset.StandardCharsets
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.util.UUID
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Persistent cache of parsed exercise files. The parsed EVExercise objects are stored in a compact binary encoding
+ * (see ExerciseCodec) in the cache directory, one file per exercise file. Reading a cached exercise is much faster
+ * than parsing big exercise files (e.g. FIT or TCX files) again each time they are viewed.
+ *
+ * The cache entries are keyed by the canonical path of the exercise file. A cache entry will only be used when the
+ * size and the modification time of the exercise file and the version of its parser are unchanged, otherwise the
+ * file will be parsed again and the cache entry gets replaced.
+ *
+ * The total size of all cache entries is limited, the least recently used entries are removed when the limit has
+ * been exceeded. The last access of an entry is stored as its modification time, so the usage order is preserved
+ * for the next application start.
+ *
+ * The recently used exercises are also kept in memory (see ExerciseMemoryCache), the same EVExercise instance is
+ * returned then. So the returned exercises are shared and must not be modified by the callers.
+ *
+ * Parsed summaries (exercises without samples) are cached in separate entries. When no summary entry exists, the
+ * summary is taken from the cached complete exercise. For parsers without a separate summary parsing (see
+ * ExerciseParser.isSummarySupported) the complete exercise is parsed and cached instead, so the exercise file
+ * doesn't need to be parsed again when the complete exercise is needed later.
+ *
+ * The cache can be used by multiple threads at the same time.
+ *
+ * @property cacheDirectory The directory for storing the cache entries, it will be created when missing.
+ * @property maxCacheSize The maximum total size of all cache entries in bytes.
+ * @param maxMemoryWeight The maximum total weight (number of samples) of the exercises kept in memory.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseFileCache(
+        private val cacheDirectory: Path,
+        private val maxCacheSize: Long,
+        maxMemoryWeight: Long) {
+
+    private val logger = Logger.getLogger(ExerciseFileCache::class.java.name)
+
+    private val memoryCache = ExerciseMemoryCache<EntryKey>(maxMemoryWeight)
+
+    /**
+     * Sizes of all cache entry files, ordered by their last access (least recently used first).
+     * It's loaded from the cache directory on first use.
+     */
+    private var entrySizes: LinkedHashMap<Path, Long>? = null
+
+    /**
+     * Returns the parsed exercise of the specified file. It's taken from the memory or read from the cache when
+     * the file has been parsed before and is unchanged, otherwise the file gets parsed by the appropriate parser and
+     * stored in the cache. Cache problems are logged only, the file will be parsed then.
+     *
+     * @param filename name of exercise file to parse
+     * @return the parsed EVExercise object
+     * @throws EVException thrown on read/parse problems
+     */
+    @Throws(EVException::class)
+    fun parseExercise(filename: String): EVExercise {
+        val parser = ExerciseParserFactory.getParser(filename)
+
+        val key = try {
+            createKey(filename, parser, false)
+        } catch (e: IOException) {
+            // the file can't be accessed, the parser will report the problem
+            return parser.parseExercise(filename)
+        }
+
+        memoryCache[key]?.let { return it }
+
+        val exercise = readEntry(key) ?: parser.parseExercise(filename).also { writeEntry(key, it) }
+        memoryCache.put(key, exercise)
+        return exercise
+    }
+
+    /**
+     * Returns the summary of the specified exercise file (without samples, see ExerciseParser.parseSummary()).
+     * It's taken from the memory or from the cache when the complete exercise or the summary has been parsed before,
+     * otherwise the summary gets parsed by the appropriate parser and stored in the cache. When the parser doesn't
+     * support a separate summary parsing, the complete exercise gets parsed and cached.
+     *
+     * @param filename name of exercise file to parse
+     * @return the parsed EVExercise object without samples
+     * @throws EVException thrown on read/parse problems
+     */
+    @Throws(EVException::class)
+    fun parseSummary(filename: String): EVExercise {
+        val parser = ExerciseParserFactory.getParser(filename)
+
+        if (!parser.isSummarySupported) {
+            // the cached exercise is shared, so a copy without samples is used as summary
+            return parseExercise(filename).copy(sampleList = ExerciseSampleTable())
+        }
+
+        val (exerciseKey, summaryKey) = try {
+            Pair(createKey(filename, parser, false), createKey(filename, parser, true))
+        } catch (e: IOException) {
+            // the file can't be accessed, the parser will report the problem
+            return parser.parseSummary(filename)
+        }
+
+        memoryCache[summaryKey]?.let { return it }
+
+        // the cached exercise is shared, so a copy without samples is used as summary
+        val summary = memoryCache[exerciseKey]?.copy(sampleList = ExerciseSampleTable())
+                ?: readEntry(summaryKey)
+                ?: readEntry(exerciseKey)?.copy(sampleList = ExerciseSampleTable())
+                ?: parser.parseSummary(filename).also { writeEntry(summaryKey, it) }
+        memoryCache.put(summaryKey, summary)
+        return summary
+    }
+
+    /**
+     * Removes all cache entries (in memory and in the cache directory).
+     */
+    @Synchronized
+    fun clear() {
+        memoryCache.clear()
+        getEntrySizes().keys.forEach { Files.deleteIfExists(it) }
+        getEntrySizes().clear()
+    }
+
+    private fun createKey(filename: String, parser: ExerciseParser, summary: Boolean): EntryKey {
+        val file = Paths.get(filename).toRealPath()
+        val canonicalPath = file.toString()
+        val entryName = UUID.nameUUIDFromBytes(canonicalPath.toByteArray(StandardCharsets.UTF_8)).toString() +
+                (if (summary) SUMMARY_INFIX else "") + ENTRY_SUFFIX
+        return EntryKey(
+                entryFile = cacheDirectory.resolve(entryName),
+                canonicalPath = canonicalPath,
+                fileSize = Files.size(file),
+                lastModified = Files.getLastModifiedTime(file).toMillis(),
+                parserName = parser.info.name,
+                parserVersion = parser.info.version)
+    }
+
+    private fun readEntry(key: EntryKey): EVExercise? {
+        if (!Files.exists(key.entryFile)) {
+            return null
+        }
+
+        try {
+            val exercise = DataInputStream(BufferedInputStream(Files.newInputStream(key.entryFile))).use { input ->
+                if (input.readInt() != MAGIC ||
+                        input.readInt() != ExerciseCodec.VERSION ||
+                        EntryKey.read(input, key.entryFile) != key) {
+                    null
+                } else {
+                    ExerciseCodec.read(input)
+                }
+            }
+
+            if (exercise != null) {
+                onEntryAccessed(key.entryFile)
+            }
+            return exercise
+        } catch (e: Exception) {
+            logger.log(Level.WARNING, "Failed to read the cache entry of exercise file '${key.canonicalPath}'!", e)
+            removeEntry(key.entryFile)
+            return null
+        }
+    }
+
+    private fun writeEntry(key: EntryKey, exercise: EVExercise) {
+        try {
+            Files.createDirectories(cacheDirectory)
+            val tempFile = Files.createTempFile(cacheDirectory, key.entryFile.fileName.toString(), TEMP_SUFFIX)
+            try {
+                DataOutputStream(BufferedOutputStream(Files.newOutputStream(tempFile))).use { output ->
+                    output.writeInt(MAGIC)
+                    output.writeInt(ExerciseCodec.VERSION)
+                    key.write(output)
+                    ExerciseCodec.write(output, exercise)
+                }
+
+                try {
+                    Files.move(tempFile, key.entryFile,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+                } catch (e: AtomicMoveNotSupportedException) {
+                    Files.move(tempFile, key.entryFile, StandardCopyOption.REPLACE_EXISTING)
+                }
+            } finally {
+                Files.deleteIfExists(tempFile)
+            }
+
+            onEntryWritten(key.entryFile, Files.size(key.entryFile))
+        } catch (e: Exception) {
+            logger.log(Level.WARNING, "Failed to write the cache entry of exercise file '${key.canonicalPath}'!", e)
+        }
+    }
+
+    @Synchronized
+    private fun onEntryAccessed(entryFile: Path) {
+        val entrySizes = getEntrySizes()
+        val size = entrySizes.remove(entryFile) ?: Files.size(entryFile)
+        entrySizes[entryFile] = size
+        Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()))
+    }
+
+    /**
+     * Stores the size of the written entry and removes the least recently used entries when the cache is full.
+     */
+    @Synchronized
+    private fun onEntryWritten(entryFile: Path, size: Long) {
+        val entrySizes = getEntrySizes()
+        entrySizes.remove(entryFile)
+        entrySizes[entryFile] = size
+
+        var cacheSize = entrySizes.values.sum()
+        val iterator = entrySizes.entries.iterator()
+        while (cacheSize > maxCacheSize && iterator.hasNext()) {
+            val (leastRecentlyUsedFile, leastRecentlyUsedSize) = iterator.next()
+            Files.deleteIfExists(leastRecentlyUsedFile)
+            iterator.remove()
+            cacheSize -= leastRecentlyUsedSize
+        }
+    }
+
+    @Synchronized
+    private fun removeEntry(entryFile: Path) {
+        try {
+            Files.deleteIfExists(entryFile)
+        } catch (e: IOException) {
+            logger.log(Level.WARNING, "Failed to delete the cache entry '$entryFile'!", e)
+        }
+        getEntrySizes().remove(entryFile)
+    }
+
+    private fun getEntrySizes(): LinkedHashMap<Path, Long> {
+        entrySizes?.let { return it }
+
+        val loadedEntrySizes = LinkedHashMap<Path, Long>()
+        if (Files.isDirectory(cacheDirectory)) {
+            Files.newDirectoryStream(cacheDirectory, "*$ENTRY_SUFFIX").use { paths ->
+                paths.sortedBy { Files.getLastModifiedTime(it) }
+                        .forEach { loadedEntrySizes[it] = Files.size(it) }
+            }
+        }
+        entrySizes = loadedEntrySizes
+        return loadedEntrySizes
+    }
+
+    /**
+     * The key of a cache entry, it's stored at the start of the entry file.
+     */
+    private data class EntryKey(
+            val entryFile: Path,
+            val canonicalPath: String,
+            val fileSize: Long,
+            val lastModified: Long,
+            val parserName: String,
+            val parserVersion: Int) {
+
+        fun write(output: DataOutputStream) {
+            output.writeUTF(canonicalPath)
+            output.writeLong(fileSize)
+            output.writeLong(lastModified)
+            output.writeUTF(parserName)
+            output.writeInt(parserVersion)
+        }
+
+        companion object {
+
+            fun read(input: DataInputStream, entryFile: Path) = EntryKey(
+                    entryFile = entryFile,
+                    canonicalPath = input.readUTF(),
+                    fileSize = input.readLong(),
+                    lastModified = input.readLong(),
+                    parserName = input.readUTF(),
+                    parserVersion = input.readInt())
+        }
+    }
+
+    companion object {
+
+        /** Magic number at the start of each cache entry file ("STEC"). */
+        private const val MAGIC = 0x53544543
+
+        private const val ENTRY_SUFFIX = ".evcache"
+        private const val SUMMARY_INFIX = "-summary"
+        private const val TEMP_SUFFIX = ".tmp"
+    }
+}
@@ -0,0 +1,118 @@
+package de.saring.exerciseviewer.parser
+
+import de.saring.exerciseviewer.data.EVExercise
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.SoftReference
+
+/**
+ * In-memory LRU cache of parsed exercises, so the same parsed EVExercise instance can be reused when an exercise
+ * file is used multiple times (e.g. imported in the exercise dialog and viewed afterwards). The cached exercises
+ * are shared, so they must not be modified by the users.
+ *
+ * The size of the cache is limited by the total weight of the exercises, which is the number of samples (plus one
+ * for the exercise data). The least recently used exercises are removed when the limit has been exceeded.
+ * The exercises are referenced softly, so the garbage collector can remove them when the memory gets low.
+ *
+ * The cache can be used by multiple threads at the same time.
+ *
+ * @param K the type of the cache keys
+ * @property maxWeight The maximum total weight of all cached exercises.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseMemoryCache<K : Any>(private val maxWeight: Long) {
+
+    /** The cache entries, ordered by their last access (least recently used first). */
+    private val entries = LinkedHashMap<K, Entry<K>>(16, 0.75f, true)
+
+    /** The queue of the entries whose exercises have been removed by the garbage collector. */
+    private val clearedEntries = ReferenceQueue<EVExercise>()
+
+    /** The total weight of all cache entries. */
+    @get:Synchronized
+    var weight = 0L
+        private set
+
+    /**
+     * Returns the cached exercise for the specified key.
+     *
+     * @param key the cache key
+     * @return the cached exercise or null when not cached
+     */
+    @Synchronized
+    operator fun get(key: K): EVExercise? {
+        removeClearedEntries()
+        return entries[key]?.get()
+    }
+
+    /**
+     * Stores the exercise for the specified key and removes the least recently used exercises when the maximum
+     * weight has been exceeded. Exercises which are heavier than the maximum weight will not be stored.
+     *
+     * @param key the cache key
+     * @param exercise the exercise to store
+     */
+    @Synchronized
+    fun put(key: K, exercise: EVExercise) {
+        removeClearedEntries()
+        remove(key)
+
+        val exerciseWeight = getWeight(exercise)
+        if (exerciseWeight > maxWeight) {
+            return
+        }
+
+        entries[key] = Entry(key, exercise, exerciseWeight, clearedEntries)
+        weight += exerciseWeight
+
+        val iterator = entries.values.iterator()
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().weight
+            iterator.remove()
+        }
+    }
+
+    /**
+     * Removes the exercise for the specified key.
+     *
+     * @param key the cache key
+     */
+    @Synchronized
+    fun remove(key: K) {
+        entries.remove(key)?.let { weight -= it.weight }
+    }
+
+    /**
+     * Removes all cached exercises.
+     */
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        weight = 0
+    }
+
+    private fun removeClearedEntries() {
+        var clearedEntry = clearedEntries.poll()
+        while (clearedEntry != null) {
+            @Suppress("UNCHECKED_CAST")
+            val entry = clearedEntry as Entry<K>
+
+            // the key can be used already by a newer entry
+            if (entries.remove(entry.key, entry)) {
+                weight -= entry.weight
+            }
+            clearedEntry = clearedEntries.poll()
+        }
+    }
+
+    private fun getWeight(exercise: EVExercise): Long = 1L + exercise.sampleList.size
+
+    /**
+     * The soft reference to the cached exercise, it also contains the key and the weight.
+     */
+    private class Entry<K>(
+            val key: K,
+            exercise: EVExercise,
+            val weight: Long,
+            queue: ReferenceQueue<EVExercise>) : SoftReference<EVExercise>(exercise, queue)
+}
@@ -27,4 +27,24 @@ interface ExerciseParser {
      */
     @Throws(EVException::class)
     fun parseExercise(filename: String): EVExercise
+
+    /**
+     * This method parses the summary of the specified exercise file, which is needed e.g. for importing the
+     * exercise data. The returned EVExercise object contains the same exercise data as the one returned by
+     * parseExercise(), but no samples. The lap data is also included, but lap values taken from the samples can
+     * be missing. The parsing is faster and needs less memory, because the samples don't need to be created.
+     *
+     * @param filename name of exercise file to parse
+     * @return the parsed EVExercise object without samples
+     * @throws EVException thrown on read/parse problems
+     */
+    @Throws(EVException::class)
+    fun parseSummary(filename: String): EVExercise
+
+    /**
+     * Flag whether the parser supports a separate parsing of the summary, which doesn't create the samples.
+     * Otherwise parseSummary() parses the complete exercise and removes the samples afterwards, so it's not
+     * faster than parseExercise().
+     */
+    val isSummarySupported: Boolean
 }
@@ -10,12 +10,18 @@ import java.util.ServiceLoader
  * META-INF/service directory. New parsers must not be part of the SportsTracker Jar file(s),the parser Jar
  * file just needs to be added to the application classpath.
  *
+ * The parsers are loaded once, the returned instances are shared and can be used by multiple threads at the
+ * same time.
+ *
  * @author Stefan Saring
  */
 object ExerciseParserFactory {
 
-    /** The ServiceLoader instance for all ExerciseParser implementations. */
-    private val exerciseParserLoader: ServiceLoader<ExerciseParser> = ServiceLoader.load(ExerciseParser::class.java)
+    /**
+     * All ExerciseParser implementations, loaded by the ServiceLoader. The ServiceLoader itself must not be
+     * used by multiple threads, so the parsers are loaded into a list at initialization.
+     */
+    private val exerciseParsers: List<ExerciseParser> = ServiceLoader.load(ExerciseParser::class.java).toList()
 
     /**
      * Returns the instance of the appropriate exercise parser for the specified exercise filename.
@@ -27,7 +33,7 @@ object ExerciseParserFactory {
      */
     @Throws(EVException::class)
     fun getParser(filename: String): ExerciseParser =
-            exerciseParserLoader.find { isFileSupportedByParser(it, filename) } ?:
+            exerciseParsers.find { isFileSupportedByParser(it, filename) } ?:
                     throw EVException("No parser has been found for filename '$filename'!")
 
     /**
@@ -36,7 +42,7 @@ object ExerciseParserFactory {
      *
      * @return list of ExerciseParserInfo objects for all parser implementations
      */
-    val exerciseParserInfos: List<ExerciseParserInfo> = exerciseParserLoader
+    val exerciseParserInfos: List<ExerciseParserInfo> = exerciseParsers
             .map { parser -> parser.info }
             .toList()
 
@@ -5,10 +5,13 @@ package de.saring.exerciseviewer.parser
  *
  * @property name The name of the parser.
  * @property suffixes List of exercise file suffixes which can be read by this parser.
+ * @property version Version of the parser, it needs to be increased when the parser creates different exercise
+ * data for the same files (e.g. after bugfixes), so the previously cached parse results will not be used anymore.
  *
  * @author Stefan Saring
  */
-class ExerciseParserInfo(
+class ExerciseParserInfo @JvmOverloads constructor(
 
         val name: String,
-        val suffixes: List<String>)
\ No newline at end of file
+        val suffixes: List<String>,
+        val version: Int = 1)
@@ -15,32 +15,49 @@ import de.saring.exerciseviewer.parser.AbstractExerciseParser
 import de.saring.exerciseviewer.parser.ExerciseParserInfo
 import de.saring.util.Date310Utils
 import de.saring.util.unitcalc.CalculationUtils
-import org.jdom2.Element
-import org.jdom2.Namespace
-import org.jdom2.input.SAXBuilder
+import java.io.BufferedInputStream
+import java.io.FileInputStream
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
+import javax.xml.stream.XMLStreamReader
 
 /**
  * ExerciseParser implementation for reading Garmin TCX v2 exercise files (XML-based). Documentation about the format
  * can be found at the Garmin website ( http://developer.garmin.com/schemas/tcx/v2/ ).
  *
+ * The file is parsed by a StAX reader (streaming), the laps and samples are created while reading the elements.
+ * Only the accumulators of the current lap and of the exercise summary are kept, so the memory usage is proportional
+ * to the parsed exercise and not to the size of the XML document. When parsing the summary only, the trackpoints
+ * are still read (the stored lap durations are often wrong), but no samples are stored.
+ *
  * @author Stefan Saring
  */
 class GarminTcxParser : AbstractExerciseParser() {
 
-    private val namespace = Namespace.getNamespace("http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2")
-    private val namespaceExt = Namespace.getNamespace("ext", "http://www.garmin.com/xmlschemas/ActivityExtension/v2")
-
     override
     val info = ExerciseParserInfo("Garmin TCX", listOf("tcx", "TCX"))
 
     override
-    fun parseExercise(filename: String): EVExercise {
+    fun parseExercise(filename: String): EVExercise = parseExercise(filename, true)
+
+    override
+    fun parseSummary(filename: String): EVExercise = parseExercise(filename, false)
+
+    override
+    val isSummarySupported = true
+
+    private fun parseExercise(filename: String, storeSamples: Boolean): EVExercise {
 
         try {
-            val document = SAXBuilder().build(filename)
-            return parseExerciseElement(document.rootElement)
+            BufferedInputStream(FileInputStream(filename)).use { inputStream ->
+                val reader = createXmlStreamReader(inputStream)
+                try {
+                    reader.nextTag()
+                    return parseExerciseElement(reader, storeSamples)
+                } finally {
+                    reader.close()
+                }
+            }
         }
         catch (e: Exception) {
             throw EVException("Failed to read the Garmin TCX exercise file '$filename'!", e)
@@ -48,11 +65,12 @@ class GarminTcxParser : AbstractExerciseParser() {
     }
 
     /**
-     * Parses the exercise data from the specified element (root element).
+     * Parses the exercise data from the current element (root element), only the first activity will be parsed.
      *
-     * @param eExercise exercise DOM element
+     * @param reader StAX reader positioned on the root element
+     * @param storeSamples flag whether the exercise samples needs to be stored in the exercise
      */
-    private fun parseExerciseElement(eExercise: Element): EVExercise {
+    private fun parseExerciseElement(reader: XMLStreamReader, storeSamples: Boolean): EVExercise {
 
         // parse basic exercise data
         val exercise = EVExercise(EVExercise.ExerciseFileType.GARMIN_TCX)
@@ -63,258 +81,303 @@ class GarminTcxParser : AbstractExerciseParser() {
         exercise.speed = ExerciseSpeed(0f, 0f, 0)
         exercise.energy = 0
 
-        val eActivity = eExercise.getChild("Activities", namespace).getChild("Activity", namespace)
-        exercise.dateTime = parseDateTime(eActivity.getChildText("Id", namespace))
-
-        var trackpointCount: Int = 0
-        var altitudeMetersTotal: Double = 0.0
+        var activityParsed = false
+        reader.forEachChildElement {
+            if (reader.isTcxElement("Activities")) {
+                reader.forEachChildElement {
+                    if (reader.isTcxElement("Activity") && !activityParsed) {
+                        parseActivityElement(reader, exercise, storeSamples)
+                        activityParsed = true
+                    } else {
+                        reader.skipElement()
+                    }
+                }
+            } else {
+                reader.skipElement()
+            }
+        }
 
-        var cadenceCount: Int = 0
-        var cadenceSum: Long = 0
+        if (!activityParsed) {
+            throw EVException("The TCX file contains no activity!")
+        }
+        return exercise
+    }
 
-        var totalTimeGapBetweenLaps: Long = 0
-        var lastTrackpointTimestamp: Long = 0
+    private fun parseActivityElement(reader: XMLStreamReader, exercise: EVExercise, storeSamples: Boolean) {
+        val summary = SummaryAccumulator(storeSamples)
+        var creatorName: String? = null
 
         // no summary data, everything is stored in laps
         // parse each lap and create a ExerciseViewer Lap object
-        for (eLap in eActivity.getChildren("Lap", namespace)) {
-            val evLap = parseLapData(exercise, eLap)
-            exercise.lapList.add(evLap)
-
-            // compute the total time gap between all laps
-            if (lastTrackpointTimestamp > 0) {
-                val lapStart = parseDateTime(eLap.getAttributeValue("StartTime"))
-                val lapStartMillis = Date310Utils.getMilliseconds(lapStart)
-                totalTimeGapBetweenLaps += lapStartMillis - lastTrackpointTimestamp
+        reader.forEachChildElement {
+            when {
+                reader.isTcxElement("Id") -> {
+                    exercise.dateTime = parseDateTime(reader.elementText)
+                    summary.exerciseStartMillis = Date310Utils.getMilliseconds(exercise.dateTime)
+                }
+                reader.isTcxElement("Lap") -> parseLapElement(reader, exercise, summary)
+                reader.isTcxElement("Creator") -> creatorName = parseCreatorName(reader)
+                else -> reader.skipElement()
             }
+        }
 
-            var lapAltitude: Short? = null
-            var lapAscentMeters: Double = 0.0
-            var previousTrackpointTimestamp = Long.MIN_VALUE
-            var previousTrackpointDistanceMeters = Double.MIN_VALUE
-            var previousTrackpointAltitudeMeters = Double.MIN_VALUE
-            val exerciseDateTimeMillis = Date310Utils.getMilliseconds(exercise.dateTime)
+        // parse device model name, it's always an Garmin
+        exercise.deviceName = "Garmin ${creatorName ?: throw EVException("The activity contains no creator name!")}"
 
-            // parse all Track elements
-            for (eTrack in eLap.getChildren("Track", namespace)) {
+        calculateAvgSpeed(exercise)
+        calculateAvgHeartrate(exercise)
+        calculateAvgAltitude(exercise, summary.altitudeMetersTotal, summary.trackpointCount)
+    }
 
-                // parse all Trackpoint elements (= ExerciseSamples)
-                for (eTrackpoint in eTrack.getChildren("Trackpoint", namespace)) {
-                    trackpointCount++
+    private fun parseCreatorName(reader: XMLStreamReader): String? {
+        var name: String? = null
+        reader.forEachChildElement {
+            if (reader.isTcxElement("Name")) {
+                name = reader.elementText
+            } else {
+                reader.skipElement()
+            }
+        }
+        return name
+    }
 
-                    val evSample = ExerciseSample()
-                    exercise.sampleList.add(evSample)
+    private fun parseLapElement(reader: XMLStreamReader, exercise: EVExercise, summary: SummaryAccumulator) {
+        val lapStartMillis = Date310Utils.getMilliseconds(parseDateTime(reader.getAttributeValue(null, "StartTime")))
+        val evLap = Lap(speed = LapSpeed(0f, 0f, 0))
+        exercise.lapList.add(evLap)
 
-                    // calculate sample timestamp (time gap between laps must be substracted here)
-                    val tpDateTime = parseDateTime(eTrackpoint.getChildText("Time", namespace))
-                    val tpMillis = Date310Utils.getMilliseconds(tpDateTime)
-                    lastTrackpointTimestamp = tpMillis
+        // compute the total time gap between all laps
+        if (summary.lastTrackpointTimestamp > 0) {
+            summary.totalTimeGapBetweenLaps += lapStartMillis - summary.lastTrackpointTimestamp
+        }
 
-                    evSample.timestamp = tpMillis - exerciseDateTimeMillis - totalTimeGapBetweenLaps
+        val lap = LapAccumulator()
+        var distanceMeters: Double? = null
+        var calories: Int? = null
+
+        reader.forEachChildElement {
+            when {
+                reader.isTcxElement("DistanceMeters") -> distanceMeters = reader.elementText.toDouble()
+                reader.isTcxElement("Calories") -> calories = reader.elementText.toInt()
+                reader.isTcxElement("AverageHeartRateBpm") ->
+                    evLap.heartRateAVG = parseHeartRateValue(reader)
+                reader.isTcxElement("MaximumHeartRateBpm") -> {
+                    evLap.heartRateMax = parseHeartRateValue(reader)
+                    exercise.heartRateMax = Math.max(evLap.heartRateMax!!.toInt(), exercise.heartRateMax?.toInt() ?: 0).toShort()
+                }
+                reader.isTcxElement("Track") -> {
+                    // the lap duration is computed from the last trackpoint of the last track
+                    lap.lastTrackpointMillis = null
+                    reader.forEachChildElement {
+                        if (reader.isTcxElement("Trackpoint")) {
+                            parseTrackpointElement(reader, exercise, evLap, summary, lap)
+                        } else {
+                            reader.skipElement()
+                        }
+                    }
+                }
+                else -> reader.skipElement()
+            }
+        }
 
-                    parseTrackpointPositionData(exercise, evSample, eTrackpoint)
-                    parseTrackpointHeartRateData(exercise, evLap, evSample, eTrackpoint)
+        // stored lap duration in XML is often wrong, needs to be calculated:
+        // "Last TrackPoint of Lap".Time - Lap.StartTime
+        val lastTrackpointMillis = lap.lastTrackpointMillis
+                ?: throw EVException("The last track of the lap contains no trackpoints!")
+        val lapDurationSeconds = (lastTrackpointMillis - lapStartMillis) / 1000.0
+        val lapDistanceMeters = distanceMeters ?: throw EVException("The lap contains no distance!")
 
-                    // get distance data (some trackpoints might not have distance data!)
-                    val strDistanceMeters = eTrackpoint.getChildText("DistanceMeters", namespace)
-                    if (strDistanceMeters != null) {
-                        val tpDistanceMeters = strDistanceMeters.toDouble()
-                        evSample.distance = Math.round(tpDistanceMeters).toInt()
+        exercise.duration = exercise.duration!! + Math.round(lapDurationSeconds * 10).toInt()
+        evLap.timeSplit = exercise.duration!!
+        exercise.speed!!.distance += Math.round(lapDistanceMeters).toInt()
+        exercise.energy = exercise.energy!! + (calories ?: throw EVException("The lap contains no calories!"))
 
-                        // calculate speed between current and previous trackpoint
-                        evSample.speed = 0f
-                        if (previousTrackpointTimestamp > Long.MIN_VALUE) {
-                            val tpTimestampDiff = tpMillis - previousTrackpointTimestamp
-                            // sometimes computed difference is < 0 => impossible, use 0 instead
-                            val tpDistanceDiff = Math.max(tpDistanceMeters - previousTrackpointDistanceMeters, 0.0)
+        // stored maximum lap speed in XML is wrong, will be calculated
 
-                            evSample.speed = CalculationUtils.calculateAvgSpeed(
-                                    (tpDistanceDiff / 1000.0).toFloat(), Math.round(tpTimestampDiff / 1000.0).toInt())
-                        }
-                        previousTrackpointTimestamp = tpMillis
-                        previousTrackpointDistanceMeters = tpDistanceMeters
+        // calculate average speed of lap
+        evLap.speed!!.speedAVG = CalculationUtils.calculateAvgSpeed(
+                (lapDistanceMeters / 1000.0).toFloat(),
+                Math.round(lapDurationSeconds).toInt())
+        evLap.speed!!.distance = exercise.speed!!.distance
 
-                        evLap.speed!!.speedEnd = evSample.speed ?: 0f
-                        exercise.speed!!.speedMax = Math.max(evSample.speed ?: 0f, exercise.speed!!.speedMax)
-                    }
+        if (lap.altitude != null) {
+            evLap.altitude = LapAltitude(lap.altitude!!, Math.round(lap.ascentMeters).toInt(), 0)
+        }
 
-                    // get optional altitude data
-                    val strAltitudeMeters = eTrackpoint.getChildText("AltitudeMeters", namespace)
-                    if (strAltitudeMeters != null) {
-                        val tpAltitude = strAltitudeMeters.toDouble()
-                        evSample.altitude = Math.round(tpAltitude).toShort()
-                        altitudeMetersTotal += Math.round(tpAltitude)
-
-                        // create altitude objects for exercise and current lap if not done yet
-                        if (exercise.altitude == null) {
-                            exercise.recordingMode.isAltitude = true
-                            exercise.altitude = ExerciseAltitude(
-                                    altitudeMin = Short.MAX_VALUE,
-                                    altitudeAvg = Math.round(altitudeMetersTotal / trackpointCount).toShort(),
-                                    altitudeMax = Short.MIN_VALUE,
-                                    ascent = 0,
-                                    descent = 0)
-                        }
+        // store position of last trackpoint as lap split position
+        if (summary.trackpointCount > 0) {
+            evLap.positionSplit = summary.lastTrackpointPosition
+        }
+    }
 
-                        lapAltitude = Math.round(tpAltitude).toShort()
+    private fun parseHeartRateValue(reader: XMLStreamReader): Short {
+        var value: Short? = null
+        reader.forEachChildElement {
+            if (reader.isTcxElement("Value")) {
+                value = reader.elementText.toShort()
+            } else {
+                reader.skipElement()
+            }
+        }
+        return value ?: throw EVException("The heart rate element contains no value!")
+    }
 
-                        exercise.altitude!!.altitudeMin = Math.min(tpAltitude.toInt(), exercise.altitude!!.altitudeMin.toInt()).toShort()
-                        exercise.altitude!!.altitudeMax = Math.max(tpAltitude.toInt(), exercise.altitude!!.altitudeMax.toInt()).toShort()
+    private fun parseTrackpointElement(reader: XMLStreamReader, exercise: EVExercise, evLap: Lap,
+                                       summary: SummaryAccumulator, lap: LapAccumulator) {
+        val trackpoint = Trackpoint()
+        reader.forEachChildElement {
+            when {
+                reader.isTcxElement("Time") -> trackpoint.time = reader.elementText
+                reader.isTcxElement("Position") -> parsePositionElement(reader, trackpoint)
+                reader.isTcxElement("AltitudeMeters") -> trackpoint.altitudeMeters = reader.elementText
+                reader.isTcxElement("DistanceMeters") -> trackpoint.distanceMeters = reader.elementText
+                reader.isTcxElement("HeartRateBpm") -> trackpoint.heartRate = parseHeartRateValue(reader)
+                reader.isTcxElement("Cadence") -> trackpoint.cadence = reader.elementText
+                reader.isTcxElement("Extensions") -> parseTrackpointExtensions(reader, trackpoint)
+                else -> reader.skipElement()
+            }
+        }
 
-                        // calculate lap ascent (need to use double precision here)
-                        if (previousTrackpointAltitudeMeters > Double.MIN_VALUE &&
-                                tpAltitude > previousTrackpointAltitudeMeters) {
-                            val tpAscent = tpAltitude - previousTrackpointAltitudeMeters
-                            lapAscentMeters += tpAscent
-                        }
-                        previousTrackpointAltitudeMeters = tpAltitude
-                    }
+        summary.trackpointCount++
 
-                    // get optional cadence data
-                    val cadence = getCadenceOfTrackpoint(eTrackpoint)
-                    if (cadence != null) {
-                        evSample.cadence = cadence
-                        evLap.speed!!.cadence = evSample.cadence ?: 0
+        val evSample = ExerciseSample()
 
-                        // create cadence object for exercise if not done yet
-                        if (exercise.cadence == null) {
-                            exercise.cadence = ExerciseCadence(0, 0)
-                            exercise.recordingMode.isCadence = true
-                        }
+        // calculate sample timestamp (time gap between laps must be substracted here)
+        val tpDateTime = parseDateTime(trackpoint.time ?: throw EVException("The trackpoint contains no time!"))
+        val tpMillis = Date310Utils.getMilliseconds(tpDateTime)
+        summary.lastTrackpointTimestamp = tpMillis
+        lap.lastTrackpointMillis = tpMillis
 
-                        // compute max and average cadence if present
-                        exercise.cadence!!.cadenceMax = Math.max(cadence.toInt(), exercise.cadence!!.cadenceMax.toInt()).toShort()
-                        if (cadence > 0) {
-                            cadenceSum += cadence
-                            exercise.cadence!!.cadenceAvg = Math.round(cadenceSum / (++cadenceCount).toDouble()).toShort()
-                        }
-                    }
-                }
-            }
+        evSample.timestamp = tpMillis - summary.exerciseStartMillis - summary.totalTimeGapBetweenLaps
 
-            if (lapAltitude != null) {
-                evLap.altitude = LapAltitude(lapAltitude, Math.round(lapAscentMeters).toInt(), 0)
-            }
+        if (trackpoint.latitude != null && trackpoint.longitude != null) {
+            exercise.recordingMode.isLocation = true
+            evSample.position = Position(trackpoint.latitude!!.toDouble(), trackpoint.longitude!!.toDouble())
+        }
+        summary.lastTrackpointPosition = evSample.position
 
-            // store position of last sample as lap split position
-            if (!exercise.sampleList.isEmpty()) {
-                evLap.positionSplit = exercise.sampleList.last().position
-            }
+        if (trackpoint.heartRate != null) {
+            evSample.heartRate = trackpoint.heartRate
+            evLap.heartRateSplit = trackpoint.heartRate
+            exercise.recordingMode.isHeartRate = true
         }
 
-        // parse device model name, it's always an Garmin
-        exercise.deviceName = "Garmin ${eActivity.getChild("Creator", namespace).getChildText("Name", namespace)}"
+        // get distance data (some trackpoints might not have distance data!)
+        if (trackpoint.distanceMeters != null) {
+            val tpDistanceMeters = trackpoint.distanceMeters!!.toDouble()
+            evSample.distance = Math.round(tpDistanceMeters).toInt()
 
-        calculateAvgSpeed(exercise)
-        calculateAvgHeartrate(exercise)
-        calculateAvgAltitude(exercise, altitudeMetersTotal, trackpointCount)
+            // calculate speed between current and previous trackpoint
+            evSample.speed = 0f
+            if (lap.previousTrackpointTimestamp > Long.MIN_VALUE) {
+                val tpTimestampDiff = tpMillis - lap.previousTrackpointTimestamp
+                // sometimes computed difference is < 0 => impossible, use 0 instead
+                val tpDistanceDiff = Math.max(tpDistanceMeters - lap.previousTrackpointDistanceMeters, 0.0)
 
-        return exercise
-    }
+                evSample.speed = CalculationUtils.calculateAvgSpeed(
+                        (tpDistanceDiff / 1000.0).toFloat(), Math.round(tpTimestampDiff / 1000.0).toInt())
+            }
+            lap.previousTrackpointTimestamp = tpMillis
+            lap.previousTrackpointDistanceMeters = tpDistanceMeters
 
-    private fun parseLapData(exercise: EVExercise, lapElement: Element): Lap {
-        val evLap = Lap()
+            evLap.speed!!.speedEnd = evSample.speed ?: 0f
+            exercise.speed!!.speedMax = Math.max(evSample.speed ?: 0f, exercise.speed!!.speedMax)
+        }
 
-        // stored lap duration in XML is often wrong, needs to be calculated
-        val lapDurationSeconds = calculateLapDuration(lapElement)
-        val distanceMeters = lapElement.getChildText("DistanceMeters", namespace).toDouble()
-        exercise.duration = exercise.duration!! + Math.round(lapDurationSeconds * 10).toInt()
-        evLap.timeSplit = exercise.duration!!
-        exercise.speed!!.distance += Math.round(distanceMeters).toInt()
-        val lapSpeedDistance = exercise.speed!!.distance
-        exercise.energy = exercise.energy!! + lapElement.getChildText("Calories", namespace).toInt()
+        // get optional altitude data
+        if (trackpoint.altitudeMeters != null) {
+            val tpAltitude = trackpoint.altitudeMeters!!.toDouble()
+            evSample.altitude = Math.round(tpAltitude).toShort()
+            summary.altitudeMetersTotal += Math.round(tpAltitude)
+
+            // create altitude objects for exercise and current lap if not done yet
+            if (exercise.altitude == null) {
+                exercise.recordingMode.isAltitude = true
+                exercise.altitude = ExerciseAltitude(
+                        altitudeMin = Short.MAX_VALUE,
+                        altitudeAvg = Math.round(summary.altitudeMetersTotal / summary.trackpointCount).toShort(),
+                        altitudeMax = Short.MIN_VALUE,
+                        ascent = 0,
+                        descent = 0)
+            }
 
-        // stored maximum lap speed in XML is wrong, will be calculated
+            lap.altitude = Math.round(tpAltitude).toShort()
 
-        // calculate average speed of lap
-        val lapSpeedAVG = CalculationUtils.calculateAvgSpeed(
-                (distanceMeters / 1000.0).toFloat(),
-                Math.round(lapDurationSeconds).toInt())
+            exercise.altitude!!.altitudeMin = Math.min(tpAltitude.toInt(), exercise.altitude!!.altitudeMin.toInt()).toShort()
+            exercise.altitude!!.altitudeMax = Math.max(tpAltitude.toInt(), exercise.altitude!!.altitudeMax.toInt()).toShort()
 
-        evLap.speed = LapSpeed(0f, lapSpeedAVG, lapSpeedDistance)
+            // calculate lap ascent (need to use double precision here)
+            if (lap.previousTrackpointAltitudeMeters > Double.MIN_VALUE &&
+                    tpAltitude > lap.previousTrackpointAltitudeMeters) {
+                val tpAscent = tpAltitude - lap.previousTrackpointAltitudeMeters
+                lap.ascentMeters += tpAscent
+            }
+            lap.previousTrackpointAltitudeMeters = tpAltitude
+        }
 
-        // parse optional heartrate data of lap
-        parseLapHeartRateData(exercise, evLap, lapElement)
-        return evLap
-    }
+        // get optional cadence data, the cycling cadence is preferred to the run cadence extension
+        val cadence = (trackpoint.cadence ?: trackpoint.runCadence)?.toShort()
+        if (cadence != null) {
+            evSample.cadence = cadence
+            evLap.speed!!.cadence = evSample.cadence ?: 0
+
+            // create cadence object for exercise if not done yet
+            if (exercise.cadence == null) {
+                exercise.cadence = ExerciseCadence(0, 0)
+                exercise.recordingMode.isCadence = true
+            }
 
-    private fun parseLapHeartRateData(exercise: EVExercise, evLap: Lap, lapElement: Element) {
-        val eAverageHeartRateBpm = lapElement.getChild("AverageHeartRateBpm", namespace)
-        if (eAverageHeartRateBpm != null) {
-            evLap.heartRateAVG = eAverageHeartRateBpm.getChildText("Value", namespace).toShort()
+            // compute max and average cadence if present
+            exercise.cadence!!.cadenceMax = Math.max(cadence.toInt(), exercise.cadence!!.cadenceMax.toInt()).toShort()
+            if (cadence > 0) {
+                summary.cadenceSum += cadence
+                exercise.cadence!!.cadenceAvg = Math.round(summary.cadenceSum / (++summary.cadenceCount).toDouble()).toShort()
+            }
         }
 
-        val eMaximumHeartRateBpm = lapElement.getChild("MaximumHeartRateBpm", namespace)
-        if (eMaximumHeartRateBpm != null) {
-            evLap.heartRateMax = eMaximumHeartRateBpm.getChildText("Value", namespace).toShort()
-            exercise.heartRateMax = Math.max(evLap.heartRateMax!!.toInt(), exercise.heartRateMax?.toInt() ?: 0).toShort()
+        // the sample table stores a copy of the values, so the sample must be complete
+        if (summary.storeSamples) {
+            exercise.sampleList.add(evSample)
         }
     }
 
-    private fun parseTrackpointPositionData(exercise: EVExercise, evSample: ExerciseSample, tpElement: Element) {
-        val ePosition = tpElement.getChild("Position", namespace)
-        if (ePosition != null) {
-            exercise.recordingMode.isLocation = true
-            val latitude = ePosition.getChildText("LatitudeDegrees", namespace).toDouble()
-            val longitude = ePosition.getChildText("LongitudeDegrees", namespace).toDouble()
-            evSample.position = Position(latitude, longitude)
+    private fun parsePositionElement(reader: XMLStreamReader, trackpoint: Trackpoint) {
+        reader.forEachChildElement {
+            when {
+                reader.isTcxElement("LatitudeDegrees") -> trackpoint.latitude = reader.elementText
+                reader.isTcxElement("LongitudeDegrees") -> trackpoint.longitude = reader.elementText
+                else -> reader.skipElement()
+            }
+        }
+        if (trackpoint.latitude == null || trackpoint.longitude == null) {
+            throw EVException("The trackpoint position is incomplete!")
         }
     }
 
-    private fun parseTrackpointHeartRateData(evExercise: EVExercise, evLap: Lap, evSample: ExerciseSample, tpElement: Element) {
-        val eHeartRateBpm = tpElement.getChild("HeartRateBpm", namespace)
-        if (eHeartRateBpm != null) {
-            val heartRate = eHeartRateBpm.getChildText("Value", namespace).toShort()
-            evSample.heartRate = heartRate
-            evLap.heartRateSplit = heartRate
-            evExercise.recordingMode.isHeartRate = true
+    private fun parseTrackpointExtensions(reader: XMLStreamReader, trackpoint: Trackpoint) {
+        reader.forEachChildElement {
+            if (reader.localName == "TPX" && reader.namespaceURI == NAMESPACE_EXT) {
+                reader.forEachChildElement {
+                    if (reader.localName == "RunCadence" && reader.namespaceURI == NAMESPACE_EXT) {
+                        trackpoint.runCadence = reader.elementText
+                    } else {
+                        reader.skipElement()
+                    }
+                }
+            } else {
+                reader.skipElement()
+            }
         }
     }
 
-    /**
-     * Calculates the duration of the specified lap in seconds:
-     * "Last TrackPoint of Lap".Time - Lap.StartTime
-     */
-    private fun calculateLapDuration(lapElement: Element): Double {
-        val lastTrack = lapElement.getChildren("Track", namespace).last()
-        var lastTrackpoint = lastTrack.getChildren("Trackpoint", namespace).last()
-
-        val lapStart = parseDateTime(lapElement.getAttributeValue("StartTime"))
-        val lastTp = parseDateTime(lastTrackpoint.getChildText("Time", namespace))
-        val lapStartMillis = Date310Utils.getMilliseconds(lapStart)
-        val lastTpMillis = Date310Utils.getMilliseconds(lastTp)
-        return (lastTpMillis - lapStartMillis) / 1000.0
-    }
+    private fun XMLStreamReader.isTcxElement(name: String): Boolean =
+            localName == name && namespaceURI == NAMESPACE
 
     private fun calculateAvgSpeed(exercise: EVExercise) {
         exercise.speed!!.speedAvg = CalculationUtils.calculateAvgSpeed(
                 exercise.speed!!.distance / 1000f, Math.round(exercise.duration!! / 10f))
     }
 
-    /**
-     * Returns the optional cadence value if present. It looks first for the cycling cadence. If not found it looks for
-     * the run cadence extension.
-     *
-     * @param eTrackpoint element to check
-     * @return cadence or null
-     */
-    private fun getCadenceOfTrackpoint(eTrackpoint: Element): Short? {
-
-        val strCadence = eTrackpoint.getChildText("Cadence", namespace)
-        if (strCadence != null) {
-            return strCadence.toShort()
-        }
-
-        val strRunCadence = eTrackpoint.getChild("Extensions", namespace)
-                ?.getChild("TPX", namespaceExt)
-                ?.getChildText("RunCadence", namespaceExt)
-        if (strRunCadence != null) {
-            return strRunCadence.toShort()
-        }
-
-        return null
-    }
-
     /**
      * Calculates the average heartrate for the specified exercise (if available). It's computed
      * as the average of all laps average heartrates. Laps without heartrate data will be ignored.
@@ -363,4 +426,51 @@ class GarminTcxParser : AbstractExerciseParser() {
             dateTimeText
         return LocalDateTime.parse(dateTimeTextFixed, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
     }
+
+    /**
+     * Accumulators of the exercise summary, they are updated while streaming the trackpoints.
+     *
+     * @property storeSamples flag whether the samples created for the trackpoints are stored in the exercise
+     */
+    private class SummaryAccumulator(val storeSamples: Boolean) {
+        var exerciseStartMillis: Long = 0
+        var trackpointCount: Int = 0
+        var altitudeMetersTotal: Double = 0.0
+        var cadenceCount: Int = 0
+        var cadenceSum: Long = 0
+        var totalTimeGapBetweenLaps: Long = 0
+        var lastTrackpointTimestamp: Long = 0
+        var lastTrackpointPosition: Position? = null
+    }
+
+    /**
+     * Accumulators of the current lap, they are updated while streaming the trackpoints of the lap.
+     */
+    private class LapAccumulator {
+        var altitude: Short? = null
+        var ascentMeters: Double = 0.0
+        var previousTrackpointTimestamp = Long.MIN_VALUE
+        var previousTrackpointDistanceMeters = Double.MIN_VALUE
+        var previousTrackpointAltitudeMeters = Double.MIN_VALUE
+        var lastTrackpointMillis: Long? = null
+    }
+
+    /**
+     * The raw values of the current trackpoint, they are processed after reading the trackpoint element.
+     */
+    private class Trackpoint {
+        var time: String? = null
+        var latitude: String? = null
+        var longitude: String? = null
+        var altitudeMeters: String? = null
+        var distanceMeters: String? = null
+        var heartRate: Short? = null
+        var cadence: String? = null
+        var runCadence: String? = null
+    }
+
+    companion object {
+        private const val NAMESPACE = "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2"
+        private const val NAMESPACE_EXT = "http://www.garmin.com/xmlschemas/ActivityExtension/v2"
+    }
 }
@@ -31,17 +31,25 @@ class PolarHRMParser : AbstractExerciseParser() {
     val info = ExerciseParserInfo("Polar HRM", listOf("hrm", "HRM"))
 
     override
-    fun parseExercise(filename: String): EVExercise {
+    fun parseExercise(filename: String): EVExercise = parseExercise(filename, true)
+
+    override
+    fun parseSummary(filename: String): EVExercise = parseExercise(filename, false)
+
+    override
+    val isSummarySupported = true
+
+    private fun parseExercise(filename: String, storeSamples: Boolean): EVExercise {
 
         try {
             val fileContent = File(filename).readLines()
-            return parseExerciseFromContent(fileContent)
+            return parseExerciseFromContent(fileContent, storeSamples)
         } catch (e: Exception) {
             throw EVException("Failed to read the HRM exercise file '$filename' ...", e)
         }
     }
 
-    private fun parseExerciseFromContent(fileContent: List<String>): EVExercise
+    private fun parseExerciseFromContent(fileContent: List<String>, storeSamples: Boolean): EVExercise
     {
         // parse basic exercise data
         val exercise = EVExercise(EVExercise.ExerciseFileType.HRM)
@@ -53,7 +61,7 @@ class PolarHRMParser : AbstractExerciseParser() {
         parseBlockSummaryTimes(fileContent, exercise)
         // ignore 'Summary-TH', 'HRZones' and 'SwapTimes' block
         parseBlockTrip(fileContent, exercise, fMetricUnits)
-        parseBlockHrData(fileContent, exercise, fMetricUnits)
+        parseBlockHrData(fileContent, exercise, fMetricUnits, storeSamples)
 
         // calculate average lap speed, the data was not recorded here
         calculateAverageLapSpeed(exercise)
@@ -370,116 +378,117 @@ class PolarHRMParser : AbstractExerciseParser() {
     }
 
     /**
-     * Parses the 'HRData' block of the exercise file, which contains the exercise sample information.
+     * Parses the 'HRData' block of the exercise file, which contains the exercise sample information. The exercise
+     * summary values (not stored in HRM files) are computed while reading the sample lines, so the samples don't
+     * need to be created when only the summary is required.
      *
      * @param fileContent all exercise file lines
      * @param exercise the created exercise
      * @param fMetricUnits flag whether the exercise file uses metric (true) or english (false) units
+     * @param storeSamples flag whether the exercise samples needs to be created and stored in the exercise
      */
-    private fun parseBlockHrData(fileContent: List<String>, exercise: EVExercise, fMetricUnits: Boolean) {
+    private fun parseBlockHrData(
+            fileContent: List<String>, exercise: EVExercise, fMetricUnits: Boolean, storeSamples: Boolean) {
 
         // get lines of 'HRData' block
         val lHRDataBlock = getBlockLines(fileContent, "HRData", true)
         val sampleCount = lHRDataBlock.size
+        val recordingMode = exercise.recordingMode
+        val recordingInterval = exercise.recordingInterval!!
+
+        var distanceAccum = 0.0
+        var speedMax = 0f
+        var avgHeartrateSum = 0
+        var heartRateMax: Short = 0
+        var altitudeMin = Short.MAX_VALUE
+        var avgCadenceSum = 0
+        var avgCadenceSamples = 0
+        var cadenceMax: Short = 0
 
         // parse each exercise sample line
         for (i in 0..(sampleCount - 1)) {
             var tokenIndex = 0
-            val sample = ExerciseSample()
-            exercise.sampleList.add(sample)
-            sample.timestamp = i * exercise.recordingInterval!! * 1000L
+            var speed: Float? = null
+            var cadence: Short? = null
+            var altitude: Short? = null
 
             // split sample line into parts
             val currSampleSplitted = lHRDataBlock[i].split("\t")
 
             // 1. part is heartrate
-            sample.heartRate = currSampleSplitted[tokenIndex].toShort()
+            val heartRate = currSampleSplitted[tokenIndex].toShort()
             tokenIndex++
 
             // next part can be speed, when recorded
-            if (currSampleSplitted.size > tokenIndex && exercise.recordingMode.isSpeed) {
+            if (currSampleSplitted.size > tokenIndex && recordingMode.isSpeed) {
                 // speed is km/h or m/h * 10
                 var speedX10 = currSampleSplitted[tokenIndex].toInt()
                 if (!fMetricUnits) {
                     speedX10 = ConvertUtils.convertMiles2Kilometer(speedX10)
                 }
 
-                sample.speed = speedX10 / 10f
+                speed = speedX10 / 10f
                 tokenIndex++
             }
 
             // next part can be cadence, when recorded
-            if (currSampleSplitted.size > tokenIndex && exercise.recordingMode.isCadence) {
-                sample.cadence = currSampleSplitted[tokenIndex].toShort()
+            if (currSampleSplitted.size > tokenIndex && recordingMode.isCadence) {
+                cadence = currSampleSplitted[tokenIndex].toShort()
                 tokenIndex++
             }
 
             // next part can be altitude, when recorded
-            if (currSampleSplitted.size > tokenIndex && exercise.recordingMode.isAltitude) {
-                var altitude = currSampleSplitted[tokenIndex].toInt()
+            if (currSampleSplitted.size > tokenIndex && recordingMode.isAltitude) {
+                var altitudeValue = currSampleSplitted[tokenIndex].toInt()
                 if (!fMetricUnits) {
-                    altitude = ConvertUtils.convertFeet2Meter(altitude)
+                    altitudeValue = ConvertUtils.convertFeet2Meter(altitudeValue)
                 }
 
-                sample.altitude = altitude.toShort()
+                altitude = altitudeValue.toShort()
             }
-        }
 
-        // when speed is recorded:
-        // - calculate distance for each recorded sample (distance is not recorded for each sample)
-        // - find the maximum speed from samples (max speed is stored in HRM files, but often a wrong value)
-        if (exercise.recordingMode.isSpeed) {
-            var distanceAccum = 0.0
-            exercise.speed!!.speedMax = 0f
-
-            for (sample in exercise.sampleList) {
-                val sampleSpeed = sample.speed ?: 0f
-                sample.distance = distanceAccum.toInt()
-                distanceAccum += (sampleSpeed * exercise.recordingInterval!!) / 3.6
-                exercise.speed!!.speedMax = Math.max(sampleSpeed, exercise.speed!!.speedMax)
+            if (storeSamples) {
+                // the distance is not recorded for each sample, it's calculated from the speed
+                exercise.sampleList.add(ExerciseSample(
+                        timestamp = i * recordingInterval * 1000L,
+                        heartRate = heartRate,
+                        speed = speed,
+                        cadence = cadence,
+                        altitude = altitude,
+                        distance = if (recordingMode.isSpeed) distanceAccum.toInt() else null))
             }
-        }
 
-        // compute average/maximum heartrate of exercise (not in HRM file)
-        var avgHeartrateSum = 0
-        exercise.heartRateMax = 0
-
-        for (sample in exercise.sampleList) {
-            val sampleHeartRate = sample.heartRate ?: 0
-            avgHeartrateSum += sampleHeartRate
-            exercise.heartRateMax = maxShort(sampleHeartRate, exercise.heartRateMax ?: 0)
+            distanceAccum += ((speed ?: 0f) * recordingInterval) / 3.6
+            speedMax = Math.max(speed ?: 0f, speedMax)
+            avgHeartrateSum += heartRate
+            heartRateMax = maxShort(heartRate, heartRateMax)
+            altitudeMin = minShort(altitudeMin, altitude ?: Short.MAX_VALUE)
+            cadence?.let { sampleCadence ->
+                avgCadenceSum += sampleCadence
+                avgCadenceSamples++
+            }
+            cadenceMax = maxShort(cadence ?: 0, cadenceMax)
         }
 
-        // calculate AVG heartrate
-        exercise.heartRateAVG = Math.round(avgHeartrateSum / exercise.sampleList.size.toDouble()).toShort()
+        // when speed is recorded => use the maximum speed from samples
+        // (max speed is stored in HRM files, but often a wrong value)
+        if (recordingMode.isSpeed) {
+            exercise.speed!!.speedMax = speedMax
+        }
 
-        // when altitude is recorded => search minimum altitude of exercise (is not in HRM file)
-        if (exercise.recordingMode.isAltitude) {
-            exercise.altitude!!.altitudeMin = Short.MAX_VALUE
+        // set average/maximum heartrate of exercise (not in HRM file)
+        exercise.heartRateMax = heartRateMax
+        exercise.heartRateAVG = Math.round(avgHeartrateSum / sampleCount.toDouble()).toShort()
 
-            for (sample in exercise.sampleList) {
-                exercise.altitude!!.altitudeMin = minShort(exercise.altitude!!.altitudeMin, sample.altitude ?: Short.MAX_VALUE)
-            }
+        // when altitude is recorded => set minimum altitude of exercise (is not in HRM file)
+        if (recordingMode.isAltitude) {
+            exercise.altitude!!.altitudeMin = altitudeMin
         }
 
-        // compute min and max cadence when recorded (not in HRM file)
-        if (exercise.recordingMode.isCadence) {
-
-            // compute average cadence from all samples, where cadence > 0
-            var avgCadenceSum = 0
-            var avgCadenceSamples = 0
+        // set average and max cadence when recorded (not in HRM file),
+        // the average cadence is computed from all samples where cadence > 0
+        if (recordingMode.isCadence) {
             var cadenceAvg: Short = 0
-            var cadenceMax: Short = 0
-
-            for (sample in exercise.sampleList) {
-                sample.cadence?.let { sampleCadence ->
-                    avgCadenceSum += sampleCadence
-                    avgCadenceSamples++
-                }
-
-                cadenceMax = maxShort(sample.cadence ?: 0, cadenceMax)
-            }
-
             if (avgCadenceSum > 0 && avgCadenceSamples > 0) {
                 cadenceAvg = Math.round(avgCadenceSum / avgCadenceSamples.toDouble()).toShort()
             }
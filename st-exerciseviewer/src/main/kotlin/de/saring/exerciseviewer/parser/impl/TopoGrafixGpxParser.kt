@@ -11,36 +11,49 @@ import de.saring.exerciseviewer.parser.AbstractExerciseParser
 import de.saring.exerciseviewer.parser.ExerciseParserInfo
 import de.saring.util.Date310Utils
 import de.saring.util.unitcalc.CalculationUtils
-import org.jdom2.Element
-import org.jdom2.Namespace
-import org.jdom2.input.SAXBuilder
+import java.io.BufferedInputStream
+import java.io.FileInputStream
 import java.time.LocalDateTime
 import java.time.format.DateTimeFormatter
+import javax.xml.stream.XMLStreamReader
 
 /**
  * ExerciseParser implementation for reading TopoGrafix GPX v1.1 exercise files (XML-based). Documentation about the
  * format can be found at the TopoGrafix website ( http://www.topografix.com/gpx.asp ).
  *
+ * The file is parsed by a StAX reader (streaming) in one pass, the distance, speed, altitude and heart rate summaries
+ * are accumulated while reading the trackpoints. When parsing the summary only, the trackpoints are still read (the
+ * summary is not stored in the file), but no samples are stored.
+ *
  * @author Stefan Saring
  * @author Alex Wulms
  */
 class TopoGrafixGpxParser : AbstractExerciseParser() {
 
-    private val degreeToRadianDivider: Double = 57.29577951
-    private val earthRadiosInMeter: Double = 6371000.0
+    override
+    val info = ExerciseParserInfo("TopoGrafix GPX", listOf("gpx", "GPX"))
 
-    private val namespace = Namespace.getNamespace("http://www.topografix.com/GPX/1/1")
-    private val namespaceExt = Namespace.getNamespace("http://www.garmin.com/xmlschemas/TrackPointExtension/v1")
+    override
+    fun parseExercise(filename: String): EVExercise = parseExercise(filename, true)
 
     override
-    val info = ExerciseParserInfo("TopoGrafix GPX", listOf("gpx", "GPX"))
+    fun parseSummary(filename: String): EVExercise = parseExercise(filename, false)
 
     override
-    fun parseExercise(filename: String): EVExercise {
+    val isSummarySupported = true
+
+    private fun parseExercise(filename: String, storeSamples: Boolean): EVExercise {
 
         try {
-            val document = SAXBuilder().build(filename)
-            return parseExerciseElement(document.rootElement)
+            BufferedInputStream(FileInputStream(filename)).use { inputStream ->
+                val reader = createXmlStreamReader(inputStream)
+                try {
+                    reader.nextTag()
+                    return parseExerciseElement(reader, storeSamples)
+                } finally {
+                    reader.close()
+                }
+            }
         }
         catch (e: Exception) {
             throw EVException("Failed to read the TopoGrafix GPX exercise file '$filename'!", e)
@@ -48,25 +61,58 @@ class TopoGrafixGpxParser : AbstractExerciseParser() {
     }
 
     /**
-     * Parses the exercise data from the specified gpx (root) element.
+     * Parses the exercise data from the current element (gpx root element).
+     *
+     * @param reader StAX reader positioned on the root element
+     * @param storeSamples flag whether the exercise samples needs to be stored in the exercise
      */
-    private fun parseExerciseElement(eGpx: Element): EVExercise {
+    private fun parseExerciseElement(reader: XMLStreamReader, storeSamples: Boolean): EVExercise {
+
+        val exercise = createExercise()
+        val track = TrackAccumulator(storeSamples)
+
+        reader.forEachChildElement {
+            when {
+                // get dateTime and time (optional), only the metadata element without namespace is supported
+                reader.localName == "metadata" && reader.namespaceURI.isNullOrEmpty() ->
+                    parseMetadataElement(reader, exercise)
+                reader.isGpxElement("trk") -> reader.forEachChildElement {
+                    if (reader.isGpxElement("trkseg")) {
+                        reader.forEachChildElement {
+                            if (reader.isGpxElement("trkpt")) {
+                                parseTrackpointElement(reader, exercise, track)
+                            } else {
+                                reader.skipElement()
+                            }
+                        }
+                    } else {
+                        reader.skipElement()
+                    }
+                }
+                else -> reader.skipElement()
+            }
+        }
+
+        // speed and distance data in samples will be 0 if no timestamps were available => set them to null
+        exercise.speed = null
+        if (!exercise.recordingMode.isSpeed) {
+            exercise.sampleList.forEach {
+                it.speed = null
+                it.distance = null
+            }
+        }
 
-        val exercise = createExercise(eGpx)
-        exercise.sampleList = parseSampleTrackpoints(eGpx, exercise)
-        calculateDistanceAndSpeedPerPoint(exercise)
-        exercise.speed = null;
         if (exercise.recordingMode.isAltitude) {
-            calculateAltitudeSummary(exercise)
+            calculateAltitudeSummary(exercise, track)
         }
         if (exercise.dateTime != null) {
-            calculateDuration(exercise)
+            calculateDuration(exercise, track)
         }
         if (exercise.recordingMode.isSpeed) {
-            calculateSpeedSummary(exercise)
+            calculateSpeedSummary(exercise, track)
         }
         if (exercise.recordingMode.isHeartRate) {
-            calculateHeartRateSummary(exercise)
+            calculateHeartRateSummary(exercise, track)
         }
 
         return exercise
@@ -75,184 +121,230 @@ class TopoGrafixGpxParser : AbstractExerciseParser() {
     /**
      * Creates the EVExercise with basic exercise data.
      */
-    private fun createExercise(eGpx: Element): EVExercise {
+    private fun createExercise(): EVExercise {
 
         val exercise = EVExercise(EVExercise.ExerciseFileType.GPX)
         exercise.deviceName = "Garmin GPX"
         exercise.recordingInterval = EVExercise.DYNAMIC_RECORDING_INTERVAL
         exercise.recordingMode = RecordingMode()
         exercise.recordingMode.isLocation = true
+        return exercise
+    }
 
-        // get dateTime and time (optional)
-        val strTime = eGpx.getChild("metadata")?.getChildText("time")
-        if (strTime != null) {
-            exercise.dateTime = parseDateTime(strTime)
+    private fun parseMetadataElement(reader: XMLStreamReader, exercise: EVExercise) {
+        var strTime: String? = null
+        reader.forEachChildElement {
+            if (strTime == null && reader.localName == "time" && reader.namespaceURI.isNullOrEmpty()) {
+                strTime = reader.elementText
+            } else {
+                reader.skipElement()
+            }
         }
 
-        return exercise
+        if (strTime != null) {
+            exercise.dateTime = parseDateTime(strTime!!)
+        }
     }
 
     /**
-     * Parses all trackpoints in all tracks and track segments under the "gpx" element and returns the exercise samples.
+     * Parses the current trackpoint element, creates the exercise sample and updates the distance, speed, altitude
+     * and heart rate accumulators of the track.
      */
-    private fun parseSampleTrackpoints(eGpx: Element, exercise: EVExercise): MutableList<ExerciseSample> {
-        val samples = mutableListOf<ExerciseSample>()
+    private fun parseTrackpointElement(reader: XMLStreamReader, exercise: EVExercise, track: TrackAccumulator) {
 
-        for (eTrk in eGpx.getChildren("trk", namespace)) {
-            for (eTrkSeg in eTrk.getChildren("trkseg", namespace)) {
-                for (eTrkPt in eTrkSeg.getChildren("trkpt", namespace)) {
+        val sample = ExerciseSample()
 
-                    val sample = ExerciseSample()
-                    samples.add(sample)
+        // get position
+        sample.position = Position(reader.getAttributeValue(null, "lat").toDouble(),
+                reader.getAttributeValue(null, "lon").toDouble())
 
-                    // get position
-                    sample.position = Position(eTrkPt.getAttributeValue("lat").toDouble(), eTrkPt.getAttributeValue("lon").toDouble())
+        var strElevation: String? = null
+        var strTime: String? = null
+        var strHeartrate: String? = null
 
-                    // get altitude (optional)
-                    val strElevation = eTrkPt.getChildText("ele", namespace)
-                    if (strElevation != null) {
-                        exercise.recordingMode.isAltitude = true
-                        sample.altitude = Math.round(strElevation.toDouble()).toShort()
-                    }
+        reader.forEachChildElement {
+            when {
+                reader.isGpxElement("ele") && strElevation == null -> strElevation = reader.elementText
+                reader.isGpxElement("time") && strTime == null -> strTime = reader.elementText
+                reader.isGpxElement("extensions") && strHeartrate == null -> strHeartrate = parseHeartRate(reader)
+                else -> reader.skipElement()
+            }
+        }
 
-                    // get timestamp and calculate sample time offset (optional)
-                    val strTime = eTrkPt.getChildText("time", namespace)
-                    if (strTime != null) {
-                        val timestampSample = parseDateTime(strTime)
-
-                        // store first timestamp as exercise start time when missing
-                        // or when exercise timestamp larger then (first) track time stamp
-                        // (In some GPX files track metadata is missing, while in some other
-                        //  GPX file, the time stamp in the meta data is the time the track
-                        //  was saved -thus after the exercise- and not the time the track
-                        //  was started)
-                        if (exercise.dateTime == null || exercise.dateTime!!.isAfter(timestampSample)) {
-                            exercise.dateTime = timestampSample
-                        }
-                        sample.timestamp = Date310Utils.getMilliseconds(timestampSample) -
-                                Date310Utils.getMilliseconds(exercise.dateTime)
-                    }
+        // get altitude (optional)
+        if (strElevation != null) {
+            exercise.recordingMode.isAltitude = true
+            sample.altitude = Math.round(strElevation!!.toDouble()).toShort()
+        }
 
-                    // try to get heartrate in Garmin Oregon format if present
-                    var strHeartrate = eTrkPt.getChild("extensions", namespace)?.getChild("TrackPointExtension", namespaceExt)?.getChildText("hr", namespaceExt)
-                    // if not present, try to get heartrate in Holux FunTrek 130 pro format if present
-                    if (strHeartrate == null) {
-                        strHeartrate = eTrkPt.getChild("extensions", namespace)?.getChildText("bpm", namespace)
-                    }
+        // get timestamp and calculate sample time offset (optional)
+        if (strTime != null) {
+            val timestampSample = parseDateTime(strTime!!)
+
+            // store first timestamp as exercise start time when missing
+            // or when exercise timestamp larger then (first) track time stamp
+            // (In some GPX files track metadata is missing, while in some other
+            //  GPX file, the time stamp in the meta data is the time the track
+            //  was saved -thus after the exercise- and not the time the track
+            //  was started)
+            if (exercise.dateTime == null || exercise.dateTime!!.isAfter(timestampSample)) {
+                exercise.dateTime = timestampSample
+            }
+            sample.timestamp = Date310Utils.getMilliseconds(timestampSample) -
+                    Date310Utils.getMilliseconds(exercise.dateTime)
+        }
+
+        if (strHeartrate != null) {
+            exercise.recordingMode.isHeartRate = true
+            sample.heartRate = strHeartrate!!.toShort()
+        }
+
+        calculateDistanceAndSpeed(exercise, sample, track)
+        accumulateAltitude(sample, track)
+        accumulateHeartRate(sample, track)
+
+        track.trackpointCount++
+        track.lastSample = sample
+
+        // the sample table stores a copy of the values, so the sample must be complete
+        if (track.storeSamples) {
+            exercise.sampleList.add(sample)
+        }
+    }
 
-                    if (strHeartrate != null) {
-                        exercise.recordingMode.isHeartRate = true
-                        sample.heartRate = strHeartrate.toShort()
+    /**
+     * Parses the heart rate of the trackpoint from the current extensions element. The Garmin Oregon format
+     * (TrackPointExtension) is preferred to the Holux FunTrek 130 pro format (bpm).
+     *
+     * @return the heart rate text or null when not present
+     */
+    private fun parseHeartRate(reader: XMLStreamReader): String? {
+        var strHeartrateGarmin: String? = null
+        var strHeartrateHolux: String? = null
+
+        reader.forEachChildElement {
+            when {
+                reader.localName == "TrackPointExtension" && reader.namespaceURI == NAMESPACE_EXT &&
+                        strHeartrateGarmin == null -> {
+                    var strHr: String? = null
+                    reader.forEachChildElement {
+                        if (strHr == null && reader.localName == "hr" && reader.namespaceURI == NAMESPACE_EXT) {
+                            strHr = reader.elementText
+                        } else {
+                            reader.skipElement()
+                        }
                     }
+                    // only the first TrackPointExtension element is relevant, even without heart rate
+                    strHeartrateGarmin = strHr ?: ""
                 }
+                reader.isGpxElement("bpm") && strHeartrateHolux == null -> strHeartrateHolux = reader.elementText
+                else -> reader.skipElement()
             }
         }
 
-        return samples
+        return strHeartrateGarmin?.takeIf { it.isNotEmpty() } ?: strHeartrateHolux
     }
 
     /**
-     * Calculates the distance and speed for each sample point, based on the GPS coordinates and timestamp.
-     * Speed and distance tags do not seem to be part of GPX standard. Some GPS devices do log for example the speed
-     * but they don't indicate the unit used, like km/h our mile/hour and as such, those speed data are useless anyway.
+     * Calculates the distance and speed of the sample, based on the GPS coordinates and timestamp of the previous
+     * sample. Speed and distance tags do not seem to be part of GPX standard. Some GPS devices do log for example the
+     * speed but they don't indicate the unit used, like km/h our mile/hour and as such, those speed data are useless
+     * anyway.
      */
-    private fun calculateDistanceAndSpeedPerPoint(exercise: EVExercise) {
-        var totalDistanceInMeter = 0.0
-        var prevPosition: Position? = null
-        var prevTimestamp: Long? = null
-
-        for (sample in exercise.sampleList) {
-            var distanceInMeter = 0.0
-            if (prevPosition != null) {
-                // Calculate distance based on GPS coordinates, using haversine formula
-                val dLat = (sample.position!!.latitude - prevPosition.latitude) / degreeToRadianDivider
-                val dLon = (sample.position!!.longitude - prevPosition.longitude) / degreeToRadianDivider
-                val prevLat = prevPosition.latitude / degreeToRadianDivider
-                val currLat = sample.position!!.latitude / degreeToRadianDivider
-                val a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2) * Math.cos(prevLat) * Math.cos(currLat)
-                distanceInMeter = earthRadiosInMeter * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a))
-                totalDistanceInMeter += distanceInMeter;
-            }
-            sample.distance = Math.round(totalDistanceInMeter).toInt()
-            prevPosition = sample.position
-
-            if (prevTimestamp != null) {
-                // Calculate speed. Don't use CalculateUtils.calculateAvgSpeed, because
-                // that one gives 'infinity' when rounded time-difference is 0
-                // (e.g. when two timestamps are less then 500 milliseconds apart)
-                // Note that timestamps are in milliseconds
-                // Note that speed is in km/h
-                val deltaTime = sample.timestamp!! - prevTimestamp
-                // Note that deltaTime can be 0, either when GPX file contains two
-                // consecutive points with same timestamp or when it does not contain
-                // any timestamps at all. In both cases, speed will be set to 0 for
-                // the sample
-                if (deltaTime != 0L) {
-                    exercise.recordingMode.isSpeed = true
-                    sample.speed = (3600 * distanceInMeter / deltaTime).toFloat()
-                } else {
-                    sample.speed = 0f
-                }
+    private fun calculateDistanceAndSpeed(exercise: EVExercise, sample: ExerciseSample, track: TrackAccumulator) {
+        var distanceInMeter = 0.0
+        val prevPosition = track.prevPosition
+        if (prevPosition != null) {
+            // Calculate distance based on GPS coordinates, using haversine formula
+            val dLat = (sample.position!!.latitude - prevPosition.latitude) / DEGREE_TO_RADIAN_DIVIDER
+            val dLon = (sample.position!!.longitude - prevPosition.longitude) / DEGREE_TO_RADIAN_DIVIDER
+            val prevLat = prevPosition.latitude / DEGREE_TO_RADIAN_DIVIDER
+            val currLat = sample.position!!.latitude / DEGREE_TO_RADIAN_DIVIDER
+            val a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                    Math.sin(dLon / 2) * Math.sin(dLon / 2) * Math.cos(prevLat) * Math.cos(currLat)
+            distanceInMeter = EARTH_RADIUS_IN_METER * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a))
+            track.totalDistanceInMeter += distanceInMeter
+        }
+        sample.distance = Math.round(track.totalDistanceInMeter).toInt()
+        track.prevPosition = sample.position
+
+        val prevTimestamp = track.prevTimestamp
+        if (prevTimestamp != null) {
+            // Calculate speed. Don't use CalculateUtils.calculateAvgSpeed, because
+            // that one gives 'infinity' when rounded time-difference is 0
+            // (e.g. when two timestamps are less then 500 milliseconds apart)
+            // Note that timestamps are in milliseconds
+            // Note that speed is in km/h
+            val deltaTime = sample.timestamp!! - prevTimestamp
+            // Note that deltaTime can be 0, either when GPX file contains two
+            // consecutive points with same timestamp or when it does not contain
+            // any timestamps at all. In both cases, speed will be set to 0 for
+            // the sample
+            if (deltaTime != 0L) {
+                exercise.recordingMode.isSpeed = true
+                sample.speed = (3600 * distanceInMeter / deltaTime).toFloat()
             } else {
-                // First sample point; speed not known yet. Assume person did not start
-                // the training yet and is standing still
                 sample.speed = 0f
             }
-            prevTimestamp = sample.timestamp
-        }
-
-        // speed and distance data in samples will be 0 if no timestamps were available => set them to null
-        if (!exercise.recordingMode.isSpeed) {
-            exercise.sampleList.forEach {
-                it.speed = null
-                it.distance = null
-            }
+        } else {
+            // First sample point; speed not known yet. Assume person did not start
+            // the training yet and is standing still
+            sample.speed = 0f
         }
+        track.prevTimestamp = sample.timestamp
+        track.speedMax = Math.max(sample.speed!!, track.speedMax)
     }
 
     /**
-     * Calculates the min, avg and max altitude and the ascent of the exercise.
+     * Updates the min, max, sum and ascent accumulators with the altitude of the sample (if present).
      */
-    private fun calculateAltitudeSummary(exercise: EVExercise) {
-
-        var altitudeMin = Int.MAX_VALUE
-        var altitudeMax = Int.MIN_VALUE
-        var ascent = 0
-        var altitudeSum = 0L
+    private fun accumulateAltitude(sample: ExerciseSample, track: TrackAccumulator) {
+        val sampleAltitude = sample.altitude ?: return
 
-        val samplesWithAltitude = exercise.sampleList.filter { it.altitude != null }.toList()
-        var previousAltitude:Short = samplesWithAltitude[0].altitude!!
+        track.altitudeMin = Math.min(sampleAltitude.toInt(), track.altitudeMin)
+        track.altitudeMax = Math.max(sampleAltitude.toInt(), track.altitudeMax)
+        track.altitudeSum += sampleAltitude
+        track.altitudeCount++
 
-        for (sample in samplesWithAltitude) {
-            val sampleAltitude = sample.altitude!!
-
-            altitudeMin = Math.min(sampleAltitude.toInt(), altitudeMin)
-            altitudeMax = Math.max(sampleAltitude.toInt(), altitudeMax)
-            altitudeSum += sample.altitude!!
+        val previousAltitude = track.previousAltitude ?: sampleAltitude
+        if (previousAltitude < sampleAltitude) {
+            track.ascent += sampleAltitude - previousAltitude
+        }
+        track.previousAltitude = sampleAltitude
+    }
 
-            if (previousAltitude < sampleAltitude) {
-                ascent += sampleAltitude - previousAltitude
-            }
-            previousAltitude = sampleAltitude
+    /**
+     * Updates the sum and max accumulators with the heart rate of the sample (if present).
+     */
+    private fun accumulateHeartRate(sample: ExerciseSample, track: TrackAccumulator) {
+        val sampleHeartRate = sample.heartRate
+        if (sampleHeartRate == null) {
+            track.samplesWithoutHeartRate = true
+            return
         }
 
+        track.heartRateSum += sampleHeartRate
+        track.heartRateMax = Math.max(sampleHeartRate.toInt(), track.heartRateMax.toInt()).toShort()
+    }
+
+    /**
+     * Stores the min, avg and max altitude and the ascent of the exercise.
+     */
+    private fun calculateAltitudeSummary(exercise: EVExercise, track: TrackAccumulator) {
         exercise.altitude = ExerciseAltitude(
-                altitudeMin = altitudeMin.toShort(),
-                altitudeAvg = Math.round(altitudeSum / samplesWithAltitude.size.toDouble()).toShort(),
-                altitudeMax = altitudeMax.toShort(),
-                ascent = ascent,
+                altitudeMin = track.altitudeMin.toShort(),
+                altitudeAvg = Math.round(track.altitudeSum / track.altitudeCount.toDouble()).toShort(),
+                altitudeMax = track.altitudeMax.toShort(),
+                ascent = track.ascent,
                 descent = 0)
     }
 
     /**
      * Calculates the exercise duration (only when samples contain timestamps).
      */
-    private fun calculateDuration(exercise: EVExercise) {
-        val sampleCount = exercise.sampleList.size
-
-        if (sampleCount > 0) {
-            val lastSampleTimestamp = exercise.sampleList[sampleCount - 1].timestamp!!
+    private fun calculateDuration(exercise: EVExercise, track: TrackAccumulator) {
+        track.lastSample?.let { lastSample ->
+            val lastSampleTimestamp = lastSample.timestamp!!
             if (lastSampleTimestamp > 0) {
                 exercise.duration = (lastSampleTimestamp / 100).toInt()
             }
@@ -260,42 +352,33 @@ class TopoGrafixGpxParser : AbstractExerciseParser() {
     }
 
     /**
-     * Calculates the speed summary (only when samples contain timestamps, from which speed is derived).
+     * Stores the speed summary (only when samples contain timestamps, from which speed is derived).
      */
-    private fun calculateSpeedSummary(exercise: EVExercise) {
-        if (!exercise.sampleList.isEmpty()) {
-
-            val speedMax = exercise.sampleList
-                    .map { it.speed!! }
-                    .max()!!
-
-            val lastSample = exercise.sampleList[exercise.sampleList.size - 1]
+    private fun calculateSpeedSummary(exercise: EVExercise, track: TrackAccumulator) {
+        track.lastSample?.let { lastSample ->
             val distance = lastSample.distance!!
             val speedAvg = CalculationUtils.calculateAvgSpeed(
                     distance / 1000f, Math.round(lastSample.timestamp!! / 1000f))
 
-            exercise.speed = ExerciseSpeed(speedAvg, speedMax, distance)
+            exercise.speed = ExerciseSpeed(speedAvg, track.speedMax, distance)
         }
     }
 
     /**
-     * Calculates heart rate summary data of the exercise (only when samples contain heart rate data).
+     * Stores the heart rate summary data of the exercise (only when samples contain heart rate data).
      */
-    private fun calculateHeartRateSummary(exercise: EVExercise) {
-        var heartRateSum = 0L
-        exercise.heartRateMax = Short.MIN_VALUE
-
-        for (sample in exercise.sampleList) {
-            val sampleHeartRate = sample.heartRate!!
-            heartRateSum += sampleHeartRate
-            if (sampleHeartRate > exercise.heartRateMax ?: 0) {
-            exercise.heartRateMax = sampleHeartRate
-            }
+    private fun calculateHeartRateSummary(exercise: EVExercise, track: TrackAccumulator) {
+        if (track.samplesWithoutHeartRate) {
+            throw EVException("Not all trackpoints contain heart rate data!")
         }
 
-        exercise.heartRateAVG = Math.round(heartRateSum / exercise.sampleList.size.toDouble()).toShort()
+        exercise.heartRateMax = track.heartRateMax
+        exercise.heartRateAVG = Math.round(track.heartRateSum / track.trackpointCount.toDouble()).toShort()
     }
 
+    private fun XMLStreamReader.isGpxElement(name: String): Boolean =
+            localName == name && namespaceURI == NAMESPACE
+
     /**
      * Parses the date time in ISO format specified in the passed text and returns the appropriate LocalDateTime.
      */
@@ -307,4 +390,35 @@ class TopoGrafixGpxParser : AbstractExerciseParser() {
             dateTimeText
         return LocalDateTime.parse(dateTimeTextFixed, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
     }
+
+    /**
+     * Accumulators of the track, they are updated while streaming the trackpoints.
+     *
+     * @property storeSamples flag whether the samples created for the trackpoints are stored in the exercise
+     */
+    private class TrackAccumulator(val storeSamples: Boolean) {
+        var trackpointCount: Int = 0
+        var lastSample: ExerciseSample? = null
+        var prevPosition: Position? = null
+        var prevTimestamp: Long? = null
+        var totalDistanceInMeter: Double = 0.0
+        var speedMax: Float = 0f
+        var altitudeMin: Int = Int.MAX_VALUE
+        var altitudeMax: Int = Int.MIN_VALUE
+        var altitudeSum: Long = 0
+        var altitudeCount: Int = 0
+        var ascent: Int = 0
+        var previousAltitude: Short? = null
+        var heartRateSum: Long = 0
+        var heartRateMax: Short = Short.MIN_VALUE
+        var samplesWithoutHeartRate = false
+    }
+
+    companion object {
+        private const val NAMESPACE = "http://www.topografix.com/GPX/1/1"
+        private const val NAMESPACE_EXT = "http://www.garmin.com/xmlschemas/TrackPointExtension/v1"
+
+        private const val DEGREE_TO_RADIAN_DIVIDER: Double = 57.29577951
+        private const val EARTH_RADIUS_IN_METER: Double = 6371000.0
+    }
 }
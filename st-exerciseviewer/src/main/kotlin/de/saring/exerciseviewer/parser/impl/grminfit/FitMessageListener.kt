@@ -18,6 +18,7 @@ import de.saring.exerciseviewer.data.EVExercise
 import de.saring.exerciseviewer.data.ExerciseAltitude
 import de.saring.exerciseviewer.data.ExerciseCadence
 import de.saring.exerciseviewer.data.ExerciseSample
+import de.saring.exerciseviewer.data.ExerciseSampleTable
 import de.saring.exerciseviewer.data.ExerciseSpeed
 import de.saring.exerciseviewer.data.ExerciseTemperature
 import de.saring.exerciseviewer.data.Lap
@@ -31,10 +32,14 @@ import de.saring.util.unitcalc.ConvertUtils
 
 /**
  * Message listener implementation for creating the EVExercise object from the FIT messages send by the decoder/parser.
+ * The summary values missing in the Session message are computed from the Record messages while receiving them.
+ *
+ * @property storeSamples flag whether the exercise samples needs to be created from the Record messages, otherwise
+ *           just the exercise and lap data will be created (the lap data taken from the samples is missing then)
  *
  * @author Stefan Saring
  */
-internal class FitMessageListener : MesgListener {
+internal class FitMessageListener(private val storeSamples: Boolean = true) : MesgListener {
 
     /**
      * The parsed exercise.
@@ -45,13 +50,17 @@ internal class FitMessageListener : MesgListener {
      */
     private val lFitLaps = LinkedList<FitLap>()
     /**
-     * List of created exercise samples (collected in a LinkedList and not in EVExercise array, much faster).
+     * Table of the created exercise samples, the values of the Record messages are stored directly in its columns.
      */
-    private val lSamples = LinkedList<ExerciseSample>()
+    private val samples = exercise.sampleList
     /**
      * Flag for availability of temperature data.
      */
     private var temperatureAvailable = false
+    /**
+     * Summary of all received Record messages, needed for calculating the missing exercise data.
+     */
+    private val recordSummary = RecordSummary()
 
     override fun onMesg(mesg: Mesg) {
 
@@ -60,7 +69,7 @@ internal class FitMessageListener : MesgListener {
             MesgNum.SESSION -> readSessionMessage(SessionMesg(mesg))
             MesgNum.LAP -> readLapMessage(LapMesg(mesg))
             MesgNum.RECORD -> readRecordMessage(RecordMesg(mesg))
-            MesgNum.LENGTH -> readLengthMessage(LengthMesg(mesg))
+            MesgNum.LENGTH -> if (storeSamples) readLengthMessage(LengthMesg(mesg))
             MesgNum.DEVICE_INFO -> readDeviceInfoMessage(DeviceInfoMesg(mesg))
         }
     }
@@ -160,33 +169,41 @@ internal class FitMessageListener : MesgListener {
      */
     private fun readRecordMessage(mesg: RecordMesg) {
 
-        val sample = ExerciseSample()
-        lSamples.add(sample)
+        val heartRate = mesg.heartRate
+        val speed = mesg.speed?.let { ConvertUtils.convertMeterPerSecond2KilometerPerHour(it) }
+        val altitude = mesg.altitude?.let { Math.round(it).toShort() }
+        val temperature = mesg.temperature?.toShort()
 
-        // sample timestamp must be the offset from start time, will be corrected later
-        // (in some cases the timestamp is missing and will be read from the next Length message)
-        mesg.timestamp?.let { sample.timestamp = it.date.time }
-
-        mesg.heartRate?.let {
-            sample.heartRate = it
+        if (heartRate != null) {
             exercise.recordingMode.isHeartRate = true
         }
-
-        mesg.distance?.let { sample.distance = Math.round(it) }
-        mesg.speed?.let { sample.speed = ConvertUtils.convertMeterPerSecond2KilometerPerHour(it) }
-        mesg.altitude?.let { sample.altitude = Math.round(it).toShort() }
-        mesg.cadence?.let { sample.cadence = it }
-
-        mesg.temperature?.let {
+        if (temperature != null) {
             temperatureAvailable = true
-            sample.temperature = it.toShort()
         }
 
-        if (mesg.positionLat != null && mesg.positionLong != null) {
-            sample.position = Position(
-                    ConvertUtils.convertSemicircle2Degree(mesg.positionLat!!),
-                    ConvertUtils.convertSemicircle2Degree(mesg.positionLong!!))
+        if (storeSamples) {
+            val index = samples.size
+            samples.addEmpty(1)
+
+            // sample timestamp must be the offset from start time, will be corrected later
+            // (in some cases the timestamp is missing and will be read from the next Length message)
+            mesg.timestamp?.let { samples.setTimestamp(index, it.date.time) }
+
+            heartRate?.let { samples.setHeartRate(index, it) }
+            mesg.distance?.let { samples.setDistance(index, Math.round(it)) }
+            speed?.let { samples.setSpeed(index, it) }
+            altitude?.let { samples.setAltitude(index, it) }
+            mesg.cadence?.let { samples.setCadence(index, it) }
+            temperature?.let { samples.setTemperature(index, it) }
+
+            if (mesg.positionLat != null && mesg.positionLong != null) {
+                samples.setPosition(index,
+                        ConvertUtils.convertSemicircle2Degree(mesg.positionLat!!),
+                        ConvertUtils.convertSemicircle2Degree(mesg.positionLong!!))
+            }
         }
+
+        recordSummary.add(speed, heartRate, altitude, temperature)
     }
 
     /**
@@ -203,8 +220,7 @@ internal class FitMessageListener : MesgListener {
         val totalElapsedTime = Math.round(mesg.totalElapsedTime.toDouble() * 1000.0)
         val endTimestamp = startTimestamp + totalElapsedTime
 
-        val lastSample = lSamples[lSamples.size - 1]
-        lastSample.timestamp = endTimestamp
+        samples.setTimestamp(samples.size - 1, endTimestamp)
     }
 
     /**
@@ -236,11 +252,11 @@ internal class FitMessageListener : MesgListener {
             throw EVException("The FIT file does not contain any exercise (activity) data...")
         }
 
-        storeSamples()
+        fixSampleTimestamps()
         storeLaps()
 
         calculateMissingAverageSpeed()
-        if (!exercise.sampleList.isEmpty()) {
+        if (recordSummary.count > 0) {
             calculateAltitudeSummary()
             calculateTemperatureSummary()
             calculateMissingMaxSpeed()
@@ -252,15 +268,15 @@ internal class FitMessageListener : MesgListener {
     }
 
     /**
-     * Stores the sample data in the exercise. It also fixes the timestamps in all ExerciseSamples, it must be the
-     * offset from the start time.
+     * Fixes the timestamps of all exercise samples, it must be the offset from the start time.
      */
-    private fun storeSamples() {
+    private fun fixSampleTimestamps() {
         val startTime = Date310Utils.getMilliseconds(exercise.dateTime)
-        for (sample in lSamples) {
-            sample.timestamp?.let { sample.timestamp = it - startTime }
+        for (index in 0 until samples.size) {
+            if (samples.isPresent(ExerciseSampleTable.Channel.TIMESTAMP, index)) {
+                samples.setTimestamp(index, samples.getTimestamp(index) - startTime)
+            }
         }
-        exercise.sampleList.addAll(lSamples)
     }
 
     /**
@@ -356,52 +372,28 @@ internal class FitMessageListener : MesgListener {
     }
 
     /**
-     * Calculates the min, max and average altitude (if available) from the sample data.
+     * Calculates the min, max and average altitude (if available) from the received Record messages.
      */
     private fun calculateAltitudeSummary() {
 
         exercise.altitude?.let { exerciseAltitude ->
-            var altMin = Short.MAX_VALUE
-            var altMax = Short.MIN_VALUE
-            var altitudeSum = 0
-
-            for (sample in exercise.sampleList) {
-                val sampleAltitude = sample.altitude ?: 0
-                altMin = Math.min(sampleAltitude.toInt(), altMin.toInt()).toShort()
-                altMax = Math.max(sampleAltitude.toInt(), altMax.toInt()).toShort()
-                altitudeSum += sampleAltitude.toInt()
-            }
-
-            exerciseAltitude.altitudeMin = altMin
-            exerciseAltitude.altitudeMax = altMax
-            exerciseAltitude.altitudeAvg = Math.round(altitudeSum / exercise.sampleList.size.toDouble()).toShort()
+            exerciseAltitude.altitudeMin = recordSummary.altitudeMin
+            exerciseAltitude.altitudeMax = recordSummary.altitudeMax
+            exerciseAltitude.altitudeAvg =
+                    Math.round(recordSummary.altitudeSum / recordSummary.count.toDouble()).toShort()
         }
     }
 
     /**
-     * Calculates the min, max and average temperature (if available) from the sample data.
+     * Calculates the min, max and average temperature (if available) from the received Record messages.
      */
     private fun calculateTemperatureSummary() {
         if (temperatureAvailable) {
             exercise.recordingMode.isTemperature = true
 
-            var tempMin = Short.MAX_VALUE
-            var tempMax = Short.MIN_VALUE
-            var temperatureSum = 0
-            var temperatureCount = 0
-
-            for (sample in exercise.sampleList) {
-                // it's possible that just a few samples contain no temperature (e.g. for Edge 800)
-                sample.temperature?.let {sampleTemperature ->
-                    tempMin = Math.min(sampleTemperature.toInt(), tempMin.toInt()).toShort()
-                    tempMax = Math.max(sampleTemperature.toInt(), tempMax.toInt()).toShort()
-                    temperatureSum += sampleTemperature.toInt()
-                    temperatureCount++
-                }
-            }
-
-            val tempAvg = Math.round(temperatureSum / temperatureCount.toDouble()).toShort()
-            exercise.temperature = ExerciseTemperature(tempMin, tempAvg, tempMax)
+            val tempAvg = Math.round(
+                    recordSummary.temperatureSum / recordSummary.temperatureCount.toDouble()).toShort()
+            exercise.temperature = ExerciseTemperature(recordSummary.temperatureMin, tempAvg, recordSummary.temperatureMax)
         }
     }
 
@@ -436,11 +428,7 @@ internal class FitMessageListener : MesgListener {
     private fun calculateMissingMaxSpeed() {
         exercise.speed?.let { exerciseSpeed ->
             if (exerciseSpeed.speedMax < 0.01) {
-
-                exercise.sampleList
-                        .map { it.speed ?: 0f }
-                        .max()
-                        ?.let { exerciseSpeed.speedMax = it }
+                exerciseSpeed.speedMax = recordSummary.speedMax
             }
         }
     }
@@ -450,12 +438,8 @@ internal class FitMessageListener : MesgListener {
      */
     private fun calculateMissingHeartRateAVG() {
         if (exercise.heartRateAVG == null) {
-
-            exercise.sampleList
-                    .filter { it.heartRate != null }
-                    .map { it.heartRate ?: 0 }
-                    .average()
-                    .let { exercise.heartRateAVG = Math.round(it).toShort() }
+            exercise.heartRateAVG = Math.round(
+                    recordSummary.heartRateSum / recordSummary.heartRateCount.toDouble()).toShort()
         }
     }
 
@@ -464,11 +448,51 @@ internal class FitMessageListener : MesgListener {
      */
     private fun calculateMissingHeartRateMax() {
         if (exercise.heartRateMax == null) {
+            exercise.heartRateMax = recordSummary.heartRateMax
+        }
+    }
 
-            exercise.sampleList
-                    .map { it.heartRate ?: 0 }
-                    .max()
-                    ?.let { exercise.heartRateMax = it }
+    /**
+     * Summary of the values of all received Record messages, it's updated for each Record message. So the missing
+     * exercise data can be calculated without storing the samples.
+     */
+    private class RecordSummary {
+        var count = 0
+        var speedMax = 0f
+        var heartRateMax: Short = 0
+        var heartRateSum = 0L
+        var heartRateCount = 0
+        var altitudeMin = Short.MAX_VALUE
+        var altitudeMax = Short.MIN_VALUE
+        var altitudeSum = 0L
+        var temperatureMin = Short.MAX_VALUE
+        var temperatureMax = Short.MIN_VALUE
+        var temperatureSum = 0L
+        var temperatureCount = 0
+
+        fun add(speed: Float?, heartRate: Short?, altitude: Short?, temperature: Short?) {
+            count++
+            speedMax = Math.max(speed ?: 0f, speedMax)
+
+            heartRateMax = Math.max((heartRate ?: 0).toInt(), heartRateMax.toInt()).toShort()
+            if (heartRate != null) {
+                heartRateSum += heartRate
+                heartRateCount++
+            }
+
+            // missing altitude values are used as 0
+            val altitudeValue = altitude ?: 0
+            altitudeMin = Math.min(altitudeValue.toInt(), altitudeMin.toInt()).toShort()
+            altitudeMax = Math.max(altitudeValue.toInt(), altitudeMax.toInt()).toShort()
+            altitudeSum += altitudeValue
+
+            // it's possible that just a few samples contain no temperature (e.g. for Edge 800)
+            if (temperature != null) {
+                temperatureMin = Math.min(temperature.toInt(), temperatureMin.toInt()).toShort()
+                temperatureMax = Math.max(temperature.toInt(), temperatureMax.toInt()).toShort()
+                temperatureSum += temperature
+                temperatureCount++
+            }
         }
     }
 }
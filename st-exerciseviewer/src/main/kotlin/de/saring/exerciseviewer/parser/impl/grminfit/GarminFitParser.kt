@@ -34,6 +34,17 @@ class GarminFitParser : AbstractExerciseParser() {
         return mesgListener.getExercise()
     }
 
+    override fun parseSummary(filename: String): EVExercise {
+        // the summary is mostly taken from the Session message, the Record messages are not stored as samples
+        // (the whole file is still decoded, the Session message is stored at the end and the Record messages
+        // are needed for the summary values missing in it)
+        val mesgListener = FitMessageListener(storeSamples = false)
+        readFitFile(filename, mesgListener)
+        return mesgListener.getExercise()
+    }
+
+    override val isSummarySupported = true
+
     /**
      * Reads the specified FIT file and creates the appropriate EVExcercise.
      *
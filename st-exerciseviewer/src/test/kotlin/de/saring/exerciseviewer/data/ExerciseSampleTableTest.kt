@@ -0,0 +1,129 @@
+package de.saring.exerciseviewer.data
+
+import de.saring.exerciseviewer.data.ExerciseSampleTable.Channel
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.Collections
+
+/**
+ * This class contains all unit tests for the ExerciseSampleTable class.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseSampleTableTest {
+
+    /**
+     * Tests the storage of samples with optional values, the table stores copies of the added samples and returns
+     * views of its rows.
+     */
+    @Test
+    fun testAddAndModify() {
+        val table = ExerciseSampleTable()
+        val sample = ExerciseSample(timestamp = 1000, heartRate = 120, position = Position(51.05, 13.74))
+        table.add(sample)
+        table.add(ExerciseSample(timestamp = 2000, speed = 25.5f))
+
+        assertEquals(2, table.size)
+        assertTrue(table.isPresent(Channel.HEART_RATE, 0))
+        assertFalse(table.isPresent(Channel.HEART_RATE, 1))
+        assertEquals(120.toShort(), table.getHeartRate(0))
+        assertEquals(13.74, table.getLongitude(0), 0.0001)
+        assertEquals(25.5f, table.getSpeed(1))
+        assertThrows(NoSuchElementException::class.java) { table.getHeartRate(1) }
+
+        // the added sample is not bound to the table, but the returned views are
+        sample.heartRate = 110
+        assertEquals(120.toShort(), table.getHeartRate(0))
+        val view = table[0]
+        view.heartRate = 130
+        view.position = null
+        assertEquals(130.toShort(), table.getHeartRate(0))
+        assertFalse(table.isPresent(Channel.POSITION, 0))
+
+        // the copy of a view is independent of the table and equal to the view
+        val copy = view.copy()
+        assertEquals(view, copy)
+        assertEquals(view.hashCode(), copy.hashCode())
+        copy.heartRate = 140
+        assertEquals(130.toShort(), table.getHeartRate(0))
+        assertEquals(ExerciseSample(timestamp = 1000, heartRate = 140), copy)
+
+        table.setAltitude(1, 230)
+        assertEquals(ExerciseSample(timestamp = 2000, altitude = 230, speed = 25.5f), table[1])
+        assertNull(table[1].cadence)
+    }
+
+    /**
+     * Tests the insertion and removal of samples, the values and their presence must be moved.
+     */
+    @Test
+    fun testInsertAndRemove() {
+        val table = ExerciseSampleTable()
+        for (i in 0 until 40) {
+            table.add(ExerciseSample(timestamp = i * 1000L, distance = if (i % 2 == 0) i * 10 else null))
+        }
+
+        table.add(0, ExerciseSample(timestamp = -1000, cadence = 90))
+        assertEquals(41, table.size)
+        assertEquals(90.toShort(), table[0].cadence)
+        assertEquals(0L, table.getTimestamp(1))
+        assertEquals(0, table.getDistance(1))
+        assertFalse(table.isPresent(Channel.DISTANCE, 2))
+        assertEquals(39_000L, table.getTimestamp(40))
+
+        val removed = table.removeAt(0)
+        assertEquals(90.toShort(), removed.cadence)
+        assertEquals(40, table.size)
+        assertFalse(table.isPresent(Channel.CADENCE, 0))
+        assertEquals(20, table.getDistance(2))
+        assertFalse(table.isPresent(Channel.DISTANCE, 39))
+
+        table.clear()
+        assertTrue(table.isEmpty())
+        assertThrows(IndexOutOfBoundsException::class.java) { table.getTimestamp(0) }
+    }
+
+    /**
+     * Tests the sorting and swapping of samples, all values of the rows must be exchanged.
+     */
+    @Test
+    fun testSortAndSwap() {
+        val table = ExerciseSampleTable()
+        listOf(3, 1, 4, 2).forEach {
+            table.add(ExerciseSample(timestamp = it * 1000L, heartRate = (100 + it).toShort(),
+                    cadence = if (it == 1) 90.toShort() else null))
+        }
+
+        table.sortBy { it.timestamp }
+        assertEquals(listOf(1000L, 2000L, 3000L, 4000L), table.map { it.timestamp })
+        assertEquals(listOf<Short?>(101, 102, 103, 104), table.map { it.heartRate })
+        assertEquals(90.toShort(), table.getCadence(0))
+        assertFalse(table.isPresent(Channel.CADENCE, 1))
+
+        Collections.swap(table, 0, 3)
+        assertEquals(ExerciseSample(timestamp = 4000, heartRate = 104), table[0])
+        assertEquals(ExerciseSample(timestamp = 1000, heartRate = 101, cadence = 90), table[3])
+
+        table.sortByDescending { it.timestamp }
+        assertEquals(listOf(4000L, 3000L, 2000L, 1000L), table.map { it.timestamp })
+        assertEquals(90.toShort(), table[3].cadence)
+    }
+
+    /**
+     * Tests the appending of empty samples, which values are set by the typed setters.
+     */
+    @Test
+    fun testAddEmpty() {
+        val table = ExerciseSampleTable()
+        table.addEmpty(3)
+        table.setTimestamp(2, 5000)
+
+        assertEquals(3, table.size)
+        assertEquals(ExerciseSample(), table[0])
+        assertEquals(5000L, table[2].timestamp)
+    }
+}
@@ -0,0 +1,57 @@
+package de.saring.exerciseviewer.parser
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Test
+import java.nio.file.Paths
+
+/**
+ * This class contains all unit tests for the BinaryInput class.
+ *
+ * @author Stefan Saring
+ */
+class BinaryInputTest {
+
+    private val input = BinaryInput.wrap(byteArrayOf(
+            0x12, 0xff.toByte(), 0x34, 0x80.toByte(), 0xfe.toByte(), 0xff.toByte(), 0xff.toByte(), 0xff.toByte()))
+
+    /**
+     * Tests the unsigned accessors, multi-byte values are little endian.
+     */
+    @Test
+    fun testUnsignedAccessors() {
+        assertEquals(8, input.size)
+        assertEquals(0x12, input.u8(0))
+        assertEquals(255, input.u8(1))
+        assertEquals(0xff12, input.u16le(0))
+        assertEquals(0x8034, input.u16le(2))
+        assertEquals(4294967294L, input.u32le(4))
+        assertEquals(12, input.bcd(0))
+        assertEquals(8, input.bits(3, 4, 4))
+        assertEquals(3, input.bits(2, 4, 2))
+    }
+
+    /**
+     * Tests the views of parts of the content, the offsets of a view start at 0.
+     */
+    @Test
+    fun testSlice() {
+        val part = input.slice(2, 3)
+        assertEquals(3, part.size)
+        assertEquals(0x34, part.u8(0))
+        assertEquals(0xfe, part.u8(2))
+        assertEquals(0x8034, part.u16le(0))
+
+        assertThrows(IndexOutOfBoundsException::class.java) { part.u8(3) }
+        assertThrows(IndexOutOfBoundsException::class.java) { input.slice(6, 3) }
+    }
+
+    /**
+     * Tests the reading of a binary exercise file.
+     */
+    @Test
+    fun testRead() {
+        val fileInput = BinaryInput.read(Paths.get("misc/testdata/s710/cycling-metric.srd"))
+        assertEquals(fileInput.size, fileInput.u16le(0))
+    }
+}
@@ -0,0 +1,226 @@
+package de.saring.exerciseviewer.parser
+
+import de.saring.exerciseviewer.data.ExerciseSampleTable
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+
+/**
+ * This class contains all unit tests for the ExerciseFileCache class.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseFileCacheTest {
+
+    private lateinit var tempDirectory: Path
+    private lateinit var cacheDirectory: Path
+
+    /**
+     * This method creates the temporary directory for the exercise files and the cache.
+     */
+    @BeforeEach
+    fun setUp() {
+        tempDirectory = Files.createTempDirectory("ev-cache-test")
+        cacheDirectory = tempDirectory.resolve("cache")
+    }
+
+    /**
+     * This method removes the temporary directory after each test.
+     */
+    @AfterEach
+    fun tearDown() {
+        tempDirectory.toFile().deleteRecursively()
+    }
+
+    /**
+     * Parses all supported test files through the cache twice (by different cache instances), the cached results
+     * must be equal to the parser results.
+     */
+    @Test
+    fun testCachedExercisesEqualParsedExercises() {
+        val suffixes = ExerciseParserFactory.exerciseParserInfos.flatMap { it.suffixes }
+        val filenames = File("misc/testdata").walkTopDown()
+                .filter { file -> file.isFile && suffixes.any { file.name.endsWith(".$it") } }
+                .map { it.path }
+                .toList()
+
+        val parsedExercises = filenames
+                .mapNotNull { filename -> parseOrNull { ExerciseParserFactory.getParser(filename).parseExercise(filename) }
+                        ?.let { filename to it } }
+                .toMap()
+        assertTrue(parsedExercises.size > 20)
+
+        ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 0).let { cache ->
+            parsedExercises.forEach { (filename, exercise) -> assertEquals(exercise, cache.parseExercise(filename)) }
+        }
+        assertEquals(parsedExercises.size, countEntries())
+
+        ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 0).let { cache ->
+            parsedExercises.forEach { (filename, exercise) ->
+                assertEquals(exercise, cache.parseExercise(filename), "Different cached exercise for '$filename'!")
+            }
+        }
+    }
+
+    /**
+     * Tests the use of the cache: the cached exercise must be used while the exercise file has the same size and
+     * modification time, otherwise the file needs to be parsed again.
+     */
+    @Test
+    fun testCacheEntryValidation() {
+        val exerciseFile = copyTestFile("s410-sample.hrm", "exercise.hrm")
+        val cache = ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 0)
+        assertEquals(26, cache.parseExercise(exerciseFile.toString()).dateTime!!.dayOfMonth)
+
+        // modify the content with the same size and modification time => the cached exercise is still used
+        modifyDate(exerciseFile)
+        assertEquals(26, cache.parseExercise(exerciseFile.toString()).dateTime!!.dayOfMonth)
+
+        // a changed modification time needs a new parsing
+        Files.setLastModifiedTime(exerciseFile, FileTime.fromMillis(1_600_000_000_000))
+        assertEquals(27, cache.parseExercise(exerciseFile.toString()).dateTime!!.dayOfMonth)
+        assertEquals(1, countEntries())
+    }
+
+    /**
+     * Tests the eviction of the least recently used entries when the maximum cache size has been exceeded.
+     */
+    @Test
+    fun testLeastRecentlyUsedEviction() {
+        val file1 = copyTestFile("s410-sample.hrm", "exercise1.hrm")
+        val file2 = copyTestFile("s410-sample.hrm", "exercise2.hrm")
+        val file3 = copyTestFile("s410-sample.hrm", "exercise3.hrm")
+
+        // determine the entry size, the cache can store two entries
+        val sizingDirectory = tempDirectory.resolve("sizing")
+        ExerciseFileCache(sizingDirectory, Long.MAX_VALUE, 0).parseExercise(file1.toString())
+        val entrySize = Files.newDirectoryStream(sizingDirectory).use { paths -> Files.size(paths.first()) }
+        val cache = ExerciseFileCache(cacheDirectory, entrySize * 2, 0)
+
+        cache.parseExercise(file1.toString())
+        cache.parseExercise(file2.toString())
+        assertEquals(2, countEntries())
+
+        // file 1 is used again, so the entry of file 2 must be removed for file 3
+        cache.parseExercise(file1.toString())
+        cache.parseExercise(file3.toString())
+        assertEquals(2, countEntries())
+
+        // the modified files must be parsed again only when they are not cached anymore
+        modifyDate(file1)
+        modifyDate(file2)
+        assertEquals(26, cache.parseExercise(file1.toString()).dateTime!!.dayOfMonth)
+        assertEquals(27, cache.parseExercise(file2.toString()).dateTime!!.dayOfMonth)
+
+        cache.clear()
+        assertEquals(0, countEntries())
+    }
+
+    /**
+     * Tests the memory cache: the same exercise instance must be returned until the exercise file has been changed.
+     */
+    @Test
+    fun testSharedExercisesInMemory() {
+        val exerciseFile = copyTestFile("s410-sample.hrm", "exercise.hrm")
+        val cache = ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 100_000)
+
+        val exercise = cache.parseExercise(exerciseFile.toString())
+        assertSame(exercise, cache.parseExercise(exerciseFile.toString()))
+
+        Files.setLastModifiedTime(exerciseFile, FileTime.fromMillis(1_600_000_000_000))
+        val changedExercise = cache.parseExercise(exerciseFile.toString())
+        assertNotSame(exercise, changedExercise)
+        assertEquals(exercise, changedExercise)
+        assertSame(changedExercise, cache.parseExercise(exerciseFile.toString()))
+
+        cache.clear()
+        assertNotSame(changedExercise, cache.parseExercise(exerciseFile.toString()))
+    }
+
+    /**
+     * Tests the parsing of summaries: parsed summaries must be stored in memory and in separate cache entries, the
+     * summary of a cached exercise is a copy without samples.
+     */
+    @Test
+    fun testParseSummary() {
+        val summaryFile = copyTestFile("s410-sample.hrm", "summary.hrm")
+        val cache = ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 100_000)
+
+        val parsedSummary = cache.parseSummary(summaryFile.toString())
+        assertTrue(parsedSummary.sampleList.isEmpty())
+        assertSame(parsedSummary, cache.parseSummary(summaryFile.toString()))
+        assertEquals(1, countEntries())
+
+        // the cached summary must be used by the next cache instance
+        modifyDate(summaryFile)
+        assertEquals(parsedSummary, ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 0)
+                .parseSummary(summaryFile.toString()))
+
+        val exerciseFile = copyTestFile("s410-sample.hrm", "exercise.hrm")
+        val exercise = cache.parseExercise(exerciseFile.toString())
+        assertFalse(exercise.sampleList.isEmpty())
+        assertEquals(parsedSummary, exercise.copy(sampleList = ExerciseSampleTable()))
+
+        // the cached exercise must be used for the summary (in memory and in the cache directory) and must not be
+        // modified, the summary is not stored separately then
+        modifyDate(exerciseFile)
+        assertEquals(parsedSummary, cache.parseSummary(exerciseFile.toString()))
+        assertFalse(exercise.sampleList.isEmpty())
+        assertEquals(parsedSummary, ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 0)
+                .parseSummary(exerciseFile.toString()))
+        assertEquals(2, countEntries())
+    }
+
+    /**
+     * Tests the parsing of summaries by a parser without a separate summary parsing: the complete exercise must be
+     * parsed and cached, so it's used when the complete exercise is needed afterwards.
+     */
+    @Test
+    fun testParseSummaryWithoutSummarySupport() {
+        val exerciseFile = copyTestFile("smartsync-sample.csv", "exercise.csv")
+        val cache = ExerciseFileCache(cacheDirectory, Long.MAX_VALUE, 100_000)
+        assertFalse(ExerciseParserFactory.getParser(exerciseFile.toString()).isSummarySupported)
+
+        val parsedSummary = cache.parseSummary(exerciseFile.toString())
+        assertTrue(parsedSummary.sampleList.isEmpty())
+        assertEquals(1, countEntries())
+
+        val exercise = cache.parseExercise(exerciseFile.toString())
+        assertFalse(exercise.sampleList.isEmpty())
+        assertSame(exercise, cache.parseExercise(exerciseFile.toString()))
+        assertEquals(parsedSummary, exercise.copy(sampleList = ExerciseSampleTable()))
+        assertEquals(1, countEntries())
+    }
+
+    /**
+     * Changes the exercise date of the HRM file, the file size and modification time remain unchanged.
+     */
+    private fun modifyDate(exerciseFile: Path) {
+        val lastModified = Files.getLastModifiedTime(exerciseFile)
+        val content = String(Files.readAllBytes(exerciseFile))
+        Files.write(exerciseFile, content.replace("Date=20040426", "Date=20040427").toByteArray())
+        Files.setLastModifiedTime(exerciseFile, lastModified)
+    }
+
+    private fun countEntries() = Files.newDirectoryStream(cacheDirectory).use { it.count() }
+
+    private fun copyTestFile(testFile: String, targetName: String): Path =
+            Files.copy(Paths.get("misc/testdata", testFile), tempDirectory.resolve(targetName))
+
+    private fun <T> parseOrNull(parse: () -> T): T? =
+            try {
+                parse()
+            } catch (e: Exception) {
+                null
+            }
+}
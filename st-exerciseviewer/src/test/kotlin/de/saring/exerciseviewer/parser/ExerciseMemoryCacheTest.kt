@@ -0,0 +1,69 @@
+package de.saring.exerciseviewer.parser
+
+import de.saring.exerciseviewer.data.EVExercise
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Test
+
+/**
+ * This class contains all unit tests for the ExerciseMemoryCache class.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseMemoryCacheTest {
+
+    /**
+     * Tests the removal of the least recently used exercises when the maximum weight has been exceeded.
+     */
+    @Test
+    fun testLeastRecentlyUsedEviction() {
+        val cache = ExerciseMemoryCache<String>(100)
+        val exercise1 = createExercise(39)
+        val exercise2 = createExercise(29)
+        val exercise3 = createExercise(49)
+
+        cache.put("1", exercise1)
+        cache.put("2", exercise2)
+        assertEquals(70, cache.weight)
+
+        // exercise 1 is used again, so exercise 2 must be removed for exercise 3
+        assertSame(exercise1, cache["1"])
+        cache.put("3", exercise3)
+        assertEquals(90, cache.weight)
+        assertSame(exercise1, cache["1"])
+        assertNull(cache["2"])
+        assertSame(exercise3, cache["3"])
+
+        // replace an exercise
+        val exercise3b = createExercise(9)
+        cache.put("3", exercise3b)
+        assertEquals(50, cache.weight)
+        assertSame(exercise3b, cache["3"])
+
+        cache.remove("1")
+        assertNull(cache["1"])
+        assertEquals(10, cache.weight)
+
+        cache.clear()
+        assertNull(cache["3"])
+        assertEquals(0, cache.weight)
+    }
+
+    /**
+     * Exercises which are heavier than the maximum weight must not be stored.
+     */
+    @Test
+    fun testTooHeavyExercise() {
+        val cache = ExerciseMemoryCache<String>(100)
+        cache.put("1", createExercise(10))
+        cache.put("2", createExercise(100))
+
+        assertNull(cache["2"])
+        assertEquals(11, cache.weight)
+    }
+
+    private fun createExercise(sampleCount: Int) = EVExercise(EVExercise.ExerciseFileType.HRM).apply {
+        sampleList.addEmpty(sampleCount)
+    }
+}
@@ -0,0 +1,72 @@
+package de.saring.exerciseviewer.parser
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.io.File
+import java.util.Random
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * This class contains the concurrency tests for all ExerciseParser implementations. The parser instances are
+ * shared, so parsing the same and different files from many threads at once must return the same results as
+ * parsing them sequentially.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseParserConcurrencyTest {
+
+    /**
+     * Parses all supported test files sequentially first, then all of them from many threads at once.
+     */
+    @Test
+    fun testParseAllFilesConcurrently() {
+
+        val suffixes = ExerciseParserFactory.exerciseParserInfos.flatMap { it.suffixes }
+        val filenames = File("misc/testdata").walkTopDown()
+                .filter { file -> file.isFile && suffixes.any { file.name.endsWith(".$it") } }
+                .map { it.path }
+                .sorted()
+                .toList()
+        assertTrue(filenames.size > 20)
+
+        val expectedResults = filenames.associate { it to parse(it) }
+
+        val executor = Executors.newFixedThreadPool(THREAD_COUNT)
+        try {
+            val tasks = (0 until THREAD_COUNT).map { threadIndex ->
+                Callable {
+                    // each thread uses a different order, so different parsers and files are used at the same time
+                    val shuffledFilenames = filenames.shuffled(Random(threadIndex.toLong()))
+                    (0 until ROUNDS).flatMap { shuffledFilenames.map { it to parse(it) } }
+                }
+            }
+
+            executor.invokeAll(tasks).forEach { future ->
+                future.get().forEach { (filename, result) ->
+                    assertEquals(expectedResults[filename], result, "Different result for file '$filename'!")
+                }
+            }
+        } finally {
+            executor.shutdown()
+            executor.awaitTermination(10, TimeUnit.SECONDS)
+        }
+    }
+
+    /**
+     * Returns the parsed exercise or the error message for invalid files.
+     */
+    private fun parse(filename: String): Any =
+            try {
+                ExerciseParserFactory.getParser(filename).parseExercise(filename)
+            } catch (e: Exception) {
+                "${e.javaClass.name}: ${e.message}"
+            }
+
+    companion object {
+        private const val THREAD_COUNT = 8
+        private const val ROUNDS = 3
+    }
+}
@@ -0,0 +1,55 @@
+package de.saring.exerciseviewer.parser
+
+import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseSampleTable
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.io.File
+
+/**
+ * This class contains the tests of the summary parsing for all ExerciseParser implementations. The parsed summary
+ * must contain the same data as the completely parsed exercise, but no samples.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseParserSummaryTest {
+
+    /**
+     * Parses all valid test files completely and the summary only, the results must be equal except the samples.
+     */
+    @Test
+    fun testParseSummaryOfAllFiles() {
+
+        val suffixes = ExerciseParserFactory.exerciseParserInfos.flatMap { it.suffixes }
+        val filenames = File("misc/testdata").walkTopDown()
+                .filter { file -> file.isFile && suffixes.any { file.name.endsWith(".$it") } }
+                .map { it.path }
+                .sorted()
+                .toList()
+
+        var parsedFileCount = 0
+        filenames.forEach { filename ->
+            val parser = ExerciseParserFactory.getParser(filename)
+            val exercise = try {
+                parser.parseExercise(filename)
+            } catch (e: Exception) {
+                // invalid test file
+                return@forEach
+            }
+
+            val summary = parser.parseSummary(filename)
+            assertTrue(summary.sampleList.isEmpty())
+
+            val expectedSummary = exercise.copy(sampleList = ExerciseSampleTable())
+            if (summary.fileType == EVExercise.ExerciseFileType.GARMIN_FIT) {
+                // the FIT lap data is partially taken from the samples
+                assertEquals(expectedSummary.lapList.size, summary.lapList.size)
+                expectedSummary.lapList = summary.lapList
+            }
+            assertEquals(expectedSummary, summary, "Different summary for file '$filename'!")
+            parsedFileCount++
+        }
+        assertTrue(parsedFileCount > 20)
+    }
+}
@@ -15,6 +15,7 @@ import de.saring.exerciseviewer.core.EVException
 import org.junit.jupiter.api.Test
 
 import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseSampleTable
 import de.saring.exerciseviewer.parser.ExerciseParser
 import de.saring.exerciseviewer.parser.impl.garminfit.GarminFitParser
 import org.junit.jupiter.api.AfterAll
@@ -199,6 +200,45 @@ class GarminFitParserTest {
         assertEquals(30, exercise.sampleList[8234].temperature!!.toInt())
     }
 
+    /**
+     * This method tests the summary parsing of the exercise file with cycling data. The exercise data must be the
+     * same as for the complete exercise, but the samples and the lap values taken from the samples are missing.
+     */
+    @Test
+    @Throws(EVException::class)
+    fun testParseSummary() {
+        val filename = "misc/testdata/garmin-fit/2010-07-04-06-07-36.fit"
+        val summary = parser.parseSummary(filename)
+
+        // check exercise data
+        assertTrue(summary.sampleList.isEmpty())
+        assertEquals(LocalDateTime.of(2010, 7, 4, 6, 7, 36), summary.dateTime)
+        assertEquals(146499, summary.duration?.toInt())
+        assertEquals(121, summary.heartRateAVG?.toInt())
+        assertEquals(180, summary.heartRateMax?.toInt())
+        assertEquals(101710, summary.speed?.distance)
+        assertEquals(68.4648, summary.speed?.speedMax!!.toDouble(), 0.001)
+        assertEquals(127, summary.altitude?.altitudeMin?.toInt())
+        assertEquals(290, summary.altitude?.altitudeAvg?.toInt())
+        assertEquals(419, summary.altitude?.altitudeMax?.toInt())
+        assertEquals(24, summary.temperature?.temperatureAvg?.toInt())
+
+        val expectedSummary = parser.parseExercise(filename).copy(sampleList = ExerciseSampleTable())
+        expectedSummary.lapList = summary.lapList
+        assertEquals(expectedSummary, summary)
+
+        // check lap data, the values of the samples at lap end are missing
+        assertEquals(5, summary.lapList.size)
+        assertEquals((0 * 3600 + 29 * 60 + 15) * 10, summary.lapList[0].timeSplit)
+        assertEquals(126, summary.lapList[0].heartRateAVG?.toInt())
+        assertEquals(146, summary.lapList[0].heartRateMax?.toInt())
+        assertEquals(11084, summary.lapList[0].speed?.distance)
+        assertEquals(151, summary.lapList[0].altitude?.ascent)
+        assertEquals(51.05553, summary.lapList[0].positionSplit?.latitude!!, 0.001)
+        assertNull(summary.lapList[0].heartRateSplit)
+        assertNull(summary.lapList[0].temperature)
+    }
+
     /**
      * This method tests the parser with an exercise file with running data recorded by
      * a Garmin Forerunner 910XT. Mostly the differences of this device are tested here.
@@ -0,0 +1,255 @@
+package de.saring.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Schema versioned key-value file for storing application options, it replaces the reflection based
+ * {@link XmlBeanStorage} for options. The values are read and written explicitly by the application
+ * (no bean introspection), so loading the options is fast and doesn't slow down the application start.
+ * <br/>
+ * The file uses the Java properties format in UTF-8 encoding, the keys are written in sorted order.
+ * The key {@link #KEY_SCHEMA_VERSION} contains the version of the option structure, so the application
+ * can migrate the values of older versions. The files are written and read by using {@link SafeFileUtils},
+ * so they can't get corrupted by crashes.
+ *
+ * @author Stefan Saring
+ */
+public final class OptionsFile {
+
+    /** Key of the schema version of the stored options. */
+    public static final String KEY_SCHEMA_VERSION = "schema.version";
+
+    private final Map<String, String> values = new TreeMap<>();
+
+    /**
+     * Creates an empty options file content for the specified schema version.
+     *
+     * @param schemaVersion version of the option structure
+     */
+    public OptionsFile(final int schemaVersion) {
+        putInt(KEY_SCHEMA_VERSION, schemaVersion);
+    }
+
+    private OptionsFile(final Map<String, String> values) {
+        this.values.putAll(values);
+    }
+
+    /**
+     * Reads the options from the specified file.
+     *
+     * @param file the options file
+     * @return the read options
+     * @throws IOException when the file does not exists or can't be read
+     */
+    public static OptionsFile read(final Path file) throws IOException {
+        return SafeFileUtils.readFile(file, OptionsFile::readContent);
+    }
+
+    private static OptionsFile readContent(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        if (!properties.containsKey(KEY_SCHEMA_VERSION)) {
+            throw new IOException("The options file '" + file + "' contains no schema version!");
+        }
+
+        final Map<String, String> values = new TreeMap<>();
+        properties.stringPropertyNames().forEach(key -> values.put(key, properties.getProperty(key)));
+        return new OptionsFile(values);
+    }
+
+    /**
+     * Writes the options to the specified file, the previous file will be kept as backup file.
+     *
+     * @param file the options file
+     * @throws IOException when the file can't be created or written
+     */
+    public void write(final Path file) throws IOException {
+        SafeFileUtils.writeFile(file, outputStream -> {
+            final Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writer.write(escape(entry.getKey(), true));
+                writer.write('=');
+                writer.write(escape(entry.getValue(), false));
+                writer.write('\n');
+            }
+            writer.flush();
+        });
+    }
+
+    /**
+     * Returns the schema version of the stored options.
+     *
+     * @return the schema version (0 when invalid)
+     */
+    public int getSchemaVersion() {
+        return getInt(KEY_SCHEMA_VERSION, 0);
+    }
+
+    /**
+     * Returns true when the options contain the specified key.
+     *
+     * @param key the option key
+     * @return true when contained
+     */
+    public boolean contains(final String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Returns the string value of the specified key.
+     *
+     * @param key the option key
+     * @param defaultValue the value to return when the key is missing
+     * @return the string value
+     */
+    public String getString(final String key, final String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Returns the boolean value of the specified key.
+     *
+     * @param key the option key
+     * @param defaultValue the value to return when the key is missing
+     * @return the boolean value
+     */
+    public boolean getBoolean(final String key, final boolean defaultValue) {
+        final String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Returns the int value of the specified key.
+     *
+     * @param key the option key
+     * @param defaultValue the value to return when the key is missing or invalid
+     * @return the int value
+     */
+    public int getInt(final String key, final int defaultValue) {
+        final String value = values.get(key);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                // use the default value
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the enum value of the specified key, the constants are passed explicitly, so no
+     * reflection is needed.
+     *
+     * @param key the option key
+     * @param constants all constants of the enum type
+     * @param defaultValue the value to return when the key is missing or invalid
+     * @param <E> type of the enum
+     * @return the enum value
+     */
+    public <E extends Enum<E>> E getEnum(final String key, final E[] constants, final E defaultValue) {
+        final String value = values.get(key);
+        for (E constant : constants) {
+            if (constant.name().equals(value)) {
+                return constant;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Sets the string value of the specified key, null values will not be stored.
+     *
+     * @param key the option key
+     * @param value the value (can be null)
+     */
+    public void putString(final String key, final String value) {
+        if (value == null) {
+            values.remove(key);
+        } else {
+            values.put(key, value);
+        }
+    }
+
+    /**
+     * Sets the boolean value of the specified key.
+     *
+     * @param key the option key
+     * @param value the value
+     */
+    public void putBoolean(final String key, final boolean value) {
+        values.put(key, String.valueOf(value));
+    }
+
+    /**
+     * Sets the int value of the specified key.
+     *
+     * @param key the option key
+     * @param value the value
+     */
+    public void putInt(final String key, final int value) {
+        values.put(key, String.valueOf(value));
+    }
+
+    /**
+     * Sets the enum value of the specified key, null values will not be stored.
+     *
+     * @param key the option key
+     * @param value the value (can be null)
+     */
+    public void putEnum(final String key, final Enum<?> value) {
+        putString(key, value == null ? null : value.name());
+    }
+
+    /**
+     * Escapes the specified key or value for the properties format.
+     */
+    private static String escape(final String text, final boolean isKey) {
+        final StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    sb.append('\\').append(c);
+                    break;
+                case ' ':
+                    // leading spaces of values and all spaces of keys must be escaped
+                    sb.append(isKey || i == 0 ? "\\ " : " ");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
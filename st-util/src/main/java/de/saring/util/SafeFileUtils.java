@@ -0,0 +1,260 @@
+package de.saring.util;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Helper class for crash-safe writing and reading of files.<br/>
+ * The content gets written to a temporary file in the same directory first, which will be synced to
+ * the disk and then moved atomically over the target file. So the target file contains either the
+ * complete previous or the complete new content, even when the application or the system crashes
+ * while writing. The previous generation of the file will be kept as backup file (filename with suffix
+ * ".bak"), it's created by a hard link (or a copy) before the replacement, so the target file exists
+ * all the time for concurrent readers.<br/>
+ * When reading a file, the backup file will be used when the file is missing or can't be read. Such a
+ * file will not be moved to the backup file on the next write, so the backup file stays the last good
+ * generation. The files read from backup are provided for informing the user.
+ *
+ * @author Stefan Saring
+ */
+public final class SafeFileUtils {
+
+    private static final Logger LOGGER = Logger.getLogger(SafeFileUtils.class.getName());
+
+    /** Suffix of the backup filename (appended to the filename). */
+    public static final String BACKUP_SUFFIX = ".bak";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The absolute paths of all files, which have been read from the backup file and not written since. */
+    private static final Set<Path> FILES_READ_FROM_BACKUP = ConcurrentHashMap.newKeySet();
+
+    private SafeFileUtils() {
+    }
+
+    /**
+     * Returns the path of the backup file for the specified file.
+     *
+     * @param file the file
+     * @return path of the backup file
+     */
+    public static Path getBackupFile(final Path file) {
+        return Paths.get(file.toString() + BACKUP_SUFFIX);
+    }
+
+    /**
+     * Checks whether the specified file or its backup file exists.
+     *
+     * @param filename name of the file
+     * @return true when the file or the backup file exists
+     */
+    public static boolean exists(final String filename) {
+        final Path file = Paths.get(filename);
+        return Files.exists(file) || Files.exists(getBackupFile(file));
+    }
+
+    /**
+     * Writes the specified file in a crash-safe way. The content gets written by the content writer
+     * to a temporary file, the target file will only be replaced after the content has been written
+     * successfully. The previous content of the file will be kept in the backup file, except the file
+     * has been read from the backup file before (the file content is invalid then).
+     *
+     * @param file the file to write
+     * @param contentWriter the writer of the file content
+     * @param <E> exception type thrown by the content writer
+     * @throws IOException on file write problems
+     * @throws E on content writer problems, the target file remains unchanged
+     */
+    public static <E extends Exception> void writeFile(final Path file, final ContentWriter<E> contentWriter)
+            throws IOException, E {
+
+        if (Files.isDirectory(file)) {
+            throw new IOException("The file '" + file + "' can't be written, it's a directory!");
+        }
+
+        final Path directory = file.toAbsolutePath().getParent();
+        final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+
+        try {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile.toFile())) {
+                // the content writer must not close the file stream, it needs to be synced before
+                final OutputStream outputStream = new BufferedOutputStream(new NonClosingOutputStream(fileOutputStream));
+                contentWriter.write(outputStream);
+                outputStream.flush();
+                fileOutputStream.getFD().sync();
+            }
+
+            // a file read from the backup file is invalid, it must not replace the last good generation
+            final Path absoluteFile = getAbsolutePath(file);
+            if (Files.exists(file) && !FILES_READ_FROM_BACKUP.contains(absoluteFile)) {
+                createBackup(file, directory);
+            }
+            move(tempFile, file);
+            FILES_READ_FROM_BACKUP.remove(absoluteFile);
+            syncDirectory(directory);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads the specified file by using the content reader. When the file is missing or the content reader
+     * fails and the backup file exists, then the backup file (last good generation) will be read instead.
+     *
+     * @param file the file to read
+     * @param contentReader the reader of the file content
+     * @param <T> type of the read content
+     * @param <E> exception type thrown by the content reader
+     * @return the read content
+     * @throws IOException on file read problems
+     * @throws E on content reader problems (the exception of the file, not of the backup file)
+     */
+    public static <T, E extends Exception> T readFile(final Path file, final ContentReader<T, E> contentReader)
+            throws IOException, E {
+
+        final Path backupFile = getBackupFile(file);
+        try {
+            final T content = contentReader.read(file);
+            FILES_READ_FROM_BACKUP.remove(getAbsolutePath(file));
+            return content;
+        } catch (Exception e) {
+            if (!Files.exists(backupFile)) {
+                throw e;
+            }
+
+            LOGGER.log(Level.WARNING, "Failed to read file '" + file + "', reading backup file '"
+                    + backupFile + "' instead ...", e);
+            try {
+                final T content = contentReader.read(backupFile);
+                FILES_READ_FROM_BACKUP.add(getAbsolutePath(file));
+                return content;
+            } catch (Exception backupException) {
+                e.addSuppressed(backupException);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the files, which have been read from their backup files because they were missing or invalid.
+     * They will be removed when they have been written again.
+     *
+     * @return the sorted absolute paths of the files read from backup
+     */
+    public static Set<Path> getFilesReadFromBackup() {
+        return new TreeSet<>(FILES_READ_FROM_BACKUP);
+    }
+
+    private static Path getAbsolutePath(final Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Creates the backup file of the specified file by a hard link or by a copy when links are not supported.
+     * The link or copy is created as temporary file first, so the backup file gets replaced atomically too.
+     */
+    private static void createBackup(final Path file, final Path directory) throws IOException {
+        final Path backupTempFile = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try {
+                Files.delete(backupTempFile);
+                Files.createLink(backupTempFile, file);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(file, backupTempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            move(backupTempFile, getBackupFile(file));
+        } finally {
+            Files.deleteIfExists(backupTempFile);
+        }
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void syncDirectory(final Path directory) {
+        // makes the renames durable, not supported on all platforms (e.g. Windows)
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to sync directory '" + directory + "'!", e);
+        }
+    }
+
+    /**
+     * Writer of the file content.
+     *
+     * @param <E> exception type thrown by the writer
+     */
+    @FunctionalInterface
+    public interface ContentWriter<E extends Exception> {
+
+        /**
+         * Writes the file content to the specified stream.
+         *
+         * @param outputStream the stream to write to
+         * @throws IOException on write problems
+         * @throws E on content creation problems
+         */
+        void write(OutputStream outputStream) throws IOException, E;
+    }
+
+    /**
+     * Reader of the file content.
+     *
+     * @param <T> type of the read content
+     * @param <E> exception type thrown by the reader
+     */
+    @FunctionalInterface
+    public interface ContentReader<T, E extends Exception> {
+
+        /**
+         * Reads the content of the specified file.
+         *
+         * @param file the file to read
+         * @return the read content
+         * @throws IOException on read problems
+         * @throws E on content parse problems
+         */
+        T read(Path file) throws IOException, E;
+    }
+
+    /**
+     * OutputStream which flushes instead of closing the wrapped stream.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(final OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
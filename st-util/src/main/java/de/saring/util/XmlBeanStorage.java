@@ -4,14 +4,15 @@ import java.beans.ExceptionListener;
 import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Helper class for reading and writing Java Bean objects from and to XML files (serialization),
  * it is based on the classes {@link java.beans.XMLDecoder} and {@link java.beans.XMLEncoder}.
+ * The files are written and read by using {@link SafeFileUtils}, so they can't get corrupted by crashes.
  *
  * @author Stefan Saring
  */
@@ -29,8 +30,12 @@ public final class XmlBeanStorage {
      * @throws Exception when reading the bean has failed
      */
     public static Object loadBean(final String filename) throws Exception {
+        return SafeFileUtils.readFile(Paths.get(filename), XmlBeanStorage::readBean);
+    }
+
+    private static Object readBean(final Path file) throws Exception {
 
-        try (final XMLDecoder xmlDecoder = new XMLDecoder(new BufferedInputStream(new FileInputStream(filename)))) {
+        try (final XMLDecoder xmlDecoder = new XMLDecoder(new BufferedInputStream(new FileInputStream(file.toFile())))) {
 
             // use custom event listener for proper error handling and logging
             final XmlBeanExceptionListener exceptionListener = new XmlBeanExceptionListener();
@@ -54,17 +59,19 @@ public final class XmlBeanStorage {
      */
     public static void saveBean(final Object bean, final String filename) throws Exception {
 
-        try (final XMLEncoder xmlEncoder = new XMLEncoder(new BufferedOutputStream(new FileOutputStream(filename)))) {
+        SafeFileUtils.writeFile(Paths.get(filename), outputStream -> {
+            try (final XMLEncoder xmlEncoder = new XMLEncoder(outputStream)) {
 
-            // use custom event listener for proper error handling and logging
-            final XmlBeanExceptionListener exceptionListener = new XmlBeanExceptionListener();
-            xmlEncoder.setExceptionListener(exceptionListener);
+                // use custom event listener for proper error handling and logging
+                final XmlBeanExceptionListener exceptionListener = new XmlBeanExceptionListener();
+                xmlEncoder.setExceptionListener(exceptionListener);
 
-            xmlEncoder.writeObject(bean);
-            if (exceptionListener.getThrownException() != null) {
-                throw exceptionListener.getThrownException();
+                xmlEncoder.writeObject(bean);
+                if (exceptionListener.getThrownException() != null) {
+                    throw exceptionListener.getThrownException();
+                }
             }
-        }
+        });
     }
 
     /**
@@ -0,0 +1,82 @@
+package de.saring.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains all unit tests of class OptionsFile.
+ *
+ * @author Stefan Saring
+ */
+public class OptionsFileTest {
+
+    private static final Path OPTIONS_FILE = Paths.get(OptionsFileTest.class.getName() + ".properties");
+
+    /**
+     * Removes the created options files after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(OPTIONS_FILE);
+        Files.deleteIfExists(SafeFileUtils.getBackupFile(OPTIONS_FILE));
+    }
+
+    /**
+     * Tests writing and reading of all value types, including texts with special characters.
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final OptionsFile optionsFile = new OptionsFile(3);
+        optionsFile.putString("text", " C:\\Users\\Müller #1: a=b\nnext line");
+        optionsFile.putString("missing", null);
+        optionsFile.putBoolean("flag", true);
+        optionsFile.putInt("count", -42);
+        optionsFile.putEnum("day", DayOfWeek.FRIDAY);
+        optionsFile.write(OPTIONS_FILE);
+
+        final OptionsFile readOptionsFile = OptionsFile.read(OPTIONS_FILE);
+        assertEquals(3, readOptionsFile.getSchemaVersion());
+        assertEquals(" C:\\Users\\Müller #1: a=b\nnext line", readOptionsFile.getString("text", null));
+        assertFalse(readOptionsFile.contains("missing"));
+        assertNull(readOptionsFile.getString("missing", null));
+        assertTrue(readOptionsFile.getBoolean("flag", false));
+        assertEquals(-42, readOptionsFile.getInt("count", 0));
+        assertEquals(DayOfWeek.FRIDAY, readOptionsFile.getEnum("day", DayOfWeek.values(), DayOfWeek.MONDAY));
+    }
+
+    /**
+     * Tests the default values for missing or invalid values.
+     */
+    @Test
+    public void testDefaultValues() throws IOException {
+        Files.write(OPTIONS_FILE, "schema.version=1\ncount=abc\nday=NO_DAY\n".getBytes(StandardCharsets.UTF_8));
+
+        final OptionsFile readOptionsFile = OptionsFile.read(OPTIONS_FILE);
+        assertEquals(1, readOptionsFile.getSchemaVersion());
+        assertEquals(7, readOptionsFile.getInt("count", 7));
+        assertTrue(readOptionsFile.getBoolean("flag", true));
+        assertEquals(DayOfWeek.MONDAY, readOptionsFile.getEnum("day", DayOfWeek.values(), DayOfWeek.MONDAY));
+    }
+
+    /**
+     * Tests the reading of a file without schema version, it must fail.
+     */
+    @Test
+    public void testReadWithoutSchemaVersion() throws IOException {
+        Files.write(OPTIONS_FILE, "flag=true\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> OptionsFile.read(OPTIONS_FILE));
+    }
+}
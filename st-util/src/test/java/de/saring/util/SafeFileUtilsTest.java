@@ -0,0 +1,169 @@
+package de.saring.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains all unit tests for the SafeFileUtils class.
+ *
+ * @author Stefan Saring
+ */
+public class SafeFileUtilsTest {
+
+    private Path tempDirectory;
+    private Path file;
+
+    /**
+     * Creates the temporary directory for the test files.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDirectory = Files.createTempDirectory("st-safefile-test");
+        file = tempDirectory.resolve("test.txt");
+    }
+
+    /**
+     * Removes the temporary directory after each test.
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Tests of writeFile(): the first write creates the file, the next writes keep the previous
+     * generation as backup file. No temporary files must be left.
+     */
+    @Test
+    public void testWriteFile() throws IOException {
+        assertFalse(SafeFileUtils.exists(file.toString()));
+
+        writeText("Generation 1");
+        assertEquals("Generation 1", readText(file));
+        assertFalse(Files.exists(SafeFileUtils.getBackupFile(file)));
+
+        writeText("Generation 2");
+        writeText("Generation 3");
+        assertEquals("Generation 3", readText(file));
+        assertEquals("Generation 2", readText(SafeFileUtils.getBackupFile(file)));
+        assertEquals(2, listDirectory().size());
+    }
+
+    /**
+     * Tests of writeFile(): when the content writer fails, the file and the backup must be unchanged.
+     */
+    @Test
+    public void testWriteFileFailed() throws IOException {
+        writeText("Generation 1");
+        writeText("Generation 2");
+
+        assertThrows(IOException.class, () ->
+                SafeFileUtils.writeFile(file, outputStream -> {
+                    outputStream.write("Incomplete".getBytes(StandardCharsets.UTF_8));
+                    throw new IOException("Simulated write failure");
+                }));
+
+        assertEquals("Generation 2", readText(file));
+        assertEquals("Generation 1", readText(SafeFileUtils.getBackupFile(file)));
+        assertEquals(2, listDirectory().size());
+    }
+
+    /**
+     * Tests of readFile(): the file content must be read when it's valid, otherwise the backup file.
+     */
+    @Test
+    public void testReadFileWithRecovery() throws IOException {
+        writeText("Generation 1");
+        writeText("Generation 2");
+        assertEquals("Generation 2", SafeFileUtils.readFile(file, this::readValidText));
+
+        // corrupt file => backup needs to be read
+        Files.write(file, "Corrupt".getBytes(StandardCharsets.UTF_8));
+        assertEquals("Generation 1", SafeFileUtils.readFile(file, this::readValidText));
+
+        // missing file (e.g. crash while replacing) => backup needs to be read
+        Files.delete(file);
+        assertTrue(SafeFileUtils.exists(file.toString()));
+        assertEquals("Generation 1", SafeFileUtils.readFile(file, this::readValidText));
+    }
+
+    /**
+     * Tests of writeFile() after reading the backup file: the invalid file must not replace the backup
+     * file, it stays the last good generation.
+     */
+    @Test
+    public void testWriteFileAfterRecovery() throws IOException {
+        writeText("Generation 1");
+        writeText("Generation 2");
+        Files.write(file, "Corrupt".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Generation 1", SafeFileUtils.readFile(file, this::readValidText));
+        assertTrue(SafeFileUtils.getFilesReadFromBackup().contains(file.toAbsolutePath().normalize()));
+
+        writeText("Generation 3");
+        assertEquals("Generation 3", readText(file));
+        assertEquals("Generation 1", readText(SafeFileUtils.getBackupFile(file)));
+        assertFalse(SafeFileUtils.getFilesReadFromBackup().contains(file.toAbsolutePath().normalize()));
+
+        // the next write keeps the previous generation as backup again
+        writeText("Generation 4");
+        assertEquals("Generation 3", readText(SafeFileUtils.getBackupFile(file)));
+    }
+
+    /**
+     * Tests of readFile(): the exception of the file must be thrown when there is no valid backup.
+     */
+    @Test
+    public void testReadFileFailed() throws IOException {
+        assertThrows(NoSuchFileException.class, () ->
+                SafeFileUtils.readFile(file, this::readValidText));
+
+        writeText("Generation 1");
+        Files.write(file, "Corrupt".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () ->
+                SafeFileUtils.readFile(file, this::readValidText));
+    }
+
+    private void writeText(final String text) throws IOException {
+        SafeFileUtils.writeFile(file, outputStream -> outputStream.write(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String readValidText(final Path path) throws IOException {
+        final String text = readText(path);
+        if (!text.startsWith("Generation")) {
+            throw new IOException("Invalid content in file '" + path + "'!");
+        }
+        return text;
+    }
+
+    private static String readText(final Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private List<Path> listDirectory() throws IOException {
+        try (Stream<Path> paths = Files.list(tempDirectory)) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.nio.file.Paths;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import de.saring.util.SafeFileUtils;
 import de.saring.util.XmlBeanStorage;
 
 /**
@@ -29,6 +30,7 @@ public class XmlBeanStorageTest {
     @AfterEach
     public void tearDown() throws Exception {
         Files.deleteIfExists(Paths.get(BEAN_FILENAME));
+        Files.deleteIfExists(Paths.get(BEAN_FILENAME + SafeFileUtils.BACKUP_SUFFIX));
     }
 
     /**